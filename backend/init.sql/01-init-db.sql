@@ -28,6 +28,8 @@ CREATE TABLE IF NOT EXISTS notes (
     readers                BIGINT[],
     writers                BIGINT[],
     current_version_pointer INTEGER DEFAULT 1,
+    content_hash           VARCHAR(64),
+    revision               BIGINT NOT NULL DEFAULT 0,
     created_at             TIMESTAMPTZ NOT NULL DEFAULT now(),
     updated_at             TIMESTAMPTZ NOT NULL DEFAULT now(),
     CONSTRAINT fk_notes_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
@@ -53,27 +55,34 @@ BEGIN
     UPDATE notes 
     SET current_version_pointer = 1 
     WHERE current_version_pointer IS NULL;
-    
-    -- Crea versioni iniziali per le note che non ne hanno
-    INSERT INTO note_versions (note_id, version_number, title, content, readers, writers, created_by, note_creator_id, original_created_at, original_updated_at)
-    SELECT 
-        n.id, 
-        1, 
-        n.title, 
-        n.content, 
-        n.readers, 
-        n.writers, 
-        n.creator_id, 
-        n.creator_id, 
-        n.created_at, 
-        n.updated_at
-    FROM notes n
-    WHERE NOT EXISTS (
-        SELECT 1 FROM note_versions nv 
-        WHERE nv.note_id = n.id AND nv.version_number = 1
-    );
+
 END $$;
 
+-- Hash di titolo e contenuto: stessa espressione di ContentHash.of (lunghezza titolo in code point, ':', titolo, contenuto)
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+UPDATE notes
+SET content_hash = encode(sha256(convert_to(char_length(title) || ':' || title || content, 'UTF8')), 'hex')
+WHERE content_hash IS NULL;
+
+-- Revisione per il lock ottimistico (@Version su Note): incrementata ad ogni modifica
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS revision BIGINT NOT NULL DEFAULT 0;
+
+-- Delta (dalle operazioni di PATCH) tra l'ultima versione salvata e lo stato corrente della nota
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS pending_delta_base    INTEGER;
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS pending_title_delta   TEXT;
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS pending_content_delta TEXT;
+
+-- ======================
+-- VERSION BLOBS (corpi delle versioni, deduplicati per hash)
+-- ======================
+CREATE TABLE IF NOT EXISTS version_blobs (
+    content_hash  VARCHAR(64) PRIMARY KEY,
+    title         VARCHAR(255) NOT NULL,
+    content       TEXT NOT NULL,
+    ref_count     INTEGER NOT NULL DEFAULT 0,
+    created_at    TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
 -- ======================
 -- NOTE VERSIONS (for versioning system)
 -- ======================
@@ -81,8 +90,7 @@ CREATE TABLE IF NOT EXISTS note_versions (
     id                   BIGSERIAL PRIMARY KEY,
     note_id              BIGINT NOT NULL,
     version_number       INTEGER NOT NULL,
-    title                VARCHAR(255) NOT NULL,
-    content              TEXT NOT NULL,
+    content_hash         VARCHAR(64) NOT NULL,
     readers              BIGINT[],
     writers              BIGINT[],
     created_by           BIGINT NOT NULL,
@@ -90,16 +98,150 @@ CREATE TABLE IF NOT EXISTS note_versions (
     created_at           TIMESTAMPTZ NOT NULL DEFAULT now(),
     original_created_at  TIMESTAMPTZ,
     original_updated_at  TIMESTAMPTZ,
+    is_restored          BOOLEAN DEFAULT FALSE,
+    restored_from_version INTEGER,
+    delta_base_version   INTEGER,
+    title_delta          TEXT,
+    content_delta        TEXT,
     CONSTRAINT fk_note_versions_note FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE,
     CONSTRAINT fk_note_versions_created_by FOREIGN KEY (created_by) REFERENCES users(id) ON DELETE CASCADE,
     CONSTRAINT fk_note_versions_note_creator FOREIGN KEY (note_creator_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_note_versions_blob FOREIGN KEY (content_hash) REFERENCES version_blobs(content_hash),
     CONSTRAINT uq_note_version UNIQUE (note_id, version_number)
 );
 
+-- Columns added after the first release (restore info and delta to the previous version)
+ALTER TABLE note_versions ADD COLUMN IF NOT EXISTS is_restored BOOLEAN DEFAULT FALSE;
+ALTER TABLE note_versions ADD COLUMN IF NOT EXISTS restored_from_version INTEGER;
+ALTER TABLE note_versions ADD COLUMN IF NOT EXISTS delta_base_version INTEGER;
+ALTER TABLE note_versions ADD COLUMN IF NOT EXISTS title_delta TEXT;
+ALTER TABLE note_versions ADD COLUMN IF NOT EXISTS content_delta TEXT;
+ALTER TABLE note_versions ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+
+-- Migrazione: i corpi salvati inline in note_versions vengono spostati in version_blobs
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'note_versions' AND column_name = 'content') THEN
+        UPDATE note_versions
+        SET content_hash = encode(sha256(convert_to(char_length(title) || ':' || title || content, 'UTF8')), 'hex')
+        WHERE content_hash IS NULL;
+
+        INSERT INTO version_blobs (content_hash, title, content)
+        SELECT DISTINCT ON (content_hash) content_hash, title, content
+        FROM note_versions
+        ORDER BY content_hash, id
+        ON CONFLICT (content_hash) DO NOTHING;
+
+        ALTER TABLE note_versions DROP COLUMN title, DROP COLUMN content;
+        ALTER TABLE note_versions ALTER COLUMN content_hash SET NOT NULL;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'fk_note_versions_blob') THEN
+        ALTER TABLE note_versions ADD CONSTRAINT fk_note_versions_blob
+            FOREIGN KEY (content_hash) REFERENCES version_blobs(content_hash);
+    END IF;
+END $$;
+
+-- Reference count dei blob: mantenuto dal database, così vale anche per le cancellazioni in cascata
+CREATE OR REPLACE FUNCTION version_blob_refcount() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP = 'INSERT' THEN
+    UPDATE version_blobs SET ref_count = ref_count + 1 WHERE content_hash = NEW.content_hash;
+    RETURN NEW;
+  END IF;
+  UPDATE version_blobs SET ref_count = ref_count - 1 WHERE content_hash = OLD.content_hash;
+  DELETE FROM version_blobs WHERE content_hash = OLD.content_hash AND ref_count <= 0;
+  RETURN OLD;
+END $$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_note_versions_blob_refcount ON note_versions;
+CREATE TRIGGER trg_note_versions_blob_refcount
+AFTER INSERT OR DELETE ON note_versions
+FOR EACH ROW EXECUTE FUNCTION version_blob_refcount();
+
+-- Riallinea i contatori (idempotente)
+UPDATE version_blobs b
+SET ref_count = (SELECT count(*) FROM note_versions v WHERE v.content_hash = b.content_hash);
+
+-- Crea versioni iniziali per le note che non ne hanno
+-- (nessuna versione, non solo la 1: la retention può aver eliminato le più vecchie)
+INSERT INTO version_blobs (content_hash, title, content)
+SELECT DISTINCT ON (n.content_hash) n.content_hash, n.title, n.content
+FROM notes n
+WHERE NOT EXISTS (SELECT 1 FROM note_versions nv WHERE nv.note_id = n.id)
+ORDER BY n.content_hash, n.id
+ON CONFLICT (content_hash) DO NOTHING;
+
+INSERT INTO note_versions (note_id, version_number, content_hash, readers, writers, created_by, note_creator_id, original_created_at, original_updated_at)
+SELECT
+    n.id,
+    1,
+    n.content_hash,
+    n.readers,
+    n.writers,
+    n.creator_id,
+    n.creator_id,
+    n.created_at,
+    n.updated_at
+FROM notes n
+WHERE NOT EXISTS (
+    SELECT 1 FROM note_versions nv
+    WHERE nv.note_id = n.id
+);
+
 -- Indexes for note versions
 CREATE INDEX IF NOT EXISTS idx_note_versions_note_id ON note_versions(note_id);
 CREATE INDEX IF NOT EXISTS idx_note_versions_created_at ON note_versions(created_at DESC);
 CREATE INDEX IF NOT EXISTS idx_note_versions_version_number ON note_versions(note_id, version_number);
+CREATE INDEX IF NOT EXISTS idx_note_versions_content_hash ON note_versions(note_id, content_hash);
+
+-- ======================
+-- NOTE RETENTION POLICIES (override per nota di notabene.versions.retention.*, NULL = valore globale)
+-- ======================
+CREATE TABLE IF NOT EXISTS note_retention_policies (
+    note_id       BIGINT PRIMARY KEY,
+    keep_last     INTEGER,
+    hourly_hours  INTEGER,
+    daily_days    INTEGER,
+    CONSTRAINT fk_note_retention_note FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE,
+    CONSTRAINT chk_note_retention_values CHECK (keep_last >= 1 AND hourly_hours >= 0 AND daily_days >= 0)
+);
+
+-- ======================
+-- VERSION OUTBOX (snapshot in attesa di diventare versioni, con notabene.versions.write-behind.enabled=true)
+-- ======================
+CREATE TABLE IF NOT EXISTS version_outbox (
+    id                   BIGSERIAL PRIMARY KEY,
+    note_id              BIGINT NOT NULL,
+    title                VARCHAR(255) NOT NULL,
+    content              TEXT NOT NULL,
+    readers              BIGINT[],
+    writers              BIGINT[],
+    created_by           BIGINT NOT NULL,
+    note_creator_id      BIGINT NOT NULL,
+    original_created_at  TIMESTAMPTZ,
+    original_updated_at  TIMESTAMPTZ,
+    enqueued_at          TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT fk_version_outbox_note FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_version_outbox_enqueued_at ON version_outbox(enqueued_at);
+
+-- Snapshot che il drain non riesce a scrivere: restano in coda come dead letter, fuori dai batch
+ALTER TABLE version_outbox ADD COLUMN IF NOT EXISTS failed_at TIMESTAMPTZ;
+ALTER TABLE version_outbox ADD COLUMN IF NOT EXISTS failure   TEXT;
+
+-- Stati sostituiti da modifiche accorpate (senza versione): basi per il merge a tre vie
+CREATE TABLE IF NOT EXISTS note_merge_bases (
+    note_id       BIGINT NOT NULL,
+    content_hash  VARCHAR(64) NOT NULL,
+    title         VARCHAR(255) NOT NULL,
+    content       TEXT NOT NULL,
+    created_at    TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (note_id, content_hash),
+    CONSTRAINT fk_note_merge_bases_note FOREIGN KEY (note_id) REFERENCES notes(id) ON DELETE CASCADE
+);
 
 -- Trigger per aggiornare updated_at ad ogni UPDATE
 CREATE OR REPLACE FUNCTION set_updated_at() RETURNS trigger AS $$
@@ -127,6 +269,30 @@ CREATE TABLE IF NOT EXISTS folders (
 
 CREATE INDEX IF NOT EXISTS idx_folders_owner ON folders(owner_id);
 
+-- Cartelle annidate: parent_id NULL = cartella di primo livello; nomi univoci tra cartelle sorelle
+ALTER TABLE folders ADD COLUMN IF NOT EXISTS parent_id BIGINT REFERENCES folders(id) ON DELETE CASCADE;
+ALTER TABLE folders DROP CONSTRAINT IF EXISTS uq_folders_owner_name;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_folders_owner_parent_name ON folders(owner_id, parent_id, name) NULLS NOT DISTINCT;
+CREATE INDEX IF NOT EXISTS idx_folders_parent ON folders(parent_id);
+
+-- ======================
+-- FOLDER_CLOSURE (una riga per ogni coppia antenato-discendente, inclusa la cartella stessa a profondità 0)
+-- ======================
+-- Sottoalbero di una cartella: ancestor_id = ? sulla chiave primaria; antenati: idx_folder_closure_descendant
+CREATE TABLE IF NOT EXISTS folder_closure (
+  ancestor_id   BIGINT NOT NULL REFERENCES folders(id) ON DELETE CASCADE,
+  descendant_id BIGINT NOT NULL REFERENCES folders(id) ON DELETE CASCADE,
+  depth         INT    NOT NULL,
+  PRIMARY KEY (ancestor_id, descendant_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_folder_closure_descendant ON folder_closure(descendant_id, ancestor_id);
+
+-- Migrazione: le cartelle esistenti sono tutte di primo livello
+INSERT INTO folder_closure (ancestor_id, descendant_id, depth)
+SELECT id, id, 0 FROM folders
+ON CONFLICT DO NOTHING;
+
 -- ======================
 -- FOLDER_NOTES (join table)
 -- ======================
@@ -160,6 +326,49 @@ CREATE TABLE IF NOT EXISTS note_tag (
 -- Indice per ricerca veloce del name (ILIKE)
 CREATE INDEX IF NOT EXISTS idx_tag_name_trgm ON tag USING gin ((name::text) gin_trgm_ops);
 
+-- ======================
+-- USER GROUPS (condivisione con un gruppo invece che con ogni membro)
+-- ======================
+CREATE TABLE IF NOT EXISTS user_groups (
+  id         BIGSERIAL PRIMARY KEY,
+  owner_id   BIGINT NOT NULL,
+  name       VARCHAR(120) NOT NULL,
+  created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+  CONSTRAINT uq_user_groups_owner_name UNIQUE (owner_id, name),
+  CONSTRAINT fk_user_groups_owner FOREIGN KEY (owner_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS user_group_members (
+  group_id BIGINT NOT NULL REFERENCES user_groups(id) ON DELETE CASCADE,
+  user_id  BIGINT NOT NULL REFERENCES users(id)       ON DELETE CASCADE,
+  PRIMARY KEY (group_id, user_id)
+);
+
+-- Accesso per utente: dai gruppi dell'utente alle note condivise con quei gruppi
+CREATE INDEX IF NOT EXISTS idx_ugm_user ON user_group_members(user_id, group_id);
+
+CREATE TABLE IF NOT EXISTS note_group_shares (
+  note_id   BIGINT  NOT NULL REFERENCES notes(id)       ON DELETE CASCADE,
+  group_id  BIGINT  NOT NULL REFERENCES user_groups(id) ON DELETE CASCADE,
+  can_write BOOLEAN NOT NULL DEFAULT FALSE,
+  PRIMARY KEY (note_id, group_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_ngs_group ON note_group_shares(group_id, note_id);
+
+-- ======================
+-- ID SEQUENCES
+-- ======================
+-- Hibernate alloca gli id a blocchi di 50 (allocationSize, optimizer pooled-lo) per raggruppare gli INSERT in batch:
+-- l'incremento delle sequenze deve coincidere. Gli INSERT nativi con DEFAULT nextval restano validi.
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE notes_id_seq INCREMENT BY 50;
+ALTER SEQUENCE note_versions_id_seq INCREMENT BY 50;
+ALTER SEQUENCE version_outbox_id_seq INCREMENT BY 50;
+ALTER SEQUENCE folders_id_seq INCREMENT BY 50;
+ALTER SEQUENCE tag_id_seq INCREMENT BY 50;
+ALTER SEQUENCE user_groups_id_seq INCREMENT BY 50;
+
 -- ======================
 -- OPTIONAL: DEFAULT ADMIN USER
 -- ======================
@@ -0,0 +1,12 @@
+package com.notabene.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables background jobs such as the version retention run
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,5 +1,6 @@
 package com.notabene.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -28,7 +29,7 @@ public class SecurityConfig {
         CorsConfiguration cfg = new CorsConfiguration();
         
         cfg.setAllowedOrigins(java.util.List.of("http://localhost:3000"));
-        cfg.setAllowedMethods(java.util.List.of("GET","POST","PUT","DELETE","OPTIONS"));
+        cfg.setAllowedMethods(java.util.List.of("GET","POST","PUT","PATCH","DELETE","OPTIONS"));
     
         cfg.setAllowedHeaders(java.util.List.of("Content-Type","X-Auth-Token","Authorization"));
         cfg.setExposedHeaders(java.util.List.of("X-Auth-Token"));
@@ -47,6 +48,8 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // preflight
+                // Fine di una risposta asincrona (export): la richiesta è già stata autorizzata, ma il token non viene riletto
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**", "/actuator/health").permitAll()
                 .anyRequest().authenticated()
             )
@@ -0,0 +1,32 @@
+package com.notabene.config;
+
+import com.notabene.dto.VersionStorageReportDTO;
+import com.notabene.repository.VersionBlobRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint (/actuator/versionstorage) reporting how much storage the
+ * content-deduplicated version bodies save
+ */
+@Component
+@Endpoint(id = "versionstorage")
+@RequiredArgsConstructor
+public class VersionStorageEndpoint {
+
+    private final VersionBlobRepository versionBlobRepository;
+
+    @ReadOperation
+    public VersionStorageReportDTO report() {
+        Object[] totals = versionBlobRepository.storageTotals();
+        // Con le query native a riga singola Hibernate può restituire la riga annidata
+        Object[] row = totals.length == 1 && totals[0] instanceof Object[] nested ? nested : totals;
+        return VersionStorageReportDTO.of(
+            ((Number) row[0]).longValue(),
+            ((Number) row[1]).longValue(),
+            ((Number) row[2]).longValue(),
+            ((Number) row[3]).longValue());
+    }
+}
@@ -17,11 +17,20 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.notabene.dto.FolderDtos.CopyNotesRequest;
+import com.notabene.dto.FolderDtos.CopyNotesResult;
 import com.notabene.dto.FolderDtos.CreateFolderRequest;
+import com.notabene.dto.FolderDtos.FolderContentsPage;
 import com.notabene.dto.FolderDtos.FolderDetail;
+import com.notabene.dto.FolderDtos.FolderNode;
 import com.notabene.dto.FolderDtos.FolderSummary;
+import com.notabene.dto.FolderDtos.MoveFolderRequest;
+import com.notabene.dto.FolderDtos.MoveNotesRequest;
+import com.notabene.dto.FolderDtos.MoveNotesResult;
 import com.notabene.dto.NoteResponse;
 import com.notabene.dto.SearchNotesRequest;
+import com.notabene.service.FolderBulkService;
+import com.notabene.service.FolderContentsService;
 import com.notabene.service.FolderService;
 import com.notabene.service.NoteService;
 
@@ -35,15 +44,26 @@ public class FolderController {
 
     private final FolderService service;
     private final NoteService noteService;
+    private final FolderContentsService contentsService;
+    private final FolderBulkService bulkService;
 
-    public FolderController(FolderService service, NoteService noteService) { 
+    public FolderController(FolderService service, NoteService noteService,
+                            FolderContentsService contentsService, FolderBulkService bulkService) { 
         this.service = service; 
         this.noteService = noteService;
+        this.contentsService = contentsService;
+        this.bulkService = bulkService;
     }
 
     @GetMapping
     public List<FolderSummary> listMyFolders() { return service.listMyFolders(); }
 
+    /**
+     * The whole folder tree with note counts per folder and per subtree
+     */
+    @GetMapping("/tree")
+    public List<FolderNode> tree() { return service.listMyFolderTree(); }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public FolderSummary create(@RequestBody CreateFolderRequest req) {
@@ -57,6 +77,44 @@ public class FolderController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void delete(@PathVariable Long id) { service.deleteFolder(id); }
 
+    @PostMapping("/{id}/move")
+    public FolderSummary move(@PathVariable Long id, @RequestBody MoveFolderRequest req) {
+        return service.moveFolder(id, req);
+    }
+
+    /**
+     * A page of the folder's notes, newest first; after is the nextCursor of the previous page
+     */
+    @GetMapping("/{id}/notes")
+    public FolderContentsPage contents(@PathVariable Long id,
+                                       @RequestParam(required = false) Long after,
+                                       @RequestParam(required = false) Integer size) {
+        return contentsService.getContents(id, after, size);
+    }
+
+    /**
+     * Move notes from another folder into this one
+     */
+    @PostMapping("/{id}/notes/move")
+    public MoveNotesResult moveNotes(@PathVariable Long id, @RequestBody MoveNotesRequest req) {
+        return bulkService.moveNotes(id, req);
+    }
+
+    /**
+     * Copy notes into this folder as new notes of the current user
+     */
+    @PostMapping("/{id}/notes/copy")
+    public CopyNotesResult copyNotes(@PathVariable Long id, @RequestBody CopyNotesRequest req) {
+        return bulkService.copyNotes(id, req);
+    }
+
+    /**
+     * Duplicate the folder with copies of its notes
+     */
+    @PostMapping("/{id}/duplicate")
+    @ResponseStatus(HttpStatus.CREATED)
+    public FolderSummary duplicate(@PathVariable Long id) { return bulkService.duplicateFolder(id); }
+
     @PostMapping("/{folderId}/notes/{noteId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void addNote(@PathVariable Long folderId, @PathVariable Long noteId) {
@@ -81,7 +139,8 @@ public class FolderController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdAfter,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedAfter,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedBefore) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedBefore,
+            @RequestParam(defaultValue = "false") boolean includeSubfolders) {
         
         try {
             log.info("Searching notes in folder {} - query: {}, tags: {}, author: {}", folderId, query, tags, author);
@@ -96,6 +155,7 @@ public class FolderController {
             request.setCreatedBefore(createdBefore);
             request.setUpdatedAfter(updatedAfter);
             request.setUpdatedBefore(updatedBefore);
+            request.setIncludeSubfolders(includeSubfolders);
             
             List<NoteResponse> notes = noteService.searchNotesInFolder(folderId, request);
             log.info("Found {} notes in folder {}", notes.size(), folderId);
@@ -140,7 +200,8 @@ public class FolderController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdAfter,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedAfter,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedBefore) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedBefore,
+            @RequestParam(defaultValue = "false") boolean includeSubfolders) {
         
         try {
             log.info("Fallback search in folder {} - query: {}, tags: {}, author: {}", folderId, query, tags, author);
@@ -155,6 +216,7 @@ public class FolderController {
             request.setCreatedBefore(createdBefore);
             request.setUpdatedAfter(updatedAfter);
             request.setUpdatedBefore(updatedBefore);
+            request.setIncludeSubfolders(includeSubfolders);
             
             List<NoteResponse> notes = noteService.searchNotesInFolder(folderId, request);
             log.info("Fallback search found {} notes in folder {}", notes.size(), folderId);
@@ -0,0 +1,36 @@
+package com.notabene.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.notabene.dto.BatchNoteRequest;
+import com.notabene.dto.BatchNoteResponse;
+import com.notabene.service.NoteBatchService;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * REST Controller for applying several note operations in one request
+ */
+@RestController
+@RequestMapping("/api/notes/batch")
+@RequiredArgsConstructor
+@Slf4j
+public class NoteBatchController {
+
+    private final NoteBatchService noteBatchService;
+
+    /**
+     * Apply the operations and return one result per operation and note; the response is
+     * 200 even when some operations failed, their status is in the results
+     */
+    @PostMapping
+    public ResponseEntity<BatchNoteResponse> executeBatch(@Valid @RequestBody BatchNoteRequest request) {
+        return ResponseEntity.ok(noteBatchService.execute(request));
+    }
+}
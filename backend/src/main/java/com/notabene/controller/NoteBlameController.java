@@ -0,0 +1,56 @@
+package com.notabene.controller;
+
+import java.util.Optional;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.notabene.dto.NoteBlameDTO;
+import com.notabene.entity.Note;
+import com.notabene.model.User;
+import com.notabene.repository.NoteRepository;
+import com.notabene.service.AuthenticationService;
+import com.notabene.service.NoteBlameService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * REST Controller for the blame view of a note
+ */
+@RestController
+@RequestMapping("/api/notes/{noteId}/blame")
+@RequiredArgsConstructor
+@Slf4j
+public class NoteBlameController {
+    
+    private final NoteBlameService noteBlameService;
+    private final AuthenticationService authenticationService;
+    private final NoteRepository noteRepository;
+    
+    /**
+     * Get the note's title and content split into spans, each with the version and author that introduced it
+     */
+    @GetMapping
+    public ResponseEntity<NoteBlameDTO> getBlame(@PathVariable Long noteId) {
+        try {
+            // Check if user has permission to read the note
+            User currentUser = authenticationService.getCurrentUser();
+            Optional<Note> noteOpt = noteRepository.findByIdWithReadPermission(noteId, currentUser.getId());
+            
+            if (noteOpt.isEmpty()) {
+                log.warn("User {} does not have permission to read note {}", currentUser.getUsername(), noteId);
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            
+            return ResponseEntity.ok(noteBlameService.getBlame(noteOpt.get()));
+        } catch (Exception e) {
+            log.error("Error computing blame for note {}: {}", noteId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.notabene.dto.CreateNoteRequest;
 import com.notabene.dto.NoteResponse;
 import com.notabene.dto.SearchNotesRequest;
 import com.notabene.dto.UpdateNoteRequest;
+import com.notabene.dto.PatchNoteRequest;
 import com.notabene.dto.AddPermissionRequest;
 import com.notabene.dto.RemovePermissionRequest;
 import com.notabene.dto.NotePermissionsResponse;
@@ -14,6 +15,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -65,8 +67,25 @@ public class NoteController {
     public ResponseEntity<NoteResponse> updateNote(
             @PathVariable Long id, 
             @Valid @RequestBody UpdateNoteRequest request) {
-        NoteResponse response = noteService.updateNote(id, request);
-        return ResponseEntity.ok(response);
+        try {
+            NoteResponse response = noteService.updateNote(id, request);
+            return ResponseEntity.ok(response);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Un'altra richiesta ha salvato la nota tra la lettura e la scrittura
+            throw noteService.concurrentModification(id);
+        }
+    }
+    
+    @PatchMapping("/{id}")
+    public ResponseEntity<NoteResponse> patchNote(
+            @PathVariable Long id,
+            @Valid @RequestBody PatchNoteRequest request) {
+        try {
+            NoteResponse response = noteService.patchNote(id, request);
+            return ResponseEntity.ok(response);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw noteService.concurrentModification(id);
+        }
     }
     
     @DeleteMapping("/{id}")
@@ -114,7 +133,8 @@ public class NoteController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedAfter,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedBefore,
-            @RequestParam(required = false) Long folderId) {
+            @RequestParam(required = false) Long folderId,
+            @RequestParam(defaultValue = "false") boolean includeSubfolders) {
         
         try {
             
@@ -130,6 +150,7 @@ public class NoteController {
             request.setUpdatedAfter(updatedAfter);
             request.setUpdatedBefore(updatedBefore);
             request.setFolderId(folderId);
+            request.setIncludeSubfolders(includeSubfolders);
             
             log.info("Calling noteService.searchNotesAdvanced with request: {}", request);
             List<NoteResponse> notes = noteService.searchNotesAdvanced(request);
@@ -157,7 +178,8 @@ public class NoteController {
             @RequestParam(required = false) String createdBefore,
             @RequestParam(required = false) String updatedAfter,
             @RequestParam(required = false) String updatedBefore,
-            @RequestParam(required = false) Long folderId) {
+            @RequestParam(required = false) Long folderId,
+            @RequestParam(defaultValue = "false") boolean includeSubfolders) {
         
         try {
             log.info("Flexible advanced search - query: {}, tags: {}, author: {}, folderId: {}", query, tags, author, folderId);
@@ -177,6 +199,7 @@ public class NoteController {
             request.setUpdatedAfter(parseFlexibleDateTime(updatedAfter, "updatedAfter"));
             request.setUpdatedBefore(parseFlexibleDateTime(updatedBefore, "updatedBefore"));
             request.setFolderId(folderId);
+            request.setIncludeSubfolders(includeSubfolders);
             
             List<NoteResponse> notes = noteService.searchNotesAdvanced(request);
             
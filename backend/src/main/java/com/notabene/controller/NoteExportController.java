@@ -0,0 +1,66 @@
+package com.notabene.controller;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.notabene.model.User;
+import com.notabene.service.AuthenticationService;
+import com.notabene.service.NoteExportService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * REST Controller for exporting the current user's notes
+ */
+@RestController
+@RequestMapping("/api/notes/export")
+@RequiredArgsConstructor
+@Slf4j
+public class NoteExportController {
+
+    private final NoteExportService noteExportService;
+    private final AuthenticationService authenticationService;
+
+    /**
+     * Stream the notes created by the current user as NDJSON (format=ndjson) or as a ZIP
+     * archive holding the same NDJSON (format=zip), with the version history if history=true
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportNotes(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean history) {
+        NoteExportService.Format exportFormat;
+        try {
+            exportFormat = NoteExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // L'utente va letto qui: il corpo viene scritto in un altro thread
+        User currentUser = authenticationService.getCurrentUser();
+        boolean zip = exportFormat == NoteExportService.Format.ZIP;
+        StreamingResponseBody body = out -> {
+            try {
+                noteExportService.export(currentUser.getId(), exportFormat, history, out);
+            } catch (Exception e) {
+                log.error("Error exporting notes of user {}: {}", currentUser.getId(), e.getMessage());
+                throw e;
+            }
+        };
+
+        return ResponseEntity.ok()
+            .contentType(zip ? MediaType.parseMediaType("application/zip") : MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(zip ? "notabene-export.zip" : "notabene-export.ndjson")
+                .build().toString())
+            .body(body);
+    }
+}
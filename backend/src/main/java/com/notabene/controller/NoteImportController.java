@@ -0,0 +1,56 @@
+package com.notabene.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.notabene.dto.NoteImportReportDTO;
+import com.notabene.model.User;
+import com.notabene.service.AuthenticationService;
+import com.notabene.service.NoteImportService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * REST Controller for bulk imports of notes
+ */
+@RestController
+@RequestMapping("/api/notes/import")
+@RequiredArgsConstructor
+@Slf4j
+public class NoteImportController {
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final NoteImportService noteImportService;
+    private final AuthenticationService authenticationService;
+
+    /**
+     * Import notes owned by the current user from an NDJSON or CSV body, read as a stream
+     * rather than bound to a request object, and report the rows that were rejected
+     */
+    @PostMapping(consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    public ResponseEntity<NoteImportReportDTO> importNotes(HttpServletRequest request) {
+        try {
+            User currentUser = authenticationService.getCurrentUser();
+            NoteImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE))
+                ? NoteImportService.Format.CSV
+                : NoteImportService.Format.NDJSON;
+
+            NoteImportReportDTO report = noteImportService.importNotes(request.getInputStream(), format, currentUser);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected note import: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error importing notes: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
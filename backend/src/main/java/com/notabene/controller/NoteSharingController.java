@@ -0,0 +1,50 @@
+package com.notabene.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.notabene.dto.BulkShareRequest;
+import com.notabene.dto.BulkShareResponse;
+import com.notabene.service.NoteSharingService;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * REST Controller for sharing many notes with many users in one request
+ */
+@RestController
+@RequestMapping("/api/notes/permissions/bulk")
+@RequiredArgsConstructor
+@Slf4j
+public class NoteSharingController {
+
+    private final NoteSharingService noteSharingService;
+
+    /**
+     * Grant the role on every owned note to every known user; notes the current user does
+     * not own and unknown usernames are listed in the response
+     */
+    @PostMapping
+    public ResponseEntity<BulkShareResponse> grant(@Valid @RequestBody BulkShareRequest request) {
+        log.info("Granting {} role on {} notes to {} users", request.getRole(),
+                request.getNoteIds().size(), request.getUsernames().size());
+        return ResponseEntity.ok(noteSharingService.grant(request));
+    }
+
+    /**
+     * Revoke the role on every owned note from every known user; revoking the reader role
+     * also revokes write access
+     */
+    @DeleteMapping
+    public ResponseEntity<BulkShareResponse> revoke(@Valid @RequestBody BulkShareRequest request) {
+        log.info("Revoking {} role on {} notes from {} users", request.getRole(),
+                request.getNoteIds().size(), request.getUsernames().size());
+        return ResponseEntity.ok(noteSharingService.revoke(request));
+    }
+}
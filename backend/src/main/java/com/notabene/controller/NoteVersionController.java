@@ -1,30 +1,44 @@
 package com.notabene.controller;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.notabene.dto.BatchVersionComparisonDTO;
+import com.notabene.dto.BatchVersionComparisonRequest;
+import com.notabene.dto.CompactVersionComparisonDTO;
 import com.notabene.dto.EnhancedVersionComparisonDTO;
 import com.notabene.dto.NoteResponse;
+import com.notabene.dto.NoteVersionContentDTO;
 import com.notabene.dto.NoteVersionDTO;
-import com.notabene.dto.TextDiffDTO;
+import com.notabene.dto.NoteVersionSummaryDTO;
+import com.notabene.dto.RetentionPolicyDTO;
 import com.notabene.entity.Note;
 import com.notabene.entity.NoteVersion;
+import com.notabene.exception.GlobalExceptionHandler;
+import com.notabene.exception.NoteConflictException;
 import com.notabene.model.User;
 import com.notabene.repository.NoteRepository;
 import com.notabene.service.AuthenticationService;
 import com.notabene.service.NoteService;
 import com.notabene.service.NoteVersioningService;
 import com.notabene.service.TextDiffService;
+import com.notabene.service.VersionComparisonService;
+import com.notabene.service.VersionRetentionService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -42,7 +56,10 @@ public class NoteVersionController {
     private final AuthenticationService authenticationService;
     private final NoteRepository noteRepository;
     private final NoteService noteService;
-    private final TextDiffService textDiffService;
+    private final VersionComparisonService versionComparisonService;
+    private final VersionRetentionService versionRetentionService;
+    
+    private static final int MAX_BATCH_PAIRS = 50;
     
     /**
      * Get version history for a note
@@ -70,6 +87,58 @@ public class NoteVersionController {
         }
     }
     
+    /**
+     * Get version history metadata (number, author, timestamp, restore info) without version bodies
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<List<NoteVersionSummaryDTO>> getVersionSummaries(@PathVariable Long noteId) {
+        try {
+            // Check if user has permission to read the note
+            User currentUser = authenticationService.getCurrentUser();
+            Optional<Note> noteOpt = noteRepository.findByIdWithReadPermission(noteId, currentUser.getId());
+            
+            if (noteOpt.isEmpty()) {
+                log.warn("User {} does not have permission to read note {}", currentUser.getUsername(), noteId);
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            
+            List<NoteVersionSummaryDTO> versions = noteVersioningService.getVersionSummaries(noteOpt.get());
+            log.info("Retrieved {} version summaries for note {}", versions.size(), noteId);
+            return ResponseEntity.ok(versions);
+        } catch (Exception e) {
+            log.error("Error getting version summaries for note {}: {}", noteId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Get only the title and content of a version, loaded on demand from the history panel
+     */
+    @GetMapping("/{versionNumber}/content")
+    public ResponseEntity<NoteVersionContentDTO> getVersionContent(@PathVariable Long noteId,
+                                                                   @PathVariable Integer versionNumber) {
+        try {
+            // Check if user has permission to read the note
+            User currentUser = authenticationService.getCurrentUser();
+            Optional<Note> noteOpt = noteRepository.findByIdWithReadPermission(noteId, currentUser.getId());
+            
+            if (noteOpt.isEmpty()) {
+                log.warn("User {} does not have permission to read note {}", currentUser.getUsername(), noteId);
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            
+            return noteVersioningService.getVersionContent(noteOpt.get(), versionNumber)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> {
+                    log.warn("Version {} not found for note {}", versionNumber, noteId);
+                    return ResponseEntity.notFound().build();
+                });
+        } catch (Exception e) {
+            log.error("Error getting content of version {} for note {}: {}", versionNumber, noteId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
     /**
      * Get a specific version of a note
      */
@@ -104,23 +173,28 @@ public class NoteVersionController {
     }
     
     /**
-     * Restore a note to a specific version
+     * Restore a note to a specific version.
+     * With ?revision= the restore is rejected (409, with the current revision) if the note
+     * changed since the client loaded it; concurrent writes are caught by the optimistic lock.
      */
     @PostMapping("/{versionNumber}/restore")
-    @Transactional
-    public ResponseEntity<NoteResponse> restoreToVersion(@PathVariable Long noteId, 
-                                                        @PathVariable Integer versionNumber) {
+    public ResponseEntity<?> restoreToVersion(@PathVariable Long noteId, 
+                                              @PathVariable Integer versionNumber,
+                                              @RequestParam(required = false) Long revision) {
         try {
-            Long currentUserId = authenticationService.getCurrentUser().getId();
-            log.info("User {} restoring note {} to version {}", currentUserId, noteId, versionNumber);
+            log.info("Restoring note {} to version {}", noteId, versionNumber);
             
-            Note restoredNote = noteVersioningService.restoreToVersion(noteId, versionNumber, currentUserId);
+            NoteResponse noteResponse = noteService.restoreNote(noteId, versionNumber, revision);
             log.info("Successfully restored note {} to version {}", noteId, versionNumber);
             
-            // Convert to DTO to avoid serialization issues
-            NoteResponse noteResponse = noteService.convertToNoteResponse(restoredNote, currentUserId);
-            
             return ResponseEntity.ok(noteResponse);
+        } catch (NoteConflictException e) {
+            log.warn("Conflict restoring note {} to version {}: {}", noteId, versionNumber, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(GlobalExceptionHandler.conflictDetails(e));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            log.warn("Concurrent modification restoring note {} to version {}", noteId, versionNumber);
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(GlobalExceptionHandler.conflictDetails(noteService.concurrentModification(noteId)));
         } catch (SecurityException e) {
             log.warn("Security error restoring note {} to version {}: {}", noteId, versionNumber, e.getMessage());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
@@ -137,18 +211,32 @@ public class NoteVersionController {
     }
     
     /**
-     * Enhanced comparison with character-level diff highlighting
+     * Enhanced comparison with diff highlighting at char, word or line granularity.
+     * timeoutMs and maxEditDistance can tighten the diff limits; a truncated diff is flagged with exact=false.
      */
     @GetMapping("/compare")
     public ResponseEntity<EnhancedVersionComparisonDTO> compareVersionsEnhanced(@PathVariable Long noteId,
                                                                                @RequestParam Integer oldVersion,
-                                                                               @RequestParam Integer newVersion) {
+                                                                               @RequestParam Integer newVersion,
+                                                                               @RequestParam(defaultValue = "char") String granularity,
+                                                                               @RequestParam(required = false) Long timeoutMs,
+                                                                               @RequestParam(required = false) Integer maxEditDistance) {
         try {
             if (oldVersion == null || newVersion == null) {
                 log.warn("Missing version parameters for enhanced comparison: oldVersion={}, newVersion={}", oldVersion, newVersion);
                 return ResponseEntity.badRequest().build();
             }
             
+            TextDiffService.Granularity diffGranularity;
+            TextDiffService.DiffLimits limits;
+            try {
+                diffGranularity = TextDiffService.Granularity.from(granularity);
+                limits = TextDiffService.DiffLimits.of(timeoutMs, maxEditDistance);
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid diff parameters for enhanced comparison: {}", e.getMessage());
+                return ResponseEntity.badRequest().build();
+            }
+            
             // Check if user has permission to read the note
             User currentUser = authenticationService.getCurrentUser();
             Optional<Note> noteOpt = noteRepository.findByIdWithReadPermission(noteId, currentUser.getId());
@@ -172,20 +260,8 @@ public class NoteVersionController {
             NoteVersion oldNote = oldVersionOpt.get();
             NoteVersion newNote = newVersionOpt.get();
             
-            // Calcola le differenze carattere per carattere
-            TextDiffDTO titleDiff = textDiffService.calculateDiff(oldNote.getTitle(), newNote.getTitle());
-            TextDiffDTO contentDiff = textDiffService.calculateDiff(oldNote.getContent(), newNote.getContent());
-            
-            // Ottimizza i segmenti per una migliore visualizzazione
-            textDiffService.optimizeSegments(titleDiff.getLeftSegments());
-            textDiffService.optimizeSegments(titleDiff.getRightSegments());
-            textDiffService.optimizeSegments(contentDiff.getLeftSegments());
-            textDiffService.optimizeSegments(contentDiff.getRightSegments());
-            
-            // Crea la comparazione con le differenze calcolate
-            EnhancedVersionComparisonDTO comparison = new EnhancedVersionComparisonDTO(
-                oldNote, newNote, titleDiff, contentDiff
-            );
+            // Calcola le differenze (riusa i delta salvati quando possibile)
+            EnhancedVersionComparisonDTO comparison = versionComparisonService.compare(oldNote, newNote, diffGranularity, limits);
             
             log.info("Successfully enhanced compared versions {} and {} for note {}", oldVersion, newVersion, noteId);
             return ResponseEntity.ok(comparison);
@@ -198,4 +274,154 @@ public class NoteVersionController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+    
+    /**
+     * Compact comparison (opt-in with format=compact): offset-based edit operations
+     * over the two texts, sent once, instead of duplicated text segments
+     */
+    @GetMapping(value = "/compare", params = "format=compact")
+    public ResponseEntity<CompactVersionComparisonDTO> compareVersionsCompact(@PathVariable Long noteId,
+                                                                             @RequestParam Integer oldVersion,
+                                                                             @RequestParam Integer newVersion,
+                                                                             @RequestParam(defaultValue = "char") String granularity,
+                                                                             @RequestParam(required = false) Long timeoutMs,
+                                                                             @RequestParam(required = false) Integer maxEditDistance) {
+        try {
+            TextDiffService.Granularity diffGranularity;
+            TextDiffService.DiffLimits limits;
+            try {
+                diffGranularity = TextDiffService.Granularity.from(granularity);
+                limits = TextDiffService.DiffLimits.of(timeoutMs, maxEditDistance);
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid diff parameters for compact comparison: {}", e.getMessage());
+                return ResponseEntity.badRequest().build();
+            }
+            
+            // Check if user has permission to read the note
+            User currentUser = authenticationService.getCurrentUser();
+            Optional<Note> noteOpt = noteRepository.findByIdWithReadPermission(noteId, currentUser.getId());
+            
+            if (noteOpt.isEmpty()) {
+                log.warn("User {} does not have permission to read note {}", currentUser.getUsername(), noteId);
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            
+            Optional<NoteVersion> oldVersionOpt = noteVersioningService.getVersion(noteId, oldVersion);
+            Optional<NoteVersion> newVersionOpt = noteVersioningService.getVersion(noteId, newVersion);
+            
+            if (oldVersionOpt.isEmpty() || newVersionOpt.isEmpty()) {
+                log.warn("Version not found for compact comparison: oldVersion={}, newVersion={}", oldVersion, newVersion);
+                return ResponseEntity.notFound().build();
+            }
+            
+            NoteVersion oldNote = oldVersionOpt.get();
+            NoteVersion newNote = newVersionOpt.get();
+            
+            return ResponseEntity.ok(versionComparisonService.compareCompact(oldNote, newNote, diffGranularity, limits));
+            
+        } catch (Exception e) {
+            log.error("Error in compact comparison for note {}: {}", noteId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Compare several pairs of versions in one call: permissions are checked once,
+     * all involved versions are loaded together and the diffs run in parallel
+     */
+    @PostMapping("/compare-batch")
+    public ResponseEntity<BatchVersionComparisonDTO> compareVersionsBatch(@PathVariable Long noteId,
+                                                                         @RequestBody BatchVersionComparisonRequest request) {
+        try {
+            List<BatchVersionComparisonRequest.VersionPair> pairs = request.getPairs();
+            if (pairs == null || pairs.isEmpty() || pairs.size() > MAX_BATCH_PAIRS
+                    || pairs.stream().anyMatch(pair -> pair == null || pair.getOldVersion() == null || pair.getNewVersion() == null)) {
+                log.warn("Invalid pairs for batch comparison of note {}", noteId);
+                return ResponseEntity.badRequest().build();
+            }
+            
+            TextDiffService.Granularity diffGranularity;
+            TextDiffService.DiffLimits limits;
+            try {
+                diffGranularity = TextDiffService.Granularity.from(request.getGranularity());
+                limits = TextDiffService.DiffLimits.of(request.getTimeoutMs(), request.getMaxEditDistance());
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid diff parameters for batch comparison: {}", e.getMessage());
+                return ResponseEntity.badRequest().build();
+            }
+            
+            // Check if user has permission to read the note
+            User currentUser = authenticationService.getCurrentUser();
+            Optional<Note> noteOpt = noteRepository.findByIdWithReadPermission(noteId, currentUser.getId());
+            
+            if (noteOpt.isEmpty()) {
+                log.warn("User {} does not have permission to read note {}", currentUser.getUsername(), noteId);
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            
+            // Carica tutte le versioni coinvolte in una volta sola
+            Set<Integer> versionNumbers = new HashSet<>();
+            for (BatchVersionComparisonRequest.VersionPair pair : pairs) {
+                versionNumbers.add(pair.getOldVersion());
+                versionNumbers.add(pair.getNewVersion());
+            }
+            Map<Integer, NoteVersion> versions = noteVersioningService.getVersions(noteId, versionNumbers);
+            
+            BatchVersionComparisonDTO result = versionComparisonService.compareBatch(versions, pairs, diffGranularity, limits);
+            log.info("Batch compared {} version pairs for note {} in {} ms", pairs.size(), noteId, result.getTotalMillis());
+            return ResponseEntity.ok(result);
+            
+        } catch (Exception e) {
+            log.error("Error in batch comparison for note {}: {}", noteId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Get the effective version retention policy of a note
+     */
+    @GetMapping("/retention")
+    public ResponseEntity<RetentionPolicyDTO> getRetentionPolicy(@PathVariable Long noteId) {
+        try {
+            // Check if user has permission to read the note
+            User currentUser = authenticationService.getCurrentUser();
+            Optional<Note> noteOpt = noteRepository.findByIdWithReadPermission(noteId, currentUser.getId());
+            
+            if (noteOpt.isEmpty()) {
+                log.warn("User {} does not have permission to read note {}", currentUser.getUsername(), noteId);
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            
+            return ResponseEntity.ok(versionRetentionService.getPolicy(noteId));
+        } catch (Exception e) {
+            log.error("Error getting retention policy for note {}: {}", noteId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Override the version retention policy of a note (null fields use the global defaults)
+     */
+    @PutMapping("/retention")
+    public ResponseEntity<RetentionPolicyDTO> updateRetentionPolicy(@PathVariable Long noteId,
+                                                                    @RequestBody RetentionPolicyDTO request) {
+        try {
+            // Check if user has permission to write the note
+            User currentUser = authenticationService.getCurrentUser();
+            Optional<Note> noteOpt = noteRepository.findByIdWithWritePermission(noteId, currentUser.getId());
+            
+            if (noteOpt.isEmpty()) {
+                log.warn("User {} does not have permission to write note {}", currentUser.getUsername(), noteId);
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            
+            return ResponseEntity.ok(versionRetentionService.updatePolicy(noteId, request));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid retention policy for note {}: {}", noteId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error updating retention policy for note {}: {}", noteId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 }
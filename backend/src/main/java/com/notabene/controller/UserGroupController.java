@@ -0,0 +1,71 @@
+package com.notabene.controller;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.notabene.dto.GroupDtos.AddMembersRequest;
+import com.notabene.dto.GroupDtos.AddMembersResult;
+import com.notabene.dto.GroupDtos.CreateGroupRequest;
+import com.notabene.dto.GroupDtos.GroupDetail;
+import com.notabene.dto.GroupDtos.GroupNotesRequest;
+import com.notabene.dto.GroupDtos.GroupNotesResult;
+import com.notabene.dto.GroupDtos.GroupSummary;
+import com.notabene.service.UserGroupService;
+
+@RestController
+@RequestMapping("/api/groups")
+public class UserGroupController {
+
+    private final UserGroupService service;
+
+    public UserGroupController(UserGroupService service) { this.service = service; }
+
+    @GetMapping
+    public List<GroupSummary> listMyGroups() { return service.listMyGroups(); }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public GroupSummary create(@RequestBody CreateGroupRequest req) {
+        return service.createGroup(req);
+    }
+
+    @GetMapping("/{id}")
+    public GroupDetail get(@PathVariable Long id) { return service.getGroup(id); }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void delete(@PathVariable Long id) { service.deleteGroup(id); }
+
+    @PostMapping("/{id}/members")
+    public AddMembersResult addMembers(@PathVariable Long id, @RequestBody AddMembersRequest req) {
+        return service.addMembers(id, req);
+    }
+
+    @DeleteMapping("/{id}/members/{userId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void removeMember(@PathVariable Long id, @PathVariable Long userId) {
+        service.removeMember(id, userId);
+    }
+
+    /**
+     * Share the current user's notes with the group, for reading or also for writing
+     */
+    @PostMapping("/{id}/notes")
+    public GroupNotesResult shareNotes(@PathVariable Long id, @RequestBody GroupNotesRequest req) {
+        return service.shareNotes(id, req);
+    }
+
+    @DeleteMapping("/{id}/notes")
+    public GroupNotesResult unshareNotes(@PathVariable Long id, @RequestBody GroupNotesRequest req) {
+        return service.unshareNotes(id, req);
+    }
+}
@@ -0,0 +1,65 @@
+package com.notabene.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.notabene.entity.Note;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Several note operations sent in one request. Operations are grouped by type and applied
+ * in this order: update, create, addTags, removeTags, addToFolder, removeFromFolder, delete.
+ * Unless atomic is set, each operation succeeds or fails on its own.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchNoteRequest {
+
+    @NotEmpty(message = "Operations are required")
+    @Size(max = 500, message = "A batch cannot contain more than 500 operations")
+    @Valid
+    private List<Operation> operations = new ArrayList<>();
+
+    // Tutto o niente: alla prima operazione rifiutata non viene applicato nulla
+    private boolean atomic;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Operation {
+
+        @NotNull(message = "Operation type is required")
+        @Pattern(regexp = "create|update|delete|addTags|removeTags|addToFolder|removeFromFolder",
+                 message = "Operation type must be one of create, update, delete, addTags, removeTags, addToFolder, removeFromFolder")
+        private String type;
+
+        // Note interessate (tutte le operazioni tranne create; update ne accetta una sola)
+        @Size(max = 1000, message = "An operation cannot target more than 1000 notes")
+        private List<Long> noteIds = new ArrayList<>();
+
+        // create / update
+        @Size(max = Note.MAX_TITLE_LENGTH, message = "Title cannot exceed " + Note.MAX_TITLE_LENGTH + " characters")
+        private String title;
+
+        @Size(max = Note.MAX_CONTENT_LENGTH, message = "Content cannot exceed " + Note.MAX_CONTENT_LENGTH + " characters")
+        private String content;
+
+        // create / addTags / removeTags
+        private List<Long> tagIds = new ArrayList<>();
+
+        // addToFolder / removeFromFolder
+        private Long folderId;
+
+        // update: revision the edit is based on, null skips the check
+        private Long revision;
+    }
+}
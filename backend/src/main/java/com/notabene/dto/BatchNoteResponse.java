@@ -0,0 +1,36 @@
+package com.notabene.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a batch: one result per operation and target note, in request order
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchNoteResponse {
+
+    private List<ItemResult> results = new ArrayList<>();
+    private int succeeded;
+    private int failed;
+    private boolean rolledBack;  // Batch atomico annullato: nessuna operazione è stata applicata
+
+    /**
+     * Result of one operation on one note, with the HTTP status the single-note endpoint would return
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        private int index;       // Posizione dell'operazione nella richiesta
+        private Long noteId;     // Per create, l'id della nota creata
+        private int status;
+        private String error;
+        private NoteResponse note;  // Solo per create e update
+    }
+}
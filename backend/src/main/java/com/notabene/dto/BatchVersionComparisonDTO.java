@@ -0,0 +1,33 @@
+package com.notabene.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Results of a batch comparison, in the same order as the requested pairs
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchVersionComparisonDTO {
+
+    private List<PairResult> results;
+    private long totalMillis;          // Tempo complessivo del batch
+
+    /**
+     * Outcome of one pair: either a comparison or an error message
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PairResult {
+        private Integer oldVersion;
+        private Integer newVersion;
+        private CompactVersionComparisonDTO comparison;
+        private long durationMicros;   // Tempo di calcolo del singolo confronto
+        private String error;          // Valorizzato se il confronto non è stato possibile
+    }
+}
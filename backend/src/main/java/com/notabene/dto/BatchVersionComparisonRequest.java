@@ -0,0 +1,29 @@
+package com.notabene.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request for comparing several pairs of versions of the same note in one call
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchVersionComparisonRequest {
+
+    private List<VersionPair> pairs;   // Coppie da confrontare
+    private String granularity;        // char (default), word o line
+    private Long timeoutMs;            // Limite di tempo per singolo diff (opzionale)
+    private Integer maxEditDistance;   // Limite di distanza per singolo diff (opzionale)
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VersionPair {
+        private Integer oldVersion;
+        private Integer newVersion;
+    }
+}
@@ -0,0 +1,34 @@
+package com.notabene.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Grant or revoke one role on many notes for many users at once. Writers are always readers
+ * too, so revoking the reader role also revokes write access.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkShareRequest {
+
+    @NotEmpty(message = "Note ids are required")
+    @Size(max = 1000, message = "Cannot share more than 1000 notes at once")
+    private List<Long> noteIds = new ArrayList<>();
+
+    @NotEmpty(message = "Usernames are required")
+    @Size(max = 200, message = "Cannot share with more than 200 users at once")
+    private List<String> usernames = new ArrayList<>();
+
+    @NotNull(message = "Role is required")
+    @Pattern(regexp = "reader|writer", message = "Role must be reader or writer")
+    private String role;
+}
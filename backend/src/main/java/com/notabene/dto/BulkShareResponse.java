@@ -0,0 +1,21 @@
+package com.notabene.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk grant or revoke
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkShareResponse {
+
+    private int updatedNotes;                                // 0 quando la richiesta era già applicata
+    private List<Long> skippedNoteIds = new ArrayList<>();   // Inesistenti o non di proprietà dell'utente
+    private List<String> unknownUsernames = new ArrayList<>();
+}
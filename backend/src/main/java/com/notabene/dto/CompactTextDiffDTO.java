@@ -0,0 +1,54 @@
+package com.notabene.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Compact DTO for text differences: both texts are sent once and the diff is a list
+ * of edit operations pointing into them.
+ * Offsets and lengths are UTF-16 code units, so they can be used directly with
+ * JavaScript string indices.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactTextDiffDTO {
+
+    private String leftText;   // Versione originale (sinistra)
+    private String rightText;  // Versione nuova (destra)
+    private List<EditOp> ops;  // Operazioni in ordine di testo
+    private boolean exact = true;  // False se il diff è stato troncato (limite di tempo o di distanza)
+
+    public CompactTextDiffDTO(String leftText, String rightText, List<EditOp> ops) {
+        this(leftText, rightText, ops, true);
+    }
+
+    /**
+     * Check if there are changes (additions or removals) in the diff
+     */
+    public boolean hasChanges() {
+        return ops != null && ops.stream().anyMatch(op -> op.getOp() != TextDiffDTO.DiffType.EQUAL);
+    }
+
+    /**
+     * Single edit operation, serialized as {@code [op, leftOffset, rightOffset, length]}.
+     * EQUAL covers {@code length} chars on both sides, REMOVED only on the left,
+     * ADDED only on the right.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+    @JsonPropertyOrder({"op", "leftOffset", "rightOffset", "length"})
+    public static class EditOp {
+        private TextDiffDTO.DiffType op;
+        private int leftOffset;
+        private int rightOffset;
+        private int length;
+    }
+}
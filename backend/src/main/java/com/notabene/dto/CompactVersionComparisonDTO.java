@@ -0,0 +1,43 @@
+package com.notabene.dto;
+
+import com.notabene.entity.NoteVersion;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compact DTO for comparing two versions: only version metadata and
+ * offset-based diffs, without full version entities or duplicated segments
+ */
+@Data
+public class CompactVersionComparisonDTO {
+
+    private final VersionRef leftVersion;    // Versione selezionata prima (sinistra)
+    private final VersionRef rightVersion;   // Versione selezionata dopo (destra)
+
+    private final CompactTextDiffDTO titleDiff;     // Differenze nel titolo
+    private final CompactTextDiffDTO contentDiff;   // Differenze nel contenuto
+
+    private final boolean hasChanges;        // Se ci sono differenze
+    private final boolean exact;             // Se entrambi i diff sono esatti (non troncati)
+
+    public CompactVersionComparisonDTO(NoteVersion leftVersion, NoteVersion rightVersion,
+                                       CompactTextDiffDTO titleDiff, CompactTextDiffDTO contentDiff) {
+        this.leftVersion = VersionRef.of(leftVersion);
+        this.rightVersion = VersionRef.of(rightVersion);
+        this.titleDiff = titleDiff;
+        this.contentDiff = contentDiff;
+        this.hasChanges = (titleDiff != null && titleDiff.hasChanges())
+                || (contentDiff != null && contentDiff.hasChanges());
+        this.exact = (titleDiff == null || titleDiff.isExact()) && (contentDiff == null || contentDiff.isExact());
+    }
+
+    /**
+     * Version metadata needed to label the two sides of a comparison
+     */
+    public record VersionRef(Integer versionNumber, Long createdBy, LocalDateTime createdAt) {
+        static VersionRef of(NoteVersion version) {
+            return new VersionRef(version.getVersionNumber(), version.getCreatedBy(), version.getCreatedAt());
+        }
+    }
+}
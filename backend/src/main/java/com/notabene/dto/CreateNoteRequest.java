@@ -3,6 +3,8 @@ package com.notabene.dto;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.notabene.entity.Note;
+
 import com.fasterxml.jackson.annotation.JsonAlias;
 
 import jakarta.validation.constraints.NotBlank;
@@ -15,11 +17,11 @@ import lombok.NoArgsConstructor;
 public class CreateNoteRequest {
     
     @NotBlank(message = "Title cannot be blank")
-    @Size(max = 255, message = "Title cannot exceed 255 characters")
+    @Size(max = Note.MAX_TITLE_LENGTH, message = "Title cannot exceed " + Note.MAX_TITLE_LENGTH + " characters")
     private String title;
     
     @NotBlank(message = "Content cannot be blank")
-    @Size(max = 280, message = "Content cannot exceed 280 characters")
+    @Size(max = Note.MAX_CONTENT_LENGTH, message = "Content cannot exceed " + Note.MAX_CONTENT_LENGTH + " characters")
     private String content;
 
     @JsonAlias({"tagIds","tag_ids"})
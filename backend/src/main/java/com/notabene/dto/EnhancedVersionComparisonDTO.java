@@ -16,6 +16,7 @@ public class EnhancedVersionComparisonDTO {
     private final TextDiffDTO contentDiff;   // Differenze nel contenuto
     
     private final boolean hasChanges;        // Se ci sono differenze
+    private final boolean exact;             // Se entrambi i diff sono esatti (non troncati)
     
     public EnhancedVersionComparisonDTO(NoteVersion leftVersion, NoteVersion rightVersion, 
                                        TextDiffDTO titleDiff, TextDiffDTO contentDiff) {
@@ -26,6 +27,7 @@ public class EnhancedVersionComparisonDTO {
         
         // Determine if there are changes by checking for ADDED or REMOVED segments
         this.hasChanges = hasSegmentChanges(titleDiff) || hasSegmentChanges(contentDiff);
+        this.exact = (titleDiff == null || titleDiff.isExact()) && (contentDiff == null || contentDiff.isExact());
     }
     
     private boolean hasSegmentChanges(TextDiffDTO diff) {
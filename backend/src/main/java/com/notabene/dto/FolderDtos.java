@@ -3,9 +3,24 @@ package com.notabene.dto;
 import java.util.List;
 
 public class FolderDtos {
-  public record FolderSummary(Long id, String name) {}
-  public record CreateFolderRequest(String name) {}
+  public record FolderSummary(Long id, String name, long noteCount) {
+    public FolderSummary(Long id, String name) { this(id, name, 0); }
+  }
+  // parentId null: cartella di primo livello
+  public record CreateFolderRequest(String name, Long parentId) {
+    public CreateFolderRequest(String name) { this(name, null); }
+  }
+  public record MoveFolderRequest(Long parentId) {}
   public record FolderNoteRef(Long id) {}
   public record FolderDetail(Long id, String name, List<FolderNoteRef> notes) {}
+  // Conteggi: note nella cartella e note distinte in tutto il sottoalbero
+  public record FolderNode(Long id, String name, Long parentId, long noteCount, long subtreeNoteCount) {}
+  // nextCursor: da passare come after per la pagina successiva, null se non ce ne sono altre
+  public record FolderContentsPage(List<NoteResponse> notes, Long nextCursor) {}
+  // Operazioni massive tra cartelle (al massimo FolderBulkService.MAX_NOTES note)
+  public record MoveNotesRequest(Long fromFolderId, List<Long> noteIds) {}
+  public record MoveNotesResult(List<Long> movedNoteIds, List<Long> skippedNoteIds) {}
+  public record CopyNotesRequest(List<Long> noteIds) {}
+  public record NoteCopy(Long sourceId, Long copyId) {}
+  public record CopyNotesResult(List<NoteCopy> copies, List<Long> skippedNoteIds) {}
 }
-
@@ -0,0 +1,15 @@
+package com.notabene.dto;
+
+import java.util.List;
+
+public class GroupDtos {
+  public record GroupSummary(Long id, String name, boolean owned, long memberCount) {}
+  public record CreateGroupRequest(String name) {}
+  public record GroupMember(Long id, String username) {}
+  public record GroupDetail(Long id, String name, Long ownerId, List<GroupMember> members) {}
+  public record AddMembersRequest(List<String> usernames) {}
+  public record AddMembersResult(int added, List<String> unknownUsernames) {}
+  // write=true: i membri possono anche modificare le note
+  public record GroupNotesRequest(List<Long> noteIds, boolean write) {}
+  public record GroupNotesResult(int updatedNotes, List<Long> skippedNoteIds) {}
+}
@@ -0,0 +1,38 @@
+package com.notabene.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Blame of a note: title and content split into spans, each annotated with the
+ * version (as numbered in the history, current state included) that introduced it.
+ * Offsets and lengths are UTF-16 code units, as in the compact diff.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteBlameDTO {
+
+    private Long noteId;
+    private Integer versionNumber;  // Versione corrente, come nella cronologia
+    private List<BlameSpan> title;
+    private List<BlameSpan> content;
+
+    /**
+     * Run of text introduced by the same version
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BlameSpan {
+        private int offset;
+        private int length;
+        private String text;
+        private Integer versionNumber;
+        private Long createdBy;
+        private String createdByUsername;
+    }
+}
@@ -0,0 +1,36 @@
+package com.notabene.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: how many rows were written, how many were rejected and why.
+ * Only the first errors are listed (errorsTruncated tells whether more were dropped), so
+ * the report stays small whatever the size of the input.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteImportReportDTO {
+
+    private long imported;
+    private long failed;
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+    private long durationMs;
+
+    /**
+     * Rejected row, by line number in the input (the first line of a multi-line CSV record)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
@@ -22,6 +22,8 @@ public class NoteResponse {
     // Versioning information
     private Integer currentVersion;
     private Integer currentVersionPointer; // Which version is currently being displayed
+    private String contentHash; // Revision of title and content, base for PATCH edits
+    private Long revision; // Optimistic lock revision, sent back with PUT and restore
     
     // Permission fields
     private Long creatorId;
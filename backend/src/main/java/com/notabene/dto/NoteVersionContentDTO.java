@@ -0,0 +1,17 @@
+package com.notabene.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body of a single version, loaded lazily when a version is opened from the history
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteVersionContentDTO {
+    private Integer versionNumber;
+    private String title;
+    private String content;
+}
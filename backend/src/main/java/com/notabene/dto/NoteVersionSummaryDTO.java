@@ -0,0 +1,30 @@
+package com.notabene.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version metadata for the history list, without title, content or permission snapshots.
+ * The body of a version is fetched on demand through NoteVersionContentDTO.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteVersionSummaryDTO {
+    private Long id;
+    private Long noteId;
+    private Integer versionNumber;
+    private Long createdBy;
+    private String createdByUsername;
+    private LocalDateTime createdAt;
+    private Boolean isRestored;
+    private Integer restoredFromVersion;
+    
+    // Usato solo per riconoscere uno stato ripristinato senza caricare i testi
+    @JsonIgnore
+    private String contentHash;
+}
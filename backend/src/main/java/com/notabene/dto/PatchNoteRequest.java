@@ -0,0 +1,56 @@
+package com.notabene.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Incremental edit of a note: operations are applied in order to the revision
+ * identified by baseHash (the contentHash of the note the client started from)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatchNoteRequest {
+
+    @NotBlank(message = "Base hash is required")
+    private String baseHash;
+
+    @NotNull(message = "Operations are required")
+    @Size(max = 1000, message = "A patch cannot contain more than 1000 operations")
+    @Valid
+    private List<EditOperation> ops = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EditOperation {
+
+        @Pattern(regexp = "title|content", message = "Field must be 'title' or 'content'")
+        private String field = "content";
+
+        @NotNull(message = "Operation type is required")
+        @Pattern(regexp = "insert|delete", message = "Operation type must be 'insert' or 'delete'")
+        private String type;
+
+        // Offset in UTF-16 code units, after the previous operations on the same field
+        @NotNull(message = "Offset is required")
+        @PositiveOrZero(message = "Offset cannot be negative")
+        private Integer offset;
+
+        // Text to insert (insert only)
+        private String text;
+
+        // Number of chars to delete (delete only)
+        private Integer length;
+    }
+}
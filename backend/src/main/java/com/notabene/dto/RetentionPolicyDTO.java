@@ -0,0 +1,21 @@
+package com.notabene.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Version retention policy of a note: keep the last keepLast versions, plus the latest
+ * version of each hour for hourlyHours and of each day for dailyDays.
+ * In requests a null field falls back to the global default; responses carry the
+ * effective values and whether the note overrides any of them.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetentionPolicyDTO {
+    private Integer keepLast;
+    private Integer hourlyHours;
+    private Integer dailyDays;
+    private Boolean custom;
+}
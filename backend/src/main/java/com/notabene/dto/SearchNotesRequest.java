@@ -52,6 +52,11 @@ public class SearchNotesRequest {
      */
     private Long folderId;
     
+    /**
+     * Also search the subfolders of folderId, at any depth
+     */
+    private boolean includeSubfolders;
+    
     public SearchNotesRequest(String query) {
         this.query = query;
     }
@@ -18,6 +18,11 @@ public class TextDiffDTO {
     private String rightText; // Versione nuova (destra)
     private List<DiffSegment> leftSegments;  // Segmenti con evidenziazioni per il testo di sinistra
     private List<DiffSegment> rightSegments; // Segmenti con evidenziazioni per il testo di destra
+    private boolean exact = true;            // False se il diff è stato troncato (limite di tempo o di distanza)
+    
+    public TextDiffDTO(String leftText, String rightText, List<DiffSegment> leftSegments, List<DiffSegment> rightSegments) {
+        this(leftText, rightText, leftSegments, rightSegments, true);
+    }
     
     /**
      * Check if there are changes (additions or removals) in the diff
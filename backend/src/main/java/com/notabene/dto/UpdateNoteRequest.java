@@ -2,6 +2,8 @@ package com.notabene.dto;
 
 import java.util.List;
 
+import com.notabene.entity.Note;
+
 import com.fasterxml.jackson.annotation.JsonAlias;
 
 import jakarta.validation.constraints.Size;
@@ -12,14 +14,23 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class UpdateNoteRequest {
     
-    @Size(max = 255, message = "Title cannot exceed 255 characters")
+    @Size(max = Note.MAX_TITLE_LENGTH, message = "Title cannot exceed " + Note.MAX_TITLE_LENGTH + " characters")
     private String title;
     
-    @Size(max = 280, message = "Content cannot exceed 280 characters")
+    @Size(max = Note.MAX_CONTENT_LENGTH, message = "Content cannot exceed " + Note.MAX_CONTENT_LENGTH + " characters")
     private String content;
 
     @JsonAlias({"tagIds","tag_ids"})
     private List<Long> tagIds;
+
+    // Revision the edit is based on: if the note has moved on the update is rejected (409).
+    // Null skips the check, concurrent writes are still detected by the optimistic lock
+    private Long revision;
+
+    // Merge mode: concurrent edits made since baseHash (the contentHash the client started from)
+    // are merged with this one instead of being rejected
+    private boolean merge;
+    private String baseHash;
     
     public UpdateNoteRequest(String title, String content) {
         this.title = title;
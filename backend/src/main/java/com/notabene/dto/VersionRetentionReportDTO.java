@@ -0,0 +1,7 @@
+package com.notabene.dto;
+
+/**
+ * Outcome of one retention run: versions deleted and bytes reclaimed
+ * (version rows plus the blobs left without references)
+ */
+public record VersionRetentionReportDTO(long deletedVersions, long reclaimedBytes, int batches, long durationMillis) {}
@@ -0,0 +1,13 @@
+package com.notabene.dto;
+
+/**
+ * Storage used by version bodies: logical bytes count every version,
+ * stored bytes count each distinct body once
+ */
+public record VersionStorageReportDTO(long versions, long blobs, long logicalBytes, long storedBytes, double dedupRatio) {
+
+    public static VersionStorageReportDTO of(long versions, long blobs, long logicalBytes, long storedBytes) {
+        double ratio = storedBytes == 0 ? 1.0 : (double) logicalBytes / storedBytes;
+        return new VersionStorageReportDTO(versions, blobs, logicalBytes, storedBytes, ratio);
+    }
+}
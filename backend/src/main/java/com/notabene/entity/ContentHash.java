@@ -0,0 +1,33 @@
+package com.notabene.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 fingerprint of a note's title and content, stored on notes and
+ * note_versions so that identical states can be found with an index lookup.
+ * The hashed text is {@code <title code points>:<title><content>}, the same
+ * expression used to backfill existing rows in SQL.
+ */
+public final class ContentHash {
+
+    private ContentHash() {}
+
+    /**
+     * Hash of a title/content pair (null values are treated as empty)
+     */
+    public static String of(String title, String content) {
+        String safeTitle = title != null ? title : "";
+        String safeContent = content != null ? content : "";
+        // Il prefisso con la lunghezza del titolo evita collisioni tra titolo e contenuto
+        String source = safeTitle.codePointCount(0, safeTitle.length()) + ":" + safeTitle + safeContent;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -9,19 +9,25 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 
 @Entity
 @Table(name = "folders",
-       uniqueConstraints = @UniqueConstraint(columnNames = {"owner_id","name"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"owner_id","parent_id","name"}))
 public class Folder {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "folders_id_seq")
+    @SequenceGenerator(name = "folders_id_seq", sequenceName = "folders_id_seq", allocationSize = 50)
   private Long id;
 
   @Column(name="owner_id", nullable=false, updatable=false)
   private Long ownerId;
 
+  // NULL per le cartelle di primo livello; i percorsi completi sono in folder_closure
+  @Column(name="parent_id")
+  private Long parentId;
+
   @Column(nullable=false, length=120)
   private String name;
 
@@ -31,11 +37,14 @@ public class Folder {
 
   public Folder() {}
   public Folder(Long ownerId, String name) { this.ownerId = ownerId; this.name = name; }
+  public Folder(Long ownerId, Long parentId, String name) { this(ownerId, name); this.parentId = parentId; }
 
     public Long getId() { return id; }
     public void setId(Long id){ this.id = id; }
     public Long getOwnerId() { return ownerId; }
     public void setOwnerId(Long ownerId){ this.ownerId = ownerId; }
+    public Long getParentId() { return parentId; }
+    public void setParentId(Long parentId){ this.parentId = parentId; }
     public String getName(){ return name; }
     public void setName(String name){ this.name = name; }
     public Instant getCreatedAt() { return createdAt; }
@@ -0,0 +1,25 @@
+package com.notabene.entity;
+
+import com.notabene.model.FolderClosureId;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "folder_closure")
+public class FolderClosure {
+    @EmbeddedId
+    private FolderClosureId id;
+
+    // 0 per la cartella stessa, 1 per le figlie dirette, ...
+    @Column(nullable = false)
+    private int depth;
+
+    public FolderClosure() {}
+    public FolderClosure(FolderClosureId id, int depth){ this.id = id; this.depth = depth; }
+
+    public FolderClosureId getId(){ return id; }
+    public int getDepth(){ return depth; }
+}
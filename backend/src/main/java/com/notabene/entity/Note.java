@@ -24,7 +24,9 @@ import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -37,17 +39,22 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class Note {
     
+    // Limiti di titolo e contenuto, condivisi da DTO, import e merge
+    public static final int MAX_TITLE_LENGTH = 255;
+    public static final int MAX_CONTENT_LENGTH = 280;
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notes_id_seq")
+    @SequenceGenerator(name = "notes_id_seq", sequenceName = "notes_id_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Title cannot be blank")
-    @Size(max = 255, message = "Title cannot exceed 255 characters")
+    @Size(max = MAX_TITLE_LENGTH, message = "Title cannot exceed " + MAX_TITLE_LENGTH + " characters")
     @Column(nullable = false)
     private String title;
     
     @NotBlank(message = "Content cannot be blank")
-    @Size(max = 280, message = "Content cannot exceed 280 characters")
+    @Size(max = MAX_CONTENT_LENGTH, message = "Content cannot exceed " + MAX_CONTENT_LENGTH + " characters")
     @Column(columnDefinition = "TEXT", nullable = false)
     private String content;
     
@@ -78,6 +85,26 @@ public class Note {
     @Column(name = "current_version_pointer")
     private Integer currentVersionPointer;
 
+    // Hash di titolo e contenuto, aggiornato ad ogni salvataggio
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // Optimistic lock: checked and incremented by Hibernate on every update of the note
+    @Version
+    @Column(name = "revision", nullable = false)
+    private Long revision;
+
+    // Delta from the latest stored version (pendingDeltaBase) to the current state,
+    // built from PATCH edit operations and reused when that state becomes a version
+    @Column(name = "pending_delta_base")
+    private Integer pendingDeltaBase;
+
+    @Column(name = "pending_title_delta", columnDefinition = "TEXT")
+    private String pendingTitleDelta;
+
+    @Column(name = "pending_content_delta", columnDefinition = "TEXT")
+    private String pendingContentDelta;
+
     // ...
     @ManyToMany
     @JoinTable(
@@ -100,6 +127,7 @@ public class Note {
         LocalDateTime now = LocalDateTime.now();
         this.createdAt = now;
         this.updatedAt = now;
+        this.contentHash = ContentHash.of(this.title, this.content);
         
         // Initialize permission arrays and set creator permissions
         if (this.readers == null) {
@@ -127,6 +155,7 @@ public class Note {
     @PreUpdate
     protected void onUpdate() {
         this.updatedAt = LocalDateTime.now();
+        this.contentHash = ContentHash.of(this.title, this.content);
     }
     
     // Constructor for tests and manual creation
@@ -213,6 +242,15 @@ public class Note {
         return userId != null && userId.equals(this.creatorId);
     }
     
+    /**
+     * Forget the pending delta, e.g. after a full-text update
+     */
+    public void clearPendingDelta() {
+        this.pendingDeltaBase = null;
+        this.pendingTitleDelta = null;
+        this.pendingContentDelta = null;
+    }
+    
     // ==================== MEMENTO PATTERN METHODS ====================
     
     /**
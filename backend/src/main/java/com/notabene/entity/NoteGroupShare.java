@@ -0,0 +1,26 @@
+package com.notabene.entity;
+
+import com.notabene.model.NoteGroupShareId;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "note_group_shares")
+public class NoteGroupShare {
+    @EmbeddedId
+    private NoteGroupShareId id;
+
+    // Scrittura implica lettura, come per writers/readers
+    @Column(name = "can_write", nullable = false)
+    private boolean canWrite;
+
+    public NoteGroupShare() {}
+    public NoteGroupShare(NoteGroupShareId id, boolean canWrite){ this.id = id; this.canWrite = canWrite; }
+
+    public NoteGroupShareId getId(){ return id; }
+    public boolean isCanWrite(){ return canWrite; }
+    public void setCanWrite(boolean canWrite){ this.canWrite = canWrite; }
+}
@@ -0,0 +1,41 @@
+package com.notabene.entity;
+
+import java.time.LocalDateTime;
+
+import com.notabene.model.NoteMergeBaseId;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+/**
+ * A state of a note that an edit replaced without storing a version (coalesced edits),
+ * kept for a while so that clients that loaded it can still three-way merge on top of it.
+ * Not part of the version history.
+ */
+@Entity
+@Table(name = "note_merge_bases")
+public class NoteMergeBase {
+    @EmbeddedId
+    private NoteMergeBaseId id;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String content;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public NoteMergeBase() {}
+    public NoteMergeBase(NoteMergeBaseId id, String title, String content) {
+        this.id = id; this.title = title; this.content = content; this.createdAt = LocalDateTime.now();
+    }
+
+    public NoteMergeBaseId getId(){ return id; }
+    public String getTitle(){ return title; }
+    public String getContent(){ return content; }
+    public LocalDateTime getCreatedAt(){ return createdAt; }
+}
@@ -0,0 +1,35 @@
+package com.notabene.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-note override of the global version retention settings.
+ * Kept apart from notes so that changing it does not touch the note row (and its updated_at);
+ * a null field means the global default applies.
+ */
+@Entity
+@Table(name = "note_retention_policies")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteRetentionPolicy {
+
+    @Id
+    @Column(name = "note_id")
+    private Long noteId;
+
+    @Column(name = "keep_last")
+    private Integer keepLast;
+
+    @Column(name = "hourly_hours")
+    private Integer hourlyHours;
+
+    @Column(name = "daily_days")
+    private Integer dailyDays;
+}
@@ -1,5 +1,6 @@
 package com.notabene.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -15,13 +16,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "note_versions")
+@Table(name = "note_versions",
+       uniqueConstraints = @UniqueConstraint(name = "uq_note_version", columnNames = {"note_id", "version_number"}))
 @Data
 @NoArgsConstructor
 public class NoteVersion {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_versions_id_seq")
+    @SequenceGenerator(name = "note_versions_id_seq", sequenceName = "note_versions_id_seq", allocationSize = 50)
     private Long id;
     
     @NotNull(message = "Note ID cannot be null")
@@ -33,15 +36,22 @@ public class NoteVersion {
     @Column(name = "version_number", nullable = false)
     private Integer versionNumber;
     
+    // Title and content live in a shared VersionBlob; these fields hold the body of a
+    // version that has not been loaded from the database (new or virtual versions)
     @NotBlank(message = "Title cannot be blank")
-    @Size(max = 255, message = "Title cannot exceed 255 characters")
-    @Column(nullable = false)
+    @Size(max = Note.MAX_TITLE_LENGTH, message = "Title cannot exceed " + Note.MAX_TITLE_LENGTH + " characters")
+    @Transient
     private String title;
     
     @NotBlank(message = "Content cannot be blank")
-    @Column(columnDefinition = "TEXT", nullable = false)
+    @Transient
     private String content;
     
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "content_hash", insertable = false, updatable = false)
+    private VersionBlob blob;
+    
     // Permission arrays - snapshot of the note's permissions at the time of versioning
     @JdbcTypeCode(SqlTypes.ARRAY)
     @Column(name = "readers", columnDefinition = "bigint[]")
@@ -76,11 +86,38 @@ public class NoteVersion {
     @Column(name = "restored_from_version")
     private Integer restoredFromVersion;
     
+    // Delta from the previous stored version (compact form, computed when the version is created)
+    @JsonIgnore
+    @Column(name = "delta_base_version")
+    private Integer deltaBaseVersion;
+    
+    @JsonIgnore
+    @Column(name = "title_delta", columnDefinition = "TEXT")
+    private String titleDelta;
+    
+    @JsonIgnore
+    @Column(name = "content_delta", columnDefinition = "TEXT")
+    private String contentDelta;
+    
+    // Hash of title and content: key of the blob and used to detect restores without comparing texts
+    @JsonIgnore
+    @Column(name = "content_hash", length = 64, nullable = false)
+    private String contentHash;
+    
+    public String getTitle() {
+        return blob != null ? blob.getTitle() : title;
+    }
+    
+    public String getContent() {
+        return blob != null ? blob.getContent() : content;
+    }
+    
     @PrePersist
     protected void onCreate() {
         if (this.createdAt == null) {
             this.createdAt = LocalDateTime.now();
         }
+        this.contentHash = ContentHash.of(getTitle(), getContent());
         if (this.isRestored == null) {
             this.isRestored = false;
         }
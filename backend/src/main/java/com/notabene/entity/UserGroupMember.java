@@ -0,0 +1,19 @@
+package com.notabene.entity;
+
+import com.notabene.model.UserGroupMemberId;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "user_group_members")
+public class UserGroupMember {
+    @EmbeddedId
+    private UserGroupMemberId id;
+
+    public UserGroupMember() {}
+    public UserGroupMember(UserGroupMemberId id){ this.id = id; }
+
+    public UserGroupMemberId getId(){ return id; }
+}
@@ -0,0 +1,40 @@
+package com.notabene.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+
+import java.time.LocalDateTime;
+
+/**
+ * Body (title and content) of one or more note versions, stored once per content hash.
+ * The reference count is maintained by a trigger on note_versions, so it also
+ * follows cascading deletes; rows are only written here with an upsert.
+ */
+@Entity
+@Table(name = "version_blobs")
+@Data
+@NoArgsConstructor
+@BatchSize(size = 50)
+public class VersionBlob {
+
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String content;
+
+    @Column(name = "ref_count", nullable = false, updatable = false)
+    private Integer refCount = 0;
+
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,81 @@
+package com.notabene.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshot of a note waiting to be stored as a version.
+ * Written in the same transaction as the edit when versions are written behind;
+ * the background drain turns entries into versions in id order and deletes them.
+ * An entry the drain cannot write is kept as a dead letter, with failedAt and the error.
+ */
+@Entity
+@Table(name = "version_outbox")
+@Data
+@NoArgsConstructor
+public class VersionOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "version_outbox_id_seq")
+    @SequenceGenerator(name = "version_outbox_id_seq", sequenceName = "version_outbox_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "note_id", nullable = false)
+    private Long noteId;
+
+    @Column(name = "title", nullable = false)
+    private String title;
+
+    @Column(name = "content", nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "readers", columnDefinition = "bigint[]")
+    private List<Long> readers = new ArrayList<>();
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "writers", columnDefinition = "bigint[]")
+    private List<Long> writers = new ArrayList<>();
+
+    @Column(name = "created_by", nullable = false)
+    private Long createdBy;
+
+    @Column(name = "note_creator_id", nullable = false)
+    private Long noteCreatorId;
+
+    @Column(name = "original_created_at")
+    private LocalDateTime originalCreatedAt;
+
+    @Column(name = "original_updated_at")
+    private LocalDateTime originalUpdatedAt;
+
+    @Column(name = "enqueued_at", nullable = false, updatable = false)
+    private LocalDateTime enqueuedAt;
+
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+
+    @Column(name = "failure", columnDefinition = "TEXT")
+    private String failure;
+
+    @PrePersist
+    protected void onCreate() {
+        if (this.enqueuedAt == null) {
+            this.enqueuedAt = LocalDateTime.now();
+        }
+    }
+}
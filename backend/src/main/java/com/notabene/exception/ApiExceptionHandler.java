@@ -8,6 +8,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.notabene.service.TagService;
 
@@ -33,6 +34,13 @@ public class ApiExceptionHandler {
                 .body(body("Violazione di vincoli dati (es. duplicato).", HttpStatus.CONFLICT.value()));
     }
 
+    // Altrimenti finirebbe nel fallback come 500
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, Object>> responseStatus(ResponseStatusException e) {
+        return ResponseEntity.status(e.getStatusCode())
+                .body(body(e.getReason(), e.getStatusCode().value()));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> fallback(Exception e) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
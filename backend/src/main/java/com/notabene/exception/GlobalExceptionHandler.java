@@ -11,6 +11,7 @@ import org.springframework.core.annotation.Order;
 import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -24,7 +25,11 @@ import org.springframework.web.context.request.WebRequest;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-@RestControllerAdvice(assignableTypes = com.notabene.controller.NoteController.class)
+@RestControllerAdvice(assignableTypes = {
+    com.notabene.controller.NoteController.class,
+    com.notabene.controller.NoteBatchController.class,
+    com.notabene.controller.NoteSharingController.class
+})
 @Order(Ordered.HIGHEST_PRECEDENCE)
 public class GlobalExceptionHandler {
 
@@ -42,6 +47,49 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
     }
     
+    @ExceptionHandler(NoteConflictException.class)
+    public ResponseEntity<Map<String, Object>> handleNoteConflictException(NoteConflictException ex) {
+        log.warn("Note edit conflict: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(conflictDetails(ex));
+    }
+    
+    /**
+     * Concurrent update detected by the optimistic lock on an endpoint that does not
+     * report the current revision: the client has to reload the note
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex) {
+        log.warn("Concurrent modification of {} {}", ex.getPersistentClassName(), ex.getIdentifier());
+        
+        Map<String, Object> errorDetails = new HashMap<>();
+        errorDetails.put("timestamp", LocalDateTime.now());
+        errorDetails.put("status", HttpStatus.CONFLICT.value());
+        errorDetails.put("error", "Conflict");
+        errorDetails.put("message", "The note was modified by another request, reload it and retry");
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorDetails);
+    }
+    
+    /**
+     * Body of a 409 response, with the revision (and content hash) the client should rebase on
+     * and, for merge conflicts, the merged text with conflict markers
+     */
+    public static Map<String, Object> conflictDetails(NoteConflictException ex) {
+        Map<String, Object> errorDetails = new HashMap<>();
+        errorDetails.put("timestamp", LocalDateTime.now());
+        errorDetails.put("status", HttpStatus.CONFLICT.value());
+        errorDetails.put("error", "Conflict");
+        errorDetails.put("message", ex.getMessage());
+        errorDetails.put("currentRevision", ex.getCurrentRevision());
+        errorDetails.put("currentHash", ex.getCurrentHash());
+        if (ex instanceof NoteMergeConflictException merge) {
+            errorDetails.put("conflicts", merge.getConflicts());
+            errorDetails.put("mergedTitle", merge.getMergedTitle());
+            errorDetails.put("mergedContent", merge.getMergedContent());
+        }
+        return errorDetails;
+    }
+    
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidationExceptions(MethodArgumentNotValidException ex) {
         log.error("Validation error: {}", ex.getMessage(), ex);
@@ -0,0 +1,24 @@
+package com.notabene.exception;
+
+/**
+ * The note was changed after the revision an edit was based on
+ */
+public class NoteConflictException extends RuntimeException {
+
+    private final String currentHash;
+    private final Long currentRevision;
+
+    public NoteConflictException(String message, String currentHash, Long currentRevision) {
+        super(message);
+        this.currentHash = currentHash;
+        this.currentRevision = currentRevision;
+    }
+
+    public String getCurrentHash() {
+        return currentHash;
+    }
+
+    public Long getCurrentRevision() {
+        return currentRevision;
+    }
+}
@@ -0,0 +1,32 @@
+package com.notabene.exception;
+
+/**
+ * A merge of concurrent edits left overlapping changes: the merged title and content
+ * carry conflict markers for the client to resolve
+ */
+public class NoteMergeConflictException extends NoteConflictException {
+
+    private final String mergedTitle;
+    private final String mergedContent;
+    private final int conflicts;
+
+    public NoteMergeConflictException(String message, String currentHash, Long currentRevision,
+                                      String mergedTitle, String mergedContent, int conflicts) {
+        super(message, currentHash, currentRevision);
+        this.mergedTitle = mergedTitle;
+        this.mergedContent = mergedContent;
+        this.conflicts = conflicts;
+    }
+
+    public String getMergedTitle() {
+        return mergedTitle;
+    }
+
+    public String getMergedContent() {
+        return mergedContent;
+    }
+
+    public int getConflicts() {
+        return conflicts;
+    }
+}
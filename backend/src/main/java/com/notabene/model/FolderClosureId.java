@@ -0,0 +1,24 @@
+package com.notabene.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import jakarta.persistence.Embeddable;
+
+@Embeddable
+public class FolderClosureId implements Serializable {
+    private Long ancestorId;
+    private Long descendantId;
+
+    public FolderClosureId() {}
+    public FolderClosureId(Long ancestorId, Long descendantId){ this.ancestorId=ancestorId; this.descendantId=descendantId; }
+
+    public Long getAncestorId(){ return ancestorId; }
+    public Long getDescendantId(){ return descendantId; }
+
+    @Override public boolean equals(Object o){
+        if (this==o) return true; if (!(o instanceof FolderClosureId id)) return false;
+        return Objects.equals(ancestorId,id.ancestorId) && Objects.equals(descendantId,id.descendantId);
+    }
+    @Override public int hashCode(){ return Objects.hash(ancestorId,descendantId); }
+}
@@ -0,0 +1,24 @@
+package com.notabene.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import jakarta.persistence.Embeddable;
+
+@Embeddable
+public class NoteGroupShareId implements Serializable {
+    private Long noteId;
+    private Long groupId;
+
+    public NoteGroupShareId() {}
+    public NoteGroupShareId(Long noteId, Long groupId){ this.noteId=noteId; this.groupId=groupId; }
+
+    public Long getNoteId(){ return noteId; }
+    public Long getGroupId(){ return groupId; }
+
+    @Override public boolean equals(Object o){
+        if (this==o) return true; if (!(o instanceof NoteGroupShareId id)) return false;
+        return Objects.equals(noteId,id.noteId) && Objects.equals(groupId,id.groupId);
+    }
+    @Override public int hashCode(){ return Objects.hash(noteId,groupId); }
+}
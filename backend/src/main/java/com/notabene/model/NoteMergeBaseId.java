@@ -0,0 +1,24 @@
+package com.notabene.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import jakarta.persistence.Embeddable;
+
+@Embeddable
+public class NoteMergeBaseId implements Serializable {
+    private Long noteId;
+    private String contentHash;
+
+    public NoteMergeBaseId() {}
+    public NoteMergeBaseId(Long noteId, String contentHash){ this.noteId=noteId; this.contentHash=contentHash; }
+
+    public Long getNoteId(){ return noteId; }
+    public String getContentHash(){ return contentHash; }
+
+    @Override public boolean equals(Object o){
+        if (this==o) return true; if (!(o instanceof NoteMergeBaseId id)) return false;
+        return Objects.equals(noteId,id.noteId) && Objects.equals(contentHash,id.contentHash);
+    }
+    @Override public int hashCode(){ return Objects.hash(noteId,contentHash); }
+}
@@ -0,0 +1,24 @@
+package com.notabene.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import jakarta.persistence.Embeddable;
+
+@Embeddable
+public class UserGroupMemberId implements Serializable {
+    private Long groupId;
+    private Long userId;
+
+    public UserGroupMemberId() {}
+    public UserGroupMemberId(Long groupId, Long userId){ this.groupId=groupId; this.userId=userId; }
+
+    public Long getGroupId(){ return groupId; }
+    public Long getUserId(){ return userId; }
+
+    @Override public boolean equals(Object o){
+        if (this==o) return true; if (!(o instanceof UserGroupMemberId id)) return false;
+        return Objects.equals(groupId,id.groupId) && Objects.equals(userId,id.userId);
+    }
+    @Override public int hashCode(){ return Objects.hash(groupId,userId); }
+}
@@ -0,0 +1,48 @@
+package com.notabene.repository;
+
+import java.util.Collection;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.notabene.entity.FolderClosure;
+import com.notabene.model.FolderClosureId;
+
+/**
+ * Closure table of the folder tree: every subtree change is a fixed number of set-based
+ * statements, whatever the depth of the tree
+ */
+public interface FolderClosureRepository extends JpaRepository<FolderClosure, FolderClosureId> {
+
+    // flushAutomatically: la cartella appena salvata deve esistere prima dei percorsi
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO folder_closure (ancestor_id, descendant_id, depth) VALUES (:folderId, :folderId, 0)",
+           nativeQuery = true)
+    int insertSelf(@Param("folderId") Long folderId);
+
+    // Una nuova cartella (o un sottoalbero spostato) eredita i percorsi della nuova cartella padre
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO folder_closure (ancestor_id, descendant_id, depth) " +
+                   "SELECT p.ancestor_id, c.descendant_id, p.depth + c.depth + 1 " +
+                   "FROM folder_closure p CROSS JOIN folder_closure c " +
+                   "WHERE p.descendant_id = :parentId AND c.ancestor_id = :folderId", nativeQuery = true)
+    int attachSubtree(@Param("folderId") Long folderId, @Param("parentId") Long parentId);
+
+    // Toglie i percorsi dagli antenati esterni al sottoalbero; quelli interni restano validi
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM folder_closure " +
+                   "WHERE descendant_id IN (SELECT s.descendant_id FROM folder_closure s WHERE s.ancestor_id = :folderId) " +
+                   "AND ancestor_id NOT IN (SELECT s.descendant_id FROM folder_closure s WHERE s.ancestor_id = :folderId)",
+           nativeQuery = true)
+    int detachSubtree(@Param("folderId") Long folderId);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM folder_closure WHERE ancestor_id = :ancestorId AND descendant_id = :folderId)",
+           nativeQuery = true)
+    boolean isInSubtree(@Param("ancestorId") Long ancestorId, @Param("folderId") Long folderId);
+
+    @Modifying
+    @Query(value = "DELETE FROM folder_closure WHERE descendant_id IN (:folderIds)", nativeQuery = true)
+    int deleteAllByDescendantIdIn(@Param("folderIds") Collection<Long> folderIds);
+}
@@ -1,13 +1,48 @@
 package com.notabene.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.notabene.entity.FolderNote;
 import com.notabene.model.FolderNoteId;
 
 public interface FolderNoteRepository extends JpaRepository<FolderNote, FolderNoteId> {
     List<FolderNote> findAllById_FolderId(Long folderId);
-}
 
+    // Le note già presenti nella cartella vengono ignorate
+    @Modifying
+    @Query(value = "INSERT INTO folder_notes (folder_id, note_id) " +
+                   "SELECT :folderId, n.id FROM notes n WHERE n.id IN (:noteIds) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int addNotes(@Param("folderId") Long folderId, @Param("noteIds") Collection<Long> noteIds);
+
+    @Query(value = "SELECT note_id FROM folder_notes WHERE folder_id = :folderId AND note_id IN (:noteIds)",
+           nativeQuery = true)
+    List<Long> findNoteIdsIn(@Param("folderId") Long folderId, @Param("noteIds") Collection<Long> noteIds);
+
+    // Collega alla cartella di destinazione le note presenti in quella di origine
+    @Modifying
+    @Query(value = "INSERT INTO folder_notes (folder_id, note_id) " +
+                   "SELECT :toFolderId, fn.note_id FROM folder_notes fn " +
+                   "WHERE fn.folder_id = :fromFolderId AND fn.note_id IN (:noteIds) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int copyLinks(@Param("fromFolderId") Long fromFolderId, @Param("toFolderId") Long toFolderId,
+                  @Param("noteIds") Collection<Long> noteIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM folder_notes WHERE folder_id = :folderId AND note_id IN (:noteIds)", nativeQuery = true)
+    int removeNotes(@Param("folderId") Long folderId, @Param("noteIds") Collection<Long> noteIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM folder_notes WHERE note_id IN (:noteIds)", nativeQuery = true)
+    int deleteAllByNoteIdIn(@Param("noteIds") Collection<Long> noteIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM folder_notes WHERE folder_id IN (:folderIds)", nativeQuery = true)
+    int deleteAllByFolderIdIn(@Param("folderIds") Collection<Long> folderIds);
+}
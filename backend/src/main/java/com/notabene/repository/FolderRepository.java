@@ -1,9 +1,13 @@
 package com.notabene.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.notabene.entity.Folder;
 
@@ -12,5 +16,39 @@ public interface FolderRepository extends JpaRepository<Folder, Long> {
     Optional<Folder> findByIdAndOwnerId(Long id, Long ownerId);
     boolean existsByIdAndOwnerId(Long id, Long ownerId);
     boolean existsByOwnerIdAndName(Long ownerId, String name);
-}
+    // parentId null: cartelle di primo livello (IS NULL)
+    boolean existsByOwnerIdAndParentIdAndName(Long ownerId, Long parentId, String name);
+
+    @Query("SELECT f.id FROM Folder f WHERE f.ownerId = :ownerId AND f.id IN :ids")
+    List<Long> findOwnedIds(@Param("ownerId") Long ownerId, @Param("ids") Collection<Long> ids);
+
+    // Cartelle dell'utente con il numero di note in ciascuna: [id, nome, note]
+    @Query(value = "SELECT f.id, f.name, count(fn.note_id) " +
+                   "FROM folders f LEFT JOIN folder_notes fn ON fn.folder_id = f.id " +
+                   "WHERE f.owner_id = :ownerId " +
+                   "GROUP BY f.id, f.name ORDER BY f.name", nativeQuery = true)
+    List<Object[]> findSummariesWithNoteCounts(@Param("ownerId") Long ownerId);
+
+    // Tutto l'albero dell'utente con i conteggi in una sola query:
+    // [id, nome, padre, note nella cartella, note distinte nel sottoalbero]
+    @Query(value = "SELECT f.id, f.name, f.parent_id, " +
+                   "count(DISTINCT fn.note_id) FILTER (WHERE c.depth = 0), count(DISTINCT fn.note_id) " +
+                   "FROM folders f " +
+                   "JOIN folder_closure c ON c.ancestor_id = f.id " +
+                   "LEFT JOIN folder_notes fn ON fn.folder_id = c.descendant_id " +
+                   "WHERE f.owner_id = :ownerId " +
+                   "GROUP BY f.id, f.name, f.parent_id ORDER BY f.name", nativeQuery = true)
+    List<Object[]> findTreeWithNoteCounts(@Param("ownerId") Long ownerId);
 
+    // La cartella e tutte le sottocartelle
+    @Query(value = "SELECT descendant_id FROM folder_closure WHERE ancestor_id = :folderId", nativeQuery = true)
+    List<Long> findSubtreeIds(@Param("folderId") Long folderId);
+
+    @Modifying
+    @Query(value = "DELETE FROM folders WHERE id IN (:ids)", nativeQuery = true)
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Serializza le modifiche all'albero di un utente fino al commit: controlli e closure vedono lo stesso albero
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:ownerId)", nativeQuery = true)
+    Integer lockTreeOf(@Param("ownerId") Long ownerId);
+}
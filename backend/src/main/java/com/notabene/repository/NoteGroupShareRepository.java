@@ -0,0 +1,35 @@
+package com.notabene.repository;
+
+import java.util.Collection;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.notabene.entity.NoteGroupShare;
+import com.notabene.model.NoteGroupShareId;
+
+public interface NoteGroupShareRepository extends JpaRepository<NoteGroupShare, NoteGroupShareId> {
+
+    // Condivide con il gruppo le note create da ownerId; una condivisione già presente con lo
+    // stesso ruolo non viene toccata, quindi ripetere la richiesta non cambia nulla
+    @Modifying
+    @Query(value = "INSERT INTO note_group_shares (note_id, group_id, can_write) " +
+                   "SELECT n.id, :groupId, :canWrite FROM notes n WHERE n.id IN (:noteIds) AND n.creator_id = :ownerId " +
+                   "ON CONFLICT (note_id, group_id) DO UPDATE SET can_write = EXCLUDED.can_write " +
+                   "WHERE note_group_shares.can_write <> EXCLUDED.can_write", nativeQuery = true)
+    int shareNotes(@Param("groupId") Long groupId, @Param("noteIds") Collection<Long> noteIds,
+                   @Param("canWrite") boolean canWrite, @Param("ownerId") Long ownerId);
+
+    @Modifying
+    @Query(value = "DELETE FROM note_group_shares s USING notes n " +
+                   "WHERE s.group_id = :groupId AND s.note_id IN (:noteIds) " +
+                   "AND n.id = s.note_id AND n.creator_id = :ownerId", nativeQuery = true)
+    int unshareNotes(@Param("groupId") Long groupId, @Param("noteIds") Collection<Long> noteIds,
+                     @Param("ownerId") Long ownerId);
+
+    @Modifying
+    @Query(value = "DELETE FROM note_group_shares WHERE group_id = :groupId", nativeQuery = true)
+    int deleteAllByGroupId(@Param("groupId") Long groupId);
+}
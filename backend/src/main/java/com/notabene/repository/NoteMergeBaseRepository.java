@@ -0,0 +1,29 @@
+package com.notabene.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.notabene.entity.NoteMergeBase;
+import com.notabene.model.NoteMergeBaseId;
+
+/**
+ * States of notes dropped by edit coalescing, looked up by content hash as merge bases
+ */
+public interface NoteMergeBaseRepository extends JpaRepository<NoteMergeBase, NoteMergeBaseId> {
+
+    // Lo stesso stato ripetuto rinnova solo la scadenza
+    @Modifying
+    @Query(value = "INSERT INTO note_merge_bases (note_id, content_hash, title, content, created_at) " +
+                   "VALUES (:noteId, :hash, :title, :content, now()) " +
+                   "ON CONFLICT (note_id, content_hash) DO UPDATE SET created_at = now()", nativeQuery = true)
+    int remember(@Param("noteId") Long noteId, @Param("hash") String contentHash,
+                 @Param("title") String title, @Param("content") String content);
+
+    @Modifying
+    @Query(value = "DELETE FROM note_merge_bases WHERE note_id = :noteId AND created_at < :cutoff", nativeQuery = true)
+    int deleteExpired(@Param("noteId") Long noteId, @Param("cutoff") LocalDateTime cutoff);
+}
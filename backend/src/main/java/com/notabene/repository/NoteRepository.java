@@ -5,16 +5,28 @@ import com.notabene.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface NoteRepository extends JpaRepository<Note, Long> {
+
+    // Note accessibili tramite gruppo: dai gruppi dell'utente (idx_ugm_user) e da quelli che
+    // possiede, che non lo elencano tra i membri, alle note condivise con quei gruppi
+    // (idx_ngs_group). Un nuovo membro è una riga in user_group_members, nessuna nota va riscritta.
+    String GROUP_READABLE_NOTE_IDS = "SELECT s.note_id FROM note_group_shares s WHERE s.group_id IN (" +
+                                     "SELECT m.group_id FROM user_group_members m WHERE m.user_id = :userId " +
+                                     "UNION ALL SELECT g.id FROM user_groups g WHERE g.owner_id = :userId)";
+    String GROUP_WRITABLE_NOTE_IDS = GROUP_READABLE_NOTE_IDS + " AND s.can_write";
+    String CAN_READ = "(:userId = ANY(n.readers) OR n.id IN (" + GROUP_READABLE_NOTE_IDS + "))";
+    String CAN_WRITE = "(:userId = ANY(n.writers) OR n.id IN (" + GROUP_WRITABLE_NOTE_IDS + "))";
     
     // Find notes by user (legacy - based on user relationship)
     List<Note> findByUserOrderByCreatedAtDesc(User user);
@@ -25,11 +37,11 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     // Permission-based queries using PostgreSQL arrays
     
     // Find notes where user has read permission
-    @Query(value = "SELECT * FROM notes n WHERE :userId = ANY(n.readers) ORDER BY n.created_at DESC", nativeQuery = true)
+    @Query(value = "SELECT * FROM notes n WHERE " + CAN_READ + " ORDER BY n.created_at DESC", nativeQuery = true)
     List<Note> findByReadersContaining(@Param("userId") Long userId);
     
     // Find notes where user has write permission
-    @Query(value = "SELECT * FROM notes n WHERE :userId = ANY(n.writers) ORDER BY n.created_at DESC", nativeQuery = true)
+    @Query(value = "SELECT * FROM notes n WHERE " + CAN_WRITE + " ORDER BY n.created_at DESC", nativeQuery = true)
     List<Note> findByWritersContaining(@Param("userId") Long userId);
     
     // Find notes created by user
@@ -37,26 +49,26 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     List<Note> findByCreatorId(@Param("creatorId") Long creatorId);
     
     // Find shared notes (where user is reader but not creator)
-    @Query(value = "SELECT * FROM notes n WHERE :userId = ANY(n.readers) AND n.creator_id != :userId ORDER BY n.created_at DESC", nativeQuery = true)
+    @Query(value = "SELECT * FROM notes n WHERE " + CAN_READ + " AND n.creator_id != :userId ORDER BY n.created_at DESC", nativeQuery = true)
     List<Note> findSharedWithUser(@Param("userId") Long userId);
     
     // Find note by id with read permission check
-    @Query(value = "SELECT * FROM notes n WHERE n.id = :noteId AND :userId = ANY(n.readers)", nativeQuery = true)
+    @Query(value = "SELECT * FROM notes n WHERE n.id = :noteId AND " + CAN_READ, nativeQuery = true)
     Optional<Note> findByIdWithReadPermission(@Param("noteId") Long noteId, @Param("userId") Long userId);
     
     // Find note by id with write permission check
-    @Query(value = "SELECT * FROM notes n WHERE n.id = :noteId AND :userId = ANY(n.writers)", nativeQuery = true)
+    @Query(value = "SELECT * FROM notes n WHERE n.id = :noteId AND " + CAN_WRITE, nativeQuery = true)
     Optional<Note> findByIdWithWritePermission(@Param("noteId") Long noteId, @Param("userId") Long userId);
     
     // Search notes with read permission
-    @Query(value = "SELECT * FROM notes n WHERE :userId = ANY(n.readers) AND (" +
+    @Query(value = "SELECT * FROM notes n WHERE " + CAN_READ + " AND (" +
            "LOWER(n.title) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(n.content) LIKE LOWER(CONCAT('%', :search, '%'))) ORDER BY n.created_at DESC", nativeQuery = true)
     List<Note> searchNotesWithReadPermission(@Param("userId") Long userId, @Param("search") String search);
     
     // Get paginated notes with read permission
-    @Query(value = "SELECT * FROM notes n WHERE :userId = ANY(n.readers) ORDER BY n.created_at DESC", 
-           countQuery = "SELECT count(*) FROM notes n WHERE :userId = ANY(n.readers)", 
+    @Query(value = "SELECT * FROM notes n WHERE " + CAN_READ + " ORDER BY n.created_at DESC", 
+           countQuery = "SELECT count(*) FROM notes n WHERE " + CAN_READ, 
            nativeQuery = true)
     Page<Note> findByReadersContaining(@Param("userId") Long userId, Pageable pageable);
     
@@ -94,14 +106,14 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     @Deprecated
     Page<Note> findAllByOrderByCreatedAtDesc(Pageable pageable);
     
-    // Advanced search method for multiple criteria
+    // Advanced search method for multiple criteria (includeSubfolders: the folder's whole subtree)
     @Query(value = """
         SELECT DISTINCT n.* FROM notes n 
         LEFT JOIN note_tag nt ON n.id = nt.note_id 
         LEFT JOIN tag t ON nt.tag_id = t.id 
         LEFT JOIN users u ON n.creator_id = u.id 
         LEFT JOIN folder_notes fn ON n.id = fn.note_id 
-        WHERE :userId = ANY(n.readers) 
+        WHERE """ + CAN_READ + """
         AND (:query IS NULL OR :query = '' OR 
              LOWER(n.title) LIKE LOWER(CONCAT('%', :query, '%')) OR 
              LOWER(n.content) LIKE LOWER(CONCAT('%', :query, '%')))
@@ -110,7 +122,8 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
         AND (CAST(:createdBefore AS timestamp) IS NULL OR n.created_at <= CAST(:createdBefore AS timestamp))
         AND (CAST(:updatedAfter AS timestamp) IS NULL OR n.updated_at >= CAST(:updatedAfter AS timestamp))
         AND (CAST(:updatedBefore AS timestamp) IS NULL OR n.updated_at <= CAST(:updatedBefore AS timestamp))
-        AND (:folderId IS NULL OR fn.folder_id = :folderId)
+        AND (:folderId IS NULL OR fn.folder_id = :folderId OR (:includeSubfolders AND fn.folder_id IN (
+             SELECT c.descendant_id FROM folder_closure c WHERE c.ancestor_id = :folderId)))
         ORDER BY n.created_at DESC
         """, nativeQuery = true)
     List<Note> searchNotesAdvanced(
@@ -121,6 +134,129 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
         @Param("createdBefore") LocalDateTime createdBefore,
         @Param("updatedAfter") LocalDateTime updatedAfter,
         @Param("updatedBefore") LocalDateTime updatedBefore,
-        @Param("folderId") Long folderId
+        @Param("folderId") Long folderId,
+        @Param("includeSubfolders") boolean includeSubfolders
     );
+
+    // Permessi dell'utente su più note in una sola query: [id, creatore, scrittore, proprietario]
+    @Query(value = "SELECT n.id, n.creator_id = :userId, " + CAN_WRITE + ", n.user_id = :userId " +
+                   "FROM notes n WHERE n.id IN (:noteIds)", nativeQuery = true)
+    List<Object[]> findPermissions(@Param("noteIds") Collection<Long> noteIds, @Param("userId") Long userId);
+
+    // Come hasGroupWriteAccess, per tutte le note di una pagina in una sola query
+    @Query(value = GROUP_WRITABLE_NOTE_IDS + " AND s.note_id IN (:noteIds)", nativeQuery = true)
+    List<Long> findGroupWritableIds(@Param("noteIds") Collection<Long> noteIds, @Param("userId") Long userId);
+
+    // Scrittura concessa tramite un gruppo (quella diretta è già in writers)
+    @Query(value = "SELECT EXISTS (" + GROUP_WRITABLE_NOTE_IDS + " AND s.note_id = :noteId)", nativeQuery = true)
+    boolean hasGroupWriteAccess(@Param("noteId") Long noteId, @Param("userId") Long userId);
+
+    // Copie indipendenti dell'utente: sourceIds[i] diventa copyIds[i], con il titolo " (Copia)"
+    // come NoteService.copyNote e l'hash calcolato con la stessa espressione di ContentHash
+    @Modifying
+    @Query(value = """
+        INSERT INTO notes (id, title, content, user_id, creator_id, readers, writers, current_version_pointer,
+                           content_hash, revision, created_at, updated_at)
+        SELECT m.copy_id, c.title, n.content, :userId, :userId,
+               CAST(ARRAY[:userId] AS bigint[]), CAST(ARRAY[:userId] AS bigint[]), 1,
+               encode(sha256(convert_to(char_length(c.title) || ':' || c.title || n.content, 'UTF8')), 'hex'),
+               0, now(), now()
+        FROM unnest(CAST(ARRAY[:sourceIds] AS bigint[]), CAST(ARRAY[:copyIds] AS bigint[])) AS m(source_id, copy_id)
+        JOIN notes n ON n.id = m.source_id
+        CROSS JOIN LATERAL (SELECT left(n.title || ' (Copia)', 255) AS title) c
+        """, nativeQuery = true)
+    int copyNotes(@Param("sourceIds") List<Long> sourceIds, @Param("copyIds") List<Long> copyIds,
+                  @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "INSERT INTO note_tag (note_id, tag_id) " +
+                   "SELECT m.copy_id, nt.tag_id " +
+                   "FROM unnest(CAST(ARRAY[:sourceIds] AS bigint[]), CAST(ARRAY[:copyIds] AS bigint[])) AS m(source_id, copy_id) " +
+                   "JOIN note_tag nt ON nt.note_id = m.source_id " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int copyTags(@Param("sourceIds") List<Long> sourceIds, @Param("copyIds") List<Long> copyIds);
+
+    // Aggiunge ogni tag a ogni nota; i collegamenti già presenti restano invariati
+    @Modifying
+    @Query(value = "INSERT INTO note_tag (note_id, tag_id) " +
+                   "SELECT n.id, t.id FROM notes n CROSS JOIN tag t " +
+                   "WHERE n.id IN (:noteIds) AND t.id IN (:tagIds) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int addTags(@Param("noteIds") Collection<Long> noteIds, @Param("tagIds") Collection<Long> tagIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM note_tag WHERE note_id IN (:noteIds) AND tag_id IN (:tagIds)", nativeQuery = true)
+    int removeTags(@Param("noteIds") Collection<Long> noteIds, @Param("tagIds") Collection<Long> tagIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM note_tag WHERE note_id IN (:noteIds)", nativeQuery = true)
+    int removeAllTags(@Param("noteIds") Collection<Long> noteIds);
+
+    // Come un salvataggio JPA dei tag: nuova revisione, così le modifiche concorrenti vengono rilevate
+    @Modifying
+    @Query(value = "UPDATE notes SET revision = revision + 1, updated_at = now() WHERE id IN (:noteIds)", nativeQuery = true)
+    int touch(@Param("noteIds") Collection<Long> noteIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM notes WHERE id IN (:noteIds)", nativeQuery = true)
+    int deleteAllByIdIn(@Param("noteIds") Collection<Long> noteIds);
+
+    // Condivisione massiva: un UPDATE per ruolo. Le note che hanno già tutti gli utenti non vengono
+    // toccate, quindi ripetere la richiesta non cambia nulla. La revisione avanza come in un
+    // salvataggio JPA, così un salvataggio concorrente dell'entità non sovrascrive i permessi.
+    @Modifying
+    @Query(value = """
+        UPDATE notes n SET
+            readers = COALESCE(n.readers, '{}') || ARRAY(SELECT u FROM unnest(CAST(ARRAY[:userIds] AS bigint[])) u
+                                                       WHERE u <> ALL(COALESCE(n.readers, '{}'))),
+            revision = n.revision + 1,
+            updated_at = now()
+        WHERE n.id IN (:noteIds) AND n.creator_id = :ownerId
+          AND NOT COALESCE(n.readers, '{}') @> CAST(ARRAY[:userIds] AS bigint[])
+        """, nativeQuery = true)
+    int grantReaders(@Param("noteIds") Collection<Long> noteIds, @Param("userIds") Collection<Long> userIds,
+                     @Param("ownerId") Long ownerId);
+
+    // Gli scrittori sono anche lettori
+    @Modifying
+    @Query(value = """
+        UPDATE notes n SET
+            readers = COALESCE(n.readers, '{}') || ARRAY(SELECT u FROM unnest(CAST(ARRAY[:userIds] AS bigint[])) u
+                                                       WHERE u <> ALL(COALESCE(n.readers, '{}'))),
+            writers = COALESCE(n.writers, '{}') || ARRAY(SELECT u FROM unnest(CAST(ARRAY[:userIds] AS bigint[])) u
+                                                       WHERE u <> ALL(COALESCE(n.writers, '{}'))),
+            revision = n.revision + 1,
+            updated_at = now()
+        WHERE n.id IN (:noteIds) AND n.creator_id = :ownerId
+          AND NOT (COALESCE(n.readers, '{}') @> CAST(ARRAY[:userIds] AS bigint[])
+                   AND COALESCE(n.writers, '{}') @> CAST(ARRAY[:userIds] AS bigint[]))
+        """, nativeQuery = true)
+    int grantWriters(@Param("noteIds") Collection<Long> noteIds, @Param("userIds") Collection<Long> userIds,
+                     @Param("ownerId") Long ownerId);
+
+    // Senza lettura non resta nemmeno la scrittura
+    @Modifying
+    @Query(value = """
+        UPDATE notes n SET
+            readers = ARRAY(SELECT u FROM unnest(n.readers) u WHERE u <> ALL(CAST(ARRAY[:userIds] AS bigint[]))),
+            writers = ARRAY(SELECT u FROM unnest(n.writers) u WHERE u <> ALL(CAST(ARRAY[:userIds] AS bigint[]))),
+            revision = n.revision + 1,
+            updated_at = now()
+        WHERE n.id IN (:noteIds) AND n.creator_id = :ownerId
+          AND (n.readers && CAST(ARRAY[:userIds] AS bigint[]) OR n.writers && CAST(ARRAY[:userIds] AS bigint[]))
+        """, nativeQuery = true)
+    int revokeReaders(@Param("noteIds") Collection<Long> noteIds, @Param("userIds") Collection<Long> userIds,
+                      @Param("ownerId") Long ownerId);
+
+    @Modifying
+    @Query(value = """
+        UPDATE notes n SET
+            writers = ARRAY(SELECT u FROM unnest(n.writers) u WHERE u <> ALL(CAST(ARRAY[:userIds] AS bigint[]))),
+            revision = n.revision + 1,
+            updated_at = now()
+        WHERE n.id IN (:noteIds) AND n.creator_id = :ownerId
+          AND n.writers && CAST(ARRAY[:userIds] AS bigint[])
+        """, nativeQuery = true)
+    int revokeWriters(@Param("noteIds") Collection<Long> noteIds, @Param("userIds") Collection<Long> userIds,
+                      @Param("ownerId") Long ownerId);
 }
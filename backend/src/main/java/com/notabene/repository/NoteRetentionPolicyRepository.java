@@ -0,0 +1,12 @@
+package com.notabene.repository;
+
+import com.notabene.entity.NoteRetentionPolicy;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for per-note version retention overrides
+ */
+@Repository
+public interface NoteRetentionPolicyRepository extends JpaRepository<NoteRetentionPolicy, Long> {
+}
@@ -1,9 +1,17 @@
 package com.notabene.repository;
 
+import com.notabene.dto.NoteVersionContentDTO;
+import com.notabene.dto.NoteVersionSummaryDTO;
 import com.notabene.entity.NoteVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +33,128 @@ public interface NoteVersionRepository extends JpaRepository<NoteVersion, Long>
      */
     Optional<NoteVersion> findByNoteIdAndVersionNumber(Long noteId, Integer versionNumber);
     
+    /**
+     * Find several versions of a note in a single query
+     */
+    List<NoteVersion> findByNoteIdAndVersionNumberIn(Long noteId, Collection<Integer> versionNumbers);
+    
+    /**
+     * Find the most recent stored version of a note with the given content hash
+     */
+    Optional<NoteVersion> findFirstByNoteIdAndContentHashOrderByVersionNumberDesc(Long noteId, String contentHash);
+    
+    /**
+     * Find the most recent stored version of a note
+     */
+    Optional<NoteVersion> findFirstByNoteIdOrderByVersionNumberDesc(Long noteId);
+    
+    /**
+     * Load only the stored deltas of the versions after fromVersion up to toVersion,
+     * as [versionNumber, deltaBaseVersion, titleDelta, contentDelta] rows in version order
+     */
+    @Query("SELECT v.versionNumber, v.deltaBaseVersion, v.titleDelta, v.contentDelta FROM NoteVersion v " +
+           "WHERE v.noteId = :noteId AND v.versionNumber > :fromVersion AND v.versionNumber <= :toVersion " +
+           "ORDER BY v.versionNumber ASC")
+    List<Object[]> findDeltaChain(@Param("noteId") Long noteId,
+                                  @Param("fromVersion") Integer fromVersion,
+                                  @Param("toVersion") Integer toVersion);
+    
+    /**
+     * Load what blame needs to replay the versions after fromVersion up to toVersion, as
+     * [versionNumber, deltaBaseVersion, createdBy, contentHash, titleDelta, contentDelta, noteCreatorId] rows
+     * in version order
+     */
+    @Query("SELECT v.versionNumber, v.deltaBaseVersion, v.createdBy, v.contentHash, v.titleDelta, v.contentDelta, " +
+           "       v.noteCreatorId " +
+           "FROM NoteVersion v " +
+           "WHERE v.noteId = :noteId AND v.versionNumber > :fromVersion AND v.versionNumber <= :toVersion " +
+           "ORDER BY v.versionNumber ASC")
+    List<Object[]> findBlameChain(@Param("noteId") Long noteId,
+                                  @Param("fromVersion") Integer fromVersion,
+                                  @Param("toVersion") Integer toVersion);
+    
+    /**
+     * List version metadata for the history panel, newest first, with the author's username.
+     * Selects only metadata columns: no blob join, no permission arrays.
+     */
+    @Query("SELECT new com.notabene.dto.NoteVersionSummaryDTO(v.id, v.noteId, v.versionNumber, v.createdBy, u.username, " +
+           "v.createdAt, v.isRestored, v.restoredFromVersion, v.contentHash) " +
+           "FROM NoteVersion v LEFT JOIN User u ON u.id = v.createdBy " +
+           "WHERE v.noteId = :noteId ORDER BY v.versionNumber DESC")
+    List<NoteVersionSummaryDTO> findSummariesByNoteId(@Param("noteId") Long noteId);
+    
+    /**
+     * Metadata of the most recent stored version of a note, without loading its body
+     */
+    @Query("SELECT new com.notabene.dto.NoteVersionSummaryDTO(v.id, v.noteId, v.versionNumber, v.createdBy, u.username, " +
+           "v.createdAt, v.isRestored, v.restoredFromVersion, v.contentHash) " +
+           "FROM NoteVersion v LEFT JOIN User u ON u.id = v.createdBy " +
+           "WHERE v.noteId = :noteId AND v.versionNumber = " +
+           "(SELECT MAX(m.versionNumber) FROM NoteVersion m WHERE m.noteId = :noteId)")
+    Optional<NoteVersionSummaryDTO> findLatestSummary(@Param("noteId") Long noteId);
+    
+    /**
+     * Load only the body of a stored version
+     */
+    @Query("SELECT new com.notabene.dto.NoteVersionContentDTO(v.versionNumber, b.title, b.content) " +
+           "FROM NoteVersion v JOIN v.blob b WHERE v.noteId = :noteId AND v.versionNumber = :versionNumber")
+    Optional<NoteVersionContentDTO> findContentByNoteIdAndVersionNumber(@Param("noteId") Long noteId,
+                                                                        @Param("versionNumber") Integer versionNumber);
+    
+    /**
+     * Highest stored version number of a note, or null if it has no stored versions
+     */
+    @Query("SELECT MAX(v.versionNumber) FROM NoteVersion v WHERE v.noteId = :noteId")
+    Integer findMaxVersionNumber(@Param("noteId") Long noteId);
+    
+    /**
+     * Delete the versions outside the retention policy of the next batchSize notes after
+     * afterNoteId (by id), in a single statement. Only the versions of those notes are ranked,
+     * so each batch costs the same however large note_versions is.
+     * A version is kept if it is among the last keepLast of its note, or the latest of its hour
+     * within the last hourlyHours, or the latest of its day within the last dailyDays; per-note
+     * settings in note_retention_policies override the given defaults.
+     * Returns one [deletedRows, reclaimedBytes, lastNoteId] row: the bytes count the deleted rows
+     * and the blobs they were the last reference to (removed by the refcount trigger);
+     * lastNoteId is the cursor for the next batch, null once every note has been visited.
+     */
+    @Transactional
+    @Query(value = "WITH batch AS (" +
+           "    SELECT DISTINCT note_id FROM note_versions WHERE note_id > :afterNoteId ORDER BY note_id LIMIT :batchSize" +
+           "), ranked AS (" +
+           "    SELECT v.id, v.content_hash, v.created_at, pg_column_size(v.*) AS row_bytes, " +
+           "           row_number() OVER (PARTITION BY v.note_id ORDER BY v.version_number DESC) AS recent_rank, " +
+           "           row_number() OVER (PARTITION BY v.note_id, date_trunc('hour', v.created_at) ORDER BY v.version_number DESC) AS hour_rank, " +
+           "           row_number() OVER (PARTITION BY v.note_id, date_trunc('day', v.created_at) ORDER BY v.version_number DESC) AS day_rank, " +
+           "           COALESCE(p.keep_last, :keepLast) AS keep_last, " +
+           "           COALESCE(p.hourly_hours, :hourlyHours) AS hourly_hours, " +
+           "           COALESCE(p.daily_days, :dailyDays) AS daily_days " +
+           "    FROM note_versions v JOIN batch b ON b.note_id = v.note_id " +
+           "    LEFT JOIN note_retention_policies p ON p.note_id = v.note_id" +
+           "), doomed AS (" +
+           "    SELECT id, content_hash, row_bytes FROM ranked " +
+           "    WHERE recent_rank > keep_last " +
+           "      AND NOT (hour_rank = 1 AND created_at >= CAST(:now AS timestamp) - make_interval(hours => hourly_hours)) " +
+           "      AND NOT (day_rank = 1 AND created_at >= CAST(:now AS timestamp) - make_interval(days => daily_days))" +
+           "), freed_blobs AS (" +
+           "    SELECT octet_length(b.title) + octet_length(b.content) AS blob_bytes " +
+           "    FROM version_blobs b " +
+           "    JOIN (SELECT content_hash, count(*) AS refs FROM doomed GROUP BY content_hash) d ON d.content_hash = b.content_hash " +
+           "    WHERE b.ref_count <= d.refs" +
+           "), deleted AS (" +
+           "    DELETE FROM note_versions v USING doomed d WHERE v.id = d.id RETURNING v.id" +
+           ") " +
+           "SELECT (SELECT count(*) FROM deleted), " +
+           "       COALESCE((SELECT sum(row_bytes) FROM doomed), 0) + COALESCE((SELECT sum(blob_bytes) FROM freed_blobs), 0), " +
+           "       (SELECT max(note_id) FROM batch)",
+           nativeQuery = true)
+    List<Object[]> pruneBatch(@Param("keepLast") int keepLast,
+                              @Param("hourlyHours") int hourlyHours,
+                              @Param("dailyDays") int dailyDays,
+                              @Param("now") LocalDateTime now,
+                              @Param("afterNoteId") long afterNoteId,
+                              @Param("batchSize") int batchSize);
+    
     /**
      * Count total versions for a specific note
      */
@@ -34,4 +164,17 @@ public interface NoteVersionRepository extends JpaRepository<NoteVersion, Long>
      * Delete all versions for a specific note (useful when note is deleted)
      */
     void deleteByNoteId(Long noteId);
+
+    /**
+     * Version 1 of each note in noteIds with its current state, using versionIds[i] for noteIds[i];
+     * the bodies must already be in version_blobs
+     */
+    @Modifying
+    @Query(value = "INSERT INTO note_versions (id, note_id, version_number, content_hash, readers, writers, created_by, " +
+                   "    note_creator_id, created_at, original_created_at, original_updated_at, is_restored) " +
+                   "SELECT m.version_id, n.id, 1, n.content_hash, n.readers, n.writers, n.creator_id, " +
+                   "    n.creator_id, now(), n.created_at, n.updated_at, FALSE " +
+                   "FROM unnest(CAST(ARRAY[:noteIds] AS bigint[]), CAST(ARRAY[:versionIds] AS bigint[])) AS m(note_id, version_id) " +
+                   "JOIN notes n ON n.id = m.note_id", nativeQuery = true)
+    int insertInitialVersions(@Param("noteIds") List<Long> noteIds, @Param("versionIds") List<Long> versionIds);
 }
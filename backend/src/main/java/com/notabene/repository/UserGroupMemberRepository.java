@@ -0,0 +1,35 @@
+package com.notabene.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.notabene.entity.UserGroupMember;
+import com.notabene.model.UserGroupMemberId;
+
+public interface UserGroupMemberRepository extends JpaRepository<UserGroupMember, UserGroupMemberId> {
+
+    // I membri già presenti vengono ignorati
+    @Modifying
+    @Query(value = "INSERT INTO user_group_members (group_id, user_id) " +
+                   "SELECT :groupId, u.id FROM users u WHERE u.id IN (:userIds) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int addMembers(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_group_members WHERE group_id = :groupId AND user_id = :userId", nativeQuery = true)
+    int removeMember(@Param("groupId") Long groupId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_group_members WHERE group_id = :groupId", nativeQuery = true)
+    int deleteAllByGroupId(@Param("groupId") Long groupId);
+
+    // [id, username] dei membri
+    @Query(value = "SELECT u.id, u.username FROM user_group_members m JOIN users u ON u.id = m.user_id " +
+                   "WHERE m.group_id = :groupId ORDER BY u.username", nativeQuery = true)
+    List<Object[]> findMembers(@Param("groupId") Long groupId);
+}
@@ -0,0 +1,29 @@
+package com.notabene.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.notabene.entity.UserGroup;
+
+public interface UserGroupRepository extends JpaRepository<UserGroup, Long> {
+    Optional<UserGroup> findByIdAndOwnerId(Long id, Long ownerId);
+    boolean existsByOwnerIdAndName(Long ownerId, String name);
+
+    // Gruppi di cui l'utente è proprietario o membro: [id, nome, proprietario, numero di membri]
+    @Query(value = "SELECT g.id, g.name, g.owner_id, " +
+                   "(SELECT count(*) FROM user_group_members c WHERE c.group_id = g.id) " +
+                   "FROM user_groups g " +
+                   "WHERE g.owner_id = :userId " +
+                   "OR g.id IN (SELECT m.group_id FROM user_group_members m WHERE m.user_id = :userId) " +
+                   "ORDER BY g.name", nativeQuery = true)
+    List<Object[]> findVisibleSummaries(@Param("userId") Long userId);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM user_groups g WHERE g.id = :groupId AND (g.owner_id = :userId " +
+                   "OR EXISTS (SELECT 1 FROM user_group_members m WHERE m.group_id = g.id AND m.user_id = :userId)))",
+           nativeQuery = true)
+    boolean isOwnerOrMember(@Param("groupId") Long groupId, @Param("userId") Long userId);
+}
@@ -1,5 +1,6 @@
 package com.notabene.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +16,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     @Query("SELECT u.id, u.username FROM User u WHERE u.id IN :userIds")
     List<Object[]> findUsernamesByIds(@Param("userIds") List<Long> userIds);
+
+    @Query("SELECT u.id, u.username FROM User u WHERE u.username IN :usernames")
+    List<Object[]> findIdsByUsernames(@Param("usernames") Collection<String> usernames);
 }
@@ -0,0 +1,54 @@
+package com.notabene.repository;
+
+import com.notabene.entity.VersionBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * Repository for the content-addressed version bodies
+ */
+@Repository
+public interface VersionBlobRepository extends JpaRepository<VersionBlob, String> {
+
+    /**
+     * Store a body unless a blob with the same hash already exists.
+     * The no-op update locks an existing row, so a concurrent delete of its last
+     * reference cannot remove it before the new version points at it.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO version_blobs (content_hash, title, content, ref_count, created_at) " +
+                   "VALUES (:hash, :title, :content, 0, now()) " +
+                   "ON CONFLICT (content_hash) DO UPDATE SET ref_count = version_blobs.ref_count",
+           nativeQuery = true)
+    int upsert(@Param("hash") String contentHash, @Param("title") String title, @Param("content") String content);
+
+    /**
+     * Store the current body of each note unless already present, with the same locking as
+     * upsert; DISTINCT ON because one statement cannot update the same blob twice
+     */
+    @Modifying
+    @Query(value = "INSERT INTO version_blobs (content_hash, title, content, ref_count, created_at) " +
+                   "SELECT DISTINCT ON (n.content_hash) n.content_hash, n.title, n.content, 0, now() " +
+                   "FROM notes n WHERE n.id IN (:noteIds) ORDER BY n.content_hash " +
+                   "ON CONFLICT (content_hash) DO UPDATE SET ref_count = version_blobs.ref_count",
+           nativeQuery = true)
+    int upsertFromNotes(@Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Storage totals as [versions, blobs, logical bytes, stored bytes]:
+     * logical bytes count every version's body, stored bytes count each blob once
+     */
+    @Query(value = "SELECT " +
+                   "(SELECT count(*) FROM note_versions), " +
+                   "(SELECT count(*) FROM version_blobs), " +
+                   "(SELECT coalesce(sum(octet_length(b.title) + octet_length(b.content)), 0) " +
+                   "   FROM note_versions v JOIN version_blobs b ON b.content_hash = v.content_hash), " +
+                   "(SELECT coalesce(sum(octet_length(title) + octet_length(content)), 0) FROM version_blobs)",
+           nativeQuery = true)
+    Object[] storageTotals();
+}
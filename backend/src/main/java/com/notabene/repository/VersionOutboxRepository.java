@@ -0,0 +1,43 @@
+package com.notabene.repository;
+
+import com.notabene.entity.VersionOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for note snapshots waiting to be written as versions
+ */
+@Repository
+public interface VersionOutboxRepository extends JpaRepository<VersionOutboxEntry, Long> {
+
+    /**
+     * Enqueue time of the oldest pending snapshot, or null if the outbox is empty
+     */
+    @Query("SELECT MIN(e.enqueuedAt) FROM VersionOutboxEntry e WHERE e.failedAt IS NULL")
+    LocalDateTime findOldestEnqueuedAt();
+
+    /**
+     * Snapshots still waiting for the drain
+     */
+    long countByFailedAtIsNull();
+
+    /**
+     * Snapshots the drain gave up on (dead letters)
+     */
+    long countByFailedAtIsNotNull();
+
+    /**
+     * Pending snapshots of a note, newest first
+     */
+    List<VersionOutboxEntry> findByNoteIdOrderByIdDesc(Long noteId);
+
+    /**
+     * Newest snapshot of a note still waiting for the drain
+     */
+    Optional<VersionOutboxEntry> findFirstByNoteIdAndFailedAtIsNullOrderByIdDesc(Long noteId);
+}
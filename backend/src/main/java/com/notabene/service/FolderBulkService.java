@@ -0,0 +1,163 @@
+package com.notabene.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.notabene.dto.FolderDtos.CopyNotesRequest;
+import com.notabene.dto.FolderDtos.CopyNotesResult;
+import com.notabene.dto.FolderDtos.FolderSummary;
+import com.notabene.dto.FolderDtos.MoveNotesRequest;
+import com.notabene.dto.FolderDtos.MoveNotesResult;
+import com.notabene.dto.FolderDtos.NoteCopy;
+import com.notabene.entity.Folder;
+import com.notabene.repository.FolderClosureRepository;
+import com.notabene.repository.FolderNoteRepository;
+import com.notabene.repository.FolderRepository;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.NoteVersionRepository;
+import com.notabene.repository.VersionBlobRepository;
+import com.notabene.service.support.CurrentUserResolver;
+import com.notabene.service.support.IdAllocator;
+import com.notabene.service.support.NoteAccessChecker;
+
+/**
+ * Moves and copies of many notes between folders of the current user, and folder
+ * duplication. Every operation is a fixed number of INSERT ... SELECT statements whatever
+ * the number of notes (per chunk of MAX_NOTES when duplicating a folder): copies get their notes, blobs, initial versions, tags and folder
+ * links in one statement each.
+ */
+@Service
+public class FolderBulkService {
+
+    static final int MAX_NOTES = 1000;
+
+    private final FolderRepository folderRepo;
+    private final FolderNoteRepository linkRepo;
+    private final FolderClosureRepository closureRepo;
+    private final NoteRepository noteRepo;
+    private final NoteVersionRepository versionRepo;
+    private final VersionBlobRepository blobRepo;
+    private final CurrentUserResolver current;
+    private final NoteAccessChecker access;
+    private final IdAllocator ids;
+
+    public FolderBulkService(FolderRepository folderRepo, FolderNoteRepository linkRepo,
+                             FolderClosureRepository closureRepo, NoteRepository noteRepo,
+                             NoteVersionRepository versionRepo, VersionBlobRepository blobRepo,
+                             CurrentUserResolver current, NoteAccessChecker access,
+                             IdAllocator ids) {
+        this.folderRepo = folderRepo; this.linkRepo = linkRepo; this.closureRepo = closureRepo;
+        this.noteRepo = noteRepo; this.versionRepo = versionRepo; this.blobRepo = blobRepo;
+        this.current = current; this.access = access; this.ids = ids;
+    }
+
+    /**
+     * Move notes from one folder to another; notes not in the source folder are skipped
+     */
+    @Transactional
+    public MoveNotesResult moveNotes(Long folderId, MoveNotesRequest req) {
+        Long uid = current.currentUserId();
+        Set<Long> noteIds = validNoteIds(req.noteIds());
+        if (req.fromFolderId() == null || req.fromFolderId().equals(folderId))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Source and target folders must differ");
+        if (folderRepo.findOwnedIds(uid, List.of(folderId, req.fromFolderId())).size() != 2)
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Folder not found");
+
+        List<Long> moved = linkRepo.findNoteIdsIn(req.fromFolderId(), noteIds);
+        if (!moved.isEmpty()) {
+            linkRepo.copyLinks(req.fromFolderId(), folderId, moved);
+            linkRepo.removeNotes(req.fromFolderId(), moved);
+        }
+        return new MoveNotesResult(moved, skipped(noteIds, moved));
+    }
+
+    /**
+     * Copy notes readable by the current user into the folder as new notes of the user;
+     * unknown or unreadable notes are skipped
+     */
+    @Transactional
+    public CopyNotesResult copyNotes(Long folderId, CopyNotesRequest req) {
+        Long uid = current.currentUserId();
+        Set<Long> noteIds = validNoteIds(req.noteIds());
+        if (!folderRepo.existsByIdAndOwnerId(folderId, uid))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Folder not found");
+
+        List<Long> sources = List.copyOf(access.readableByUser(noteIds, uid));
+        List<NoteCopy> copies = copyInto(folderId, sources, uid);
+        return new CopyNotesResult(copies, skipped(noteIds, sources));
+    }
+
+    /**
+     * Duplicate the folder next to itself, with a copy of each note it holds;
+     * subfolders are not duplicated
+     */
+    @Transactional
+    public FolderSummary duplicateFolder(Long folderId) {
+        Long uid = current.currentUserId();
+        folderRepo.lockTreeOf(uid);
+        Folder source = folderRepo.findByIdAndOwnerId(folderId, uid)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Folder not found"));
+        String name = source.getName() + " (Copia)";
+        if (folderRepo.existsByOwnerIdAndParentIdAndName(uid, source.getParentId(), name))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Folder name already exists");
+
+        Folder copy = folderRepo.save(new Folder(uid, source.getParentId(), name));
+        closureRepo.insertSelf(copy.getId());
+        if (source.getParentId() != null) {
+            closureRepo.attachSubtree(copy.getId(), source.getParentId());
+        }
+
+        List<Long> noteIds = linkRepo.findAllById_FolderId(folderId).stream()
+                .map(fn -> fn.getId().getNoteId())
+                .toList();
+        // A blocchi di MAX_NOTES, come le richieste di copia: liste IN e array limitati
+        int copied = 0;
+        for (int from = 0; from < noteIds.size(); from += MAX_NOTES) {
+            List<Long> chunk = noteIds.subList(from, Math.min(from + MAX_NOTES, noteIds.size()));
+            copied += copyInto(copy.getId(), List.copyOf(access.readableByUser(chunk, uid)), uid).size();
+        }
+        return new FolderSummary(copy.getId(), copy.getName(), copied);
+    }
+
+    private List<NoteCopy> copyInto(Long folderId, List<Long> sources, Long uid) {
+        if (sources.isEmpty()) {
+            return List.of();
+        }
+        List<Long> copyIds = ids.allocate("notes_id_seq", sources.size());
+        List<Long> versionIds = ids.allocate("note_versions_id_seq", sources.size());
+
+        noteRepo.copyNotes(sources, copyIds, uid);
+        // Corpi prima delle versioni: note_versions.content_hash referenzia version_blobs
+        blobRepo.upsertFromNotes(copyIds);
+        versionRepo.insertInitialVersions(copyIds, versionIds);
+        noteRepo.copyTags(sources, copyIds);
+        linkRepo.addNotes(folderId, copyIds);
+
+        List<NoteCopy> copies = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            copies.add(new NoteCopy(sources.get(i), copyIds.get(i)));
+        }
+        return copies;
+    }
+
+    private static Set<Long> validNoteIds(List<Long> noteIds) {
+        if (noteIds == null || noteIds.isEmpty())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "noteIds required");
+        if (noteIds.size() > MAX_NOTES)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_NOTES + " notes per request");
+        return new LinkedHashSet<>(noteIds);
+    }
+
+    private static List<Long> skipped(Set<Long> requested, List<Long> done) {
+        Set<Long> skipped = new LinkedHashSet<>(requested);
+        done.forEach(skipped::remove);
+        return List.copyOf(skipped);
+    }
+}
@@ -0,0 +1,136 @@
+package com.notabene.service;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.notabene.dto.FolderDtos.FolderContentsPage;
+import com.notabene.dto.NoteResponse;
+import com.notabene.dto.TagDTO;
+import com.notabene.repository.FolderRepository;
+import com.notabene.repository.NoteRepository;
+import com.notabene.service.support.CurrentUserResolver;
+
+/**
+ * Contents of a folder as note summaries, one page per query. Pages follow the primary key
+ * of folder_notes (folder_id, note_id) from the newest note down, so each page is an index
+ * range scan that starts after the cursor, whatever the page number. Tags, permission flags
+ * and the current version are computed in the same query; the reader and writer username
+ * lists of the full NoteResponse are left out.
+ */
+@Service
+public class FolderContentsService {
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+
+    private static final String SELECT_PAGE =
+        "SELECT n.id, n.title, n.content, n.created_at, n.updated_at, n.creator_id, n.revision, " +
+        "       n.content_hash, n.current_version_pointer, " +
+        "       " + NoteRepository.CAN_WRITE + " AS can_write, " +
+        "       (SELECT max(v.version_number) FROM note_versions v WHERE v.note_id = n.id) AS last_version, " +
+        "       tg.tag_ids, tg.tag_names " +
+        "FROM folder_notes fn " +
+        "JOIN notes n ON n.id = fn.note_id " +
+        "LEFT JOIN LATERAL (" +
+        "    SELECT array_agg(t.id ORDER BY lower(t.name), t.id) AS tag_ids, " +
+        "           array_agg(CAST(t.name AS text) ORDER BY lower(t.name), t.id) AS tag_names " +
+        "    FROM note_tag nt JOIN tag t ON t.id = nt.tag_id WHERE nt.note_id = n.id) tg ON true " +
+        "WHERE fn.folder_id = :folderId " +
+        "  AND (CAST(:afterId AS bigint) IS NULL OR fn.note_id < :afterId) " +
+        "  AND " + NoteRepository.CAN_READ + " " +
+        "ORDER BY fn.note_id DESC " +
+        "LIMIT :limit";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final FolderRepository folderRepo;
+    private final CurrentUserResolver current;
+
+    public FolderContentsService(NamedParameterJdbcTemplate jdbc, FolderRepository folderRepo,
+                                 CurrentUserResolver current) {
+        this.jdbc = jdbc; this.folderRepo = folderRepo; this.current = current;
+    }
+
+    /**
+     * A page of the notes in the folder, newest first; pass the returned nextCursor as
+     * afterId to get the following page (null when there are no more notes)
+     */
+    public FolderContentsPage getContents(Long folderId, Long afterId, Integer size) {
+        Long uid = current.currentUserId();
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : size;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (!folderRepo.existsByIdAndOwnerId(folderId, uid)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Folder not found");
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("folderId", folderId)
+                .addValue("afterId", afterId, Types.BIGINT)
+                .addValue("userId", uid)
+                // Una riga in più per sapere se esiste la pagina successiva
+                .addValue("limit", pageSize + 1);
+        List<NoteResponse> notes = new ArrayList<>(
+                jdbc.query(SELECT_PAGE, params, (rs, rowNum) -> toSummary(rs, uid)));
+
+        Long nextCursor = null;
+        if (notes.size() > pageSize) {
+            notes.remove(pageSize);
+            nextCursor = notes.get(pageSize - 1).getId();
+        }
+        return new FolderContentsPage(notes, nextCursor);
+    }
+
+    private NoteResponse toSummary(ResultSet rs, Long uid) throws SQLException {
+        NoteResponse response = new NoteResponse();
+        response.setId(rs.getLong("id"));
+        response.setTitle(rs.getString("title"));
+        response.setContent(rs.getString("content"));
+        response.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        response.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updated_at")));
+        response.setCreatorId(rs.getLong("creator_id"));
+        response.setRevision(rs.getLong("revision"));
+        response.setContentHash(rs.getString("content_hash"));
+        int pointer = rs.getInt("current_version_pointer");
+        response.setCurrentVersionPointer(rs.wasNull() ? null : pointer);
+        int lastVersion = rs.getInt("last_version");
+        response.setCurrentVersion(rs.wasNull() ? 1 : lastVersion + 1);
+
+        List<TagDTO> tags = new ArrayList<>();
+        Array ids = rs.getArray("tag_ids");
+        Array names = rs.getArray("tag_names");
+        if (ids != null && names != null) {
+            Object[] idValues = (Object[]) ids.getArray();
+            Object[] nameValues = (Object[]) names.getArray();
+            for (int i = 0; i < idValues.length; i++) {
+                tags.add(new TagDTO(((Number) idValues[i]).longValue(), (String) nameValues[i]));
+            }
+        }
+        response.setTags(tags);
+
+        // Stessi flag di NoteService.convertToNoteResponse
+        boolean isOwner = uid.equals(response.getCreatorId());
+        response.setIsOwner(isOwner);
+        response.setCanEdit(isOwner || rs.getBoolean("can_write"));
+        response.setCanDelete(isOwner);
+        response.setCanShare(isOwner);
+        return response;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -1,59 +1,99 @@
 package com.notabene.service;
 
 import java.util.List;
+import java.util.Objects;
 
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.notabene.dto.FolderDtos.CreateFolderRequest;
 import com.notabene.dto.FolderDtos.FolderDetail;
+import com.notabene.dto.FolderDtos.FolderNode;
 import com.notabene.dto.FolderDtos.FolderNoteRef;
 import com.notabene.dto.FolderDtos.FolderSummary;
+import com.notabene.dto.FolderDtos.MoveFolderRequest;
 import com.notabene.entity.Folder;
 import com.notabene.entity.FolderNote;
 import com.notabene.model.FolderNoteId;
+import com.notabene.repository.FolderClosureRepository;
 import com.notabene.repository.FolderNoteRepository;
 import com.notabene.repository.FolderRepository;
 import com.notabene.service.support.CurrentUserResolver;
-import com.notabene.service.support.NoteOwnershipChecker;
-
+import com.notabene.service.support.NoteAccessChecker;
+
+/**
+ * Folders of the current user, nested through parent_id. The closure table (folder_closure)
+ * holds every ancestor-descendant pair, so subtree reads are single indexed queries and
+ * creating, moving or deleting a subtree is a fixed number of set-based statements.
+ * Changes to the tree of one user are serialized by a transaction-scoped advisory lock
+ * on the owner id, so the checks and the closure updates see the same tree.
+ */
 @Service
 public class FolderService {
 
     private final FolderRepository folderRepo;
     private final FolderNoteRepository linkRepo;
+    private final FolderClosureRepository closureRepo;
     private final CurrentUserResolver current;
-    private final NoteOwnershipChecker ownership;
+    private final NoteAccessChecker access;
 
     public FolderService(FolderRepository folderRepo, FolderNoteRepository linkRepo,
-                         CurrentUserResolver current, NoteOwnershipChecker ownership) {
-        this.folderRepo = folderRepo; this.linkRepo = linkRepo;
-        this.current = current; this.ownership = ownership;
+                         FolderClosureRepository closureRepo,
+                         CurrentUserResolver current, NoteAccessChecker access) {
+        this.folderRepo = folderRepo; this.linkRepo = linkRepo; this.closureRepo = closureRepo;
+        this.current = current; this.access = access;
     }
 
+    /**
+     * Folders of the current user by name, each with its number of notes, in one query
+     */
     public List<FolderSummary> listMyFolders() {
         Long uid = current.currentUserId();
-        return folderRepo.findAllByOwnerIdOrderByNameAsc(uid).stream()
-                .map(f -> new FolderSummary(f.getId(), f.getName()))
+        return folderRepo.findSummariesWithNoteCounts(uid).stream()
+                .map(row -> new FolderSummary(((Number) row[0]).longValue(), (String) row[1],
+                        ((Number) row[2]).longValue()))
+                .toList();
+    }
+
+    /**
+     * All folders of the current user with parent ids and note counts, in one query
+     */
+    public List<FolderNode> listMyFolderTree() {
+        Long uid = current.currentUserId();
+        return folderRepo.findTreeWithNoteCounts(uid).stream()
+                .map(row -> new FolderNode(((Number) row[0]).longValue(), (String) row[1],
+                        row[2] == null ? null : ((Number) row[2]).longValue(),
+                        ((Number) row[3]).longValue(), ((Number) row[4]).longValue()))
                 .toList();
     }
 
+    @Transactional
     public FolderSummary createFolder(CreateFolderRequest req) {
     Long uid = current.currentUserId();
+    folderRepo.lockTreeOf(uid);
     String name = req.name() == null ? "" : req.name().trim();
 
     if (name.isEmpty()) {
         throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Name required");
     }
 
-    if (folderRepo.existsByOwnerIdAndName(uid, name)) {
+    if (req.parentId() != null && !folderRepo.existsByIdAndOwnerId(req.parentId(), uid)) {
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Parent folder not found");
+    }
+
+    if (folderRepo.existsByOwnerIdAndParentIdAndName(uid, req.parentId(), name)) {
         throw new ResponseStatusException(HttpStatus.CONFLICT, "Folder name already exists");
     }
 
     try {
-        Folder saved = folderRepo.save(new Folder(uid, name));
+        Folder saved = folderRepo.save(new Folder(uid, req.parentId(), name));
+        closureRepo.insertSelf(saved.getId());
+        if (req.parentId() != null) {
+            closureRepo.attachSubtree(saved.getId(), req.parentId());
+        }
         return new FolderSummary(saved.getId(), saved.getName());
     } catch (DataIntegrityViolationException e) {
         // rete di sicurezza per race condition / vincoli DB
@@ -72,11 +112,57 @@ public class FolderService {
         return new FolderDetail(f.getId(), f.getName(), notes);
     }
 
+    /**
+     * Delete the folder with all its subfolders; the notes themselves are kept
+     */
+    @Transactional
     public void deleteFolder(Long folderId) {
         Long uid = current.currentUserId();
+        folderRepo.lockTreeOf(uid);
+        Folder f = folderRepo.findByIdAndOwnerId(folderId, uid)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Folder not found"));
+        List<Long> subtree = folderRepo.findSubtreeIds(f.getId());
+        if (subtree.isEmpty()) {
+            subtree = List.of(f.getId());
+        }
+        // Esplicito anche se init.sql ha ON DELETE CASCADE: vale per ogni schema
+        linkRepo.deleteAllByFolderIdIn(subtree);
+        closureRepo.deleteAllByDescendantIdIn(subtree);
+        folderRepo.deleteAllByIdIn(subtree);
+    }
+
+    /**
+     * Move the folder, with its subtree, under another folder of the same user
+     * (parentId null: to the top level)
+     */
+    @Transactional
+    public FolderSummary moveFolder(Long folderId, MoveFolderRequest req) {
+        Long uid = current.currentUserId();
+        // Senza lock due spostamenti incrociati (A sotto B, B sotto A) passano entrambi il controllo e creano un ciclo
+        folderRepo.lockTreeOf(uid);
         Folder f = folderRepo.findByIdAndOwnerId(folderId, uid)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Folder not found"));
-        folderRepo.delete(f); // ON DELETE CASCADE rimuove i link
+        Long parentId = req.parentId();
+
+        if (parentId != null) {
+            if (!folderRepo.existsByIdAndOwnerId(parentId, uid))
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Parent folder not found");
+            if (parentId.equals(f.getId()) || closureRepo.isInSubtree(f.getId(), parentId))
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot move a folder into its own subtree");
+        }
+        if (Objects.equals(parentId, f.getParentId())) {
+            return new FolderSummary(f.getId(), f.getName());
+        }
+        if (folderRepo.existsByOwnerIdAndParentIdAndName(uid, parentId, f.getName()))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Folder name already exists");
+
+        f.setParentId(parentId);
+        folderRepo.save(f);
+        closureRepo.detachSubtree(f.getId());
+        if (parentId != null) {
+            closureRepo.attachSubtree(f.getId(), parentId);
+        }
+        return new FolderSummary(f.getId(), f.getName());
     }
 
     public void addNote(Long folderId, Long noteId) {
@@ -84,7 +170,7 @@ public class FolderService {
         if (!folderRepo.existsByIdAndOwnerId(folderId, uid))
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Folder not yours");
 
-        if (!ownership.isOwnedByUser(noteId, uid))
+        if (!access.isOwnedByUser(noteId, uid))
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You can only add your own note");
 
         FolderNoteId id = new FolderNoteId(folderId, noteId);
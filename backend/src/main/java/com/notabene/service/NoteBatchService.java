@@ -0,0 +1,392 @@
+package com.notabene.service;
+
+import com.notabene.dto.BatchNoteRequest;
+import com.notabene.dto.BatchNoteResponse;
+import com.notabene.dto.NoteResponse;
+import com.notabene.entity.Note;
+import com.notabene.exception.NoteConflictException;
+import com.notabene.exception.NoteNotFoundException;
+import com.notabene.model.Tag;
+import com.notabene.model.User;
+import com.notabene.repository.FolderNoteRepository;
+import com.notabene.repository.FolderRepository;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.TagRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a batch of note operations for the current user. Permissions on every target note,
+ * tag and folder are loaded with one query each before anything is written; operations that
+ * fail these checks are reported and the others go ahead. Tag, folder, delete and create
+ * operations are applied with set-based statements in a single transaction; updates go
+ * through versioning one note at a time, each in its own transaction so a conflict only
+ * fails that update. An atomic batch runs everything in one transaction and applies
+ * nothing if any operation fails.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NoteBatchService {
+
+    private static final String NOT_APPLIED = "Not applied: another operation of the atomic batch failed";
+
+    private final NoteRepository noteRepository;
+    private final TagRepository tagRepository;
+    private final FolderRepository folderRepository;
+    private final FolderNoteRepository folderNoteRepository;
+    private final AuthenticationService authenticationService;
+    private final NoteService noteService;
+    private final NoteVersioningService noteVersioningService;
+    private final TransactionTemplate transactionTemplate;
+
+    public BatchNoteResponse execute(BatchNoteRequest request) {
+        User user = authenticationService.getCurrentUser();
+        Long userId = user.getId();
+        List<Item> items = expand(request.getOperations());
+
+        // Tutti i controlli con una query per tipo, prima di scrivere qualsiasi cosa
+        Map<Long, Permission> permissions = findPermissions(items, userId);
+        Map<Long, Tag> tags = tagRepository.findAllById(collect(items, BatchNoteRequest.Operation::getTagIds)).stream()
+            .collect(Collectors.toMap(Tag::getId, Function.identity()));
+        Set<Long> folderIds = collect(items, op -> op.getFolderId() == null ? List.of() : List.of(op.getFolderId()));
+        Set<Long> ownFolders = folderIds.isEmpty() ? Set.of() : new HashSet<>(folderRepository.findOwnedIds(userId, folderIds));
+        for (Item item : items) {
+            check(item, permissions, tags, ownFolders);
+        }
+
+        if (request.isAtomic()) {
+            executeAtomic(items, user, tags);
+        } else {
+            executeEach(items, user, tags);
+        }
+
+        BatchNoteResponse response = new BatchNoteResponse();
+        for (Item item : items) {
+            response.getResults().add(item.result);
+            if (item.result.getStatus() < 300) {
+                response.setSucceeded(response.getSucceeded() + 1);
+            } else {
+                response.setFailed(response.getFailed() + 1);
+            }
+        }
+        response.setRolledBack(request.isAtomic() && response.getFailed() > 0);
+        log.info("Batch of {} operations for user {}: {} succeeded, {} failed",
+            request.getOperations().size(), userId, response.getSucceeded(), response.getFailed());
+        return response;
+    }
+
+    /**
+     * One item per operation and target note (create has no target)
+     */
+    private List<Item> expand(List<BatchNoteRequest.Operation> operations) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            BatchNoteRequest.Operation op = operations.get(i);
+            List<Long> noteIds = op.getNoteIds() == null ? List.of() : op.getNoteIds();
+            if ("create".equals(op.getType()) || noteIds.isEmpty()) {
+                items.add(new Item(i, op, null));
+            } else if ("update".equals(op.getType()) && noteIds.size() > 1) {
+                items.add(new Item(i, op, null).fail(400, "An update targets exactly one note"));
+            } else {
+                for (Long noteId : new LinkedHashSet<>(noteIds)) {
+                    items.add(new Item(i, op, noteId));
+                }
+            }
+        }
+        return items;
+    }
+
+    private Map<Long, Permission> findPermissions(List<Item> items, Long userId) {
+        Set<Long> noteIds = items.stream().map(item -> item.noteId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, Permission> permissions = new HashMap<>();
+        if (!noteIds.isEmpty()) {
+            for (Object[] row : noteRepository.findPermissions(noteIds, userId)) {
+                permissions.put(((Number) row[0]).longValue(),
+                    new Permission(Boolean.TRUE.equals(row[1]), Boolean.TRUE.equals(row[2]), Boolean.TRUE.equals(row[3])));
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Same rules as the single-note endpoints; failures are recorded on the item
+     */
+    private void check(Item item, Map<Long, Permission> permissions, Map<Long, Tag> tags, Set<Long> ownFolders) {
+        if (item.result != null) {
+            return;
+        }
+        BatchNoteRequest.Operation op = item.op;
+        List<Long> tagIds = op.getTagIds() == null ? List.of() : op.getTagIds();
+        if (!tags.keySet().containsAll(tagIds)) {
+            item.fail(400, "Alcuni tagId non esistono");
+            return;
+        }
+
+        if ("create".equals(op.getType())) {
+            if (op.getTitle() == null || op.getTitle().isBlank()) {
+                item.fail(400, "Title cannot be blank");
+            } else if (op.getContent() == null || op.getContent().isBlank()) {
+                item.fail(400, "Content cannot be blank");
+            }
+            return;
+        }
+        if (item.noteId == null) {
+            item.fail(400, "noteIds are required");
+            return;
+        }
+
+        Permission permission = permissions.get(item.noteId);
+        boolean folderOp = op.getType().endsWith("Folder");
+        if (folderOp && (op.getFolderId() == null || !ownFolders.contains(op.getFolderId()))) {
+            item.fail(403, "Folder not yours");
+            return;
+        }
+        if (op.getType().endsWith("Tags") && tagIds.isEmpty()) {
+            item.fail(400, "tagIds are required");
+            return;
+        }
+        // Come FolderService.removeNote: basta che la cartella sia dell'utente
+        if ("removeFromFolder".equals(op.getType())) {
+            return;
+        }
+        if (permission == null) {
+            item.fail(404, "Note not found with id: " + item.noteId);
+            return;
+        }
+
+        switch (op.getType()) {
+            case "update", "addTags", "removeTags" -> {
+                if (!permission.writer()) {
+                    item.fail(403, "No write permission on note " + item.noteId);
+                } else if ("update".equals(op.getType()) && isBlank(op.getTitle()) && isBlank(op.getContent())) {
+                    item.fail(400, "Title or content is required");
+                }
+            }
+            case "addToFolder" -> {
+                if (!permission.owner()) {
+                    item.fail(403, "You can only add your own note");
+                }
+            }
+            case "delete" -> {
+                if (!permission.creator()) {
+                    item.fail(403, "Only the note owner can perform this operation");
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private void executeEach(List<Item> items, User user, Map<Long, Tag> tags) {
+        for (Item item : pending(items, "update")) {
+            try {
+                item.note = transactionTemplate.execute(status -> update(item, user.getId()));
+                item.ok(200);
+            } catch (RuntimeException e) {
+                failUpdate(item, e);
+            }
+        }
+
+        List<Item> setBased = items.stream().filter(item -> item.result == null).toList();
+        if (setBased.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> applySetBased(setBased, user, tags));
+        } catch (DataAccessException e) {
+            log.error("Batch statements failed for user {}: {}", user.getId(), e.getMessage());
+            setBased.forEach(item -> item.fail(500, e.getMostSpecificCause().getMessage()));
+        }
+    }
+
+    private void executeAtomic(List<Item> items, User user, Map<Long, Tag> tags) {
+        if (items.stream().anyMatch(item -> item.result != null)) {
+            items.stream().filter(item -> item.result == null).forEach(item -> item.fail(424, NOT_APPLIED));
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Item item : pending(items, "update")) {
+                    try {
+                        item.note = update(item, user.getId());
+                        item.ok(200);
+                    } catch (RuntimeException e) {
+                        failUpdate(item, e);
+                        status.setRollbackOnly();
+                        return;
+                    }
+                }
+                applySetBased(items.stream().filter(item -> item.result == null).toList(), user, tags);
+            });
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Conflitto rilevato al commit: non si sa quale nota, falliscono tutti gli update
+            pending(items, "update").forEach(item -> item.fail(409, "Note " + item.noteId + " was modified by another request"));
+        } catch (DataAccessException e) {
+            log.error("Atomic batch failed for user {}: {}", user.getId(), e.getMessage());
+            items.stream().filter(item -> item.result == null || item.result.getStatus() < 300)
+                .forEach(item -> item.fail(500, e.getMostSpecificCause().getMessage()));
+        }
+
+        // Annullato: anche le operazioni riuscite prima dell'errore non sono state applicate
+        if (items.stream().anyMatch(item -> item.result != null && item.result.getStatus() >= 300)) {
+            items.stream().filter(item -> item.result == null || item.result.getStatus() < 300)
+                .forEach(item -> item.fail(424, NOT_APPLIED));
+        }
+    }
+
+    private NoteResponse update(Item item, Long userId) {
+        Note note = noteRepository.findById(item.noteId)
+            .orElseThrow(() -> new NoteNotFoundException("Note not found with id: " + item.noteId));
+        BatchNoteRequest.Operation op = item.op;
+        Note updated = noteVersioningService.updateNoteWithVersioning(item.noteId,
+            isBlank(op.getTitle()) ? note.getTitle() : op.getTitle(),
+            isBlank(op.getContent()) ? note.getContent() : op.getContent(),
+            userId, op.getRevision());
+        return noteService.convertToNoteResponse(updated, userId);
+    }
+
+    private void failUpdate(Item item, RuntimeException e) {
+        if (e instanceof NoteConflictException || e instanceof ObjectOptimisticLockingFailureException) {
+            item.fail(409, e instanceof NoteConflictException ? e.getMessage()
+                : "Note " + item.noteId + " was modified by another request");
+        } else if (e instanceof NoteNotFoundException) {
+            item.fail(404, e.getMessage());
+        } else if (e instanceof IllegalArgumentException) {
+            item.fail(400, e.getMessage());
+        } else {
+            log.error("Batch update of note {} failed: {}", item.noteId, e.getMessage());
+            item.fail(500, e.getMessage());
+        }
+    }
+
+    /**
+     * Apply the checked non-update items with one statement per operation (per batch for deletes)
+     */
+    private void applySetBased(List<Item> items, User user, Map<Long, Tag> tags) {
+        List<Item> creates = pending(items, "create");
+        if (!creates.isEmpty()) {
+            List<Note> notes = new ArrayList<>();
+            for (Item item : creates) {
+                Note note = new Note(item.op.getTitle(), item.op.getContent(), user);
+                if (item.op.getTagIds() != null) {
+                    item.op.getTagIds().forEach(tagId -> note.getTags().add(tags.get(tagId)));
+                }
+                notes.add(note);
+            }
+            // Id da sequenza: gli insert partono in batch JDBC
+            List<Note> saved = noteRepository.saveAll(notes);
+            for (int i = 0; i < creates.size(); i++) {
+                creates.get(i).noteId = saved.get(i).getId();
+                creates.get(i).note = noteService.convertToNoteResponse(saved.get(i), user.getId());
+                creates.get(i).ok(201);
+            }
+        }
+
+        Set<Long> touched = new HashSet<>();
+        for (List<Item> op : byOperation(items, "addTags")) {
+            noteRepository.addTags(noteIds(op), op.get(0).op.getTagIds());
+            touched.addAll(noteIds(op));
+        }
+        for (List<Item> op : byOperation(items, "removeTags")) {
+            noteRepository.removeTags(noteIds(op), op.get(0).op.getTagIds());
+            touched.addAll(noteIds(op));
+        }
+        if (!touched.isEmpty()) {
+            noteRepository.touch(touched);
+        }
+        for (List<Item> op : byOperation(items, "addToFolder")) {
+            folderNoteRepository.addNotes(op.get(0).op.getFolderId(), noteIds(op));
+        }
+        for (List<Item> op : byOperation(items, "removeFromFolder")) {
+            folderNoteRepository.removeNotes(op.get(0).op.getFolderId(), noteIds(op));
+        }
+
+        Set<Long> deleted = noteIds(pending(items, "delete"));
+        if (!deleted.isEmpty()) {
+            // Le FK con ON DELETE CASCADE non esistono in ogni schema: i collegamenti vanno tolti prima
+            noteRepository.removeAllTags(deleted);
+            folderNoteRepository.deleteAllByNoteIdIn(deleted);
+            noteRepository.deleteAllByIdIn(deleted);
+        }
+
+        items.stream().filter(item -> item.result == null).forEach(item -> item.ok(200));
+    }
+
+    private static List<Item> pending(List<Item> items, String type) {
+        return items.stream().filter(item -> item.result == null && type.equals(item.op.getType())).toList();
+    }
+
+    /**
+     * Pending items of the given type, grouped by the operation they come from
+     */
+    private static Collection<List<Item>> byOperation(List<Item> items, String type) {
+        return pending(items, type).stream()
+            .collect(Collectors.groupingBy(item -> item.index, TreeMap::new, Collectors.toList()))
+            .values();
+    }
+
+    private static Set<Long> noteIds(List<Item> items) {
+        return items.stream().map(item -> item.noteId).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static Set<Long> collect(List<Item> items, Function<BatchNoteRequest.Operation, List<Long>> ids) {
+        Set<Long> collected = new HashSet<>();
+        for (Item item : items) {
+            List<Long> values = ids.apply(item.op);
+            if (values != null) {
+                collected.addAll(values);
+            }
+        }
+        return collected;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private record Permission(boolean creator, boolean writer, boolean owner) { }
+
+    /**
+     * One operation applied to one note, with its result once known
+     */
+    private static class Item {
+        final int index;
+        final BatchNoteRequest.Operation op;
+        Long noteId;
+        NoteResponse note;
+        BatchNoteResponse.ItemResult result;
+
+        Item(int index, BatchNoteRequest.Operation op, Long noteId) {
+            this.index = index;
+            this.op = op;
+            this.noteId = noteId;
+        }
+
+        Item fail(int status, String error) {
+            result = new BatchNoteResponse.ItemResult(index, noteId, status, error, null);
+            return this;
+        }
+
+        void ok(int status) {
+            result = new BatchNoteResponse.ItemResult(index, noteId, status, null, note);
+        }
+    }
+}
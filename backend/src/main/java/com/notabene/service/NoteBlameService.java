@@ -0,0 +1,266 @@
+package com.notabene.service;
+
+import com.notabene.dto.NoteBlameDTO;
+import com.notabene.dto.TextDiffDTO;
+import com.notabene.entity.ContentHash;
+import com.notabene.entity.Note;
+import com.notabene.entity.NoteVersion;
+import com.notabene.repository.NoteVersionRepository;
+import com.notabene.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Service computing which version introduced each character of a note.
+ * Attribution is carried forward through the deltas stored with each version, falling
+ * back to a fresh diff when a delta is missing or does not chain. The result for the
+ * stored versions is cached per note: when new versions are stored, only those are
+ * replayed over the cached attribution.
+ * A stored version is the state before an edit, created by the editor who replaced it, so
+ * the text a version introduces is credited to the createdBy of the version before it (the
+ * note creator for the first one) and the current state to that of the latest version.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class NoteBlameService {
+
+    private final NoteVersionRepository noteVersionRepository;
+    private final UserRepository userRepository;
+    private final TextDiffService textDiffService;
+
+    @Value("${notabene.blame.cache-size:1000}")
+    private int cacheSize = 1000;
+
+    // Attribuzione dell'ultima versione salvata, per nota, con rimozione della meno usata
+    private final Map<Long, Blame> cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Blame> eldest) {
+            return size() > cacheSize;
+        }
+    });
+
+    /**
+     * Blame of the note's current state. Version numbers follow the history: the current
+     * state is the version after the latest stored one.
+     */
+    public NoteBlameDTO getBlame(Note note) {
+        Blame stored = storedBlame(note.getId());
+
+        int currentVersion = stored.version() + 1;
+        Map<Integer, Long> authors = new HashMap<>(stored.authors());
+        authors.put(currentVersion, stored.lastEditor() != null ? stored.lastEditor() : note.getCreatorId());
+        Attribution title = diff(stored.title(), note.getTitle(), currentVersion);
+        Attribution content = diff(stored.content(), note.getContent(), currentVersion);
+
+        Map<Long, String> usernames = findUsernames(authors.values());
+        return new NoteBlameDTO(note.getId(), currentVersion,
+            toSpans(title, authors, usernames), toSpans(content, authors, usernames));
+    }
+
+    /**
+     * Attribution of the latest stored version, extending the cached one with the versions stored since
+     */
+    private Blame storedBlame(Long noteId) {
+        Integer latest = noteVersionRepository.findMaxVersionNumber(noteId);
+        if (latest == null) {
+            cache.remove(noteId);
+            return Blame.EMPTY;
+        }
+
+        Blame cached = cache.get(noteId);
+        if (cached != null && cached.version() == latest) {
+            return cached;
+        }
+        if (cached == null || cached.version() > latest) {
+            cached = Blame.EMPTY;
+        }
+
+        Blame blame = extend(noteId, cached, latest);
+        // Una richiesta concorrente può aver già esteso oltre: tiene la più recente
+        cache.merge(noteId, blame, (old, fresh) -> fresh.version() >= old.version() ? fresh : old);
+        return blame;
+    }
+
+    /**
+     * Replay the versions after from.version() up to toVersion over the attribution of from
+     */
+    private Blame extend(Long noteId, Blame from, int toVersion) {
+        Attribution title = from.title();
+        Attribution content = from.content();
+        Map<Integer, Long> authors = new HashMap<>(from.authors());
+        int previous = from.version();
+        Long lastEditor = from.lastEditor();
+        int diffed = 0;
+
+        List<Object[]> chain = noteVersionRepository.findBlameChain(noteId, from.version(), toVersion);
+        for (Object[] row : chain) {
+            int version = (Integer) row[0];
+            Integer deltaBase = (Integer) row[1];
+            // Il testo della versione è dell'autore della modifica che l'ha prodotta
+            authors.put(version, lastEditor != null ? lastEditor : (Long) row[6]);
+            lastEditor = (Long) row[2];
+
+            Attribution[] next = null;
+            if (deltaBase != null && deltaBase == previous && row[4] != null && row[5] != null) {
+                next = replayStored(title, content, (String) row[4], (String) row[5], (String) row[3], version);
+            }
+            if (next == null) {
+                // Delta assente o riferito a una versione eliminata: diff sul testo salvato
+                NoteVersion stored = noteVersionRepository.findByNoteIdAndVersionNumber(noteId, version)
+                    .orElseThrow(() -> new IllegalStateException("Version " + version + " of note " + noteId + " disappeared"));
+                next = new Attribution[] {
+                    diff(title, stored.getTitle(), version),
+                    diff(content, stored.getContent(), version)
+                };
+                diffed++;
+            }
+            title = next[0];
+            content = next[1];
+            previous = version;
+        }
+
+        // Le versioni che non possiedono più testo non servono alle estensioni successive
+        Set<Integer> owners = new HashSet<>();
+        Arrays.stream(title.owners()).forEach(owners::add);
+        Arrays.stream(content.owners()).forEach(owners::add);
+        authors.keySet().retainAll(owners);
+
+        log.debug("Blame of note {} extended from version {} to {} ({} versions, {} diffed)",
+            noteId, from.version(), toVersion, chain.size(), diffed);
+        return new Blame(toVersion, title, content, authors, lastEditor);
+    }
+
+    /**
+     * Replay the stored deltas of a version, or null if they do not produce its content hash
+     */
+    private Attribution[] replayStored(Attribution title, Attribution content, String titleDelta, String contentDelta,
+                                       String contentHash, int version) {
+        try {
+            Attribution nextTitle = replay(title, TextDelta.parse(titleDelta), version);
+            Attribution nextContent = replay(content, TextDelta.parse(contentDelta), version);
+            if (!ContentHash.of(nextTitle.text(), nextContent.text()).equals(contentHash)) {
+                return null;
+            }
+            return new Attribution[] {nextTitle, nextContent};
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Attribute the changes from the previous text to the given text to version
+     */
+    private Attribution diff(Attribution previous, String text, int version) {
+        if (text == null) text = "";
+        if (text.equals(previous.text())) {
+            return previous;
+        }
+        String delta = textDiffService.calculateDelta(previous.text(), text);
+        List<TextDelta.Op> ops = delta != null
+            ? TextDelta.parse(delta)
+            // Diff oltre i limiti: tutto il testo è attribuito alla nuova versione
+            : List.of(new TextDelta.Op(TextDiffDTO.DiffType.REMOVED, previous.text().length(), null), TextDelta.Op.added(text));
+        return replay(previous, ops, version);
+    }
+
+    /**
+     * Apply delta ops to the previous text: kept characters keep their version, added ones get the new one
+     */
+    private Attribution replay(Attribution previous, List<TextDelta.Op> ops, int version) {
+        String left = previous.text();
+        int length = 0;
+        for (TextDelta.Op op : ops) {
+            if (op.type() != TextDiffDTO.DiffType.REMOVED) {
+                length += op.length();
+            }
+        }
+
+        StringBuilder text = new StringBuilder(length);
+        int[] owners = new int[length];
+        int offset = 0;
+        for (TextDelta.Op op : ops) {
+            if (op.type() == TextDiffDTO.DiffType.ADDED) {
+                Arrays.fill(owners, text.length(), text.length() + op.length(), version);
+                text.append(op.text());
+                continue;
+            }
+            if (offset + op.length() > left.length()) {
+                throw new IllegalArgumentException("Delta is longer than the source text");
+            }
+            if (op.type() == TextDiffDTO.DiffType.EQUAL) {
+                System.arraycopy(previous.owners(), offset, owners, text.length(), op.length());
+                text.append(left, offset, offset + op.length());
+            }
+            offset += op.length();
+        }
+        if (offset != left.length()) {
+            throw new IllegalArgumentException("Delta does not cover the source text");
+        }
+        return new Attribution(text.toString(), owners);
+    }
+
+    /**
+     * Split an attribution into runs of characters introduced by the same version
+     */
+    private List<NoteBlameDTO.BlameSpan> toSpans(Attribution attribution, Map<Integer, Long> authors,
+                                                 Map<Long, String> usernames) {
+        List<NoteBlameDTO.BlameSpan> spans = new ArrayList<>();
+        int[] owners = attribution.owners();
+        int start = 0;
+        for (int i = 1; i <= owners.length; i++) {
+            if (i == owners.length || owners[i] != owners[start]) {
+                Long createdBy = authors.get(owners[start]);
+                spans.add(new NoteBlameDTO.BlameSpan(start, i - start, attribution.text().substring(start, i),
+                    owners[start], createdBy, usernames.get(createdBy)));
+                start = i;
+            }
+        }
+        return spans;
+    }
+
+    private Map<Long, String> findUsernames(Collection<Long> userIds) {
+        List<Long> ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, String> usernames = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Object[] row : userRepository.findUsernamesByIds(ids)) {
+                usernames.put((Long) row[0], (String) row[1]);
+            }
+        }
+        return usernames;
+    }
+
+    /**
+     * Text with the version number that introduced each of its characters
+     */
+    private record Attribution(String text, int[] owners) {
+
+        static final Attribution EMPTY = new Attribution("", new int[0]);
+    }
+
+    /**
+     * Attribution of title and content at a stored version, with the author of each owning version
+     * and the editor who replaced the stored version (its createdBy)
+     */
+    private record Blame(int version, Attribution title, Attribution content, Map<Integer, Long> authors,
+                         Long lastEditor) {
+
+        static final Blame EMPTY = new Blame(0, Attribution.EMPTY, Attribution.EMPTY, Map.of(), null);
+    }
+}
@@ -0,0 +1,117 @@
+package com.notabene.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Export of the notes created by a user as NDJSON, one note per line, optionally zipped.
+ * Notes are read through a server-side cursor (forward-only result set with a fetch size,
+ * inside a transaction so the PostgreSQL driver does not load the whole result) and each
+ * line is built by the database and written straight to the output, so memory use does not
+ * grow with the size of the account. Lines carry title, content and tag names in the shape
+ * accepted by the import, plus folder names and, on request, the stored version history.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NoteExportService {
+
+    public enum Format { NDJSON, ZIP }
+
+    // Nome del file NDJSON dentro l'archivio ZIP
+    public static final String ZIP_ENTRY = "notes.ndjson";
+
+    private static final String VERSIONS_JSON =
+        ", 'versions', COALESCE((" +
+        "    SELECT json_agg(json_build_object(" +
+        "        'versionNumber', v.version_number, 'title', b.title, 'content', b.content, " +
+        "        'createdBy', u.username, 'createdAt', v.created_at, " +
+        "        'restoredFromVersion', v.restored_from_version) ORDER BY v.version_number) " +
+        "    FROM note_versions v " +
+        "    JOIN version_blobs b ON b.content_hash = v.content_hash " +
+        "    LEFT JOIN users u ON u.id = v.created_by " +
+        "    WHERE v.note_id = n.id), '[]'::json)";
+
+    private static final String SELECT_NOTES =
+        "SELECT json_build_object(" +
+        "    'id', n.id, 'title', n.title, 'content', n.content, " +
+        "    'createdAt', n.created_at, 'updatedAt', n.updated_at, " +
+        "    'tags', ARRAY(SELECT t.name::text FROM note_tag nt JOIN tag t ON t.id = nt.tag_id " +
+        "                  WHERE nt.note_id = n.id ORDER BY t.name), " +
+        // Solo le cartelle dell'utente: quelle degli altri non gli appartengono
+        "    'folders', ARRAY(SELECT f.name::text FROM folder_notes fn JOIN folders f ON f.id = fn.folder_id " +
+        "                     WHERE fn.note_id = n.id AND f.owner_id = ? ORDER BY f.name)" +
+        "%s)::text " +
+        "FROM notes n WHERE n.creator_id = ? ORDER BY n.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${notabene.export.fetch-size:500}")
+    private int fetchSize = 500;
+
+    /**
+     * Write the notes created by userId to out, with their version history if requested
+     */
+    public void export(Long userId, Format format, boolean includeHistory, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        long exported;
+        if (format == Format.ZIP) {
+            ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+            zip.putNextEntry(new ZipEntry(ZIP_ENTRY));
+            exported = writeNdjson(userId, includeHistory, zip);
+            zip.closeEntry();
+            zip.finish();
+        } else {
+            exported = writeNdjson(userId, includeHistory, out);
+        }
+        log.info("Exported {} notes of user {} ({}, history: {}) in {} ms",
+            exported, userId, format, includeHistory, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private long writeNdjson(Long userId, boolean includeHistory, OutputStream out) throws IOException {
+        // Il writer non chiude lo stream: lo chiude chi lo ha aperto (ZIP o risposta HTTP)
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        String sql = String.format(SELECT_NOTES, includeHistory ? VERSIONS_JSON : "");
+        long[] count = {0};
+        try {
+            // Il cursore lato server richiede una transazione (autocommit disattivato)
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                ps.setLong(1, userId);
+                ps.setLong(2, userId);
+                return ps;
+            }, rs -> {
+                try {
+                    writer.write(rs.getString(1));
+                    writer.write('\n');
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            // Tipicamente il client ha chiuso la connessione: il cursore è già stato chiuso col rollback
+            throw e.getCause();
+        }
+        writer.flush();
+        return count[0];
+    }
+}
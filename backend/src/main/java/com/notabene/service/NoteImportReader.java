@@ -0,0 +1,265 @@
+package com.notabene.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads import rows one at a time from an NDJSON or CSV stream, so only the current row is
+ * held in memory. Rows that cannot be parsed are returned with an error instead of stopping
+ * the import. NDJSON rows are objects with "title", "content" and an optional "tags" array of
+ * names; CSV input starts with a header naming the title, content and optional tags columns,
+ * with tag names separated by ';'.
+ */
+final class NoteImportReader implements Closeable {
+
+    // Oltre questa lunghezza la riga non può essere valida: il resto viene scartato senza tenerlo in memoria
+    static final int MAX_ROW_CHARS = 64 * 1024;
+
+    /**
+     * One input row, or the reason it could not be parsed
+     */
+    record Row(long line, String title, String content, List<String> tags, String error) {
+
+        static Row failed(long line, String error) {
+            return new Row(line, null, null, List.of(), error);
+        }
+    }
+
+    private final Reader reader;
+    private final NoteImportService.Format format;
+    private final ObjectMapper objectMapper;
+
+    private long line = 1;
+    private boolean started;
+    private int[] csvColumns;  // posizione di title, content e tags nell'header CSV
+
+    NoteImportReader(InputStream input, NoteImportService.Format format, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Next row, or null at the end of the input
+     */
+    Row next() throws IOException {
+        return format == NoteImportService.Format.NDJSON ? nextJson() : nextCsv();
+    }
+
+    private Row nextJson() throws IOException {
+        while (true) {
+            long rowLine = line;
+            StringBuilder text = new StringBuilder();
+            boolean tooLong = false;
+            int c;
+            while ((c = read()) != -1 && c != '\n') {
+                if (text.length() < MAX_ROW_CHARS) {
+                    text.append((char) c);
+                } else {
+                    tooLong = true;
+                }
+            }
+            if (c == '\n') {
+                line++;
+            }
+            if (tooLong) {
+                return Row.failed(rowLine, "Row exceeds " + MAX_ROW_CHARS + " characters");
+            }
+            if (!text.toString().isBlank()) {
+                return parseJson(rowLine, text.toString());
+            }
+            if (c == -1) {
+                return null;
+            }
+        }
+    }
+
+    private Row parseJson(long rowLine, String text) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            return Row.failed(rowLine, "Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (!node.isObject()) {
+            return Row.failed(rowLine, "Row must be a JSON object");
+        }
+
+        JsonNode title = node.get("title");
+        JsonNode content = node.get("content");
+        if ((title != null && !title.isTextual() && !title.isNull()) || (content != null && !content.isTextual() && !content.isNull())) {
+            return Row.failed(rowLine, "Title and content must be strings");
+        }
+
+        List<String> tags = new ArrayList<>();
+        JsonNode tagsNode = node.get("tags");
+        if (tagsNode != null && !tagsNode.isNull()) {
+            if (!tagsNode.isArray()) {
+                return Row.failed(rowLine, "Tags must be an array of names");
+            }
+            for (JsonNode tag : tagsNode) {
+                if (!tag.isTextual()) {
+                    return Row.failed(rowLine, "Tags must be an array of names");
+                }
+                tags.add(tag.textValue());
+            }
+        }
+        return new Row(rowLine, textOrNull(title), textOrNull(content), tags, null);
+    }
+
+    private Row nextCsv() throws IOException {
+        if (csvColumns == null) {
+            List<String> header = readCsvRecord();
+            if (header == null) {
+                return null;
+            }
+            csvColumns = new int[] {-1, -1, -1};
+            for (int i = 0; i < header.size(); i++) {
+                switch (header.get(i).trim().toLowerCase(Locale.ROOT)) {
+                    case "title" -> csvColumns[0] = i;
+                    case "content" -> csvColumns[1] = i;
+                    case "tags" -> csvColumns[2] = i;
+                    default -> { }
+                }
+            }
+            if (csvColumns[0] < 0 || csvColumns[1] < 0) {
+                throw new IllegalArgumentException("CSV header must name the title and content columns");
+            }
+        }
+
+        while (true) {
+            long rowLine = line;
+            List<String> fields;
+            try {
+                fields = readCsvRecord();
+            } catch (MalformedRowException e) {
+                return Row.failed(rowLine, e.getMessage());
+            }
+            if (fields == null) {
+                return null;
+            }
+            // Righe vuote tra i record
+            if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                continue;
+            }
+
+            List<String> tags = new ArrayList<>();
+            String tagField = field(fields, csvColumns[2]);
+            if (tagField != null && !tagField.isBlank()) {
+                for (String tag : tagField.split(";")) {
+                    tags.add(tag);
+                }
+            }
+            return new Row(rowLine, field(fields, csvColumns[0]), field(fields, csvColumns[1]), tags, null);
+        }
+    }
+
+    /**
+     * Read one RFC 4180 record; quoted fields may contain separators, quotes ("") and line breaks
+     */
+    private List<String> readCsvRecord() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int length = 0;
+        boolean inQuotes = false;
+        boolean quoted = false;
+        while (true) {
+            if (inQuotes) {
+                if (c == -1) {
+                    throw new MalformedRowException("Unterminated quoted field");
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next != '"') {
+                        inQuotes = false;
+                        c = next;
+                        continue;
+                    }
+                }
+                if (c == '\n') {
+                    line++;
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                quoted = false;
+                c = read();
+                continue;
+            } else if (c == '\n' || c == -1) {
+                if (c == '\n') {
+                    line++;
+                }
+                fields.add(field.toString());
+                if (length > MAX_ROW_CHARS) {
+                    throw new MalformedRowException("Row exceeds " + MAX_ROW_CHARS + " characters");
+                }
+                return fields;
+            } else if (c == '\r') {
+                c = read();
+                continue;
+            } else if (c == '"' && field.length() == 0 && !quoted) {
+                inQuotes = true;
+                quoted = true;
+                c = read();
+                continue;
+            }
+
+            if (++length <= MAX_ROW_CHARS) {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        int c = reader.read();
+        // BOM iniziale scritto da alcuni editor ed esportatori
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                c = reader.read();
+            }
+        }
+        return c;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node == null || node.isNull() ? null : node.textValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * A CSV record that cannot be split into fields
+     */
+    private static class MalformedRowException extends IOException {
+
+        MalformedRowException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.notabene.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notabene.dto.NoteImportReportDTO;
+import com.notabene.entity.Note;
+import com.notabene.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk import of notes from an NDJSON or CSV stream. Rows are parsed and validated one at a
+ * time with the same rules as note creation, and valid ones are written in chunks through
+ * COPY, so memory stays bounded by the chunk size whatever the size of the input. Invalid
+ * rows are skipped and reported by line; when a chunk is rejected by the database its rows
+ * are retried one by one, so only the offending rows fail.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NoteImportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private final NoteImportWriter noteImportWriter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${notabene.import.chunk-size:5000}")
+    private int chunkSize = 5000;
+
+    @Value("${notabene.import.max-reported-errors:1000}")
+    private int maxReportedErrors = 1000;
+
+    /**
+     * Import every valid row of input as a note owned by owner
+     */
+    public NoteImportReportDTO importNotes(InputStream input, Format format, User owner) throws IOException {
+        long start = System.nanoTime();
+        NoteImportReportDTO report = new NoteImportReportDTO();
+        List<NoteImportReader.Row> chunk = new ArrayList<>();
+
+        try (NoteImportReader reader = new NoteImportReader(input, format, objectMapper)) {
+            NoteImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                String error = row.error() != null ? row.error() : validate(row);
+                if (error != null) {
+                    reject(report, row.line(), error);
+                    continue;
+                }
+                chunk.add(normalize(row));
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, owner, report);
+                }
+            }
+            writeChunk(chunk, owner, report);
+        }
+
+        report.setDurationMs((System.nanoTime() - start) / 1_000_000);
+        log.info("Imported {} notes for user {} ({} rows rejected) in {} ms",
+            report.getImported(), owner.getId(), report.getFailed(), report.getDurationMs());
+        return report;
+    }
+
+    private void writeChunk(List<NoteImportReader.Row> chunk, User owner, NoteImportReportDTO report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            noteImportWriter.write(List.copyOf(chunk), owner.getId());
+            report.setImported(report.getImported() + chunk.size());
+        } catch (DataAccessException e) {
+            log.warn("Import chunk of {} rows rejected, retrying row by row: {}", chunk.size(), e.getMessage());
+            for (NoteImportReader.Row row : chunk) {
+                try {
+                    noteImportWriter.write(List.of(row), owner.getId());
+                    report.setImported(report.getImported() + 1);
+                } catch (DataAccessException rowError) {
+                    reject(report, row.line(), rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Same rules as CreateNoteRequest and tag creation, or null if the row is valid
+     */
+    private String validate(NoteImportReader.Row row) {
+        if (row.title() == null || row.title().isBlank()) {
+            return "Title cannot be blank";
+        }
+        if (row.title().length() > Note.MAX_TITLE_LENGTH) {
+            return "Title cannot exceed " + Note.MAX_TITLE_LENGTH + " characters";
+        }
+        if (row.content() == null || row.content().isBlank()) {
+            return "Content cannot be blank";
+        }
+        if (row.content().length() > Note.MAX_CONTENT_LENGTH) {
+            return "Content cannot exceed " + Note.MAX_CONTENT_LENGTH + " characters";
+        }
+        for (String tag : row.tags()) {
+            if (tag == null || tag.isBlank()) {
+                return "Il nome del tag è obbligatorio";
+            }
+        }
+        return null;
+    }
+
+    private NoteImportReader.Row normalize(NoteImportReader.Row row) {
+        List<String> tags = row.tags().stream().map(String::trim).distinct().toList();
+        return new NoteImportReader.Row(row.line(), row.title(), row.content(), tags, null);
+    }
+
+    private void reject(NoteImportReportDTO report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new NoteImportReportDTO.RowError(line, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.notabene.service;
+
+import com.notabene.entity.ContentHash;
+import com.notabene.service.support.IdAllocator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes chunks of imported notes with PostgreSQL COPY: notes, their initial versions and
+ * their tag links each go in a single COPY per chunk, inside one transaction. Ids come from
+ * the entity sequences through the IdAllocator, so imported rows never collide with ids
+ * handed out by Hibernate.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NoteImportWriter {
+
+    private static final int BLOB_BATCH = 50;
+
+    private static final String COPY_NOTES =
+        "COPY notes (id, title, content, user_id, creator_id, readers, writers, content_hash, revision, " +
+        "    created_at, updated_at) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String COPY_VERSIONS =
+        "COPY note_versions (id, note_id, version_number, content_hash, readers, writers, created_by, " +
+        "    note_creator_id, created_at, original_created_at, original_updated_at, is_restored) " +
+        "FROM STDIN WITH (FORMAT csv)";
+
+    private static final String COPY_NOTE_TAGS =
+        "COPY note_tag (note_id, tag_id) FROM STDIN WITH (FORMAT csv)";
+
+    // COPY non supporta ON CONFLICT: i corpi condivisi con versioni esistenti passano dall'upsert
+    private static final String UPSERT_BLOB =
+        "INSERT INTO version_blobs (content_hash, title, content, ref_count, created_at) " +
+        "VALUES (?, ?, ?, 0, now()) " +
+        "ON CONFLICT (content_hash) DO UPDATE SET ref_count = version_blobs.ref_count";
+
+    private static final String INSERT_TAGS =
+        "INSERT INTO tag (id, name, created_by, created_at) " +
+        "SELECT nextval('tag_id_seq'), n, ?, now() FROM unnest(?) AS n " +
+        "ON CONFLICT (name) DO NOTHING";
+
+    // lower() perché il confronto di citext con un array di text è case sensitive
+    private static final String SELECT_TAGS =
+        "SELECT id, name FROM tag WHERE lower(name) = ANY (?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IdAllocator idAllocator;
+
+    /**
+     * Write validated rows as notes owned by ownerId, each with version 1 holding its imported
+     * state and linked to its tags, which are created when missing. All or nothing.
+     */
+    void write(List<NoteImportReader.Row> rows, Long ownerId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            DataSource dataSource = jdbcTemplate.getDataSource();
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                copy(connection.unwrap(PGConnection.class).getCopyAPI(), rows, ownerId);
+            } catch (SQLException e) {
+                throw jdbcTemplate.getExceptionTranslator().translate("COPY import", null, e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        });
+    }
+
+    private void copy(CopyManager copyManager, List<NoteImportReader.Row> rows, Long ownerId)
+            throws SQLException, IOException {
+        String now = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS).toString();
+        String permissions = "{" + ownerId + "}";
+        List<Long> noteIds = idAllocator.allocate("notes_id_seq", rows.size());
+        List<Long> versionIds = idAllocator.allocate("note_versions_id_seq", rows.size());
+        Map<String, Long> tagIds = resolveTags(rows, ownerId);
+
+        StringBuilder notes = new StringBuilder();
+        StringBuilder versions = new StringBuilder();
+        StringBuilder noteTags = new StringBuilder();
+        Map<String, NoteImportReader.Row> blobs = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            NoteImportReader.Row row = rows.get(i);
+            String hash = ContentHash.of(row.title(), row.content());
+            blobs.putIfAbsent(hash, row);
+
+            csvLine(notes, noteIds.get(i), quote(row.title()), quote(row.content()), ownerId, ownerId,
+                permissions, permissions, hash, 0, now, now);
+            // Versione iniziale come quelle create da init.sql per le note senza cronologia
+            csvLine(versions, versionIds.get(i), noteIds.get(i), 1, hash, permissions, permissions, ownerId, ownerId,
+                now, now, now, "f");
+
+            Set<Long> linked = new LinkedHashSet<>();
+            for (String tag : row.tags()) {
+                linked.add(tagIds.get(tag.toLowerCase(Locale.ROOT)));
+            }
+            for (Long tagId : linked) {
+                csvLine(noteTags, noteIds.get(i), tagId);
+            }
+        }
+
+        copyManager.copyIn(COPY_NOTES, new StringReader(notes.toString()));
+        jdbcTemplate.batchUpdate(UPSERT_BLOB, new ArrayList<>(blobs.entrySet()), BLOB_BATCH, (ps, blob) -> {
+            ps.setString(1, blob.getKey());
+            ps.setString(2, blob.getValue().title());
+            ps.setString(3, blob.getValue().content());
+        });
+        copyManager.copyIn(COPY_VERSIONS, new StringReader(versions.toString()));
+        if (noteTags.length() > 0) {
+            copyManager.copyIn(COPY_NOTE_TAGS, new StringReader(noteTags.toString()));
+        }
+        log.debug("Copied {} notes, {} blobs and {} tags", rows.size(), blobs.size(), tagIds.size());
+    }
+
+    /**
+     * Ids of the tags named in rows by lower-case name, creating the missing ones
+     */
+    private Map<String, Long> resolveTags(List<NoteImportReader.Row> rows, Long ownerId) {
+        Map<String, String> names = new LinkedHashMap<>();
+        for (NoteImportReader.Row row : rows) {
+            for (String tag : row.tags()) {
+                names.putIfAbsent(tag.toLowerCase(Locale.ROOT), tag);
+            }
+        }
+        Map<String, Long> tagIds = new HashMap<>();
+        if (names.isEmpty()) {
+            return tagIds;
+        }
+
+        jdbcTemplate.update(INSERT_TAGS, ps -> {
+            ps.setLong(1, ownerId);
+            ps.setArray(2, ps.getConnection().createArrayOf("text", names.values().toArray()));
+        });
+        jdbcTemplate.query(SELECT_TAGS,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", names.keySet().toArray())),
+            rs -> {
+                tagIds.put(rs.getString(2).toLowerCase(Locale.ROOT), rs.getLong(1));
+            });
+        return tagIds;
+    }
+
+    /**
+     * Append a COPY csv line; values must already be quoted where needed
+     */
+    private static void csvLine(StringBuilder out, Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(values[i]);
+        }
+        out.append('\n');
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
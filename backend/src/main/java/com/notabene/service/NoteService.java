@@ -7,6 +7,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.data.domain.Page;
@@ -18,10 +19,13 @@ import org.springframework.transaction.annotation.Transactional;
 import com.notabene.dto.CreateNoteRequest;
 import com.notabene.dto.NotePermissionsResponse;
 import com.notabene.dto.NoteResponse;
+import com.notabene.dto.PatchNoteRequest;
 import com.notabene.dto.SearchNotesRequest;
 import com.notabene.dto.TagDTO;
 import com.notabene.dto.UpdateNoteRequest;
+import com.notabene.entity.ContentHash;
 import com.notabene.entity.Note;
+import com.notabene.exception.NoteConflictException;
 import com.notabene.exception.NoteNotFoundException;
 import com.notabene.exception.UnauthorizedNoteAccessException;
 import com.notabene.model.User;
@@ -85,12 +89,8 @@ public class NoteService {
             
             // Combine and convert to DTOs with permission flags
             List<NoteResponse> allNotes = new ArrayList<>();
-            allNotes.addAll(createdNotes.stream()
-                    .map(note -> convertToNoteResponse(note, currentUser.getId()))
-                    .collect(Collectors.toList()));
-            allNotes.addAll(sharedNotes.stream()
-                    .map(note -> convertToNoteResponse(note, currentUser.getId()))
-                    .collect(Collectors.toList()));
+            allNotes.addAll(convertToNoteResponses(createdNotes, currentUser.getId()));
+            allNotes.addAll(convertToNoteResponses(sharedNotes, currentUser.getId()));
             
             // Remove duplicates (in case a user has both created and shared access)
             Map<Long, NoteResponse> uniqueNotes = new LinkedHashMap<>();
@@ -112,10 +112,7 @@ public class NoteService {
         User currentUser = authenticationService.getCurrentUser();
         Pageable pageable = PageRequest.of(page, size);
         Page<Note> notePage = noteRepository.findByUserOrderByCreatedAtDesc(currentUser, pageable);
-        return notePage.getContent()
-                .stream()
-                .map(note -> convertToNoteResponse(note, currentUser.getId()))
-                .collect(Collectors.toList());
+        return convertToNoteResponses(notePage.getContent(), currentUser.getId());
     }
 
     @Transactional(readOnly = true)
@@ -144,13 +141,22 @@ public class NoteService {
         .orElseThrow(() -> new NoteNotFoundException("Note not found with id: " + id + " for current user or user has no write permission"));
 
     // Use versioning service to update note (automatically creates version)
-    String newTitle = request.getTitle() != null && !request.getTitle().trim().isEmpty() 
-        ? request.getTitle() : note.getTitle();
-    String newContent = request.getContent() != null && !request.getContent().trim().isEmpty() 
-        ? request.getContent() : note.getContent();
+    boolean hasTitle = request.getTitle() != null && !request.getTitle().trim().isEmpty();
+    boolean hasContent = request.getContent() != null && !request.getContent().trim().isEmpty();
     
-    Note updated = noteVersioningService.updateNoteWithVersioning(
-        id, newTitle, newContent, currentUser.getId());
+    Note updated;
+    if (request.isMerge()) {
+        if (request.getBaseHash() == null || request.getBaseHash().isBlank()) {
+            throw new IllegalArgumentException("baseHash is required in merge mode");
+        }
+        updated = noteVersioningService.mergeNoteWithVersioning(id, request.getBaseHash(),
+            hasTitle ? request.getTitle() : null, hasContent ? request.getContent() : null, currentUser.getId());
+    } else {
+        updated = noteVersioningService.updateNoteWithVersioning(id,
+            hasTitle ? request.getTitle() : note.getTitle(),
+            hasContent ? request.getContent() : note.getContent(),
+            currentUser.getId(), request.getRevision());
+    }
 
     // TAGS: synchronize ONLY if field is present (null = don't touch)
     if (request.getTagIds() != null) {
@@ -162,10 +168,65 @@ public class NoteService {
         updated.getTags().clear();
         updated.getTags().addAll(tags);
         updated = noteRepository.save(updated);
+        noteRepository.flush(); // la revisione nella risposta deve includere i tag
     }
     return convertToNoteResponse(updated, currentUser.getId());
     }
 
+    /**
+     * Apply insert/delete operations to the note, provided it is still at the revision
+     * the client based them on
+     */
+    @Transactional
+    public NoteResponse patchNote(Long id, PatchNoteRequest request) {
+        User currentUser = authenticationService.getCurrentUser();
+
+        noteRepository.findByIdWithWritePermission(id, currentUser.getId())
+            .orElseThrow(() -> new NoteNotFoundException("Note not found with id: " + id + " for current user or user has no write permission"));
+
+        List<TextDiffService.TextEdit> titleEdits = new ArrayList<>();
+        List<TextDiffService.TextEdit> contentEdits = new ArrayList<>();
+        for (PatchNoteRequest.EditOperation op : request.getOps()) {
+            TextDiffService.TextEdit edit;
+            if ("insert".equals(op.getType())) {
+                edit = TextDiffService.TextEdit.insert(op.getOffset(), op.getText());
+            } else {
+                if (op.getLength() == null) {
+                    throw new IllegalArgumentException("Delete at offset " + op.getOffset() + " has no length");
+                }
+                edit = TextDiffService.TextEdit.delete(op.getOffset(), op.getLength());
+            }
+            ("title".equals(op.getField()) ? titleEdits : contentEdits).add(edit);
+        }
+
+        Note updated = noteVersioningService.patchNoteWithVersioning(
+            id, request.getBaseHash(), titleEdits, contentEdits, currentUser.getId());
+        return convertToNoteResponse(updated, currentUser.getId());
+    }
+
+    /**
+     * Restore a note to one of its versions, provided it is still at expectedRevision
+     * (null skips the check)
+     */
+    @Transactional
+    public NoteResponse restoreNote(Long id, Integer versionNumber, Long expectedRevision) {
+        User currentUser = authenticationService.getCurrentUser();
+        Note restored = noteVersioningService.restoreToVersion(id, versionNumber, currentUser.getId(), expectedRevision);
+        return convertToNoteResponse(restored, currentUser.getId());
+    }
+
+    /**
+     * Conflict to report after the optimistic lock rejected a write: the note is read again
+     * in a new transaction to return the revision the client has to rebase on
+     */
+    @Transactional(readOnly = true)
+    public NoteConflictException concurrentModification(Long id) {
+        Note current = noteRepository.findById(id)
+            .orElseThrow(() -> new NoteNotFoundException("Note not found with id: " + id));
+        return new NoteConflictException("Note " + id + " was modified by another request",
+            ContentHash.of(current.getTitle(), current.getContent()), current.getRevision());
+    }
+
     
     public void deleteNote(Long id) {
         User currentUser = authenticationService.getCurrentUser();
@@ -214,9 +275,7 @@ public class NoteService {
             List<Note> notes = noteRepository.searchNotesWithReadPermission(currentUser.getId(), search);
             log.info("Basic search - found {} notes", notes.size());
             
-            List<NoteResponse> result = notes.stream()
-                    .map(note -> convertToNoteResponse(note, currentUser.getId()))
-                    .collect(Collectors.toList());
+            List<NoteResponse> result = convertToNoteResponses(notes, currentUser.getId());
             
             log.info("Basic search completed successfully");
             return result;
@@ -251,7 +310,8 @@ public class NoteService {
                 request.getCreatedBefore(),
                 request.getUpdatedAfter(),
                 request.getUpdatedBefore(),
-                request.getFolderId()
+                request.getFolderId(),
+                request.isIncludeSubfolders()
             );
             log.info("Repository search returned {} notes", notes.size());
             
@@ -274,9 +334,7 @@ public class NoteService {
                         beforeTagFilter, notes.size());
             }
             
-            List<NoteResponse> result = notes.stream()
-                    .map(note -> convertToNoteResponse(note, currentUser.getId()))
-                    .collect(Collectors.toList());
+            List<NoteResponse> result = convertToNoteResponses(notes, currentUser.getId());
             
             log.info("Advanced search completed successfully. Returning {} notes", result.size());
             return result;
@@ -308,6 +366,7 @@ public class NoteService {
             folderRequest.setUpdatedAfter(request.getUpdatedAfter());
             folderRequest.setUpdatedBefore(request.getUpdatedBefore());
             folderRequest.setFolderId(folderId);
+            folderRequest.setIncludeSubfolders(request.isIncludeSubfolders());
             
             log.info("Calling searchNotesAdvanced for folder search with folderId: {}", folderId);
             List<NoteResponse> result = searchNotesAdvanced(folderRequest);
@@ -327,18 +386,14 @@ public class NoteService {
     public List<NoteResponse> getCreatedNotes() {
         User currentUser = authenticationService.getCurrentUser();
         List<Note> notes = noteRepository.findByCreatorId(currentUser.getId());
-        return notes.stream()
-                .map(note -> convertToNoteResponse(note, currentUser.getId()))
-                .collect(Collectors.toList());
+        return convertToNoteResponses(notes, currentUser.getId());
     }
 
     @Transactional(readOnly = true)
     public List<NoteResponse> getSharedNotes() {
         User currentUser = authenticationService.getCurrentUser();
         List<Note> notes = noteRepository.findSharedWithUser(currentUser.getId());
-        return notes.stream()
-                .map(note -> convertToNoteResponse(note, currentUser.getId()))
-                .collect(Collectors.toList());
+        return convertToNoteResponses(notes, currentUser.getId());
     }
 
     public NotePermissionsResponse getNotePermissions(Long noteId) {
@@ -507,8 +562,33 @@ public class NoteService {
      * Convert Note entity to NoteResponse DTO with permission flags
      */
     public NoteResponse convertToNoteResponse(Note note, Long currentUserId) {
+        boolean groupWriter = !canWriteDirectly(note, currentUserId)
+                && noteRepository.hasGroupWriteAccess(note.getId(), currentUserId);
+        return convertToNoteResponse(note, currentUserId, groupWriter);
+    }
+    
+    /**
+     * Convert a list of notes, resolving write access through groups for all of them with one query
+     */
+    public List<NoteResponse> convertToNoteResponses(List<Note> notes, Long currentUserId) {
+        List<Long> viaGroups = notes.stream()
+                .filter(note -> !canWriteDirectly(note, currentUserId))
+                .map(Note::getId)
+                .toList();
+        Set<Long> groupWritable = viaGroups.isEmpty() ? Set.of()
+                : new HashSet<>(noteRepository.findGroupWritableIds(viaGroups, currentUserId));
+        return notes.stream()
+                .map(note -> convertToNoteResponse(note, currentUserId, groupWritable.contains(note.getId())))
+                .collect(Collectors.toList());
+    }
+    
+    private static boolean canWriteDirectly(Note note, Long userId) {
+        return note.getCreatorId().equals(userId) || (note.getWriters() != null && note.getWriters().contains(userId));
+    }
+    
+    private NoteResponse convertToNoteResponse(Note note, Long currentUserId, boolean groupWriter) {
         boolean isOwner = note.getCreatorId().equals(currentUserId);
-        boolean canWrite = isOwner || (note.getWriters() != null && note.getWriters().contains(currentUserId));
+        boolean canWrite = canWriteDirectly(note, currentUserId) || groupWriter;
         
         NoteResponse response = new NoteResponse();
         response.setId(note.getId());
@@ -518,13 +598,17 @@ public class NoteService {
         response.setUpdatedAt(note.getUpdatedAt());
         response.setCreatorId(note.getCreatorId());
         
-        // Get current version number (number of versions + 1 since versions start from 1)
-        Long versionCount = noteVersionRepository.countByNoteId(note.getId());
-        response.setCurrentVersion(versionCount.intValue() + 1);
+        // Get current version number (highest stored version + 1; the count shrinks when old versions are pruned)
+        Integer latestVersion = noteVersionRepository.findMaxVersionNumber(note.getId());
+        response.setCurrentVersion(latestVersion == null ? 1 : latestVersion + 1);
         
         // Set the version pointer (which version is currently being displayed)
         response.setCurrentVersionPointer(note.getCurrentVersionPointer());
         
+        // Computed here: the stored hash is only refreshed when the entity is flushed
+        response.setContentHash(ContentHash.of(note.getTitle(), note.getContent()));
+        response.setRevision(note.getRevision());
+        
         // Convert user IDs to usernames
         if (note.getReaders() != null && !note.getReaders().isEmpty()) {
             List<String> readerUsernames = note.getReaders().stream()
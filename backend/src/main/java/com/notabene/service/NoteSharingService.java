@@ -0,0 +1,95 @@
+package com.notabene.service;
+
+import com.notabene.dto.BulkShareRequest;
+import com.notabene.dto.BulkShareResponse;
+import com.notabene.model.User;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Grants and revokes note permissions in bulk. All usernames are resolved with one query,
+ * ownership of all notes is checked with one query, and the change is applied with one
+ * set-based UPDATE for the role. Notes that already match the request are left untouched,
+ * so retrying a request is cheap and has no further effect.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NoteSharingService {
+
+    private final NoteRepository noteRepository;
+    private final UserRepository userRepository;
+    private final AuthenticationService authenticationService;
+
+    @Transactional
+    public BulkShareResponse grant(BulkShareRequest request) {
+        return apply(request, true);
+    }
+
+    @Transactional
+    public BulkShareResponse revoke(BulkShareRequest request) {
+        return apply(request, false);
+    }
+
+    private BulkShareResponse apply(BulkShareRequest request, boolean grant) {
+        User currentUser = authenticationService.getCurrentUser();
+        Long ownerId = currentUser.getId();
+        boolean writer = "writer".equals(request.getRole());
+
+        // Utenti: una sola query per tutti gli username
+        Set<String> usernames = new LinkedHashSet<>(request.getUsernames());
+        Map<String, Long> idsByUsername = new HashMap<>();
+        for (Object[] row : userRepository.findIdsByUsernames(usernames)) {
+            idsByUsername.put((String) row[1], ((Number) row[0]).longValue());
+        }
+        List<String> unknownUsernames = new ArrayList<>();
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (String username : usernames) {
+            Long userId = idsByUsername.get(username);
+            if (userId == null) {
+                unknownUsernames.add(username);
+            } else {
+                userIds.add(userId);
+            }
+        }
+        // I permessi del creatore non si toccano, come negli endpoint per singola nota
+        userIds.remove(ownerId);
+
+        // Note: solo il creatore gestisce i permessi
+        Set<Long> noteIds = new LinkedHashSet<>(request.getNoteIds());
+        Set<Long> ownedIds = new LinkedHashSet<>();
+        for (Object[] row : noteRepository.findPermissions(noteIds, ownerId)) {
+            if (Boolean.TRUE.equals(row[1])) {
+                ownedIds.add(((Number) row[0]).longValue());
+            }
+        }
+        List<Long> skippedNoteIds = noteIds.stream().filter(id -> !ownedIds.contains(id)).toList();
+
+        int updated = 0;
+        if (!ownedIds.isEmpty() && !userIds.isEmpty()) {
+            if (grant) {
+                updated = writer ? noteRepository.grantWriters(ownedIds, userIds, ownerId)
+                                 : noteRepository.grantReaders(ownedIds, userIds, ownerId);
+            } else {
+                updated = writer ? noteRepository.revokeWriters(ownedIds, userIds, ownerId)
+                                 : noteRepository.revokeReaders(ownedIds, userIds, ownerId);
+            }
+        }
+
+        log.info("User {} {} {} role for {} users on {} notes: {} updated, {} skipped, {} unknown users",
+                ownerId, grant ? "granted" : "revoked", request.getRole(), userIds.size(), ownedIds.size(),
+                updated, skippedNoteIds.size(), unknownUsernames.size());
+        return new BulkShareResponse(updated, new ArrayList<>(skippedNoteIds), unknownUsernames);
+    }
+}
@@ -1,24 +1,37 @@
 package com.notabene.service;
 
+import com.notabene.dto.NoteVersionContentDTO;
 import com.notabene.dto.NoteVersionDTO;
+import com.notabene.dto.NoteVersionSummaryDTO;
+import com.notabene.entity.ContentHash;
 import com.notabene.entity.Note;
 import com.notabene.entity.NoteVersion;
+import com.notabene.entity.VersionOutboxEntry;
+import com.notabene.exception.NoteConflictException;
+import com.notabene.exception.NoteMergeConflictException;
+import com.notabene.model.NoteMergeBaseId;
+import com.notabene.repository.NoteMergeBaseRepository;
 import com.notabene.repository.NoteRepository;
 import com.notabene.repository.NoteVersionRepository;
 import com.notabene.repository.UserRepository;
 import com.notabene.service.memento.NoteVersionManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -34,12 +47,34 @@ public class NoteVersioningService {
     private final NoteVersionRepository noteVersionRepository;
     private final UserRepository userRepository;
     private final NoteVersionManager versionManager;
+    private final TextDiffService textDiffService;
+    private final VersionWriteBehindService versionWriteBehind;
+    private final NoteMergeBaseRepository mergeBaseRepository;
+    
+    @Value("${notabene.versions.coalesce-window-ms:30000}")
+    private long coalesceWindowMillis = 30_000;
+    
+    @Value("${notabene.versions.coalesce-max-ms:300000}")
+    private long coalesceMaxMillis = 300_000;
+    
+    @Value("${notabene.versions.merge-base-ttl-ms:86400000}")
+    private long mergeBaseTtlMillis = 86_400_000;
     
     /**
      * Update a note and create a version if content has changed
      */
     @Transactional
     public Note updateNoteWithVersioning(Long noteId, String newTitle, String newContent, Long editorUserId) {
+        return updateNoteWithVersioning(noteId, newTitle, newContent, editorUserId, null);
+    }
+    
+    /**
+     * Update a note and create a version if content has changed, provided the note is still
+     * at expectedRevision (null skips the check)
+     */
+    @Transactional
+    public Note updateNoteWithVersioning(Long noteId, String newTitle, String newContent, Long editorUserId,
+                                         Long expectedRevision) {
         Note note = noteRepository.findById(noteId)
             .orElseThrow(() -> new IllegalArgumentException("Note not found with id: " + noteId));
         
@@ -47,6 +82,7 @@ public class NoteVersioningService {
         if (!canUserEditNote(note, editorUserId)) {
             throw new SecurityException("User does not have permission to edit this note");
         }
+        checkRevision(note, expectedRevision);
         
         // Check if content has actually changed
         boolean titleChanged = !Objects.equals(note.getTitle(), newTitle);
@@ -57,18 +93,235 @@ public class NoteVersioningService {
             return note;
         }
         
-        // Create version of current state (before updating)
-        versionManager.createVersion(note, editorUserId);
+        // Create version of current state (before updating), unless this edit continues
+        // a burst of edits by the same editor: then the note itself holds the pending state
+        if (findCoalescingTarget(note, editorUserId).isPresent()) {
+            log.debug("Coalescing edit of note {} by user {} into the pending version", noteId, editorUserId);
+            rememberMergeBase(note);
+        } else {
+            snapshot(note, editorUserId);
+        }
         
-        // Update the note
+        // Update the note; a full-text update leaves no delta to reuse
         note.setTitle(newTitle);
         note.setContent(newContent);
         note.setUpdatedAt(LocalDateTime.now());
+        note.clearPendingDelta();
         
         // Set current version pointer to null (indicating the current state is not stored as a version)
         note.setCurrentVersionPointer(null);
         
-        return noteRepository.save(note);
+        return saveAndFlush(note);
+    }
+    
+    /**
+     * Update a note in merge mode: if the note changed after the client's base revision,
+     * the changes base->current and base->new are three-way merged. Non-overlapping changes
+     * are combined and saved; overlapping ones are returned with conflict markers and nothing
+     * is saved. A null title or content leaves that field as in the base.
+     */
+    @Transactional
+    public Note mergeNoteWithVersioning(Long noteId, String baseHash, String newTitle, String newContent,
+                                        Long editorUserId) {
+        Note note = noteRepository.findById(noteId)
+            .orElseThrow(() -> new IllegalArgumentException("Note not found with id: " + noteId));
+        
+        if (!canUserEditNote(note, editorUserId)) {
+            throw new SecurityException("User does not have permission to edit this note");
+        }
+        
+        String currentHash = ContentHash.of(note.getTitle(), note.getContent());
+        if (currentHash.equals(baseHash)) {
+            // Nessuna modifica concorrente: aggiornamento normale
+            return updateNoteWithVersioning(noteId,
+                newTitle != null ? newTitle : note.getTitle(),
+                newContent != null ? newContent : note.getContent(),
+                editorUserId, note.getRevision());
+        }
+        
+        // La base è lo stato su cui il client ha lavorato: una versione, uno snapshot in coda
+        // o uno stato sostituito da una modifica accorpata
+        MergeBase base = findMergeBase(noteId, baseHash)
+            .orElseThrow(() -> new NoteConflictException("Base revision " + baseHash + " of note " + noteId
+                + " is not available for merging", currentHash, note.getRevision()));
+        
+        TextDiffService.MergeResult title = textDiffService.merge(base.title(), note.getTitle(), newTitle);
+        TextDiffService.MergeResult content = textDiffService.merge(base.content(), note.getContent(), newContent);
+        if (title.hasConflicts() || content.hasConflicts()) {
+            int conflicts = title.conflicts() + content.conflicts();
+            throw new NoteMergeConflictException("Merging the edit into note " + noteId + " left " + conflicts
+                + " conflicting changes", currentHash, note.getRevision(), title.text(), content.text(), conflicts);
+        }
+        if (title.text().isBlank() || title.text().length() > Note.MAX_TITLE_LENGTH) {
+            throw new IllegalArgumentException("Merged title must be between 1 and " + Note.MAX_TITLE_LENGTH + " characters");
+        }
+        if (content.text().isBlank() || content.text().length() > Note.MAX_CONTENT_LENGTH) {
+            throw new IllegalArgumentException("Merged content must be between 1 and " + Note.MAX_CONTENT_LENGTH + " characters");
+        }
+        
+        log.info("Merged edit of note {} by user {} with concurrent changes since {}",
+            noteId, editorUserId, base.source());
+        return updateNoteWithVersioning(noteId, title.text(), content.text(), editorUserId, note.getRevision());
+    }
+    
+    /**
+     * Apply insert/delete edits to the title and content of a note, rejecting them if the
+     * note is no longer at the revision (content hash) they were based on.
+     * The edits give the delta from the previous state directly: it is kept on the note
+     * and stored as the version delta when that state is saved, without diffing the texts.
+     */
+    @Transactional
+    public Note patchNoteWithVersioning(Long noteId, String baseHash, List<TextDiffService.TextEdit> titleEdits,
+                                        List<TextDiffService.TextEdit> contentEdits, Long editorUserId) {
+        Note note = noteRepository.findById(noteId)
+            .orElseThrow(() -> new IllegalArgumentException("Note not found with id: " + noteId));
+        
+        if (!canUserEditNote(note, editorUserId)) {
+            throw new SecurityException("User does not have permission to edit this note");
+        }
+        
+        String currentHash = ContentHash.of(note.getTitle(), note.getContent());
+        if (!currentHash.equals(baseHash)) {
+            throw new NoteConflictException("Note " + noteId + " was modified after revision " + baseHash,
+                currentHash, note.getRevision());
+        }
+        
+        TextDiffService.EditResult title = textDiffService.applyEdits(note.getTitle(), titleEdits);
+        TextDiffService.EditResult content = textDiffService.applyEdits(note.getContent(), contentEdits);
+        if (title.text().isBlank() || title.text().length() > Note.MAX_TITLE_LENGTH) {
+            throw new IllegalArgumentException("Title must be between 1 and " + Note.MAX_TITLE_LENGTH + " characters");
+        }
+        if (content.text().isBlank() || content.text().length() > Note.MAX_CONTENT_LENGTH) {
+            throw new IllegalArgumentException("Content must be between 1 and " + Note.MAX_CONTENT_LENGTH + " characters");
+        }
+        if (title.text().equals(note.getTitle()) && content.text().equals(note.getContent())) {
+            return note;
+        }
+        
+        Optional<NoteVersionSummaryDTO> coalescingTarget = findCoalescingTarget(note, editorUserId);
+        if (coalescingTarget.isPresent()) {
+            log.debug("Coalescing patch of note {} by user {} into the pending version", noteId, editorUserId);
+            rememberMergeBase(note);
+            // Il delta in sospeso parte dall'ultima versione salvata: si estende con le nuove modifiche
+            if (coalescingTarget.get().getVersionNumber() != null
+                    && Objects.equals(note.getPendingDeltaBase(), coalescingTarget.get().getVersionNumber())
+                    && note.getPendingTitleDelta() != null && note.getPendingContentDelta() != null) {
+                note.setPendingTitleDelta(textDiffService.composeDeltas(note.getPendingTitleDelta(), title.delta()));
+                note.setPendingContentDelta(textDiffService.composeDeltas(note.getPendingContentDelta(), content.delta()));
+            } else {
+                note.clearPendingDelta();
+            }
+        } else {
+            // Snapshot in coda: il numero della versione non è ancora noto, il delta verrà ricalcolato
+            snapshot(note, editorUserId).ifPresentOrElse(version -> {
+                note.setPendingDeltaBase(version.getVersionNumber());
+                note.setPendingTitleDelta(title.delta());
+                note.setPendingContentDelta(content.delta());
+            }, note::clearPendingDelta);
+        }
+        
+        note.setTitle(title.text());
+        note.setContent(content.text());
+        note.setUpdatedAt(LocalDateTime.now());
+        note.setCurrentVersionPointer(null);
+        
+        return saveAndFlush(note);
+    }
+    
+    private record MergeBase(String title, String content, String source) {}
+    
+    /**
+     * The state with the given hash, from the stored versions, the snapshots waiting in the
+     * write-behind outbox or the states dropped by coalescing, in this order
+     */
+    private Optional<MergeBase> findMergeBase(Long noteId, String baseHash) {
+        Optional<MergeBase> base = noteVersionRepository.findFirstByNoteIdAndContentHashOrderByVersionNumberDesc(noteId, baseHash)
+            .map(version -> new MergeBase(version.getTitle(), version.getContent(), "version " + version.getVersionNumber()));
+        if (base.isEmpty() && versionWriteBehind.isEnabled()) {
+            base = versionWriteBehind.findPending(noteId, baseHash)
+                .map(entry -> new MergeBase(entry.getTitle(), entry.getContent(), "a pending snapshot"));
+        }
+        if (base.isEmpty()) {
+            base = mergeBaseRepository.findById(new NoteMergeBaseId(noteId, baseHash))
+                .map(dropped -> new MergeBase(dropped.getTitle(), dropped.getContent(), "a coalesced state"));
+        }
+        return base;
+    }
+    
+    /**
+     * Keep the state a coalesced edit is about to replace, so that clients that loaded it
+     * can still merge; states older than mergeBaseTtlMillis are removed at the same time
+     */
+    private void rememberMergeBase(Note note) {
+        mergeBaseRepository.remember(note.getId(), ContentHash.of(note.getTitle(), note.getContent()),
+            note.getTitle(), note.getContent());
+        mergeBaseRepository.deleteExpired(note.getId(), LocalDateTime.now().minus(Duration.ofMillis(mergeBaseTtlMillis)));
+    }
+    
+    /**
+     * Store a version of the note's current state, or queue it when versions are written behind.
+     * Returns the stored version, empty if it was queued
+     */
+    private Optional<NoteVersion> snapshot(Note note, Long editorUserId) {
+        if (versionWriteBehind.isEnabled()) {
+            versionWriteBehind.enqueue(note, editorUserId);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(versionManager.createVersion(note, editorUserId));
+    }
+    
+    /**
+     * Reject the edit if the note is no longer at the revision the client based it on
+     */
+    private void checkRevision(Note note, Long expectedRevision) {
+        if (expectedRevision != null && !expectedRevision.equals(note.getRevision())) {
+            throw new NoteConflictException("Note " + note.getId() + " is at revision " + note.getRevision()
+                + ", not " + expectedRevision, ContentHash.of(note.getTitle(), note.getContent()), note.getRevision());
+        }
+    }
+    
+    /**
+     * Save and flush, so that a concurrent update fails here on the optimistic lock
+     * and the returned note carries its new revision
+     */
+    private Note saveAndFlush(Note note) {
+        Note saved = noteRepository.save(note);
+        noteRepository.flush();
+        return saved;
+    }
+    
+    /**
+     * An edit is coalesced when the previous edit of the note was made by the same editor
+     * less than coalesceWindowMillis ago: the state in between is not worth a version.
+     * The burst is capped by coalesceMaxMillis from its first version, so long editing
+     * sessions still leave periodic checkpoints.
+     * With write-behind the latest edit may only be queued: the newest pending snapshot
+     * then decides, since the stored versions do not know about it yet.
+     * Returns the latest version (stored or pending) the edit is coalesced into, if any.
+     */
+    private Optional<NoteVersionSummaryDTO> findCoalescingTarget(Note note, Long editorUserId) {
+        if (coalesceWindowMillis <= 0 || note.getUpdatedAt() == null) {
+            return Optional.empty();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (note.getUpdatedAt().isBefore(now.minus(Duration.ofMillis(coalesceWindowMillis)))) {
+            return Optional.empty();
+        }
+        LocalDateTime burstStart = now.minus(Duration.ofMillis(coalesceMaxMillis));
+        if (versionWriteBehind.isEnabled()) {
+            Optional<VersionOutboxEntry> pending = versionWriteBehind.findLatestPending(note.getId());
+            if (pending.isPresent()) {
+                return pending
+                    .filter(entry -> Objects.equals(entry.getCreatedBy(), editorUserId))
+                    .filter(entry -> !entry.getEnqueuedAt().isBefore(burstStart))
+                    .map(entry -> new NoteVersionSummaryDTO(null, entry.getNoteId(), null, entry.getCreatedBy(), null,
+                        entry.getEnqueuedAt(), false, null, ContentHash.of(entry.getTitle(), entry.getContent())));
+            }
+        }
+        // L'ultima versione salvata è stata creata dall'autore dell'ultima modifica
+        return noteVersionRepository.findLatestSummary(note.getId())
+            .filter(latest -> Objects.equals(latest.getCreatedBy(), editorUserId))
+            .filter(latest -> latest.getCreatedAt() != null && !latest.getCreatedAt().isBefore(burstStart));
     }
     
     /**
@@ -92,29 +345,16 @@ public class NoteVersioningService {
         int currentVersionNumber = storedVersions.isEmpty() ? 1 : storedVersions.get(0).getVersionNumber() + 1;
         
         // Create virtual current version
-        NoteVersion currentVersion = new NoteVersion();
-        currentVersion.setId(-1L); // Virtual ID
-        currentVersion.setNoteId(noteId);
-        currentVersion.setVersionNumber(currentVersionNumber);
-        currentVersion.setTitle(currentNote.getTitle());
-        currentVersion.setContent(currentNote.getContent());
-        currentVersion.setCreatedBy(currentNote.getCreatorId());
-        currentVersion.setNoteCreatorId(currentNote.getCreatorId());
-        currentVersion.setCreatedAt(currentNote.getUpdatedAt() != null ? currentNote.getUpdatedAt() : currentNote.getCreatedAt());
-        currentVersion.setOriginalCreatedAt(currentNote.getCreatedAt());
-        currentVersion.setOriginalUpdatedAt(currentNote.getUpdatedAt() != null ? currentNote.getUpdatedAt() : currentNote.getCreatedAt());
-        
-        // Check if current state matches any stored version (indicating a restore)
-        NoteVersion matchingVersion = null;
-        for (NoteVersion stored : storedVersions) {
-            boolean titleMatches = Objects.equals(currentNote.getTitle(), stored.getTitle());
-            boolean contentMatches = Objects.equals(currentNote.getContent(), stored.getContent());
-            
-            if (titleMatches && contentMatches) {
-                matchingVersion = stored;
-                break;
-            }
-        }
+        NoteVersion currentVersion = createCurrentVersion(currentNote, currentVersionNumber);
+        
+        // Check if current state matches any stored version (indicating a restore) with an indexed hash lookup
+        String currentHash = currentNote.getContentHash() != null
+            ? currentNote.getContentHash()
+            : ContentHash.of(currentNote.getTitle(), currentNote.getContent());
+        NoteVersion matchingVersion = noteVersionRepository.findFirstByNoteIdAndContentHashOrderByVersionNumberDesc(noteId, currentHash)
+            .filter(stored -> Objects.equals(currentNote.getTitle(), stored.getTitle())
+                && Objects.equals(currentNote.getContent(), stored.getContent()))
+            .orElse(null);
         
         // If current state matches a stored version, mark it as restored
         if (matchingVersion != null) {
@@ -123,14 +363,6 @@ public class NoteVersioningService {
             currentVersion.setRestoredFromVersion(matchingVersion.getVersionNumber());
         }
         
-        // Copy permissions
-        if (currentNote.getReaders() != null) {
-            currentVersion.setReaders(new ArrayList<>(currentNote.getReaders()));
-        }
-        if (currentNote.getWriters() != null) {
-            currentVersion.setWriters(new ArrayList<>(currentNote.getWriters()));
-        }
-        
         // Always return all versions: current virtual version first, then all stored versions
         List<NoteVersion> allVersions = new ArrayList<>();
         allVersions.add(currentVersion);
@@ -144,6 +376,15 @@ public class NoteVersioningService {
      * This simply changes which version is "current" and updates note content
      */
     public Note restoreToVersion(Long noteId, Integer versionNumber, Long editorUserId) {
+        return restoreToVersion(noteId, versionNumber, editorUserId, null);
+    }
+    
+    /**
+     * Restore a note to a specific version, provided the note is still at expectedRevision
+     * (null skips the check)
+     */
+    @Transactional
+    public Note restoreToVersion(Long noteId, Integer versionNumber, Long editorUserId, Long expectedRevision) {
         
         Note note = noteRepository.findById(noteId)
             .orElseThrow(() -> new IllegalArgumentException("Note not found with id: " + noteId));
@@ -152,6 +393,7 @@ public class NoteVersioningService {
         if (!canUserEditNote(note, editorUserId)) {
             throw new SecurityException("User does not have permission to edit this note");
         }
+        checkRevision(note, expectedRevision);
         
         // Find the target version
         NoteVersion targetVersion = noteVersionRepository.findByNoteIdAndVersionNumber(noteId, versionNumber)
@@ -160,7 +402,7 @@ public class NoteVersioningService {
         
         try {
             // Save current state as a version before switching (to preserve current content)
-            versionManager.createVersion(note, editorUserId);
+            snapshot(note, editorUserId);
             
             // Update note content to match the target version
             note.setTitle(targetVersion.getTitle());
@@ -179,9 +421,10 @@ public class NoteVersioningService {
             
             // Set current version pointer to null (current state is now live, not stored)
             note.setCurrentVersionPointer(null);
+            note.clearPendingDelta();
             
             // Save the note - this becomes the new current state
-            Note savedNote = noteRepository.save(note);
+            Note savedNote = saveAndFlush(note);
             
             log.info("Successfully restored note {} to version {} - no new version created", noteId, versionNumber);
             return savedNote;
@@ -225,32 +468,65 @@ public class NoteVersioningService {
         
         // If requested version is the current version, create virtual version
         if (versionNumber == currentVersionNumber) {
-            NoteVersion currentVersion = new NoteVersion();
-            currentVersion.setId(-1L); // Virtual ID
-            currentVersion.setNoteId(noteId);
-            currentVersion.setVersionNumber(versionNumber);
-            currentVersion.setTitle(note.getTitle());
-            currentVersion.setContent(note.getContent());
-            currentVersion.setCreatedBy(note.getCreatorId());
-            currentVersion.setNoteCreatorId(note.getCreatorId());
-            currentVersion.setCreatedAt(note.getUpdatedAt() != null ? note.getUpdatedAt() : note.getCreatedAt());
-            currentVersion.setOriginalCreatedAt(note.getCreatedAt());
-            currentVersion.setOriginalUpdatedAt(note.getUpdatedAt() != null ? note.getUpdatedAt() : note.getCreatedAt());
-            
-            // Copy permissions
-            if (note.getReaders() != null) {
-                currentVersion.setReaders(new ArrayList<>(note.getReaders()));
-            }
-            if (note.getWriters() != null) {
-                currentVersion.setWriters(new ArrayList<>(note.getWriters()));
-            }
-            
-            return Optional.of(currentVersion);
+            return Optional.of(createCurrentVersion(note, versionNumber));
         }
         
         return Optional.empty();
     }
     
+    /**
+     * Get several versions of a note, keyed by version number.
+     * Stored versions are loaded with a single query; the current state is added
+     * as a virtual version if requested. Missing versions are simply absent.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, NoteVersion> getVersions(Long noteId, Collection<Integer> versionNumbers) {
+        Set<Integer> requested = new HashSet<>(versionNumbers);
+        Map<Integer, NoteVersion> versions = new HashMap<>();
+        for (NoteVersion version : noteVersionRepository.findByNoteIdAndVersionNumberIn(noteId, requested)) {
+            versions.put(version.getVersionNumber(), version);
+        }
+        
+        if (versions.size() < requested.size()) {
+            // Alcune versioni mancano: potrebbe essere richiesta la versione corrente (virtuale)
+            noteRepository.findById(noteId).ifPresent(note -> {
+                int currentVersionNumber = noteVersionRepository.findFirstByNoteIdOrderByVersionNumberDesc(noteId)
+                    .map(latest -> latest.getVersionNumber() + 1)
+                    .orElse(1);
+                if (requested.contains(currentVersionNumber) && !versions.containsKey(currentVersionNumber)) {
+                    versions.put(currentVersionNumber, createCurrentVersion(note, currentVersionNumber));
+                }
+            });
+        }
+        return versions;
+    }
+    
+    /**
+     * Build the virtual version representing the current state of a note
+     */
+    private NoteVersion createCurrentVersion(Note note, Integer versionNumber) {
+        NoteVersion currentVersion = new NoteVersion();
+        currentVersion.setId(-1L); // Virtual ID
+        currentVersion.setNoteId(note.getId());
+        currentVersion.setVersionNumber(versionNumber);
+        currentVersion.setTitle(note.getTitle());
+        currentVersion.setContent(note.getContent());
+        currentVersion.setCreatedBy(note.getCreatorId());
+        currentVersion.setNoteCreatorId(note.getCreatorId());
+        currentVersion.setCreatedAt(note.getUpdatedAt() != null ? note.getUpdatedAt() : note.getCreatedAt());
+        currentVersion.setOriginalCreatedAt(note.getCreatedAt());
+        currentVersion.setOriginalUpdatedAt(note.getUpdatedAt() != null ? note.getUpdatedAt() : note.getCreatedAt());
+        
+        // Copy permissions
+        if (note.getReaders() != null) {
+            currentVersion.setReaders(new ArrayList<>(note.getReaders()));
+        }
+        if (note.getWriters() != null) {
+            currentVersion.setWriters(new ArrayList<>(note.getWriters()));
+        }
+        return currentVersion;
+    }
+    
     /**
      * Get version history with usernames for display
      */
@@ -284,6 +560,74 @@ public class NoteVersioningService {
             .collect(Collectors.toList());
     }
     
+    /**
+     * Get version metadata for the history panel: the stored versions come from a single
+     * metadata-only query and the current state is added as the highest (virtual) version.
+     * Version bodies are fetched separately with getVersionContent.
+     */
+    @Transactional(readOnly = true)
+    public List<NoteVersionSummaryDTO> getVersionSummaries(Note note) {
+        List<NoteVersionSummaryDTO> storedVersions = noteVersionRepository.findSummariesByNoteId(note.getId());
+        
+        int currentVersionNumber = storedVersions.isEmpty() ? 1 : storedVersions.get(0).getVersionNumber() + 1;
+        NoteVersionSummaryDTO currentVersion = new NoteVersionSummaryDTO();
+        currentVersion.setId(-1L); // Virtual ID
+        currentVersion.setNoteId(note.getId());
+        currentVersion.setVersionNumber(currentVersionNumber);
+        currentVersion.setCreatedBy(note.getCreatorId());
+        currentVersion.setCreatedAt(note.getUpdatedAt() != null ? note.getUpdatedAt() : note.getCreatedAt());
+        currentVersion.setIsRestored(false);
+        
+        // Stato ripristinato: la versione più recente con lo stesso hash (la lista è già ordinata)
+        String currentHash = note.getContentHash() != null
+            ? note.getContentHash()
+            : ContentHash.of(note.getTitle(), note.getContent());
+        storedVersions.stream()
+            .filter(stored -> currentHash.equals(stored.getContentHash()))
+            .findFirst()
+            .ifPresent(stored -> {
+                currentVersion.setIsRestored(true);
+                currentVersion.setRestoredFromVersion(stored.getVersionNumber());
+            });
+        
+        // Il nome dell'autore è già nella lista se ha creato almeno una versione
+        String creatorUsername = storedVersions.stream()
+            .filter(stored -> Objects.equals(stored.getCreatedBy(), note.getCreatorId()))
+            .map(NoteVersionSummaryDTO::getCreatedByUsername)
+            .findFirst()
+            .orElse(null);
+        if (creatorUsername == null && note.getCreatorId() != null) {
+            creatorUsername = userRepository.findUsernamesByIds(List.of(note.getCreatorId())).stream()
+                .map(result -> (String) result[1])
+                .findFirst()
+                .orElse(null);
+        }
+        currentVersion.setCreatedByUsername(creatorUsername);
+        
+        List<NoteVersionSummaryDTO> allVersions = new ArrayList<>(storedVersions.size() + 1);
+        allVersions.add(currentVersion);
+        allVersions.addAll(storedVersions);
+        return allVersions;
+    }
+    
+    /**
+     * Get the title and content of a single version, stored or current
+     */
+    @Transactional(readOnly = true)
+    public Optional<NoteVersionContentDTO> getVersionContent(Note note, Integer versionNumber) {
+        Optional<NoteVersionContentDTO> stored = noteVersionRepository.findContentByNoteIdAndVersionNumber(note.getId(), versionNumber);
+        if (stored.isPresent()) {
+            return stored;
+        }
+        
+        Integer latestStored = noteVersionRepository.findMaxVersionNumber(note.getId());
+        int currentVersionNumber = latestStored == null ? 1 : latestStored + 1;
+        if (versionNumber == currentVersionNumber) {
+            return Optional.of(new NoteVersionContentDTO(versionNumber, note.getTitle(), note.getContent()));
+        }
+        return Optional.empty();
+    }
+    
     /**
      * Convert NoteVersion to NoteVersionDTO with username
      */
@@ -308,9 +652,10 @@ public class NoteVersioningService {
     }
     
     /**
-     * Check if a user can edit a note
+     * Check if a user can edit a note, directly or through a group share
      */
     private boolean canUserEditNote(Note note, Long userId) {
-        return note.isCreator(userId) || note.hasWritePermission(userId);
+        return note.isCreator(userId) || note.hasWritePermission(userId)
+            || noteRepository.hasGroupWriteAccess(note.getId(), userId);
     }
 }
@@ -0,0 +1,194 @@
+package com.notabene.service;
+
+import com.notabene.dto.TextDiffDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact, self-contained encoding of a diff, used to store the delta between
+ * consecutive versions.
+ * Ops are tab separated: "=n" keeps n chars, "-n" removes n chars and "+text"
+ * inserts text ('%' and tab are percent-encoded). Replayed over the left text
+ * a delta yields the right text, so deltas can be composed without the
+ * intermediate texts.
+ */
+final class TextDelta {
+
+    private TextDelta() {}
+
+    /**
+     * Single delta operation; {@code text} is only set for ADDED
+     */
+    record Op(TextDiffDTO.DiffType type, int length, String text) {
+
+        static Op added(String text) {
+            return new Op(TextDiffDTO.DiffType.ADDED, text.length(), text);
+        }
+    }
+
+    /**
+     * Encode merged diff chunks as a delta string
+     */
+    static String encode(List<TextDiffService.Chunk> chunks) {
+        StringBuilder delta = new StringBuilder();
+        for (TextDiffService.Chunk chunk : chunks) {
+            if (delta.length() > 0) {
+                delta.append('\t');
+            }
+            switch (chunk.type) {
+                case EQUAL -> delta.append('=').append(chunk.text.length());
+                case REMOVED -> delta.append('-').append(chunk.text.length());
+                case ADDED -> delta.append('+').append(escape(chunk.text.toString()));
+            }
+        }
+        return delta.toString();
+    }
+
+    /**
+     * Encode ops as a delta string, merging adjacent ops of the same type
+     */
+    static String encodeOps(List<Op> ops) {
+        List<Op> merged = new ArrayList<>(ops.size());
+        for (Op op : ops) {
+            if (op.length() == 0) {
+                continue;
+            }
+            Op last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && last.type() == op.type()) {
+                merged.set(merged.size() - 1, op.type() == TextDiffDTO.DiffType.ADDED
+                    ? Op.added(last.text() + op.text())
+                    : new Op(op.type(), last.length() + op.length(), null));
+            } else {
+                merged.add(op);
+            }
+        }
+
+        StringBuilder delta = new StringBuilder();
+        for (Op op : merged) {
+            if (delta.length() > 0) {
+                delta.append('\t');
+            }
+            switch (op.type()) {
+                case EQUAL -> delta.append('=').append(op.length());
+                case REMOVED -> delta.append('-').append(op.length());
+                case ADDED -> delta.append('+').append(escape(op.text()));
+            }
+        }
+        return delta.toString();
+    }
+
+    /**
+     * Parse a delta string into ops
+     */
+    static List<Op> parse(String delta) {
+        List<Op> ops = new ArrayList<>();
+        if (delta == null || delta.isEmpty()) {
+            return ops;
+        }
+        for (String token : delta.split("\t", -1)) {
+            if (token.isEmpty()) {
+                throw new IllegalArgumentException("Empty delta token");
+            }
+            String param = token.substring(1);
+            switch (token.charAt(0)) {
+                case '=' -> ops.add(new Op(TextDiffDTO.DiffType.EQUAL, parseLength(param), null));
+                case '-' -> ops.add(new Op(TextDiffDTO.DiffType.REMOVED, parseLength(param), null));
+                case '+' -> ops.add(Op.added(unescape(param)));
+                default -> throw new IllegalArgumentException("Invalid delta operation: " + token.charAt(0));
+            }
+        }
+        return ops;
+    }
+
+    /**
+     * Compose a delta A->B with a delta B->C into a delta A->C.
+     * The result is a valid edit script but not necessarily a minimal one.
+     */
+    static List<Op> compose(List<Op> first, List<Op> second) {
+        List<Op> composed = new ArrayList<>();
+        int index = 0;
+        int consumed = 0;
+
+        for (Op op : second) {
+            if (op.type() == TextDiffDTO.DiffType.ADDED) {
+                composed.add(op);
+                continue;
+            }
+            // EQUAL e REMOVED consumano testo di B, prodotto da EQUAL/ADDED del primo delta
+            int remaining = op.length();
+            while (remaining > 0) {
+                if (index >= first.size()) {
+                    throw new IllegalArgumentException("Deltas do not chain");
+                }
+                Op base = first.get(index);
+                if (base.type() == TextDiffDTO.DiffType.REMOVED) {
+                    composed.add(base);
+                    index++;
+                    continue;
+                }
+                int take = Math.min(base.length() - consumed, remaining);
+                if (base.type() == TextDiffDTO.DiffType.EQUAL) {
+                    composed.add(new Op(op.type(), take, null));
+                } else if (op.type() == TextDiffDTO.DiffType.EQUAL) {
+                    composed.add(Op.added(base.text().substring(consumed, consumed + take)));
+                }
+                // Testo aggiunto e poi rimosso: non compare nel risultato
+                consumed += take;
+                remaining -= take;
+                if (consumed == base.length()) {
+                    index++;
+                    consumed = 0;
+                }
+            }
+        }
+
+        for (; index < first.size(); index++) {
+            Op base = first.get(index);
+            if (base.type() != TextDiffDTO.DiffType.REMOVED || consumed > 0) {
+                throw new IllegalArgumentException("Deltas do not chain");
+            }
+            composed.add(base);
+        }
+        return composed;
+    }
+
+    /**
+     * Replay ops over the left text, producing diff chunks
+     */
+    static List<TextDiffService.Chunk> toChunks(String left, List<Op> ops) {
+        List<TextDiffService.Chunk> chunks = new ArrayList<>(ops.size());
+        int offset = 0;
+        for (Op op : ops) {
+            if (op.type() == TextDiffDTO.DiffType.ADDED) {
+                chunks.add(new TextDiffService.Chunk(op.type(), op.text()));
+                continue;
+            }
+            if (offset + op.length() > left.length()) {
+                throw new IllegalArgumentException("Delta is longer than the source text");
+            }
+            chunks.add(new TextDiffService.Chunk(op.type(), left.substring(offset, offset + op.length())));
+            offset += op.length();
+        }
+        if (offset != left.length()) {
+            throw new IllegalArgumentException("Delta does not cover the source text");
+        }
+        return chunks;
+    }
+
+    private static int parseLength(String value) {
+        int length = Integer.parseInt(value);
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative delta length: " + length);
+        }
+        return length;
+    }
+
+    private static String escape(String text) {
+        return text.replace("%", "%25").replace("\t", "%09");
+    }
+
+    private static String unescape(String text) {
+        return text.replace("%09", "\t").replace("%25", "%");
+    }
+}
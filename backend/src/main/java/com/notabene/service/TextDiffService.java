@@ -1,121 +1,861 @@
 package com.notabene.service;
 
+import com.notabene.dto.CompactTextDiffDTO;
 import com.notabene.dto.TextDiffDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 
 /**
- * Service for calculating text differences character by character
+ * Service for calculating text differences at character, word or line granularity.
+ * Every diff is bounded by a deadline and an edit-distance cap: past either limit
+ * the changed middle of the texts is reported as a single replacement and the
+ * result is flagged as not exact.
  */
 @Service
+@Slf4j
 public class TextDiffService {
-    
+
+    static final String TRUNCATED_METRIC = "notabene.diff.truncated";
+
+    /**
+     * Unit used to split texts before diffing
+     */
+    public enum Granularity {
+        CHAR,
+        WORD,
+        LINE;
+
+        /**
+         * Parse a granularity from a request parameter (case-insensitive, defaults to CHAR)
+         */
+        public static Granularity from(String value) {
+            if (value == null || value.isBlank()) {
+                return CHAR;
+            }
+            try {
+                return Granularity.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported diff granularity: " + value);
+            }
+        }
+    }
+
     /**
-     * Calculate differences between two texts using a simple diff algorithm
+     * Per-request diff limits; null values fall back to the configured defaults.
+     * Requested limits can only tighten the configured ones.
+     */
+    public record DiffLimits(Long timeoutMillis, Integer maxEditDistance) {
+
+        public static final DiffLimits DEFAULT = new DiffLimits(null, null);
+
+        /**
+         * Build limits from request parameters, rejecting non-positive values
+         */
+        public static DiffLimits of(Long timeoutMillis, Integer maxEditDistance) {
+            if (timeoutMillis != null && timeoutMillis <= 0) {
+                throw new IllegalArgumentException("Diff timeout must be positive: " + timeoutMillis);
+            }
+            if (maxEditDistance != null && maxEditDistance <= 0) {
+                throw new IllegalArgumentException("Max edit distance must be positive: " + maxEditDistance);
+            }
+            return new DiffLimits(timeoutMillis, maxEditDistance);
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notabene.diff.timeout-ms:500}")
+    private long timeoutMillis = 500;
+
+    // Il trace di Myers cresce come d^2: il limite tiene sotto controllo anche la memoria
+    @Value("${notabene.diff.max-edit-distance:2000}")
+    private int maxEditDistance = 2000;
+
+    public TextDiffService() {
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public TextDiffService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Calculate differences between two texts character by character
      */
     public TextDiffDTO calculateDiff(String leftText, String rightText) {
+        return calculateDiff(leftText, rightText, Granularity.CHAR);
+    }
+
+    /**
+     * Calculate differences between two texts at the requested granularity.
+     * Texts are tokenized, the token sequences are diffed with Myers' algorithm
+     * and tiny equalities are then folded into the surrounding edits.
+     */
+    public TextDiffDTO calculateDiff(String leftText, String rightText, Granularity granularity) {
+        return calculateDiff(leftText, rightText, granularity, DiffLimits.DEFAULT);
+    }
+
+    /**
+     * Calculate differences at the requested granularity within the given limits
+     */
+    public TextDiffDTO calculateDiff(String leftText, String rightText, Granularity granularity, DiffLimits limits) {
         if (leftText == null) leftText = "";
         if (rightText == null) rightText = "";
-        
+        if (granularity == null) granularity = Granularity.CHAR;
+
+        Diff diff = computeChunks(leftText, rightText, granularity, limits);
+        List<Chunk> chunks = diff.chunks();
+
         // Calcola i segmenti di differenza
         List<TextDiffDTO.DiffSegment> leftSegments = new ArrayList<>();
         List<TextDiffDTO.DiffSegment> rightSegments = new ArrayList<>();
-        
-        // Implementazione semplificata di diff - algoritmo Myers semplificato
-        calculateDiffSegments(leftText, rightText, leftSegments, rightSegments);
-        
-        return new TextDiffDTO(leftText, rightText, leftSegments, rightSegments);
-    }
-    
-    /**
-     * Calcola i segmenti di differenza usando un algoritmo di programmazione dinamica
-     */
-    private void calculateDiffSegments(String left, String right, 
-                                     List<TextDiffDTO.DiffSegment> leftSegments,
-                                     List<TextDiffDTO.DiffSegment> rightSegments) {
-        
-        int leftLen = left.length();
-        int rightLen = right.length();
-        
-        // Matrice DP per LCS (Longest Common Subsequence)
-        int[][] dp = new int[leftLen + 1][rightLen + 1];
-        
-        // Riempi la matrice DP
-        for (int i = 1; i <= leftLen; i++) {
-            for (int j = 1; j <= rightLen; j++) {
-                if (left.charAt(i - 1) == right.charAt(j - 1)) {
-                    dp[i][j] = dp[i - 1][j - 1] + 1;
+        for (Chunk chunk : chunks) {
+            TextDiffDTO.DiffSegment segment = new TextDiffDTO.DiffSegment(chunk.text.toString(), chunk.type);
+            switch (chunk.type) {
+                case EQUAL, REMOVED -> {
+                    leftSegments.add(segment);
+                    rightSegments.add(segment);
+                }
+                case ADDED -> rightSegments.add(segment);
+            }
+        }
+
+        return new TextDiffDTO(leftText, rightText, leftSegments, rightSegments, diff.exact());
+    }
+
+    /**
+     * Calculate differences as offset-based edit operations over the two texts
+     */
+    public CompactTextDiffDTO calculateCompactDiff(String leftText, String rightText, Granularity granularity) {
+        return calculateCompactDiff(leftText, rightText, granularity, DiffLimits.DEFAULT);
+    }
+
+    /**
+     * Calculate offset-based edit operations within the given limits
+     */
+    public CompactTextDiffDTO calculateCompactDiff(String leftText, String rightText, Granularity granularity,
+                                                   DiffLimits limits) {
+        if (leftText == null) leftText = "";
+        if (rightText == null) rightText = "";
+        if (granularity == null) granularity = Granularity.CHAR;
+
+        Diff diff = computeChunks(leftText, rightText, granularity, limits);
+        return new CompactTextDiffDTO(leftText, rightText, toEditOps(diff.chunks()), diff.exact());
+    }
+
+    /**
+     * Expand a compact diff into highlighted segments (REMOVED text appears on both sides)
+     */
+    public TextDiffDTO toSegments(CompactTextDiffDTO compact) {
+        String leftText = compact.getLeftText();
+        String rightText = compact.getRightText();
+        List<TextDiffDTO.DiffSegment> leftSegments = new ArrayList<>();
+        List<TextDiffDTO.DiffSegment> rightSegments = new ArrayList<>();
+        for (CompactTextDiffDTO.EditOp op : compact.getOps()) {
+            if (op.getOp() == TextDiffDTO.DiffType.ADDED) {
+                String text = rightText.substring(op.getRightOffset(), op.getRightOffset() + op.getLength());
+                rightSegments.add(new TextDiffDTO.DiffSegment(text, op.getOp()));
+            } else {
+                String text = leftText.substring(op.getLeftOffset(), op.getLeftOffset() + op.getLength());
+                TextDiffDTO.DiffSegment segment = new TextDiffDTO.DiffSegment(text, op.getOp());
+                leftSegments.add(segment);
+                rightSegments.add(segment);
+            }
+        }
+        return new TextDiffDTO(leftText, rightText, leftSegments, rightSegments, compact.isExact());
+    }
+
+    /**
+     * Calculate the character-level delta that turns leftText into rightText,
+     * in the compact form stored alongside versions.
+     * Returns null when the diff hit its limits, so that no coarse delta is stored.
+     */
+    public String calculateDelta(String leftText, String rightText) {
+        if (leftText == null) leftText = "";
+        if (rightText == null) rightText = "";
+        Diff diff = computeChunks(leftText, rightText, Granularity.CHAR, DiffLimits.DEFAULT);
+        return diff.exact() ? TextDelta.encode(diff.chunks()) : null;
+    }
+
+    /**
+     * Rebuild a compact diff by replaying stored deltas (composed in order) over leftText.
+     * Returns empty if the deltas are malformed or do not produce rightText,
+     * so callers can fall back to a fresh diff.
+     */
+    public Optional<CompactTextDiffDTO> compactDiffFromDeltas(String leftText, String rightText, List<String> deltas) {
+        if (leftText == null) leftText = "";
+        if (rightText == null) rightText = "";
+        if (deltas == null || deltas.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            List<TextDelta.Op> ops = TextDelta.parse(deltas.get(0));
+            for (int i = 1; i < deltas.size(); i++) {
+                ops = TextDelta.compose(ops, TextDelta.parse(deltas.get(i)));
+            }
+            List<Chunk> chunks = TextDelta.toChunks(leftText, ops);
+            mergeChunks(chunks);
+            if (deltas.size() > 1) {
+                // La composizione non è minima: riapplica la pulizia semantica
+                cleanupSemantic(chunks);
+            }
+
+            StringBuilder rebuilt = new StringBuilder(rightText.length());
+            for (Chunk chunk : chunks) {
+                if (chunk.type != TextDiffDTO.DiffType.REMOVED) {
+                    rebuilt.append(chunk.text);
+                }
+            }
+            if (!rightText.contentEquals(rebuilt)) {
+                return Optional.empty();
+            }
+            return Optional.of(new CompactTextDiffDTO(leftText, rightText, toEditOps(chunks)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Apply insert/delete edits to a text, in order: each offset refers to the text
+     * produced by the previous edits, in UTF-16 code units (as string indices in the client).
+     * Returns the edited text together with the delta from the original text, so the
+     * edits can be stored as a version delta without diffing.
+     */
+    public EditResult applyEdits(String text, List<TextEdit> edits) {
+        if (text == null) text = "";
+        StringBuilder current = new StringBuilder(text);
+        List<TextDelta.Op> ops = new ArrayList<>();
+        if (!text.isEmpty()) {
+            ops.add(new TextDelta.Op(TextDiffDTO.DiffType.EQUAL, text.length(), null));
+        }
+
+        for (TextEdit edit : edits) {
+            int length = current.length();
+            if (edit.offset() < 0 || edit.offset() > length) {
+                throw new IllegalArgumentException("Edit offset " + edit.offset() + " is outside the text (length " + length + ")");
+            }
+            List<TextDelta.Op> step = new ArrayList<>(3);
+            step.add(new TextDelta.Op(TextDiffDTO.DiffType.EQUAL, edit.offset(), null));
+            int tail;
+            if (edit.type() == TextEdit.Type.INSERT) {
+                if (edit.text() == null || edit.text().isEmpty()) {
+                    throw new IllegalArgumentException("Insert at offset " + edit.offset() + " has no text");
+                }
+                current.insert(edit.offset(), edit.text());
+                step.add(TextDelta.Op.added(edit.text()));
+                tail = length - edit.offset();
+            } else {
+                if (edit.length() <= 0 || edit.offset() + edit.length() > length) {
+                    throw new IllegalArgumentException("Delete of " + edit.length() + " chars at offset " + edit.offset()
+                        + " is outside the text (length " + length + ")");
+                }
+                current.delete(edit.offset(), edit.offset() + edit.length());
+                step.add(new TextDelta.Op(TextDiffDTO.DiffType.REMOVED, edit.length(), null));
+                tail = length - edit.offset() - edit.length();
+            }
+            step.add(new TextDelta.Op(TextDiffDTO.DiffType.EQUAL, tail, null));
+            step.removeIf(op -> op.length() == 0);
+            ops = TextDelta.compose(ops, step);
+        }
+        return new EditResult(current.toString(), TextDelta.encodeOps(ops));
+    }
+
+    /**
+     * Compose a delta A->B with a delta B->C into a delta A->C
+     */
+    public String composeDeltas(String first, String second) {
+        return TextDelta.encodeOps(TextDelta.compose(TextDelta.parse(first), TextDelta.parse(second)));
+    }
+
+    /**
+     * Check that replaying a stored delta over leftText yields rightText
+     */
+    public boolean deltaProduces(String leftText, String delta, String rightText) {
+        if (leftText == null) leftText = "";
+        if (rightText == null) rightText = "";
+        try {
+            StringBuilder rebuilt = new StringBuilder(rightText.length());
+            for (Chunk chunk : TextDelta.toChunks(leftText, TextDelta.parse(delta))) {
+                if (chunk.type != TextDiffDTO.DiffType.REMOVED) {
+                    rebuilt.append(chunk.text);
+                }
+            }
+            return rightText.contentEquals(rebuilt);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Single insert or delete at an offset of the text
+     */
+    public record TextEdit(Type type, int offset, int length, String text) {
+
+        public enum Type { INSERT, DELETE }
+
+        public static TextEdit insert(int offset, String text) {
+            return new TextEdit(Type.INSERT, offset, text == null ? 0 : text.length(), text);
+        }
+
+        public static TextEdit delete(int offset, int length) {
+            return new TextEdit(Type.DELETE, offset, length, null);
+        }
+    }
+
+    /**
+     * Text after applying edits, with the delta from the original text
+     */
+    public record EditResult(String text, String delta) {}
+
+    // Marcatori dei conflitti nel testo unito, come in git
+    static final String CONFLICT_START = "<<<<<<< theirs\n";
+    static final String CONFLICT_SEPARATOR = "\n=======\n";
+    static final String CONFLICT_END = "\n>>>>>>> ours";
+
+    /**
+     * Three-way merge: apply the changes base->theirs and base->ours together.
+     * Both sides are diffed against the base at word granularity; changes touching
+     * different parts of the base are combined, identical changes are applied once and
+     * only overlapping, different changes are reported as conflicts, wrapped in
+     * conflict markers (theirs first) in the merged text.
+     */
+    public MergeResult merge(String base, String theirs, String ours) {
+        if (base == null) base = "";
+        if (theirs == null) theirs = base;
+        if (ours == null) ours = base;
+        if (theirs.equals(ours) || ours.equals(base)) return new MergeResult(theirs, 0);
+        if (theirs.equals(base)) return new MergeResult(ours, 0);
+
+        List<Hunk> hunks = new ArrayList<>();
+        hunks.addAll(toHunks(calculateCompactDiff(base, theirs, Granularity.WORD), true));
+        hunks.addAll(toHunks(calculateCompactDiff(base, ours, Granularity.WORD), false));
+        hunks.sort(Comparator.comparingInt(Hunk::start).thenComparingInt(Hunk::end));
+
+        StringBuilder merged = new StringBuilder(Math.max(theirs.length(), ours.length()));
+        int conflicts = 0;
+        int position = 0;
+        int index = 0;
+        while (index < hunks.size()) {
+            // Gruppo di modifiche che si sovrappongono sul testo base
+            List<Hunk> group = new ArrayList<>();
+            group.add(hunks.get(index++));
+            int groupStart = group.get(0).start();
+            int groupEnd = group.get(0).end();
+            while (index < hunks.size() && overlaps(hunks.get(index), group, groupEnd)) {
+                groupEnd = Math.max(groupEnd, hunks.get(index).end());
+                group.add(hunks.get(index++));
+            }
+
+            merged.append(base, position, groupStart);
+            String theirsText = applyHunks(base, groupStart, groupEnd, group, true);
+            String oursText = applyHunks(base, groupStart, groupEnd, group, false);
+            boolean theirsChanged = group.stream().anyMatch(Hunk::theirs);
+            boolean oursChanged = group.stream().anyMatch(hunk -> !hunk.theirs());
+            if (!oursChanged || theirsText.equals(oursText)) {
+                merged.append(theirsText);
+            } else if (!theirsChanged) {
+                merged.append(oursText);
+            } else {
+                conflicts++;
+                merged.append(CONFLICT_START).append(theirsText)
+                      .append(CONFLICT_SEPARATOR).append(oursText)
+                      .append(CONFLICT_END);
+            }
+            position = groupEnd;
+        }
+        merged.append(base, position, base.length());
+        return new MergeResult(merged.toString(), conflicts);
+    }
+
+    /**
+     * Merged text and number of conflicting regions it contains
+     */
+    public record MergeResult(String text, int conflicts) {
+
+        public boolean hasConflicts() {
+            return conflicts > 0;
+        }
+    }
+
+    /**
+     * Change of one side over the base range [start, end)
+     */
+    private record Hunk(int start, int end, String text, boolean theirs) {}
+
+    /**
+     * Group the non-equal ops of a diff into hunks over the left (base) text
+     */
+    private List<Hunk> toHunks(CompactTextDiffDTO diff, boolean theirs) {
+        List<Hunk> hunks = new ArrayList<>();
+        String right = diff.getRightText();
+        int start = -1;
+        int end = 0;
+        StringBuilder text = new StringBuilder();
+        for (CompactTextDiffDTO.EditOp op : diff.getOps()) {
+            if (op.getOp() == TextDiffDTO.DiffType.EQUAL) {
+                if (start >= 0) {
+                    hunks.add(new Hunk(start, end, text.toString(), theirs));
+                    start = -1;
+                    text.setLength(0);
+                }
+                end = op.getLeftOffset() + op.getLength();
+                continue;
+            }
+            if (start < 0) {
+                start = op.getOp() == TextDiffDTO.DiffType.REMOVED ? op.getLeftOffset() : end;
+                end = start;
+            }
+            if (op.getOp() == TextDiffDTO.DiffType.REMOVED) {
+                end = op.getLeftOffset() + op.getLength();
+            } else {
+                text.append(right, op.getRightOffset(), op.getRightOffset() + op.getLength());
+            }
+        }
+        if (start >= 0) {
+            hunks.add(new Hunk(start, end, text.toString(), theirs));
+        }
+        return hunks;
+    }
+
+    /**
+     * A hunk joins a group if it overlaps its base range, or if it is an insertion at the
+     * same point as another insertion of the group (their order would be ambiguous)
+     */
+    private boolean overlaps(Hunk hunk, List<Hunk> group, int groupEnd) {
+        if (hunk.start() < groupEnd) {
+            return true;
+        }
+        return hunk.start() == hunk.end() && hunk.start() == groupEnd
+            && group.stream().anyMatch(other -> other.start() == other.end() && other.start() == hunk.start());
+    }
+
+    /**
+     * Text of the base range [start, end) with the hunks of one side applied
+     */
+    private String applyHunks(String base, int start, int end, List<Hunk> group, boolean theirs) {
+        StringBuilder text = new StringBuilder();
+        int position = start;
+        for (Hunk hunk : group) {
+            if (hunk.theirs() != theirs) continue;
+            text.append(base, position, hunk.start()).append(hunk.text());
+            position = hunk.end();
+        }
+        text.append(base, position, end);
+        return text.toString();
+    }
+
+    /**
+     * Convert chunks into edit operations, tracking the offset reached on each side
+     */
+    private List<CompactTextDiffDTO.EditOp> toEditOps(List<Chunk> chunks) {
+        List<CompactTextDiffDTO.EditOp> ops = new ArrayList<>(chunks.size());
+        int leftOffset = 0;
+        int rightOffset = 0;
+        for (Chunk chunk : chunks) {
+            int length = chunk.text.length();
+            ops.add(new CompactTextDiffDTO.EditOp(chunk.type, leftOffset, rightOffset, length));
+            if (chunk.type != TextDiffDTO.DiffType.ADDED) leftOffset += length;
+            if (chunk.type != TextDiffDTO.DiffType.REMOVED) rightOffset += length;
+        }
+        return ops;
+    }
+
+    private Diff computeChunks(String left, String right, Granularity granularity, DiffLimits limits) {
+        Diff diff = diffChunks(left, right, granularity, limits);
+        cleanupSemantic(diff.chunks());
+        return diff;
+    }
+
+    /**
+     * Diff two texts into merged chunks of EQUAL, REMOVED and ADDED text.
+     * If the limits are hit, the middle left after trimming the common prefix and
+     * suffix becomes one REMOVED and one ADDED chunk.
+     */
+    Diff diffChunks(String left, String right, Granularity granularity, DiffLimits limits) {
+        long timeout = limits.timeoutMillis() == null ? timeoutMillis : Math.min(limits.timeoutMillis(), timeoutMillis);
+        int maxDistance = limits.maxEditDistance() == null ? maxEditDistance : Math.min(limits.maxEditDistance(), maxEditDistance);
+        long deadline = System.nanoTime() + timeout * 1_000_000L;
+
+        List<String> leftTokens = tokenize(left, granularity);
+        List<String> rightTokens = tokenize(right, granularity);
+
+        // Ogni token distinto riceve un id intero: il confronto diventa tra interi
+        Map<String, Integer> ids = new HashMap<>();
+        int[] a = toIds(leftTokens, ids);
+        int[] b = toIds(rightTokens, ids);
+
+        List<Chunk> chunks = new ArrayList<>();
+
+        int prefix = 0;
+        while (prefix < a.length && prefix < b.length && a[prefix] == b[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.length - prefix && suffix < b.length - prefix
+                && a[a.length - 1 - suffix] == b[b.length - 1 - suffix]) {
+            suffix++;
+        }
+
+        for (int i = 0; i < prefix; i++) {
+            append(chunks, TextDiffDTO.DiffType.EQUAL, leftTokens.get(i));
+        }
+
+        int[] middleA = Arrays.copyOfRange(a, prefix, a.length - suffix);
+        int[] middleB = Arrays.copyOfRange(b, prefix, b.length - suffix);
+        boolean exact = true;
+        try {
+            for (int[] op : myers(middleA, middleB, deadline, maxDistance)) {
+                TextDiffDTO.DiffType type = TextDiffDTO.DiffType.values()[op[0]];
+                String token = type == TextDiffDTO.DiffType.ADDED
+                    ? rightTokens.get(prefix + op[1])
+                    : leftTokens.get(prefix + op[1]);
+                append(chunks, type, token);
+            }
+        } catch (LimitExceededException e) {
+            log.debug("Diff of {} and {} tokens truncated: {} limit exceeded", middleA.length, middleB.length, e.reason);
+            meterRegistry.counter(TRUNCATED_METRIC,
+                "reason", e.reason, "granularity", granularity.name().toLowerCase(Locale.ROOT)).increment();
+            exact = false;
+
+            // Ripiego: la parte centrale diventa un'unica sostituzione
+            for (int i = prefix; i < a.length - suffix; i++) {
+                append(chunks, TextDiffDTO.DiffType.REMOVED, leftTokens.get(i));
+            }
+            for (int i = prefix; i < b.length - suffix; i++) {
+                append(chunks, TextDiffDTO.DiffType.ADDED, rightTokens.get(i));
+            }
+        }
+
+        for (int i = a.length - suffix; i < a.length; i++) {
+            append(chunks, TextDiffDTO.DiffType.EQUAL, leftTokens.get(i));
+        }
+
+        mergeChunks(chunks);
+        return new Diff(chunks, exact);
+    }
+
+    /**
+     * Split a text into tokens; concatenating the tokens gives back the original text
+     */
+    List<String> tokenize(String text, Granularity granularity) {
+        List<String> tokens = new ArrayList<>();
+        int length = text.length();
+        int start = 0;
+
+        switch (granularity) {
+            case CHAR -> {
+                for (int i = 0; i < length; i++) {
+                    tokens.add(String.valueOf(text.charAt(i)));
+                }
+            }
+            case LINE -> {
+                while (start < length) {
+                    int newline = text.indexOf('\n', start);
+                    int end = newline < 0 ? length : newline + 1;
+                    tokens.add(text.substring(start, end));
+                    start = end;
+                }
+            }
+            case WORD -> {
+                // Parole, sequenze di spazi e singoli segni di punteggiatura
+                while (start < length) {
+                    int end = start + 1;
+                    char c = text.charAt(start);
+                    if (Character.isLetterOrDigit(c)) {
+                        while (end < length && Character.isLetterOrDigit(text.charAt(end))) end++;
+                    } else if (Character.isWhitespace(c)) {
+                        while (end < length && Character.isWhitespace(text.charAt(end))) end++;
+                    }
+                    tokens.add(text.substring(start, end));
+                    start = end;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Myers O(ND) diff over two id sequences.
+     * Returns ops as {typeOrdinal, tokenIndex} in text order, where tokenIndex refers
+     * to the left sequence for EQUAL/REMOVED and to the right sequence for ADDED.
+     * Throws LimitExceededException once the deadline passes or d exceeds maxDistance.
+     */
+    private List<int[]> myers(int[] a, int[] b, long deadline, int maxDistance) {
+        int n = a.length;
+        int m = b.length;
+        List<int[]> ops = new ArrayList<>();
+        if (n == 0 && m == 0) {
+            return ops;
+        }
+        if (Math.abs(n - m) > maxDistance) {
+            // La distanza di edit è almeno la differenza di lunghezza
+            throw new LimitExceededException("edit_distance");
+        }
+
+        int max = n + m;
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+
+        search:
+        for (int d = 0; d <= max; d++) {
+            if (d > maxDistance) {
+                throw new LimitExceededException("edit_distance");
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw new LimitExceededException("timeout");
+            }
+            // Salva solo la porzione di diagonali raggiungibili al passo d
+            trace.add(Arrays.copyOfRange(v, offset - d - 1, offset + d + 2));
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
                 } else {
-                    dp[i][j] = Math.max(dp[i - 1][j], dp[i][j - 1]);
-                }
-            }
-        }
-        
-        // Ricostruisci le differenze
-        reconstructDiff(left, right, dp, leftLen, rightLen, leftSegments, rightSegments);
-    }
-    
-    /**
-     * Ricostruisce le differenze dalla matrice DP
-     */
-    private void reconstructDiff(String left, String right, int[][] dp, 
-                               int i, int j,
-                               List<TextDiffDTO.DiffSegment> leftSegments,
-                               List<TextDiffDTO.DiffSegment> rightSegments) {
-        
-        if (i > 0 && j > 0 && left.charAt(i - 1) == right.charAt(j - 1)) {
-            // Carattere uguale - ricorsione e poi aggiungi come EQUAL
-            reconstructDiff(left, right, dp, i - 1, j - 1, leftSegments, rightSegments);
-            
-            String commonChar = String.valueOf(left.charAt(i - 1));
-            leftSegments.add(new TextDiffDTO.DiffSegment(commonChar, TextDiffDTO.DiffType.EQUAL));
-            rightSegments.add(new TextDiffDTO.DiffSegment(commonChar, TextDiffDTO.DiffType.EQUAL));
-            
-        } else if (j > 0 && (i == 0 || dp[i][j - 1] >= dp[i - 1][j])) {
-            // Carattere aggiunto in right
-            reconstructDiff(left, right, dp, i, j - 1, leftSegments, rightSegments);
-            
-            String addedChar = String.valueOf(right.charAt(j - 1));
-            rightSegments.add(new TextDiffDTO.DiffSegment(addedChar, TextDiffDTO.DiffType.ADDED));
-            
-        } else if (i > 0) {
-            // Carattere rimosso da left
-            reconstructDiff(left, right, dp, i - 1, j, leftSegments, rightSegments);
-            
-            String removedChar = String.valueOf(left.charAt(i - 1));
-            leftSegments.add(new TextDiffDTO.DiffSegment(removedChar, TextDiffDTO.DiffType.REMOVED));
-            rightSegments.add(new TextDiffDTO.DiffSegment(removedChar, TextDiffDTO.DiffType.REMOVED));
-        }
-    }
-    
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && a[x] == b[y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    break search;
+                }
+            }
+        }
+
+        // Ricostruisce il percorso a ritroso
+        int x = n;
+        int y = m;
+        for (int d = trace.size() - 1; d >= 0; d--) {
+            int[] snapshot = trace.get(d);
+            int base = d + 1;
+            int k = x - y;
+            int prevK;
+            if (k == -d || (k != d && snapshot[base + k - 1] < snapshot[base + k + 1])) {
+                prevK = k + 1;
+            } else {
+                prevK = k - 1;
+            }
+            int prevX = snapshot[base + prevK];
+            int prevY = prevX - prevK;
+
+            while (x > prevX && y > prevY) {
+                x--;
+                y--;
+                ops.add(new int[] { TextDiffDTO.DiffType.EQUAL.ordinal(), x });
+            }
+            if (d > 0) {
+                if (x == prevX) {
+                    ops.add(new int[] { TextDiffDTO.DiffType.ADDED.ordinal(), prevY });
+                } else {
+                    ops.add(new int[] { TextDiffDTO.DiffType.REMOVED.ordinal(), prevX });
+                }
+            }
+            x = prevX;
+            y = prevY;
+        }
+
+        Collections.reverse(ops);
+        return ops;
+    }
+
+    /**
+     * Semantic cleanup: an equality that is no longer than the edits on both of its
+     * sides is folded into them, so that "a b c" -> "x b y" reads as one replacement
+     * instead of a noisy interleaving of tiny matches.
+     */
+    void cleanupSemantic(List<Chunk> chunks) {
+        boolean changes = false;
+        Deque<Integer> equalities = new ArrayDeque<>();
+        String lastEquality = null;
+        int insertedBefore = 0;
+        int removedBefore = 0;
+        int insertedAfter = 0;
+        int removedAfter = 0;
+
+        int pointer = 0;
+        while (pointer < chunks.size()) {
+            Chunk chunk = chunks.get(pointer);
+            if (chunk.type == TextDiffDTO.DiffType.EQUAL) {
+                equalities.push(pointer);
+                insertedBefore = insertedAfter;
+                removedBefore = removedAfter;
+                insertedAfter = 0;
+                removedAfter = 0;
+                lastEquality = chunk.text.toString();
+            } else {
+                if (chunk.type == TextDiffDTO.DiffType.ADDED) {
+                    insertedAfter += chunk.text.length();
+                } else {
+                    removedAfter += chunk.text.length();
+                }
+                if (lastEquality != null
+                        && lastEquality.length() <= Math.max(insertedBefore, removedBefore)
+                        && lastEquality.length() <= Math.max(insertedAfter, removedAfter)) {
+                    // Sostituisce l'uguaglianza con una rimozione seguita da un'aggiunta
+                    int index = equalities.pop();
+                    chunks.set(index, new Chunk(TextDiffDTO.DiffType.REMOVED, lastEquality));
+                    chunks.add(index + 1, new Chunk(TextDiffDTO.DiffType.ADDED, lastEquality));
+
+                    // L'uguaglianza precedente va rivalutata
+                    if (!equalities.isEmpty()) {
+                        equalities.pop();
+                    }
+                    pointer = equalities.isEmpty() ? -1 : equalities.peek();
+                    insertedBefore = 0;
+                    removedBefore = 0;
+                    insertedAfter = 0;
+                    removedAfter = 0;
+                    lastEquality = null;
+                    changes = true;
+                }
+            }
+            pointer++;
+        }
+
+        if (changes) {
+            mergeChunks(chunks);
+        }
+    }
+
+    /**
+     * Merge adjacent chunks: each run of edits between two equalities becomes
+     * one REMOVED chunk followed by one ADDED chunk
+     */
+    private void mergeChunks(List<Chunk> chunks) {
+        List<Chunk> merged = new ArrayList<>(chunks.size());
+        Chunk removed = null;
+        Chunk added = null;
+
+        for (Chunk chunk : chunks) {
+            if (chunk.text.length() == 0) {
+                continue;
+            }
+            switch (chunk.type) {
+                case REMOVED -> removed = removed == null ? chunk : removed.append(chunk.text);
+                case ADDED -> added = added == null ? chunk : added.append(chunk.text);
+                case EQUAL -> {
+                    flushEdits(merged, removed, added);
+                    removed = null;
+                    added = null;
+                    Chunk last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                    if (last != null && last.type == TextDiffDTO.DiffType.EQUAL) {
+                        last.append(chunk.text);
+                    } else {
+                        merged.add(chunk);
+                    }
+                }
+            }
+        }
+        flushEdits(merged, removed, added);
+
+        chunks.clear();
+        chunks.addAll(merged);
+    }
+
+    private void flushEdits(List<Chunk> merged, Chunk removed, Chunk added) {
+        if (removed != null) merged.add(removed);
+        if (added != null) merged.add(added);
+    }
+
+    private void append(List<Chunk> chunks, TextDiffDTO.DiffType type, String token) {
+        Chunk last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (last != null && last.type == type) {
+            last.append(token);
+        } else {
+            chunks.add(new Chunk(type, token));
+        }
+    }
+
+    private int[] toIds(List<String> tokens, Map<String, Integer> ids) {
+        int[] result = new int[tokens.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.computeIfAbsent(tokens.get(i), t -> ids.size());
+        }
+        return result;
+    }
+
     /**
      * Ottimizza i segmenti combinando segmenti consecutivi dello stesso tipo
      */
     public void optimizeSegments(List<TextDiffDTO.DiffSegment> segments) {
         if (segments.size() <= 1) return;
-        
+
         List<TextDiffDTO.DiffSegment> optimized = new ArrayList<>();
-        TextDiffDTO.DiffSegment current = segments.get(0);
-        
+        TextDiffDTO.DiffType currentType = segments.get(0).getType();
+        StringBuilder currentText = new StringBuilder(segments.get(0).getText());
+
         for (int i = 1; i < segments.size(); i++) {
             TextDiffDTO.DiffSegment next = segments.get(i);
-            
-            if (current.getType() == next.getType()) {
+
+            if (currentType == next.getType()) {
                 // Combina segmenti dello stesso tipo
-                current = new TextDiffDTO.DiffSegment(
-                    current.getText() + next.getText(), 
-                    current.getType()
-                );
+                currentText.append(next.getText());
             } else {
-                optimized.add(current);
-                current = next;
+                optimized.add(new TextDiffDTO.DiffSegment(currentText.toString(), currentType));
+                currentType = next.getType();
+                currentText = new StringBuilder(next.getText());
             }
         }
-        optimized.add(current);
-        
+        optimized.add(new TextDiffDTO.DiffSegment(currentText.toString(), currentType));
+
         segments.clear();
         segments.addAll(optimized);
     }
+
+    /**
+     * Result of a diff: merged chunks and whether they are the exact minimal diff
+     */
+    record Diff(List<Chunk> chunks, boolean exact) {}
+
+    /**
+     * Raised by the Myers loop when a diff limit is hit
+     */
+    private static final class LimitExceededException extends RuntimeException {
+        private final String reason;
+
+        LimitExceededException(String reason) {
+            super(reason, null, false, false);
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * Mutable run of text sharing the same diff type
+     */
+    static final class Chunk {
+        final TextDiffDTO.DiffType type;
+        final StringBuilder text;
+
+        Chunk(TextDiffDTO.DiffType type, CharSequence text) {
+            this.type = type;
+            this.text = new StringBuilder(text);
+        }
+
+        Chunk append(CharSequence more) {
+            text.append(more);
+            return this;
+        }
+    }
 }
@@ -0,0 +1,196 @@
+package com.notabene.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.notabene.dto.GroupDtos.AddMembersRequest;
+import com.notabene.dto.GroupDtos.AddMembersResult;
+import com.notabene.dto.GroupDtos.CreateGroupRequest;
+import com.notabene.dto.GroupDtos.GroupDetail;
+import com.notabene.dto.GroupDtos.GroupMember;
+import com.notabene.dto.GroupDtos.GroupNotesRequest;
+import com.notabene.dto.GroupDtos.GroupNotesResult;
+import com.notabene.dto.GroupDtos.GroupSummary;
+import com.notabene.entity.UserGroup;
+import com.notabene.repository.NoteGroupShareRepository;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.UserGroupMemberRepository;
+import com.notabene.repository.UserGroupRepository;
+import com.notabene.repository.UserRepository;
+import com.notabene.service.support.CurrentUserResolver;
+
+/**
+ * User groups as share targets. A note shared with a group is readable (and writable, if
+ * shared for writing) by every member; membership is resolved at query time, so adding or
+ * removing a member is one row and no note is rewritten. Only the owner manages members;
+ * any member can share the notes they created with the group.
+ */
+@Service
+public class UserGroupService {
+
+    static final int MAX_USERNAMES = 200;
+    static final int MAX_NOTE_IDS = 1000;
+
+    private final UserGroupRepository groupRepo;
+    private final UserGroupMemberRepository memberRepo;
+    private final NoteGroupShareRepository shareRepo;
+    private final NoteRepository noteRepo;
+    private final UserRepository userRepo;
+    private final CurrentUserResolver current;
+
+    public UserGroupService(UserGroupRepository groupRepo, UserGroupMemberRepository memberRepo,
+                            NoteGroupShareRepository shareRepo, NoteRepository noteRepo,
+                            UserRepository userRepo, CurrentUserResolver current) {
+        this.groupRepo = groupRepo; this.memberRepo = memberRepo; this.shareRepo = shareRepo;
+        this.noteRepo = noteRepo; this.userRepo = userRepo; this.current = current;
+    }
+
+    public List<GroupSummary> listMyGroups() {
+        Long uid = current.currentUserId();
+        return groupRepo.findVisibleSummaries(uid).stream()
+                .map(row -> new GroupSummary(((Number) row[0]).longValue(), (String) row[1],
+                        uid.equals(((Number) row[2]).longValue()), ((Number) row[3]).longValue()))
+                .toList();
+    }
+
+    public GroupSummary createGroup(CreateGroupRequest req) {
+        Long uid = current.currentUserId();
+        String name = req.name() == null ? "" : req.name().trim();
+
+        if (name.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Name required");
+        }
+        if (groupRepo.existsByOwnerIdAndName(uid, name)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Group name already exists");
+        }
+
+        try {
+            UserGroup saved = groupRepo.save(new UserGroup(uid, name));
+            return new GroupSummary(saved.getId(), saved.getName(), true, 0);
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Group name already exists");
+        }
+    }
+
+    public GroupDetail getGroup(Long groupId) {
+        Long uid = current.currentUserId();
+        if (!groupRepo.isOwnerOrMember(groupId, uid)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found");
+        }
+        UserGroup g = groupRepo.findById(groupId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found"));
+        var members = memberRepo.findMembers(groupId).stream()
+                .map(row -> new GroupMember(((Number) row[0]).longValue(), (String) row[1]))
+                .toList();
+        return new GroupDetail(g.getId(), g.getName(), g.getOwnerId(), members);
+    }
+
+    @Transactional
+    public void deleteGroup(Long groupId) {
+        UserGroup g = ownedGroup(groupId);
+        // Esplicito: le FK in cascata ci sono solo nello schema di init.sql
+        shareRepo.deleteAllByGroupId(g.getId());
+        memberRepo.deleteAllByGroupId(g.getId());
+        groupRepo.delete(g);
+    }
+
+    @Transactional
+    public AddMembersResult addMembers(Long groupId, AddMembersRequest req) {
+        UserGroup g = ownedGroup(groupId);
+        if (req.usernames() == null || req.usernames().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Usernames required");
+        }
+        if (req.usernames().size() > MAX_USERNAMES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Cannot add more than " + MAX_USERNAMES + " members at once");
+        }
+
+        // Tutti gli username con una query, poi un solo INSERT
+        Set<String> usernames = new LinkedHashSet<>(req.usernames());
+        Map<String, Long> idsByUsername = new HashMap<>();
+        for (Object[] row : userRepo.findIdsByUsernames(usernames)) {
+            idsByUsername.put((String) row[1], ((Number) row[0]).longValue());
+        }
+        List<String> unknown = new ArrayList<>();
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (String username : usernames) {
+            Long id = idsByUsername.get(username);
+            if (id == null) unknown.add(username); else userIds.add(id);
+        }
+
+        int added = userIds.isEmpty() ? 0 : memberRepo.addMembers(g.getId(), userIds);
+        return new AddMembersResult(added, unknown);
+    }
+
+    /**
+     * Remove a member; the owner can remove anyone and a member can leave the group
+     */
+    @Transactional
+    public void removeMember(Long groupId, Long userId) {
+        Long uid = current.currentUserId();
+        UserGroup g = groupRepo.findById(groupId)
+                .filter(group -> group.getOwnerId().equals(uid) || userId.equals(uid))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found"));
+        memberRepo.removeMember(g.getId(), userId);
+    }
+
+    @Transactional
+    public GroupNotesResult shareNotes(Long groupId, GroupNotesRequest req) {
+        Long uid = current.currentUserId();
+        Set<Long> ownedNoteIds = checkNotesRequest(groupId, req, uid);
+        int updated = ownedNoteIds.isEmpty() ? 0 : shareRepo.shareNotes(groupId, ownedNoteIds, req.write(), uid);
+        return new GroupNotesResult(updated, skipped(req, ownedNoteIds));
+    }
+
+    @Transactional
+    public GroupNotesResult unshareNotes(Long groupId, GroupNotesRequest req) {
+        Long uid = current.currentUserId();
+        Set<Long> ownedNoteIds = checkNotesRequest(groupId, req, uid);
+        int updated = ownedNoteIds.isEmpty() ? 0 : shareRepo.unshareNotes(groupId, ownedNoteIds, uid);
+        return new GroupNotesResult(updated, skipped(req, ownedNoteIds));
+    }
+
+    // Helper methods
+
+    private UserGroup ownedGroup(Long groupId) {
+        Long uid = current.currentUserId();
+        return groupRepo.findByIdAndOwnerId(groupId, uid)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found"));
+    }
+
+    // Restituisce le note della richiesta create dall'utente, verificate con una sola query
+    private Set<Long> checkNotesRequest(Long groupId, GroupNotesRequest req, Long uid) {
+        if (req.noteIds() == null || req.noteIds().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Note ids required");
+        }
+        if (req.noteIds().size() > MAX_NOTE_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Cannot share more than " + MAX_NOTE_IDS + " notes at once");
+        }
+        if (!groupRepo.isOwnerOrMember(groupId, uid)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found");
+        }
+
+        Set<Long> owned = new LinkedHashSet<>();
+        for (Object[] row : noteRepo.findPermissions(new LinkedHashSet<>(req.noteIds()), uid)) {
+            if (Boolean.TRUE.equals(row[1])) {
+                owned.add(((Number) row[0]).longValue());
+            }
+        }
+        return owned;
+    }
+
+    private List<Long> skipped(GroupNotesRequest req, Set<Long> ownedNoteIds) {
+        return new LinkedHashSet<>(req.noteIds()).stream().filter(id -> !ownedNoteIds.contains(id)).toList();
+    }
+}
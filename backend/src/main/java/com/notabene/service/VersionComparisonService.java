@@ -0,0 +1,205 @@
+package com.notabene.service;
+
+import com.notabene.dto.BatchVersionComparisonDTO;
+import com.notabene.dto.BatchVersionComparisonRequest;
+import com.notabene.dto.CompactTextDiffDTO;
+import com.notabene.dto.CompactVersionComparisonDTO;
+import com.notabene.dto.EnhancedVersionComparisonDTO;
+import com.notabene.entity.NoteVersion;
+import com.notabene.repository.NoteVersionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Service for comparing two versions of a note.
+ * Character-level comparisons between stored versions reuse the deltas persisted
+ * when each version was created; other comparisons run a fresh diff.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class VersionComparisonService {
+
+    private final NoteVersionRepository noteVersionRepository;
+    private final TextDiffService textDiffService;
+
+    @Value("${notabene.diff.batch-parallelism:4}")
+    private int batchParallelism = 4;
+
+    private ForkJoinPool batchPool;
+
+    /**
+     * Compare two versions, returning highlighted segments
+     */
+    public EnhancedVersionComparisonDTO compare(NoteVersion left, NoteVersion right, TextDiffService.Granularity granularity,
+                                                TextDiffService.DiffLimits limits) {
+        Optional<StoredDeltas> stored = findStoredDeltas(left, right, granularity);
+        CompactTextDiffDTO titleDiff = diff(left.getTitle(), right.getTitle(), stored.map(StoredDeltas::titleDeltas), granularity, limits);
+        CompactTextDiffDTO contentDiff = diff(left.getContent(), right.getContent(), stored.map(StoredDeltas::contentDeltas), granularity, limits);
+
+        return new EnhancedVersionComparisonDTO(left, right,
+            textDiffService.toSegments(titleDiff), textDiffService.toSegments(contentDiff));
+    }
+
+    /**
+     * Compare two versions, returning offset-based edit operations
+     */
+    public CompactVersionComparisonDTO compareCompact(NoteVersion left, NoteVersion right, TextDiffService.Granularity granularity,
+                                                      TextDiffService.DiffLimits limits) {
+        Optional<StoredDeltas> stored = findStoredDeltas(left, right, granularity);
+        CompactTextDiffDTO titleDiff = diff(left.getTitle(), right.getTitle(), stored.map(StoredDeltas::titleDeltas), granularity, limits);
+        CompactTextDiffDTO contentDiff = diff(left.getContent(), right.getContent(), stored.map(StoredDeltas::contentDeltas), granularity, limits);
+
+        return new CompactVersionComparisonDTO(left, right, titleDiff, contentDiff);
+    }
+
+    /**
+     * Compare several pairs of already loaded versions in parallel on a bounded pool.
+     * Results keep the order of the pairs; a pair whose versions are missing gets an error.
+     */
+    public BatchVersionComparisonDTO compareBatch(Map<Integer, NoteVersion> versions,
+                                                  List<BatchVersionComparisonRequest.VersionPair> pairs,
+                                                  TextDiffService.Granularity granularity,
+                                                  TextDiffService.DiffLimits limits) {
+        long start = System.nanoTime();
+        ForkJoinTask<List<BatchVersionComparisonDTO.PairResult>> task = batchPool().submit(() ->
+            pairs.parallelStream()
+                .map(pair -> comparePair(versions, pair, granularity, limits))
+                .toList());
+        List<BatchVersionComparisonDTO.PairResult> results = task.join();
+
+        long totalMillis = (System.nanoTime() - start) / 1_000_000;
+        log.debug("Compared {} version pairs in {} ms", pairs.size(), totalMillis);
+        return new BatchVersionComparisonDTO(results, totalMillis);
+    }
+
+    private BatchVersionComparisonDTO.PairResult comparePair(Map<Integer, NoteVersion> versions,
+                                                             BatchVersionComparisonRequest.VersionPair pair,
+                                                             TextDiffService.Granularity granularity,
+                                                             TextDiffService.DiffLimits limits) {
+        long start = System.nanoTime();
+        NoteVersion left = versions.get(pair.getOldVersion());
+        NoteVersion right = versions.get(pair.getNewVersion());
+        if (left == null || right == null) {
+            return new BatchVersionComparisonDTO.PairResult(pair.getOldVersion(), pair.getNewVersion(), null, 0,
+                "Version not found: " + (left == null ? pair.getOldVersion() : pair.getNewVersion()));
+        }
+
+        try {
+            CompactVersionComparisonDTO comparison = compareCompact(left, right, granularity, limits);
+            return new BatchVersionComparisonDTO.PairResult(pair.getOldVersion(), pair.getNewVersion(), comparison,
+                (System.nanoTime() - start) / 1_000, null);
+        } catch (RuntimeException e) {
+            log.warn("Error comparing versions {} and {}: {}", pair.getOldVersion(), pair.getNewVersion(), e.getMessage());
+            return new BatchVersionComparisonDTO.PairResult(pair.getOldVersion(), pair.getNewVersion(), null,
+                (System.nanoTime() - start) / 1_000, "Comparison failed");
+        }
+    }
+
+    /**
+     * Pool dedicated to batch comparisons, so that large batches cannot
+     * saturate the common pool shared with the rest of the application
+     */
+    private synchronized ForkJoinPool batchPool() {
+        if (batchPool == null) {
+            batchPool = new ForkJoinPool(batchParallelism);
+        }
+        return batchPool;
+    }
+
+    @PreDestroy
+    synchronized void shutdownBatchPool() {
+        if (batchPool != null) {
+            batchPool.shutdown();
+        }
+    }
+
+    private CompactTextDiffDTO diff(String leftText, String rightText, Optional<List<String>> deltas,
+                                    TextDiffService.Granularity granularity, TextDiffService.DiffLimits limits) {
+        return deltas
+            .flatMap(d -> textDiffService.compactDiffFromDeltas(leftText, rightText, d))
+            .orElseGet(() -> textDiffService.calculateCompactDiff(leftText, rightText, granularity, limits));
+    }
+
+    /**
+     * Collect the stored deltas leading from one stored version to a later one.
+     * Adjacent versions need no query; longer chains are loaded without version bodies
+     * and only used when replaying them is cheaper than diffing the two texts.
+     */
+    Optional<StoredDeltas> findStoredDeltas(NoteVersion from, NoteVersion to, TextDiffService.Granularity granularity) {
+        if (granularity != TextDiffService.Granularity.CHAR || !isStored(from) || !isStored(to)
+                || !Objects.equals(from.getNoteId(), to.getNoteId())
+                || to.getVersionNumber() <= from.getVersionNumber()) {
+            return Optional.empty();
+        }
+
+        // Versioni adiacenti: il delta è già sulla versione di destra
+        if (Objects.equals(to.getDeltaBaseVersion(), from.getVersionNumber())
+                && to.getTitleDelta() != null && to.getContentDelta() != null) {
+            log.debug("Using stored delta for versions {} -> {} of note {}",
+                from.getVersionNumber(), to.getVersionNumber(), to.getNoteId());
+            return Optional.of(new StoredDeltas(List.of(to.getTitleDelta()), List.of(to.getContentDelta())));
+        }
+
+        List<Object[]> chain = noteVersionRepository.findDeltaChain(to.getNoteId(), from.getVersionNumber(), to.getVersionNumber());
+        List<String> titleDeltas = new ArrayList<>(chain.size());
+        List<String> contentDeltas = new ArrayList<>(chain.size());
+        Integer expectedBase = from.getVersionNumber();
+        long replayCost = 0;
+
+        for (Object[] row : chain) {
+            Integer versionNumber = (Integer) row[0];
+            Integer baseVersion = (Integer) row[1];
+            String titleDelta = (String) row[2];
+            String contentDelta = (String) row[3];
+
+            if (!Objects.equals(baseVersion, expectedBase) || titleDelta == null || contentDelta == null) {
+                return Optional.empty();
+            }
+            titleDeltas.add(titleDelta);
+            contentDeltas.add(contentDelta);
+            replayCost += titleDelta.length() + contentDelta.length();
+            expectedBase = versionNumber;
+        }
+
+        if (!Objects.equals(expectedBase, to.getVersionNumber())) {
+            return Optional.empty();
+        }
+
+        long diffCost = length(from.getTitle()) + length(to.getTitle()) + length(from.getContent()) + length(to.getContent());
+        if (replayCost > diffCost) {
+            return Optional.empty();
+        }
+
+        log.debug("Composing {} stored deltas for versions {} -> {} of note {}",
+            chain.size(), from.getVersionNumber(), to.getVersionNumber(), to.getNoteId());
+        return Optional.of(new StoredDeltas(titleDeltas, contentDeltas));
+    }
+
+    private boolean isStored(NoteVersion version) {
+        // Le versioni virtuali (stato corrente) hanno id -1
+        return version.getId() != null && version.getId() > 0;
+    }
+
+    private long length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    /**
+     * Deltas to replay, in order, for the title and the content
+     */
+    record StoredDeltas(List<String> titleDeltas, List<String> contentDeltas) {}
+}
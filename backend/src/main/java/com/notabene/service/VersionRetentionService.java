@@ -0,0 +1,143 @@
+package com.notabene.service;
+
+import com.notabene.dto.RetentionPolicyDTO;
+import com.notabene.dto.VersionRetentionReportDTO;
+import com.notabene.entity.NoteRetentionPolicy;
+import com.notabene.repository.NoteRetentionPolicyRepository;
+import com.notabene.repository.NoteVersionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Prunes old note versions in the background according to the retention policy:
+ * the last N versions, plus the latest one per hour for a day and per day for a month.
+ * Defaults come from notabene.versions.retention.* and can be overridden per note.
+ * Deletes run in batches of notes, walked by id, each one a single set-based statement
+ * in its own transaction.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VersionRetentionService {
+
+    private final NoteVersionRepository noteVersionRepository;
+    private final NoteRetentionPolicyRepository noteRetentionPolicyRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notabene.versions.retention.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${notabene.versions.retention.keep-last:10}")
+    private int keepLast = 10;
+
+    @Value("${notabene.versions.retention.hourly-hours:24}")
+    private int hourlyHours = 24;
+
+    @Value("${notabene.versions.retention.daily-days:30}")
+    private int dailyDays = 30;
+
+    // Note per batch: tutte le loro versioni vengono classificate insieme
+    @Value("${notabene.versions.retention.batch-size:100}")
+    private int batchSize = 100;
+
+    /**
+     * Periodic run, off the request path
+     */
+    @Scheduled(initialDelayString = "${notabene.versions.retention.initial-delay-ms:60000}",
+               fixedDelayString = "${notabene.versions.retention.interval-ms:3600000}")
+    public void scheduledPrune() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            prune();
+        } catch (RuntimeException e) {
+            log.error("Version retention run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Delete every version outside the retention policy, batch after batch,
+     * and report the rows and bytes reclaimed
+     */
+    public VersionRetentionReportDTO prune() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        long deletedVersions = 0;
+        long reclaimedBytes = 0;
+        int batches = 0;
+
+        // Cursore sulle note: ogni batch riparte dall'ultima nota visitata
+        long afterNoteId = 0;
+        while (true) {
+            List<Object[]> result = noteVersionRepository.pruneBatch(keepLast, hourlyHours, dailyDays, now,
+                afterNoteId, batchSize);
+            Object[] row = result.get(0);
+            deletedVersions += ((Number) row[0]).longValue();
+            reclaimedBytes += ((Number) row[1]).longValue();
+            batches++;
+            if (row[2] == null) {
+                break;
+            }
+            afterNoteId = ((Number) row[2]).longValue();
+        }
+
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        meterRegistry.counter("notabene.versions.retention.deleted").increment(deletedVersions);
+        meterRegistry.counter("notabene.versions.retention.reclaimed.bytes").increment(reclaimedBytes);
+        log.info("Version retention: deleted {} versions, reclaimed {} bytes in {} batches ({} ms)",
+            deletedVersions, reclaimedBytes, batches, durationMillis);
+        return new VersionRetentionReportDTO(deletedVersions, reclaimedBytes, batches, durationMillis);
+    }
+
+    /**
+     * Effective retention policy of a note
+     */
+    @Transactional(readOnly = true)
+    public RetentionPolicyDTO getPolicy(Long noteId) {
+        return toDTO(noteRetentionPolicyRepository.findById(noteId));
+    }
+
+    /**
+     * Set the retention overrides of a note; null fields fall back to the global defaults
+     * and a request with no values removes the override altogether
+     */
+    @Transactional
+    public RetentionPolicyDTO updatePolicy(Long noteId, RetentionPolicyDTO request) {
+        if (request.getKeepLast() != null && request.getKeepLast() < 1) {
+            throw new IllegalArgumentException("keepLast must be at least 1");
+        }
+        if ((request.getHourlyHours() != null && request.getHourlyHours() < 0)
+                || (request.getDailyDays() != null && request.getDailyDays() < 0)) {
+            throw new IllegalArgumentException("hourlyHours and dailyDays cannot be negative");
+        }
+
+        if (request.getKeepLast() == null && request.getHourlyHours() == null && request.getDailyDays() == null) {
+            noteRetentionPolicyRepository.deleteById(noteId);
+            log.info("Removed retention override for note {}", noteId);
+            return toDTO(Optional.empty());
+        }
+
+        NoteRetentionPolicy policy = noteRetentionPolicyRepository.save(new NoteRetentionPolicy(
+            noteId, request.getKeepLast(), request.getHourlyHours(), request.getDailyDays()));
+        log.info("Updated retention override for note {}: {}", noteId, policy);
+        return toDTO(Optional.of(policy));
+    }
+
+    private RetentionPolicyDTO toDTO(Optional<NoteRetentionPolicy> override) {
+        return new RetentionPolicyDTO(
+            override.map(NoteRetentionPolicy::getKeepLast).orElse(keepLast),
+            override.map(NoteRetentionPolicy::getHourlyHours).orElse(hourlyHours),
+            override.map(NoteRetentionPolicy::getDailyDays).orElse(dailyDays),
+            override.isPresent());
+    }
+}
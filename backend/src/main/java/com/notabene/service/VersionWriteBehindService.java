@@ -0,0 +1,368 @@
+package com.notabene.service;
+
+import com.notabene.entity.ContentHash;
+import com.notabene.entity.Note;
+import com.notabene.entity.VersionOutboxEntry;
+import com.notabene.repository.VersionOutboxRepository;
+import com.notabene.service.memento.NoteMemento;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind mode for version snapshots (notabene.versions.write-behind.enabled).
+ * Edits only append the snapshot to the version_outbox table, in their own transaction, so
+ * it is as durable as the edit; a background drain turns pending snapshots into versions
+ * with batched JDBC statements, in enqueue order so numbering and deltas follow each note's
+ * history. Until an entry is drained the history lags behind: the pending count and the
+ * age of the oldest entry are exported as gauges. When a batch fails its entries are retried
+ * one at a time, and an entry that still fails is kept as a dead letter instead of blocking
+ * the ones queued after it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VersionWriteBehindService {
+
+    // Chiave dell'advisory lock: un solo drain alla volta, anche con più istanze
+    private static final long DRAIN_LOCK_KEY = 0x6e6f746176657273L;
+
+    private static final String SELECT_BATCH =
+        "SELECT id, note_id, title, content, readers, writers, created_by, note_creator_id, " +
+        "       original_created_at, original_updated_at, enqueued_at " +
+        "FROM version_outbox WHERE failed_at IS NULL ORDER BY id LIMIT ? FOR UPDATE";
+
+    private static final String SELECT_LATEST =
+        "SELECT v.note_id, v.version_number, b.title, b.content " +
+        "FROM note_versions v JOIN version_blobs b ON b.content_hash = v.content_hash " +
+        "WHERE v.note_id = ANY (?) AND v.version_number = " +
+        "      (SELECT MAX(m.version_number) FROM note_versions m WHERE m.note_id = v.note_id)";
+
+    private static final String UPSERT_BLOB =
+        "INSERT INTO version_blobs (content_hash, title, content, ref_count, created_at) " +
+        "VALUES (?, ?, ?, 0, now()) " +
+        "ON CONFLICT (content_hash) DO UPDATE SET ref_count = version_blobs.ref_count";
+
+    private static final String INSERT_VERSION =
+        "INSERT INTO note_versions (id, note_id, version_number, content_hash, readers, writers, created_by, " +
+        "    note_creator_id, created_at, original_created_at, original_updated_at, is_restored, " +
+        "    delta_base_version, title_delta, content_delta) " +
+        "VALUES (nextval('note_versions_id_seq'), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE, ?, ?, ?)";
+
+    private static final String MARK_FAILED =
+        "UPDATE version_outbox SET failed_at = now(), failure = ? " +
+        "WHERE id = (SELECT MIN(id) FROM version_outbox WHERE failed_at IS NULL) RETURNING id";
+
+    private final VersionOutboxRepository versionOutboxRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TextDiffService textDiffService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notabene.versions.write-behind.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${notabene.versions.write-behind.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${notabene.versions.write-behind.max-lag-ms:60000}")
+    private long maxLagMillis = 60_000;
+
+    @PostConstruct
+    void registerGauges() {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("notabene.versions.outbox.pending", versionOutboxRepository, VersionOutboxRepository::countByFailedAtIsNull)
+            .description("Version snapshots waiting to be written")
+            .register(meterRegistry);
+        Gauge.builder("notabene.versions.outbox.failed", versionOutboxRepository, VersionOutboxRepository::countByFailedAtIsNotNull)
+            .description("Version snapshots the drain could not write")
+            .register(meterRegistry);
+        Gauge.builder("notabene.versions.outbox.lag", this, service -> service.currentLag().toMillis() / 1000.0)
+            .description("Age of the oldest pending version snapshot")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Whether snapshots are queued instead of being written by the edit
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a snapshot of the note's current state, as a version created by editorUserId.
+     * Runs in the caller's transaction: the snapshot commits or rolls back with the edit.
+     */
+    public void enqueue(Note note, Long editorUserId) {
+        NoteMemento memento = note.createMemento();
+        VersionOutboxEntry entry = new VersionOutboxEntry();
+        entry.setNoteId(note.getId());
+        entry.setTitle(memento.getTitle());
+        entry.setContent(memento.getContent());
+        entry.setReaders(new ArrayList<>(memento.getReaders()));
+        entry.setWriters(new ArrayList<>(memento.getWriters()));
+        entry.setCreatedBy(editorUserId);
+        entry.setNoteCreatorId(note.getCreatorId());
+        entry.setOriginalCreatedAt(memento.getCreatedAt());
+        entry.setOriginalUpdatedAt(memento.getUpdatedAt());
+        versionOutboxRepository.save(entry);
+        log.debug("Queued version snapshot of note {} by user {}", note.getId(), editorUserId);
+    }
+
+    /**
+     * The newest snapshot of the note with the given content hash still waiting in the outbox
+     */
+    public Optional<VersionOutboxEntry> findPending(Long noteId, String contentHash) {
+        return versionOutboxRepository.findByNoteIdOrderByIdDesc(noteId).stream()
+            .filter(entry -> ContentHash.of(entry.getTitle(), entry.getContent()).equals(contentHash))
+            .findFirst();
+    }
+
+    /**
+     * The newest snapshot of the note still waiting in the outbox: it records the latest
+     * edit when that edit has not been written as a version yet
+     */
+    public Optional<VersionOutboxEntry> findLatestPending(Long noteId) {
+        return versionOutboxRepository.findFirstByNoteIdAndFailedAtIsNullOrderByIdDesc(noteId);
+    }
+
+    /**
+     * Periodic drain, off the request path
+     */
+    @Scheduled(initialDelayString = "${notabene.versions.write-behind.initial-delay-ms:1000}",
+               fixedDelayString = "${notabene.versions.write-behind.interval-ms:1000}")
+    public void scheduledDrain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.error("Version outbox drain failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Write every pending snapshot as a version, batch after batch, each batch in its own
+     * transaction. Returns the number of versions written.
+     */
+    public int drain() {
+        long start = System.nanoTime();
+        int written = 0;
+        int batches = 0;
+
+        int drained;
+        do {
+            try {
+                drained = drainBatch(batchSize);
+                written += drained;
+            } catch (DataAccessException e) {
+                log.warn("Version outbox batch failed, retrying its snapshots one at a time: {}", e.getMessage());
+                int[] retried = drainOneByOne();
+                written += retried[0];
+                drained = retried[0] + retried[1];
+            }
+            batches++;
+        } while (drained >= batchSize);
+
+        if (written > 0) {
+            long durationNanos = System.nanoTime() - start;
+            meterRegistry.counter("notabene.versions.outbox.drained").increment(written);
+            meterRegistry.timer("notabene.versions.outbox.drain").record(durationNanos, TimeUnit.NANOSECONDS);
+            log.info("Version outbox: wrote {} versions in {} batches ({} ms)",
+                written, batches, durationNanos / 1_000_000);
+        }
+
+        Duration lag = currentLag();
+        if (lag.toMillis() > maxLagMillis) {
+            log.warn("Version outbox lag is {} s, above the {} ms bound", lag.toSeconds(), maxLagMillis);
+        }
+        return written;
+    }
+
+    /**
+     * Age of the oldest pending snapshot (zero when the outbox is empty)
+     */
+    public Duration currentLag() {
+        LocalDateTime oldest = versionOutboxRepository.findOldestEnqueuedAt();
+        return oldest == null ? Duration.ZERO : Duration.between(oldest, LocalDateTime.now());
+    }
+
+    /**
+     * Up to batchSize snapshots, each in its own transaction; a snapshot that fails alone
+     * becomes a dead letter. Returns the number written and the number failed.
+     */
+    private int[] drainOneByOne() {
+        int written = 0;
+        int failed = 0;
+        while (written + failed < batchSize) {
+            try {
+                int drained = drainBatch(1);
+                if (drained == 0) {
+                    break;
+                }
+                written += drained;
+            } catch (NonTransientDataAccessException e) {
+                // Errori transitori (connessione, lock) risalgono: la riga verrà ritentata al prossimo drain
+                String failure = e.getMostSpecificCause().getMessage();
+                Long id = transactionTemplate.execute(status -> markFailed(failure));
+                if (id == null) {
+                    break;
+                }
+                failed++;
+                log.error("Version outbox: snapshot {} moved to dead letters: {}", id, failure);
+            }
+        }
+        return new int[] {written, failed};
+    }
+
+    /**
+     * Mark the oldest pending snapshot as a dead letter; must run in a transaction
+     */
+    private Long markFailed(String failure) {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, DRAIN_LOCK_KEY);
+        if (!Boolean.TRUE.equals(locked)) {
+            return null;
+        }
+        return jdbcTemplate.query(MARK_FAILED, rs -> rs.next() ? rs.getLong(1) : null, failure);
+    }
+
+    /**
+     * Turn up to limit pending snapshots into versions, in one transaction
+     */
+    private int drainBatch(int limit) {
+        Integer result = transactionTemplate.execute(status -> writeBatch(limit));
+        return result != null ? result : 0;
+    }
+
+    /**
+     * Turn one batch of pending snapshots into versions; must run in a transaction
+     */
+    private int writeBatch(int limit) {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, DRAIN_LOCK_KEY);
+        if (!Boolean.TRUE.equals(locked)) {
+            log.debug("Version outbox is being drained by another instance");
+            return 0;
+        }
+
+        List<OutboxRow> rows = jdbcTemplate.query(SELECT_BATCH, (rs, i) -> new OutboxRow(
+            rs.getLong("id"), rs.getLong("note_id"), rs.getString("title"), rs.getString("content"),
+            toLongs(rs.getArray("readers")), toLongs(rs.getArray("writers")),
+            rs.getLong("created_by"), rs.getLong("note_creator_id"),
+            rs.getTimestamp("original_created_at"), rs.getTimestamp("original_updated_at"),
+            rs.getTimestamp("enqueued_at")), limit);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Long[] noteIds = rows.stream().map(OutboxRow::noteId).distinct().toArray(Long[]::new);
+        Map<Long, LatestVersion> latest = new HashMap<>();
+        jdbcTemplate.query(SELECT_LATEST, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", noteIds)),
+            rs -> {
+                latest.put(rs.getLong("note_id"), new LatestVersion(
+                    rs.getInt("version_number"), rs.getString("title"), rs.getString("content")));
+            });
+
+        List<PlannedVersion> versions = plan(rows, latest);
+
+        Map<String, PlannedVersion> blobs = new LinkedHashMap<>();
+        versions.forEach(version -> blobs.putIfAbsent(version.contentHash(), version));
+        jdbcTemplate.batchUpdate(UPSERT_BLOB, new ArrayList<>(blobs.values()), batchSize, (ps, version) -> {
+            ps.setString(1, version.contentHash());
+            ps.setString(2, version.row().title());
+            ps.setString(3, version.row().content());
+        });
+        jdbcTemplate.batchUpdate(INSERT_VERSION, versions, batchSize, this::bindVersion);
+
+        Long[] ids = rows.stream().map(OutboxRow::id).toArray(Long[]::new);
+        jdbcTemplate.update("DELETE FROM version_outbox WHERE id = ANY (?)",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)));
+        return rows.size();
+    }
+
+    /**
+     * Number each snapshot after the latest stored version of its note (or the previous
+     * snapshot of the batch) and compute its delta from that version
+     */
+    List<PlannedVersion> plan(List<OutboxRow> rows, Map<Long, LatestVersion> latest) {
+        Map<Long, LatestVersion> previous = new HashMap<>(latest);
+        List<PlannedVersion> versions = new ArrayList<>(rows.size());
+        for (OutboxRow row : rows) {
+            LatestVersion base = previous.get(row.noteId());
+            int versionNumber = base != null ? base.versionNumber() + 1 : 1;
+            versions.add(new PlannedVersion(row, versionNumber, ContentHash.of(row.title(), row.content()),
+                base != null ? base.versionNumber() : null,
+                base != null ? textDiffService.calculateDelta(base.title(), row.title()) : null,
+                base != null ? textDiffService.calculateDelta(base.content(), row.content()) : null));
+            previous.put(row.noteId(), new LatestVersion(versionNumber, row.title(), row.content()));
+        }
+        return versions;
+    }
+
+    private void bindVersion(PreparedStatement ps, PlannedVersion version) throws SQLException {
+        OutboxRow row = version.row();
+        Connection connection = ps.getConnection();
+        ps.setLong(1, row.noteId());
+        ps.setInt(2, version.versionNumber());
+        ps.setString(3, version.contentHash());
+        ps.setArray(4, row.readers() != null ? connection.createArrayOf("bigint", row.readers()) : null);
+        ps.setArray(5, row.writers() != null ? connection.createArrayOf("bigint", row.writers()) : null);
+        ps.setLong(6, row.createdBy());
+        ps.setLong(7, row.noteCreatorId());
+        ps.setTimestamp(8, row.enqueuedAt());
+        ps.setTimestamp(9, row.originalCreatedAt());
+        ps.setTimestamp(10, row.originalUpdatedAt());
+        ps.setObject(11, version.deltaBaseVersion());
+        ps.setString(12, version.titleDelta());
+        ps.setString(13, version.contentDelta());
+    }
+
+    private static Long[] toLongs(Array array) throws SQLException {
+        return array != null ? (Long[]) array.getArray() : null;
+    }
+
+    /**
+     * A pending snapshot as read from the outbox
+     */
+    record OutboxRow(long id, Long noteId, String title, String content, Long[] readers, Long[] writers,
+                     Long createdBy, Long noteCreatorId, Timestamp originalCreatedAt, Timestamp originalUpdatedAt,
+                     Timestamp enqueuedAt) {}
+
+    /**
+     * Latest stored version of a note: base of the next number and delta
+     */
+    record LatestVersion(int versionNumber, String title, String content) {}
+
+    /**
+     * Version row to insert for a snapshot
+     */
+    record PlannedVersion(OutboxRow row, int versionNumber, String contentHash, Integer deltaBaseVersion,
+                          String titleDelta, String contentDelta) {}
+}
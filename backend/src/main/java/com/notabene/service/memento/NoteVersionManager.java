@@ -1,17 +1,24 @@
 package com.notabene.service.memento;
 
+import com.notabene.entity.ContentHash;
 import com.notabene.entity.Note;
 import com.notabene.entity.NoteVersion;
 import com.notabene.repository.NoteVersionRepository;
+import com.notabene.repository.VersionBlobRepository;
+import com.notabene.service.TextDiffService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.util.Optional;
 
 /**
  * Caretaker class for the Memento pattern.
- * Manages the creation, storage, and cleanup of note versions.
+ * Manages the creation and storage of note versions; old versions are pruned
+ * in the background by VersionRetentionService.
  */
 @Component
 @RequiredArgsConstructor
@@ -19,8 +26,8 @@ import java.util.List;
 public class NoteVersionManager {
     
     private final NoteVersionRepository noteVersionRepository;
-    
-    private static final int MAX_VERSIONS_PER_NOTE = 10;
+    private final VersionBlobRepository versionBlobRepository;
+    private final TextDiffService textDiffService;
     
     /**
      * Create a new version of the note
@@ -37,15 +44,11 @@ public class NoteVersionManager {
                  note.getId(), editorUserId, isRestored, restoredFromVersion);
         validateInputs(note, editorUserId);
         
-        // Get current version count
-        Long currentVersionCount = noteVersionRepository.countByNoteId(note.getId());
-        int newVersionNumber = currentVersionCount.intValue() + 1;
-        log.debug("Current version count: {}, new version number: {}", currentVersionCount, newVersionNumber);
-        
-        // Clean up old versions if necessary
-        if (currentVersionCount >= MAX_VERSIONS_PER_NOTE) {
-            cleanupOldVersions(note.getId());
-        }
+        // Latest stored version: base of the delta and of the new version number.
+        // Numbering follows the highest number, not the count, which shrinks when the retention job prunes old versions
+        Optional<NoteVersion> previousVersion = noteVersionRepository.findFirstByNoteIdOrderByVersionNumberDesc(note.getId());
+        int newVersionNumber = previousVersion.map(previous -> previous.getVersionNumber() + 1).orElse(1);
+        log.debug("New version number: {}", newVersionNumber);
         
         // Create memento to capture current state
         NoteMemento memento = note.createMemento();
@@ -68,14 +71,42 @@ public class NoteVersionManager {
         version.setIsRestored(isRestored);
         version.setRestoredFromVersion(restoredFromVersion);
         
+        // Store the body once per content: identical versions share the same blob
+        version.setContentHash(ContentHash.of(memento.getTitle(), memento.getContent()));
+        versionBlobRepository.upsert(version.getContentHash(), memento.getTitle(), memento.getContent());
+        
+        // Store the delta from the previous version so adjacent comparisons become a lookup.
+        // Edits applied with PATCH already carry it: it is only checked, not recomputed
+        previousVersion.ifPresent(previous -> {
+            version.setDeltaBaseVersion(previous.getVersionNumber());
+            if (hasPendingDelta(note, previous, memento)) {
+                version.setTitleDelta(note.getPendingTitleDelta());
+                version.setContentDelta(note.getPendingContentDelta());
+            } else {
+                version.setTitleDelta(textDiffService.calculateDelta(previous.getTitle(), memento.getTitle()));
+                version.setContentDelta(textDiffService.calculateDelta(previous.getContent(), memento.getContent()));
+            }
+        });
+        
         log.debug("Created version entity with all fields set, attempting to save...");
         
         // Save version
         try {
-            NoteVersion savedVersion = noteVersionRepository.save(version);
+            // Flush subito: con gli id da sequenza l'INSERT verrebbe rimandato, fuori dalla gestione del conflitto qui sotto
+            NoteVersion savedVersion = noteVersionRepository.saveAndFlush(version);
             log.info("Successfully created version {} for note {} by user {} (restored: {}, from version: {})", 
                     newVersionNumber, note.getId(), editorUserId, isRestored, restoredFromVersion);
             return savedVersion;
+        } catch (DataIntegrityViolationException e) {
+            // Stesso numero di versione salvato da una scrittura concorrente sulla nota
+            if (e.getCause() instanceof ConstraintViolationException violation
+                    && "uq_note_version".equals(violation.getConstraintName())) {
+                log.warn("Version {} of note {} was created concurrently", newVersionNumber, note.getId());
+                throw new ObjectOptimisticLockingFailureException(Note.class, note.getId(), e);
+            }
+            log.error("Failed to save version for note {} by user {}: {}", 
+                     note.getId(), editorUserId, e.getMessage(), e);
+            throw new RuntimeException("Failed to save note version: " + e.getMessage(), e);
         } catch (Exception e) {
             log.error("Failed to save version for note {} by user {}: {}", 
                      note.getId(), editorUserId, e.getMessage(), e);
@@ -84,21 +115,14 @@ public class NoteVersionManager {
     }
     
     /**
-     * Clean up old versions to maintain the maximum limit
+     * Whether the note's pending delta leads from the previous version to the captured state
      */
-    private void cleanupOldVersions(Long noteId) {
-        List<NoteVersion> oldVersions = noteVersionRepository
-            .findByNoteIdOrderByVersionNumberAsc(noteId);
-        
-        // Calculate how many versions to delete
-        int versionsToDelete = oldVersions.size() - MAX_VERSIONS_PER_NOTE + 1;
-        
-        if (versionsToDelete > 0) {
-            List<NoteVersion> versionsToRemove = oldVersions.subList(0, versionsToDelete);
-            noteVersionRepository.deleteAll(versionsToRemove);
-            
-            log.info("Cleaned up {} old versions for note {}", versionsToDelete, noteId);
-        }
+    private boolean hasPendingDelta(Note note, NoteVersion previous, NoteMemento memento) {
+        return previous.getVersionNumber().equals(note.getPendingDeltaBase())
+            && note.getPendingTitleDelta() != null
+            && note.getPendingContentDelta() != null
+            && textDiffService.deltaProduces(previous.getTitle(), note.getPendingTitleDelta(), memento.getTitle())
+            && textDiffService.deltaProduces(previous.getContent(), note.getPendingContentDelta(), memento.getContent());
     }
     
     /**
@@ -0,0 +1,11 @@
+package com.notabene.service.support;
+
+import java.util.List;
+
+/**
+ * Ids for rows inserted outside Hibernate, taken from the entity sequences so they never
+ * collide with ids handed out by the pooled-lo optimizer.
+ */
+public interface IdAllocator {
+    List<Long> allocate(String sequence, int count);
+}
@@ -0,0 +1,35 @@
+package com.notabene.service.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reserves ids in blocks, exactly as the pooled-lo optimizer does: each nextval reserves
+ * ID_BLOCK consecutive ids starting at its value.
+ */
+@Component
+public class JdbcIdAllocator implements IdAllocator {
+
+    // Deve coincidere con allocationSize dei @SequenceGenerator e con l'INCREMENT BY delle sequenze
+    static final int ID_BLOCK = 50;
+
+    private final JdbcTemplate jdbc;
+
+    public JdbcIdAllocator(JdbcTemplate jdbc) { this.jdbc = jdbc; }
+
+    @Override
+    public List<Long> allocate(String sequence, int count) {
+        if (count == 0) return List.of();
+        List<Long> blocks = jdbc.queryForList(
+                "SELECT nextval('" + sequence + "') FROM generate_series(1, ?)", Long.class,
+                (count + ID_BLOCK - 1) / ID_BLOCK);
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(blocks.get(i / ID_BLOCK) + i % ID_BLOCK);
+        }
+        return ids;
+    }
+}
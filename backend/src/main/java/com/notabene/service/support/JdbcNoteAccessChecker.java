@@ -0,0 +1,97 @@
+package com.notabene.service.support;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.notabene.repository.NoteRepository;
+
+/**
+ * Note access checks with EXISTS and set-based queries. Within an HTTP request each answer
+ * is remembered, so checking the same notes again costs no query; outside a request (jobs,
+ * tests) every call goes to the database. Ownership is the creator_id of the note, as in
+ * the rest of the API, not the legacy user_id column.
+ */
+@Component
+public class JdbcNoteAccessChecker implements NoteAccessChecker {
+
+    private static final String MEMO_ATTRIBUTE = JdbcNoteAccessChecker.class.getName() + ".memo";
+
+    private static final String IS_OWNED =
+        "SELECT EXISTS (SELECT 1 FROM notes WHERE id = :noteId AND creator_id = :userId)";
+
+    private static final String READABLE_IDS =
+        "SELECT n.id FROM notes n WHERE n.id IN (:noteIds) AND " + NoteRepository.CAN_READ;
+
+    private enum Check { OWNED, READABLE }
+
+    private record Key(Check check, Long userId, Long noteId) {}
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public JdbcNoteAccessChecker(NamedParameterJdbcTemplate jdbc) { this.jdbc = jdbc; }
+
+    @Override
+    public boolean isOwnedByUser(Long noteId, Long userId) {
+        Map<Key, Boolean> memo = memo();
+        Key key = new Key(Check.OWNED, userId, noteId);
+        Boolean known = memo.get(key);
+        if (known != null) return known;
+
+        boolean owned = Boolean.TRUE.equals(jdbc.queryForObject(IS_OWNED,
+                new MapSqlParameterSource("noteId", noteId).addValue("userId", userId), Boolean.class));
+        memo.put(key, owned);
+        return owned;
+    }
+
+    @Override
+    public Set<Long> readableByUser(Collection<Long> noteIds, Long userId) {
+        return check(Check.READABLE, READABLE_IDS, noteIds, userId);
+    }
+
+    private Set<Long> check(Check check, String sql, Collection<Long> noteIds, Long userId) {
+        Map<Key, Boolean> memo = memo();
+        // In ordine di id, come il vecchio ORDER BY: copie e note saltate restano in ordine stabile
+        Set<Long> allowed = new TreeSet<>();
+        Set<Long> unknown = new LinkedHashSet<>();
+        for (Long noteId : noteIds) {
+            Boolean known = memo.get(new Key(check, userId, noteId));
+            if (known == null) unknown.add(noteId);
+            else if (known) allowed.add(noteId);
+        }
+        if (unknown.isEmpty()) return allowed;
+
+        // Una sola query per tutte le note non ancora verificate
+        Set<Long> found = new HashSet<>(jdbc.queryForList(sql,
+                new MapSqlParameterSource("noteIds", unknown).addValue("userId", userId), Long.class));
+        for (Long noteId : unknown) {
+            boolean ok = found.contains(noteId);
+            memo.put(new Key(check, userId, noteId), ok);
+            if (ok) allowed.add(noteId);
+        }
+        return allowed;
+    }
+
+    // Memo legato alla richiesta corrente; fuori da una richiesta una mappa usa e getta
+    @SuppressWarnings("unchecked")
+    private static Map<Key, Boolean> memo() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) return new HashMap<>();
+        Map<Key, Boolean> memo = (Map<Key, Boolean>) request.getAttribute(MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new HashMap<>();
+            request.setAttribute(MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memo;
+    }
+}
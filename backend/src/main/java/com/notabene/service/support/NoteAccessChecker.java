@@ -0,0 +1,15 @@
+package com.notabene.service.support;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Ownership and read checks on notes, shared by the services that change folders.
+ * The batched check answers for many notes with one query.
+ */
+public interface NoteAccessChecker {
+    boolean isOwnedByUser(Long noteId, Long userId);
+
+    // Le note indicate leggibili dall'utente, direttamente o tramite un gruppo, in ordine di id
+    Set<Long> readableByUser(Collection<Long> noteIds, Long userId);
+}
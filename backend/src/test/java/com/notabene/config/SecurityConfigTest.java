@@ -5,7 +5,10 @@ import org.junit.jupiter.api.DisplayName;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.cors.DefaultCorsProcessor;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -94,10 +97,32 @@ class SecurityConfigTest {
         assertTrue(corsConfig.getAllowedMethods().contains("GET"));
         assertTrue(corsConfig.getAllowedMethods().contains("POST"));
         assertTrue(corsConfig.getAllowedMethods().contains("PUT"));
+        assertTrue(corsConfig.getAllowedMethods().contains("PATCH"));
         assertTrue(corsConfig.getAllowedMethods().contains("DELETE"));
         assertTrue(corsConfig.getAllowedMethods().contains("OPTIONS"));
     }
 
+    @Test
+    @DisplayName("Should accept a CORS preflight for PATCH")
+    void shouldAcceptPatchPreflight() throws Exception {
+        // Given - preflight del browser prima di patchNote
+        CorsConfigurationSource corsConfigurationSource = securityConfig.corsConfigurationSource();
+        MockHttpServletRequest request = new MockHttpServletRequest("OPTIONS", "/api/notes/1");
+        request.addHeader(HttpHeaders.ORIGIN, "http://localhost:3000");
+        request.addHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "PATCH");
+        request.addHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "Content-Type, X-Auth-Token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        boolean accepted = new DefaultCorsProcessor()
+            .processRequest(corsConfigurationSource.getCorsConfiguration(request), request, response);
+
+        // Then
+        assertTrue(accepted);
+        assertEquals(200, response.getStatus());
+        assertTrue(response.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS).contains("PATCH"));
+    }
+
     @Test
     @DisplayName("Should configure CORS headers")
     void shouldConfigureCORSHeaders() {
@@ -0,0 +1,47 @@
+package com.notabene.config;
+
+import com.notabene.dto.VersionStorageReportDTO;
+import com.notabene.repository.VersionBlobRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Version Storage Endpoint Tests")
+class VersionStorageEndpointTest {
+
+    @Mock
+    private VersionBlobRepository versionBlobRepository;
+
+    @InjectMocks
+    private VersionStorageEndpoint endpoint;
+
+    @Test
+    @DisplayName("Should report the dedup ratio of version bodies")
+    void shouldReportDedupRatio() {
+        // Given - 30 versioni che condividono 3 corpi
+        when(versionBlobRepository.storageTotals()).thenReturn(new Object[] { new Object[] { 30L, 3L, 2400L, 240L } });
+
+        // When
+        VersionStorageReportDTO report = endpoint.report();
+
+        // Then
+        assertEquals(30, report.versions());
+        assertEquals(3, report.blobs());
+        assertEquals(10.0, report.dedupRatio(), 0.0001);
+    }
+
+    @Test
+    @DisplayName("Should report a neutral ratio when nothing is stored")
+    void shouldReportNeutralRatioWhenEmpty() {
+        when(versionBlobRepository.storageTotals()).thenReturn(new Object[] { 0L, 0L, 0L, 0L });
+
+        assertEquals(1.0, endpoint.report().dedupRatio(), 0.0001);
+    }
+}
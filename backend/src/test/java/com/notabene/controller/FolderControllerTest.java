@@ -27,11 +27,16 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.notabene.config.TokenAuthenticationFilter;
 import com.notabene.dto.FolderDtos.CreateFolderRequest;
+import com.notabene.dto.FolderDtos.FolderContentsPage;
+import com.notabene.dto.FolderDtos.MoveNotesRequest;
+import com.notabene.dto.FolderDtos.MoveNotesResult;
 import com.notabene.dto.FolderDtos.FolderDetail;
 import com.notabene.dto.FolderDtos.FolderNoteRef;
 import com.notabene.dto.FolderDtos.FolderSummary;
 import com.notabene.dto.NoteResponse;
 import com.notabene.dto.SearchNotesRequest;
+import com.notabene.service.FolderBulkService;
+import com.notabene.service.FolderContentsService;
 import com.notabene.service.FolderService;
 import com.notabene.service.NoteService;
 
@@ -46,6 +51,8 @@ class FolderControllerTest {
 
     @MockBean FolderService service;
     @MockBean NoteService noteService;
+    @MockBean FolderContentsService contentsService;
+    @MockBean FolderBulkService bulkService;
 
     private NoteResponse sampleNoteResponse;
 
@@ -99,6 +106,41 @@ class FolderControllerTest {
            .andExpect(jsonPath("$.notes[0].id").value(77));
     }
 
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/folders/{id}/notes - Should return a page of folder contents with the next cursor")
+    void shouldReturnFolderContentsPage() throws Exception {
+        // Given
+        when(contentsService.getContents(9L, 120L, 50))
+                .thenReturn(new FolderContentsPage(List.of(sampleNoteResponse), 1L));
+
+        // When & Then
+        mvc.perform(get("/api/folders/9/notes")
+                .param("after", "120")
+                .param("size", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notes[0].title").value("Java Programming in Folder"))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("POST /api/folders/{id}/notes/move - Should move notes between folders")
+    void shouldMoveNotesBetweenFolders() throws Exception {
+        // Given
+        var body = new MoveNotesRequest(1L, List.of(7L, 8L));
+        when(bulkService.moveNotes(eq(2L), any())).thenReturn(new MoveNotesResult(List.of(7L), List.of(8L)));
+
+        // When & Then
+        mvc.perform(post("/api/folders/2/notes/move")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(om.writeValueAsString(body)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movedNoteIds[0]").value(7))
+                .andExpect(jsonPath("$.skippedNoteIds[0]").value(8));
+    }
+
     @Test
     @WithMockUser
     @DisplayName("GET /api/folders/{folderId}/notes/search - Should search notes in folder")
@@ -0,0 +1,83 @@
+package com.notabene.controller;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.notabene.dto.BatchNoteRequest;
+import com.notabene.dto.BatchNoteResponse;
+import com.notabene.service.NoteBatchService;
+
+@WebMvcTest(
+    controllers = {NoteBatchController.class},
+    excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = {
+            com.notabene.config.TokenAuthenticationFilter.class,
+            com.notabene.config.TokenStore.class
+        }
+    ),
+    excludeAutoConfiguration = {
+        org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration.class
+    }
+)
+@AutoConfigureMockMvc(addFilters = false)
+@Import(com.notabene.exception.GlobalExceptionHandler.class)
+@ActiveProfiles("test")
+@DisplayName("Note Batch Controller Tests")
+class NoteBatchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NoteBatchService noteBatchService;
+
+    @Test
+    @DisplayName("Should return one result per operation and note")
+    void shouldReturnPerItemResults() throws Exception {
+        // Given
+        BatchNoteResponse response = new BatchNoteResponse(List.of(
+            new BatchNoteResponse.ItemResult(0, 1L, 200, null, null),
+            new BatchNoteResponse.ItemResult(0, 2L, 403, "Only the note owner can perform this operation", null)),
+            1, 1, false);
+        when(noteBatchService.execute(any(BatchNoteRequest.class))).thenReturn(response);
+
+        // When & Then
+        mockMvc.perform(post("/api/notes/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"operations\":[{\"type\":\"delete\",\"noteIds\":[1,2]}]}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.succeeded").value(1))
+            .andExpect(jsonPath("$.results[1].noteId").value(2))
+            .andExpect(jsonPath("$.results[1].status").value(403));
+    }
+
+    @Test
+    @DisplayName("Should reject unknown operation types")
+    void shouldReturn400ForUnknownOperation() throws Exception {
+        mockMvc.perform(post("/api/notes/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"operations\":[{\"type\":\"archive\",\"noteIds\":[1]}]}"))
+            .andExpect(status().isBadRequest());
+        verifyNoInteractions(noteBatchService);
+    }
+}
@@ -0,0 +1,105 @@
+package com.notabene.controller;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.notabene.dto.NoteBlameDTO;
+import com.notabene.entity.Note;
+import com.notabene.model.User;
+import com.notabene.repository.NoteRepository;
+import com.notabene.service.AuthenticationService;
+import com.notabene.service.NoteBlameService;
+
+@WebMvcTest(
+    controllers = { NoteBlameController.class },
+    excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = {
+            com.notabene.config.TokenAuthenticationFilter.class,
+            com.notabene.config.TokenStore.class
+        }
+    ),
+    excludeAutoConfiguration = {
+        org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration.class
+    }
+)
+@AutoConfigureMockMvc(addFilters = false)
+@Import(com.notabene.exception.GlobalExceptionHandler.class)
+@ActiveProfiles("test")
+class NoteBlameControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NoteBlameService noteBlameService;
+
+    @MockBean
+    private AuthenticationService authenticationService;
+
+    @MockBean
+    private NoteRepository noteRepository;
+
+    private static final Long TEST_USER_ID = 1L;
+    private static final Long TEST_NOTE_ID = 1L;
+
+    private Note testNote;
+
+    @BeforeEach
+    void setUp() {
+        User testUser = new User();
+        testUser.setId(TEST_USER_ID);
+        testUser.setUsername("testuser");
+        when(authenticationService.getCurrentUser()).thenReturn(testUser);
+
+        testNote = new Note();
+        testNote.setId(TEST_NOTE_ID);
+        testNote.setTitle("Test Note");
+        testNote.setContent("Test Content");
+        when(noteRepository.findByIdWithReadPermission(TEST_NOTE_ID, TEST_USER_ID))
+                .thenReturn(Optional.of(testNote));
+    }
+
+    @Test
+    void shouldGetBlameSpans() throws Exception {
+        NoteBlameDTO blame = new NoteBlameDTO(TEST_NOTE_ID, 3,
+                List.of(new NoteBlameDTO.BlameSpan(0, 9, "Test Note", 1, TEST_USER_ID, "testuser")),
+                List.of(new NoteBlameDTO.BlameSpan(0, 5, "Test ", 1, TEST_USER_ID, "testuser"),
+                        new NoteBlameDTO.BlameSpan(5, 7, "Content", 2, 2L, "other")));
+        when(noteBlameService.getBlame(testNote)).thenReturn(blame);
+
+        mockMvc.perform(get("/api/notes/{noteId}/blame", TEST_NOTE_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.versionNumber").value(3))
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[1].text").value("Content"))
+                .andExpect(jsonPath("$.content[1].versionNumber").value(2))
+                .andExpect(jsonPath("$.content[1].createdByUsername").value("other"));
+    }
+
+    @Test
+    void shouldReturn403ForBlameWhenUserCannotReadNote() throws Exception {
+        when(noteRepository.findByIdWithReadPermission(TEST_NOTE_ID, TEST_USER_ID))
+                .thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/notes/{noteId}/blame", TEST_NOTE_ID))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -22,10 +22,12 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -34,7 +36,10 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.notabene.dto.CreateNoteRequest;
 import com.notabene.dto.NoteResponse;
+import com.notabene.dto.PatchNoteRequest;
 import com.notabene.dto.UpdateNoteRequest;
+import com.notabene.exception.NoteConflictException;
+import com.notabene.exception.NoteMergeConflictException;
 import com.notabene.exception.NoteNotFoundException;
 import com.notabene.service.NoteService;
 
@@ -224,6 +229,94 @@ class NoteControllerTest {
         verify(noteService).updateNote(eq(999L), any(UpdateNoteRequest.class));
     }
     
+    @Test
+    @DisplayName("PUT /api/notes/{id} - Should return 409 with the current revision on concurrent update")
+    void shouldReturn409WhenUpdateLosesOptimisticLock() throws Exception {
+        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(com.notabene.entity.Note.class, 1L));
+        when(noteService.concurrentModification(1L))
+                .thenReturn(new NoteConflictException("Note 1 was modified by another request", "hash", 8L));
+        
+        mockMvc.perform(put("/api/notes/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(validUpdateRequest)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.currentRevision").value(8))
+                .andExpect(jsonPath("$.currentHash").value("hash"));
+    }
+    
+    @Test
+    @DisplayName("PUT /api/notes/{id} - Should return 409 with the marked-up merge on overlapping edits")
+    void shouldReturn409WithMergedTextOnMergeConflict() throws Exception {
+        validUpdateRequest.setMerge(true);
+        validUpdateRequest.setBaseHash("base-hash");
+        String merged = "<<<<<<< theirs\nTheirs\n=======\nOurs\n>>>>>>> ours";
+        when(noteService.updateNote(eq(1L), any(UpdateNoteRequest.class)))
+                .thenThrow(new NoteMergeConflictException("Merging the edit into note 1 left 1 conflicting changes",
+                        "current-hash", 4L, "Title", merged, 1));
+        
+        mockMvc.perform(put("/api/notes/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(validUpdateRequest)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.currentHash").value("current-hash"))
+                .andExpect(jsonPath("$.conflicts").value(1))
+                .andExpect(jsonPath("$.mergedTitle").value("Title"))
+                .andExpect(jsonPath("$.mergedContent").value(merged));
+    }
+    
+    @Test
+    @DisplayName("PATCH /api/notes/{id} - Should apply edit operations")
+    void shouldPatchNoteSuccessfully() throws Exception {
+        NoteResponse patchedResponse = new NoteResponse();
+        patchedResponse.setId(1L);
+        patchedResponse.setContent("Hello world");
+        patchedResponse.setContentHash("new-hash");
+        PatchNoteRequest request = new PatchNoteRequest("base-hash",
+                List.of(new PatchNoteRequest.EditOperation("content", "insert", 5, " world", null)));
+        
+        when(noteService.patchNote(eq(1L), any(PatchNoteRequest.class))).thenReturn(patchedResponse);
+        
+        mockMvc.perform(patch("/api/notes/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").value("Hello world"))
+                .andExpect(jsonPath("$.contentHash").value("new-hash"));
+        
+        verify(noteService).patchNote(eq(1L), any(PatchNoteRequest.class));
+    }
+    
+    @Test
+    @DisplayName("PATCH /api/notes/{id} - Should return 409 with the current hash on base mismatch")
+    void shouldReturn409WhenPatchBaseIsOutdated() throws Exception {
+        PatchNoteRequest request = new PatchNoteRequest("old-hash",
+                List.of(new PatchNoteRequest.EditOperation("content", "delete", 0, null, 3)));
+        
+        when(noteService.patchNote(eq(1L), any(PatchNoteRequest.class)))
+                .thenThrow(new NoteConflictException("Note 1 was modified after revision old-hash", "current-hash", 3L));
+        
+        mockMvc.perform(patch("/api/notes/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.currentHash").value("current-hash"));
+    }
+    
+    @Test
+    @DisplayName("PATCH /api/notes/{id} - Should return 400 for invalid operations")
+    void shouldReturn400ForInvalidPatchOperations() throws Exception {
+        PatchNoteRequest request = new PatchNoteRequest("base-hash",
+                List.of(new PatchNoteRequest.EditOperation("content", "replace", -1, "x", null)));
+        
+        mockMvc.perform(patch("/api/notes/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+        
+        verify(noteService, never()).patchNote(any(), any());
+    }
+    
     @Test
     @DisplayName("DELETE /api/notes/{id} - Should delete note successfully")
     void shouldDeleteNoteSuccessfully() throws Exception {
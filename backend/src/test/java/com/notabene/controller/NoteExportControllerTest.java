@@ -0,0 +1,103 @@
+package com.notabene.controller;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.notabene.model.User;
+import com.notabene.service.AuthenticationService;
+import com.notabene.service.NoteExportService;
+
+@WebMvcTest(
+    controllers = {NoteExportController.class},
+    excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = {
+            com.notabene.config.TokenAuthenticationFilter.class,
+            com.notabene.config.TokenStore.class
+        }
+    ),
+    excludeAutoConfiguration = {
+        org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration.class
+    }
+)
+@AutoConfigureMockMvc(addFilters = false)
+@Import(com.notabene.exception.GlobalExceptionHandler.class)
+@ActiveProfiles("test")
+@DisplayName("Note Export Controller Tests")
+class NoteExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NoteExportService noteExportService;
+
+    @MockBean
+    private AuthenticationService authenticationService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setUsername("testuser");
+        when(authenticationService.getCurrentUser()).thenReturn(testUser);
+    }
+
+    @Test
+    @DisplayName("Should stream the export of the current user's notes as an NDJSON attachment")
+    void shouldStreamNdjsonExport() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(noteExportService).export(eq(1L), eq(NoteExportService.Format.NDJSON), eq(true), any(OutputStream.class));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/notes/export").param("history", "true"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Type", MediaType.APPLICATION_NDJSON_VALUE))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"notabene-export.ndjson\""))
+            .andExpect(content().string("{\"id\":1}\n"));
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown export format")
+    void shouldReturn400ForUnknownExportFormat() throws Exception {
+        mockMvc.perform(get("/api/notes/export").param("format", "xml"))
+            .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,103 @@
+package com.notabene.controller;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.notabene.dto.NoteImportReportDTO;
+import com.notabene.model.User;
+import com.notabene.service.AuthenticationService;
+import com.notabene.service.NoteImportService;
+
+@WebMvcTest(
+    controllers = {NoteImportController.class},
+    excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = {
+            com.notabene.config.TokenAuthenticationFilter.class,
+            com.notabene.config.TokenStore.class
+        }
+    ),
+    excludeAutoConfiguration = {
+        org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration.class
+    }
+)
+@AutoConfigureMockMvc(addFilters = false)
+@Import(com.notabene.exception.GlobalExceptionHandler.class)
+@ActiveProfiles("test")
+@DisplayName("Note Import Controller Tests")
+class NoteImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NoteImportService noteImportService;
+
+    @MockBean
+    private AuthenticationService authenticationService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setUsername("testuser");
+        when(authenticationService.getCurrentUser()).thenReturn(testUser);
+    }
+
+    @Test
+    @DisplayName("Should import NDJSON and return the report with rejected rows")
+    void shouldImportNdjson() throws Exception {
+        // Given
+        NoteImportReportDTO report = new NoteImportReportDTO(1, 1,
+            List.of(new NoteImportReportDTO.RowError(2, "Title cannot be blank")), false, 12);
+        when(noteImportService.importNotes(any(InputStream.class), eq(NoteImportService.Format.NDJSON), eq(testUser)))
+            .thenReturn(report);
+
+        // When & Then
+        mockMvc.perform(post("/api/notes/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"title\":\"A\",\"content\":\"B\"}\n{\"title\":\"\",\"content\":\"C\"}\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.errors[0].line").value(2))
+            .andExpect(jsonPath("$.errors[0].message").value("Title cannot be blank"));
+    }
+
+    @Test
+    @DisplayName("Should pick the CSV reader from the content type and reject a bad header")
+    void shouldReturn400ForInvalidCsvHeader() throws Exception {
+        // Given
+        when(noteImportService.importNotes(any(InputStream.class), eq(NoteImportService.Format.CSV), eq(testUser)))
+            .thenThrow(new IllegalArgumentException("CSV header must name the title and content columns"));
+
+        // When & Then
+        mockMvc.perform(post("/api/notes/import")
+                .contentType("text/csv; charset=UTF-8")
+                .content("name,body\nA,B\n"))
+            .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,81 @@
+package com.notabene.controller;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.notabene.dto.BulkShareRequest;
+import com.notabene.dto.BulkShareResponse;
+import com.notabene.service.NoteSharingService;
+
+@WebMvcTest(
+    controllers = {NoteSharingController.class},
+    excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = {
+            com.notabene.config.TokenAuthenticationFilter.class,
+            com.notabene.config.TokenStore.class
+        }
+    ),
+    excludeAutoConfiguration = {
+        org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration.class
+    }
+)
+@AutoConfigureMockMvc(addFilters = false)
+@Import(com.notabene.exception.GlobalExceptionHandler.class)
+@ActiveProfiles("test")
+@DisplayName("Note Sharing Controller Tests")
+class NoteSharingControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NoteSharingService noteSharingService;
+
+    @Test
+    @DisplayName("Should grant and report skipped notes and unknown users")
+    void shouldGrantInBulk() throws Exception {
+        // Given
+        when(noteSharingService.grant(any(BulkShareRequest.class)))
+            .thenReturn(new BulkShareResponse(2, List.of(12L), List.of("dave")));
+
+        // When & Then
+        mockMvc.perform(post("/api/notes/permissions/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"noteIds\":[10,11,12],\"usernames\":[\"bob\",\"dave\"],\"role\":\"writer\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.updatedNotes").value(2))
+            .andExpect(jsonPath("$.skippedNoteIds[0]").value(12))
+            .andExpect(jsonPath("$.unknownUsernames[0]").value("dave"));
+    }
+
+    @Test
+    @DisplayName("Should reject unknown roles")
+    void shouldReturn400ForUnknownRole() throws Exception {
+        mockMvc.perform(delete("/api/notes/permissions/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"noteIds\":[10],\"usernames\":[\"bob\"],\"role\":\"owner\"}"))
+            .andExpect(status().isBadRequest());
+        verifyNoInteractions(noteSharingService);
+    }
+}
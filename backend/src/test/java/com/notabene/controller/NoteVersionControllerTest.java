@@ -2,10 +2,16 @@ package com.notabene.controller;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -15,22 +21,34 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.notabene.dto.BatchVersionComparisonDTO;
+import com.notabene.dto.CompactTextDiffDTO;
+import com.notabene.dto.CompactVersionComparisonDTO;
+import com.notabene.dto.NoteVersionContentDTO;
+import com.notabene.dto.NoteVersionSummaryDTO;
+import com.notabene.dto.RetentionPolicyDTO;
+import com.notabene.dto.TextDiffDTO;
 import com.notabene.entity.Note;
 import com.notabene.entity.NoteVersion;
+import com.notabene.exception.NoteConflictException;
 import com.notabene.model.User;
 import com.notabene.repository.NoteRepository;
 import com.notabene.service.AuthenticationService;
 import com.notabene.service.NoteService;
 import com.notabene.service.NoteVersioningService;
 import com.notabene.service.TextDiffService;
+import com.notabene.service.VersionComparisonService;
+import com.notabene.service.VersionRetentionService;
 
 @WebMvcTest(
     controllers = { NoteVersionController.class },
@@ -67,7 +85,10 @@ class NoteVersionControllerTest {
     private NoteService noteService;
 
     @MockBean
-    private TextDiffService textDiffService;
+    private VersionComparisonService versionComparisonService;
+
+    @MockBean
+    private VersionRetentionService versionRetentionService;
 
     private static final Long TEST_USER_ID = 1L;
     private static final Long TEST_NOTE_ID = 1L;
@@ -138,20 +159,43 @@ class NoteVersionControllerTest {
 
     @Test
     void shouldRestoreToVersion() throws Exception {
-        // Il controller: POST /{versionNumber}/restore -> usa authSvc, service e noteService.convertToNoteResponse
-        Note restored = createTestNote();
-        when(noteVersioningService.restoreToVersion(TEST_NOTE_ID, 2, TEST_USER_ID)).thenReturn(restored);
-        // Restituiamo un mock di DTO per evitare dipendenze sulla struttura
-        com.notabene.dto.NoteResponse dto = org.mockito.Mockito.mock(com.notabene.dto.NoteResponse.class);
-        when(noteService.convertToNoteResponse(restored, TEST_USER_ID)).thenReturn(dto);
+        // Il controller: POST /{versionNumber}/restore -> noteService.restoreNote (ripristino e DTO nella stessa transazione)
+        com.notabene.dto.NoteResponse dto = new com.notabene.dto.NoteResponse();
+        dto.setId(TEST_NOTE_ID);
+        dto.setRevision(4L);
+        when(noteService.restoreNote(TEST_NOTE_ID, 2, null)).thenReturn(dto);
+
+        mockMvc.perform(post("/api/notes/{noteId}/versions/{versionNumber}/restore", TEST_NOTE_ID, 2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.revision").value(4));
+    }
+
+    @Test
+    void shouldReturn409WithCurrentRevisionWhenRestoringOutdatedRevision() throws Exception {
+        when(noteService.restoreNote(TEST_NOTE_ID, 2, 3L))
+                .thenThrow(new NoteConflictException("Note 1 is at revision 5, not 3", "hash", 5L));
+
+        mockMvc.perform(post("/api/notes/{noteId}/versions/{versionNumber}/restore", TEST_NOTE_ID, 2)
+                        .param("revision", "3"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.currentRevision").value(5));
+    }
+
+    @Test
+    void shouldReturn409WhenRestoreLosesOptimisticLock() throws Exception {
+        when(noteService.restoreNote(TEST_NOTE_ID, 2, null))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Note.class, TEST_NOTE_ID));
+        when(noteService.concurrentModification(TEST_NOTE_ID))
+                .thenReturn(new NoteConflictException("Note 1 was modified by another request", "hash", 6L));
 
         mockMvc.perform(post("/api/notes/{noteId}/versions/{versionNumber}/restore", TEST_NOTE_ID, 2))
-                .andExpect(status().isOk());
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.currentRevision").value(6));
     }
 
     @Test
     void shouldReturn401WhenNoAuthenticationContext_onRestore() throws Exception {
-        when(authenticationService.getCurrentUser()).thenThrow(new IllegalStateException("No authenticated user found"));
+        when(noteService.restoreNote(TEST_NOTE_ID, 2, null)).thenThrow(new IllegalStateException("No authenticated user found"));
 
         mockMvc.perform(post("/api/notes/{noteId}/versions/{versionNumber}/restore", TEST_NOTE_ID, 2))
                 .andExpect(status().isUnauthorized());
@@ -159,7 +203,7 @@ class NoteVersionControllerTest {
 
     @Test
     void shouldHandleSecurityExceptionWhenRestoringVersion() throws Exception {
-        when(noteVersioningService.restoreToVersion(TEST_NOTE_ID, 2, TEST_USER_ID))
+        when(noteService.restoreNote(TEST_NOTE_ID, 2, null))
                 .thenThrow(new SecurityException("User does not have permission to edit this note"));
 
         mockMvc.perform(post("/api/notes/{noteId}/versions/{versionNumber}/restore", TEST_NOTE_ID, 2))
@@ -168,14 +212,161 @@ class NoteVersionControllerTest {
 
     @Test
     void shouldHandleIllegalArgumentExceptionWhenVersionNotFound_onRestore() throws Exception {
-        when(noteVersioningService.restoreToVersion(TEST_NOTE_ID, 999, TEST_USER_ID))
+        when(noteService.restoreNote(TEST_NOTE_ID, 999, null))
                 .thenThrow(new IllegalArgumentException("Version not found: 999"));
 
         mockMvc.perform(post("/api/notes/{noteId}/versions/{versionNumber}/restore", TEST_NOTE_ID, 999))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void shouldCompareVersionsInCompactFormat() throws Exception {
+        NoteVersion v1 = createTestVersion(1L, 1, "Title", "Old content");
+        NoteVersion v2 = createTestVersion(2L, 2, "Title", "New content");
+        when(noteVersioningService.getVersion(TEST_NOTE_ID, 1)).thenReturn(Optional.of(v1));
+        when(noteVersioningService.getVersion(TEST_NOTE_ID, 2)).thenReturn(Optional.of(v2));
+        CompactTextDiffDTO titleDiff = new CompactTextDiffDTO("Title", "Title", List.of(
+                new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.EQUAL, 0, 0, 5)));
+        CompactTextDiffDTO contentDiff = new CompactTextDiffDTO("Old content", "New content", List.of(
+                new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.REMOVED, 0, 0, 3),
+                new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.ADDED, 3, 0, 3),
+                new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.EQUAL, 3, 3, 8)));
+        when(versionComparisonService.compareCompact(v1, v2, TextDiffService.Granularity.WORD,
+                TextDiffService.DiffLimits.DEFAULT))
+                .thenReturn(new CompactVersionComparisonDTO(v1, v2, titleDiff, contentDiff));
+
+        mockMvc.perform(get("/api/notes/{noteId}/versions/compare", TEST_NOTE_ID)
+                        .param("oldVersion", "1")
+                        .param("newVersion", "2")
+                        .param("granularity", "word")
+                        .param("format", "compact"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.leftVersion.versionNumber").value(1))
+                .andExpect(jsonPath("$.rightVersion.versionNumber").value(2))
+                .andExpect(jsonPath("$.leftVersion.content").doesNotExist())
+                .andExpect(jsonPath("$.contentDiff.ops[0][0]").value("REMOVED"))
+                .andExpect(jsonPath("$.contentDiff.ops[1][1]").value(3))
+                .andExpect(jsonPath("$.contentDiff.ops[2][3]").value(8))
+                .andExpect(jsonPath("$.hasChanges").value(true))
+                .andExpect(jsonPath("$.exact").value(true));
+    }
+
+    @Test
+    void shouldRejectNonPositiveDiffLimits() throws Exception {
+        mockMvc.perform(get("/api/notes/{noteId}/versions/compare", TEST_NOTE_ID)
+                        .param("oldVersion", "1")
+                        .param("newVersion", "2")
+                        .param("maxEditDistance", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldCompareVersionsInBatch() throws Exception {
+        NoteVersion v1 = createTestVersion(1L, 1, "Title", "Old content");
+        NoteVersion v2 = createTestVersion(2L, 2, "Title", "New content");
+        Map<Integer, NoteVersion> versions = Map.of(1, v1, 2, v2);
+        when(noteVersioningService.getVersions(TEST_NOTE_ID, Set.of(1, 2))).thenReturn(versions);
+        CompactTextDiffDTO same = new CompactTextDiffDTO("Title", "Title", List.of(
+                new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.EQUAL, 0, 0, 5)));
+        BatchVersionComparisonDTO batch = new BatchVersionComparisonDTO(List.of(
+                new BatchVersionComparisonDTO.PairResult(1, 2, new CompactVersionComparisonDTO(v1, v2, same, same), 120, null)), 3);
+        when(versionComparisonService.compareBatch(eq(versions), anyList(), eq(TextDiffService.Granularity.LINE),
+                eq(TextDiffService.DiffLimits.DEFAULT))).thenReturn(batch);
+
+        mockMvc.perform(post("/api/notes/{noteId}/versions/compare-batch", TEST_NOTE_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"pairs\":[{\"oldVersion\":1,\"newVersion\":2}],\"granularity\":\"line\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].oldVersion").value(1))
+                .andExpect(jsonPath("$.results[0].durationMicros").value(120))
+                .andExpect(jsonPath("$.results[0].comparison.rightVersion.versionNumber").value(2))
+                .andExpect(jsonPath("$.totalMillis").value(3));
+    }
+
+    @Test
+    void shouldRejectEmptyBatch() throws Exception {
+        mockMvc.perform(post("/api/notes/{noteId}/versions/compare-batch", TEST_NOTE_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"pairs\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRejectUnknownGranularity() throws Exception {
+        mockMvc.perform(get("/api/notes/{noteId}/versions/compare", TEST_NOTE_ID)
+                        .param("oldVersion", "1")
+                        .param("newVersion", "2")
+                        .param("granularity", "sentence"))
+                .andExpect(status().isBadRequest());
+    }
+
     // Helper methods
+    @Test
+    void shouldGetVersionSummaries() throws Exception {
+        NoteVersionSummaryDTO summary = new NoteVersionSummaryDTO(5L, TEST_NOTE_ID, 1, TEST_USER_ID, "testuser",
+                LocalDateTime.now(), false, null, "abc");
+        when(noteVersioningService.getVersionSummaries(testNote)).thenReturn(List.of(summary));
+
+        mockMvc.perform(get("/api/notes/{noteId}/versions/summary", TEST_NOTE_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].versionNumber").value(1))
+                .andExpect(jsonPath("$[0].createdByUsername").value("testuser"))
+                .andExpect(jsonPath("$[0].content").doesNotExist())
+                .andExpect(jsonPath("$[0].readers").doesNotExist())
+                .andExpect(jsonPath("$[0].contentHash").doesNotExist());
+    }
+
+    @Test
+    void shouldGetVersionContentOnDemand() throws Exception {
+        when(noteVersioningService.getVersionContent(testNote, 2))
+                .thenReturn(Optional.of(new NoteVersionContentDTO(2, "Version 2", "Content 2")));
+        when(noteVersioningService.getVersionContent(testNote, 9)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/notes/{noteId}/versions/{v}/content", TEST_NOTE_ID, 2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Version 2"))
+                .andExpect(jsonPath("$.content").value("Content 2"));
+
+        mockMvc.perform(get("/api/notes/{noteId}/versions/{v}/content", TEST_NOTE_ID, 9))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldUpdateRetentionPolicy() throws Exception {
+        when(noteRepository.findByIdWithWritePermission(TEST_NOTE_ID, TEST_USER_ID)).thenReturn(Optional.of(testNote));
+        when(versionRetentionService.updatePolicy(eq(TEST_NOTE_ID), any(RetentionPolicyDTO.class)))
+                .thenReturn(new RetentionPolicyDTO(5, 24, 30, true));
+
+        mockMvc.perform(put("/api/notes/{noteId}/versions/retention", TEST_NOTE_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"keepLast\":5}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.keepLast").value(5))
+                .andExpect(jsonPath("$.custom").value(true));
+    }
+
+    @Test
+    void shouldRejectRetentionUpdateWithoutWritePermission() throws Exception {
+        when(noteRepository.findByIdWithWritePermission(TEST_NOTE_ID, TEST_USER_ID)).thenReturn(Optional.empty());
+
+        mockMvc.perform(put("/api/notes/{noteId}/versions/retention", TEST_NOTE_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"keepLast\":5}"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void shouldRejectInvalidRetentionPolicy() throws Exception {
+        when(noteRepository.findByIdWithWritePermission(TEST_NOTE_ID, TEST_USER_ID)).thenReturn(Optional.of(testNote));
+        when(versionRetentionService.updatePolicy(eq(TEST_NOTE_ID), any(RetentionPolicyDTO.class)))
+                .thenThrow(new IllegalArgumentException("keepLast must be at least 1"));
+
+        mockMvc.perform(put("/api/notes/{noteId}/versions/retention", TEST_NOTE_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"keepLast\":0}"))
+                .andExpect(status().isBadRequest());
+    }
+
     private NoteVersion createTestVersion(Long id, Integer versionNumber, String title, String content) {
         NoteVersion version = new NoteVersion();
         version.setId(id);
@@ -0,0 +1,74 @@
+package com.notabene.controller;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notabene.config.TokenAuthenticationFilter;
+import com.notabene.dto.GroupDtos.GroupNotesRequest;
+import com.notabene.dto.GroupDtos.GroupNotesResult;
+import com.notabene.dto.GroupDtos.GroupSummary;
+import com.notabene.service.UserGroupService;
+
+import jakarta.annotation.Resource;
+
+@WebMvcTest(value = UserGroupController.class,
+    excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = TokenAuthenticationFilter.class))
+class UserGroupControllerTest {
+
+    @Resource MockMvc mvc;
+    @Resource ObjectMapper om;
+
+    @MockBean UserGroupService service;
+
+    @Test
+    @WithMockUser
+    void list_returns_groups() throws Exception {
+        when(service.listMyGroups()).thenReturn(List.of(new GroupSummary(1L, "Team", true, 3)));
+
+        mvc.perform(get("/api/groups"))
+           .andExpect(status().isOk())
+           .andExpect(jsonPath("$[0].name").value("Team"))
+           .andExpect(jsonPath("$[0].memberCount").value(3));
+    }
+
+    @Test
+    @WithMockUser
+    void shareNotes_returns_result() throws Exception {
+        when(service.shareNotes(eq(1L), any())).thenReturn(new GroupNotesResult(2, List.of(12L)));
+
+        mvc.perform(post("/api/groups/1/notes").with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(om.writeValueAsString(new GroupNotesRequest(List.of(10L, 11L, 12L), true))))
+           .andExpect(status().isOk())
+           .andExpect(jsonPath("$.updatedNotes").value(2))
+           .andExpect(jsonPath("$.skippedNoteIds[0]").value(12));
+    }
+
+    @Test
+    @WithMockUser
+    void get_returns_404_for_foreign_group() throws Exception {
+        when(service.getGroup(5L)).thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found"));
+
+        mvc.perform(get("/api/groups/5"))
+           .andExpect(status().isNotFound());
+    }
+}
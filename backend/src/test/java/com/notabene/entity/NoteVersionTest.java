@@ -200,6 +200,21 @@ class NoteVersionTest {
         assertTrue(version.getCreatedAt().isBefore(LocalDateTime.now().plusSeconds(1)));
     }
 
+    @Test
+    @DisplayName("Should compute content hash on persist")
+    void shouldComputeContentHashOnPersist() {
+        // Given
+        NoteVersion version = createValidNoteVersion();
+        
+        // When
+        version.onCreate(); // Simulate @PrePersist
+        
+        // Then
+        assertEquals(ContentHash.of(version.getTitle(), version.getContent()), version.getContentHash());
+        assertEquals(64, version.getContentHash().length());
+        assertNotEquals(ContentHash.of("ab", "c"), ContentHash.of("a", "bc"));
+    }
+
     @Test
     @DisplayName("Should preserve original timestamps")
     void shouldPreserveOriginalTimestamps() {
@@ -0,0 +1,143 @@
+package com.notabene.integration;
+
+import com.notabene.entity.ContentHash;
+import com.notabene.entity.Note;
+import com.notabene.entity.NoteVersion;
+import com.notabene.model.User;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.NoteVersionRepository;
+import com.notabene.repository.UserRepository;
+import com.notabene.repository.VersionBlobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput of bulk inserts with sequence ids allocated in blocks and JDBC batching,
+ * compared with flushing every row on its own (one round trip per insert, as with IDENTITY ids).
+ * Timings are only logged; excluded from mvn test, run with mvn test -Pbenchmark.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Bulk Insert Benchmarks")
+@Slf4j
+class BulkInsertBenchmarkIntegrationTest {
+
+    private static final int ROWS = 2000;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteVersionRepository noteVersionRepository;
+
+    @Autowired
+    private VersionBlobRepository versionBlobRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        noteRepository.deleteAll();
+        userRepository.deleteAll();
+
+        owner = new User();
+        owner.setUsername("bulk");
+        owner.setEmail("bulk@example.com");
+        owner.setPassword("password");
+        owner = userRepository.save(owner);
+    }
+
+    @Test
+    @DisplayName("Benchmark: note creation in JDBC batches vs row by row")
+    void shouldBatchBulkNoteCreation() {
+        // When
+        long rowByRow = timeInserts(i -> new Note("Row " + i, "Content " + i, owner), noteRepository::saveAndFlush);
+        long batched = timeBatch(() -> noteRepository.saveAll(entities(i -> new Note("Batch " + i, "Content " + i, owner))));
+
+        // Then
+        assertEquals(2L * ROWS, noteRepository.count());
+        logSpeedup("note creation", rowByRow, batched);
+    }
+
+    @Test
+    @DisplayName("Benchmark: version writes in JDBC batches vs row by row")
+    void shouldBatchVersionWrites() {
+        // Given - tutte le versioni condividono lo stesso corpo
+        Note note = noteRepository.save(new Note("Versioned", "Same body", owner));
+        transactionTemplate.executeWithoutResult(status -> versionBlobRepository.upsert(
+            ContentHash.of("Versioned", "Same body"), "Versioned", "Same body"));
+
+        // When
+        long rowByRow = timeInserts(i -> version(note, i + 1), noteVersionRepository::saveAndFlush);
+        long batched = timeBatch(() -> noteVersionRepository.saveAll(entities(i -> version(note, ROWS + i + 1))));
+
+        // Then
+        assertEquals(2L * ROWS, noteVersionRepository.countByNoteId(note.getId()));
+        logSpeedup("version writes", rowByRow, batched);
+    }
+
+    // Helper methods
+    private interface Saver<T> {
+        void save(T entity);
+    }
+
+    private <T> long timeInserts(IntFunction<T> factory, Saver<T> saver) {
+        List<T> rows = entities(factory);
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> rows.forEach(saver::save));
+        return System.nanoTime() - start;
+    }
+
+    private long timeBatch(Runnable insert) {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> insert.run());
+        return System.nanoTime() - start;
+    }
+
+    private <T> List<T> entities(IntFunction<T> factory) {
+        List<T> entities = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            entities.add(factory.apply(i));
+        }
+        return entities;
+    }
+
+    private NoteVersion version(Note note, int versionNumber) {
+        NoteVersion version = new NoteVersion();
+        version.setNoteId(note.getId());
+        version.setVersionNumber(versionNumber);
+        version.setTitle("Versioned");
+        version.setContent("Same body");
+        version.setCreatedBy(owner.getId());
+        version.setNoteCreatorId(owner.getId());
+        return version;
+    }
+
+    private void logSpeedup(String scenario, long rowByRowNanos, long batchedNanos) {
+        log.info("{}: {} rows row by row in {} ms ({} rows/s), batched in {} ms ({} rows/s), speedup x{}",
+            scenario, ROWS,
+            rowByRowNanos / 1_000_000, Math.round(ROWS / (rowByRowNanos / 1e9)),
+            batchedNanos / 1_000_000, Math.round(ROWS / (batchedNanos / 1e9)),
+            String.format("%.1f", (double) rowByRowNanos / batchedNanos));
+    }
+}
@@ -0,0 +1,150 @@
+package com.notabene.integration;
+
+import com.notabene.dto.FolderDtos.CopyNotesRequest;
+import com.notabene.dto.FolderDtos.CopyNotesResult;
+import com.notabene.dto.FolderDtos.CreateFolderRequest;
+import com.notabene.dto.FolderDtos.FolderSummary;
+import com.notabene.dto.FolderDtos.MoveNotesRequest;
+import com.notabene.entity.ContentHash;
+import com.notabene.entity.FolderNote;
+import com.notabene.entity.Note;
+import com.notabene.model.FolderNoteId;
+import com.notabene.model.Tag;
+import com.notabene.model.User;
+import com.notabene.repository.FolderNoteRepository;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.NoteVersionRepository;
+import com.notabene.repository.TagRepository;
+import com.notabene.repository.UserRepository;
+import com.notabene.service.FolderBulkService;
+import com.notabene.service.FolderService;
+import com.notabene.service.support.CurrentUserResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Set-based moves, copies and folder duplication against the real schema
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@DisplayName("Folder Bulk Integration Tests")
+class FolderBulkIntegrationTest {
+
+    @Autowired
+    private FolderService folderService;
+
+    @Autowired
+    private FolderBulkService folderBulkService;
+
+    @Autowired
+    private FolderNoteRepository folderNoteRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteVersionRepository noteVersionRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private CurrentUserResolver currentUserResolver;
+
+    private User owner;
+    private Long inbox;
+    private Long archive;
+    private Note tagged;
+    private Note plain;
+
+    @BeforeEach
+    void setUp() {
+        noteRepository.deleteAll();
+        userRepository.deleteAll();
+
+        owner = new User();
+        owner.setUsername("bulk");
+        owner.setEmail("bulk@example.com");
+        owner.setPassword("password");
+        owner = userRepository.save(owner);
+        when(currentUserResolver.currentUserId()).thenReturn(owner.getId());
+
+        inbox = folderService.createFolder(new CreateFolderRequest("Inbox")).id();
+        archive = folderService.createFolder(new CreateFolderRequest("Archive")).id();
+
+        Tag tag = new Tag();
+        tag.setName("bulk-tag");
+        tag = tagRepository.save(tag);
+        tagged = new Note("Tagged", "With tag", owner);
+        tagged.setTags(new HashSet<>(Set.of(tag)));
+        tagged = noteRepository.saveAndFlush(tagged);
+        plain = noteRepository.saveAndFlush(new Note("Plain", "No tag", owner));
+        folderNoteRepository.saveAndFlush(new FolderNote(new FolderNoteId(inbox, tagged.getId())));
+        folderNoteRepository.saveAndFlush(new FolderNote(new FolderNoteId(inbox, plain.getId())));
+    }
+
+    @Test
+    @DisplayName("Should move the links of the notes in the source folder")
+    void shouldMoveNotes() {
+        // When
+        folderBulkService.moveNotes(archive, new MoveNotesRequest(inbox, List.of(tagged.getId(), 999_999L)));
+
+        // Then
+        assertEquals(List.of(plain.getId()), folderNoteRepository.findNoteIdsIn(inbox, List.of(tagged.getId(), plain.getId())));
+        assertEquals(List.of(tagged.getId()), folderNoteRepository.findNoteIdsIn(archive, List.of(tagged.getId())));
+    }
+
+    @Test
+    @DisplayName("Should copy notes with hash, initial version and tags")
+    void shouldCopyNotes() {
+        // When
+        CopyNotesResult result = folderBulkService.copyNotes(archive,
+            new CopyNotesRequest(List.of(tagged.getId(), plain.getId())));
+
+        // Then
+        assertEquals(2, result.copies().size());
+        Long copyId = result.copies().get(0).copyId();
+        Note copy = noteRepository.findById(copyId).orElseThrow();
+        assertEquals("Tagged (Copia)", copy.getTitle());
+        assertEquals(ContentHash.of(copy.getTitle(), copy.getContent()), copy.getContentHash());
+        assertEquals(1L, noteVersionRepository.countByNoteId(copyId));
+        assertEquals(1, jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM note_tag WHERE note_id = ?", Integer.class, copyId));
+        assertEquals(2, folderNoteRepository.findAllById_FolderId(archive).size());
+        assertEquals(4, noteRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should duplicate a folder with copies of its notes")
+    void shouldDuplicateFolder() {
+        // When
+        FolderSummary copy = folderBulkService.duplicateFolder(inbox);
+
+        // Then
+        assertEquals("Inbox (Copia)", copy.name());
+        assertEquals(2, copy.noteCount());
+        assertEquals(2, folderNoteRepository.findAllById_FolderId(copy.id()).size());
+        assertEquals(2, folderNoteRepository.findAllById_FolderId(inbox).size());
+    }
+}
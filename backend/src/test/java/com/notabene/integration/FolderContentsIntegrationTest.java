@@ -0,0 +1,137 @@
+package com.notabene.integration;
+
+import com.notabene.dto.FolderDtos.CreateFolderRequest;
+import com.notabene.dto.FolderDtos.FolderContentsPage;
+import com.notabene.dto.FolderDtos.FolderSummary;
+import com.notabene.dto.NoteResponse;
+import com.notabene.entity.FolderNote;
+import com.notabene.entity.Note;
+import com.notabene.model.FolderNoteId;
+import com.notabene.model.Tag;
+import com.notabene.model.User;
+import com.notabene.repository.FolderNoteRepository;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.TagRepository;
+import com.notabene.repository.UserRepository;
+import com.notabene.service.FolderContentsService;
+import com.notabene.service.FolderService;
+import com.notabene.service.support.CurrentUserResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Folder contents read in keyset pages with tags and flags, and folder note counts
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@DisplayName("Folder Contents Integration Tests")
+class FolderContentsIntegrationTest {
+
+    @Autowired
+    private FolderService folderService;
+
+    @Autowired
+    private FolderContentsService folderContentsService;
+
+    @Autowired
+    private FolderNoteRepository folderNoteRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private CurrentUserResolver currentUserResolver;
+
+    private User owner;
+    private Long folderId;
+    private Long emptyFolderId;
+
+    @BeforeEach
+    void setUp() {
+        noteRepository.deleteAll();
+        userRepository.deleteAll();
+
+        owner = new User();
+        owner.setUsername("contents");
+        owner.setEmail("contents@example.com");
+        owner.setPassword("password");
+        owner = userRepository.save(owner);
+        when(currentUserResolver.currentUserId()).thenReturn(owner.getId());
+
+        folderId = folderService.createFolder(new CreateFolderRequest("Inbox")).id();
+        emptyFolderId = folderService.createFolder(new CreateFolderRequest("Archive")).id();
+
+        Tag tag = new Tag();
+        tag.setName("contents-tag");
+        tag = tagRepository.save(tag);
+        for (int i = 0; i < 5; i++) {
+            Note note = new Note("Note " + i, "Body " + i, owner);
+            if (i == 0) {
+                note.setTags(new HashSet<>(Set.of(tag)));
+            }
+            note = noteRepository.saveAndFlush(note);
+            folderNoteRepository.saveAndFlush(new FolderNote(new FolderNoteId(folderId, note.getId())));
+        }
+    }
+
+    @Test
+    @DisplayName("Should walk all pages newest first without gaps or repeats")
+    void shouldPageThroughFolder() {
+        // When
+        List<NoteResponse> seen = new ArrayList<>();
+        Long cursor = null;
+        int pages = 0;
+        do {
+            FolderContentsPage page = folderContentsService.getContents(folderId, cursor, 2);
+            seen.addAll(page.notes());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        assertEquals(3, pages);
+        assertEquals(5, seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i - 1).getId() > seen.get(i).getId());
+        }
+        NoteResponse first = seen.get(seen.size() - 1);
+        assertEquals("Note 0", first.getTitle());
+        assertEquals("contents-tag", first.getTags().get(0).name());
+        assertTrue(first.getIsOwner());
+        assertTrue(first.isCanEdit());
+        assertEquals(first.getContentHash(), noteRepository.findById(first.getId()).orElseThrow().getContentHash());
+    }
+
+    @Test
+    @DisplayName("Should list folders with their note counts")
+    void shouldCountNotesPerFolder() {
+        // When
+        List<FolderSummary> folders = folderService.listMyFolders();
+
+        // Then - ordinate per nome
+        assertEquals(List.of(emptyFolderId, folderId), folders.stream().map(FolderSummary::id).toList());
+        assertEquals(0, folders.get(0).noteCount());
+        assertEquals(5, folders.get(1).noteCount());
+    }
+}
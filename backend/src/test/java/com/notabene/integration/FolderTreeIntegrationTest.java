@@ -0,0 +1,146 @@
+package com.notabene.integration;
+
+import com.notabene.dto.FolderDtos.CreateFolderRequest;
+import com.notabene.dto.FolderDtos.FolderNode;
+import com.notabene.dto.FolderDtos.MoveFolderRequest;
+import com.notabene.entity.FolderNote;
+import com.notabene.entity.Note;
+import com.notabene.model.FolderNoteId;
+import com.notabene.model.User;
+import com.notabene.repository.FolderNoteRepository;
+import com.notabene.repository.FolderRepository;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.UserRepository;
+import com.notabene.service.FolderService;
+import com.notabene.service.support.CurrentUserResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nested folders through the closure table: subtree counts, subtree search and moves
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@DisplayName("Folder Tree Integration Tests")
+class FolderTreeIntegrationTest {
+
+    @Autowired
+    private FolderService folderService;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private FolderNoteRepository folderNoteRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private CurrentUserResolver currentUserResolver;
+
+    private User owner;
+    private Long projects;
+    private Long drafts;
+    private Long old;
+
+    @BeforeEach
+    void setUp() {
+        noteRepository.deleteAll();
+        userRepository.deleteAll();
+
+        owner = new User();
+        owner.setUsername("folders");
+        owner.setEmail("folders@example.com");
+        owner.setPassword("password");
+        owner = userRepository.save(owner);
+        when(currentUserResolver.currentUserId()).thenReturn(owner.getId());
+
+        // Projects > Drafts > Old
+        projects = folderService.createFolder(new CreateFolderRequest("Projects")).id();
+        drafts = folderService.createFolder(new CreateFolderRequest("Drafts", projects)).id();
+        old = folderService.createFolder(new CreateFolderRequest("Old", drafts)).id();
+
+        Note top = noteRepository.save(new Note("Top", "In Projects", owner));
+        Note deep = noteRepository.save(new Note("Deep", "In Old", owner));
+        folderNoteRepository.save(new FolderNote(new FolderNoteId(projects, top.getId())));
+        folderNoteRepository.save(new FolderNote(new FolderNoteId(old, deep.getId())));
+        folderNoteRepository.save(new FolderNote(new FolderNoteId(drafts, deep.getId())));
+    }
+
+    @Test
+    @DisplayName("Should count notes per folder and per subtree in one query")
+    void shouldCountSubtreeNotes() {
+        // When
+        Map<Long, FolderNode> tree = folderService.listMyFolderTree().stream()
+            .collect(Collectors.toMap(FolderNode::id, Function.identity()));
+
+        // Then - la nota in due cartelle dello stesso sottoalbero conta una volta
+        assertEquals(3, tree.size());
+        assertEquals(1, tree.get(projects).noteCount());
+        assertEquals(2, tree.get(projects).subtreeNoteCount());
+        assertEquals(1, tree.get(drafts).subtreeNoteCount());
+        assertEquals(drafts, tree.get(old).parentId());
+    }
+
+    @Test
+    @DisplayName("Should search a folder alone or with all its subfolders")
+    void shouldSearchSubtree() {
+        // When
+        List<Note> direct = noteRepository.searchNotesAdvanced(
+            owner.getId(), null, null, null, null, null, null, projects, false);
+        List<Note> subtree = noteRepository.searchNotesAdvanced(
+            owner.getId(), null, null, null, null, null, null, projects, true);
+
+        // Then
+        assertEquals(1, direct.size());
+        assertEquals(2, subtree.size());
+    }
+
+    @Test
+    @DisplayName("Should move a subtree and keep the closure consistent")
+    void shouldMoveSubtree() {
+        // When - Drafts (con Old) diventa di primo livello
+        folderService.moveFolder(drafts, new MoveFolderRequest(null));
+
+        // Then
+        assertEquals(List.of(projects), folderRepository.findSubtreeIds(projects));
+        assertEquals(2, folderRepository.findSubtreeIds(drafts).size());
+        assertEquals(0, noteRepository.searchNotesAdvanced(
+            owner.getId(), "Deep", null, null, null, null, null, projects, true).size());
+
+        // E torna sotto Projects
+        folderService.moveFolder(drafts, new MoveFolderRequest(projects));
+        assertEquals(3, folderRepository.findSubtreeIds(projects).size());
+    }
+
+    @Test
+    @DisplayName("Should delete a folder with its subfolders and keep the notes")
+    void shouldDeleteSubtree() {
+        // When
+        folderService.deleteFolder(drafts);
+
+        // Then
+        assertEquals(List.of(projects), folderRepository.findSubtreeIds(projects));
+        assertTrue(folderRepository.findById(old).isEmpty());
+        assertEquals(2, noteRepository.count());
+    }
+}
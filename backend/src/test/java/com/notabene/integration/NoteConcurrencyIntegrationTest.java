@@ -0,0 +1,224 @@
+package com.notabene.integration;
+
+import com.notabene.config.TestTokenConfig;
+import com.notabene.dto.UpdateNoteRequest;
+import com.notabene.entity.Note;
+import com.notabene.model.User;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.NoteVersionRepository;
+import com.notabene.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Stress tests for the optimistic lock on notes: several writers update the same
+ * note at once and no update may be lost or overwritten.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestTokenConfig.class})
+@DisplayName("Note Concurrency Integration Tests")
+@Slf4j
+class NoteConcurrencyIntegrationTest {
+
+    private static final int WRITERS = 8;
+    private static final int UPDATES_PER_WRITER = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteVersionRepository noteVersionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Note sharedNote;
+    private List<String> writerTokens;
+
+    @BeforeEach
+    void setUp() {
+        noteRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User owner = saveUser("owner");
+        sharedNote = new Note("Counter", "count:0", owner);
+        writerTokens = new ArrayList<>();
+        writerTokens.add("test-token-" + owner.getId());
+        for (int i = 1; i < WRITERS; i++) {
+            User writer = saveUser("writer" + i);
+            sharedNote.addReader(writer.getId());
+            sharedNote.addWriter(writer.getId());
+            writerTokens.add("test-token-" + writer.getId());
+        }
+        sharedNote = noteRepository.save(sharedNote);
+    }
+
+    @Test
+    @DisplayName("Should apply every read-modify-write increment exactly once under contention")
+    void shouldNotLoseUpdatesUnderContention() throws Exception {
+        // Given
+        long initialRevision = sharedNote.getRevision();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        // When - ogni writer legge contatore e revisione, incrementa e ritenta in caso di 409
+        long elapsedNanos = runWriters(token -> {
+            int applied = 0;
+            while (applied < UPDATES_PER_WRITER) {
+                JsonNode current = readNote(token);
+                int count = Integer.parseInt(current.get("content").asText().substring("count:".length()));
+
+                UpdateNoteRequest request = new UpdateNoteRequest("Counter", "count:" + (count + 1));
+                request.setRevision(current.get("revision").asLong());
+                int status = putNote(token, request).getResponse().getStatus();
+                if (status == 200) {
+                    applied++;
+                } else if (status == 409) {
+                    conflicts.incrementAndGet();
+                } else {
+                    fail("Unexpected status " + status);
+                }
+            }
+        });
+
+        // Then
+        int total = WRITERS * UPDATES_PER_WRITER;
+        Note finalNote = noteRepository.findById(sharedNote.getId()).orElseThrow();
+        assertEquals("count:" + total, finalNote.getContent());
+        assertEquals(initialRevision + total, finalNote.getRevision());
+        assertEquals(total, noteVersionRepository.countByNoteId(sharedNote.getId()));
+
+        logThroughput("read-modify-write", total, conflicts.get(), elapsedNanos);
+    }
+
+    @Test
+    @DisplayName("Should reject concurrent blind writes instead of overwriting them")
+    void shouldRejectConcurrentBlindWrites() throws Exception {
+        // Given
+        long initialRevision = sharedNote.getRevision();
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        // When - scritture senza revisione: il lock ottimistico rileva comunque le sovrapposizioni
+        long elapsedNanos = runWriters(token -> {
+            for (int i = 0; i < UPDATES_PER_WRITER; i++) {
+                UpdateNoteRequest request = new UpdateNoteRequest("Counter", token + " #" + i);
+                int status = putNote(token, request).getResponse().getStatus();
+                if (status == 200) {
+                    applied.incrementAndGet();
+                } else if (status == 409) {
+                    conflicts.incrementAndGet();
+                } else {
+                    fail("Unexpected status " + status);
+                }
+            }
+        });
+
+        // Then - una revisione per ogni scrittura accettata, nessuna scrittura persa in silenzio
+        Note finalNote = noteRepository.findById(sharedNote.getId()).orElseThrow();
+        assertEquals(WRITERS * UPDATES_PER_WRITER, applied.get() + conflicts.get());
+        assertEquals(initialRevision + applied.get(), finalNote.getRevision());
+        assertEquals(applied.get(), noteVersionRepository.countByNoteId(sharedNote.getId()));
+
+        logThroughput("blind write", applied.get(), conflicts.get(), elapsedNanos);
+    }
+
+    // Helper methods
+    private interface Writer {
+        void run(String token) throws Exception;
+    }
+
+    /**
+     * Start all writers at once and wait for them, returning the elapsed time
+     */
+    private long runWriters(Writer writer) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        for (String token : writerTokens) {
+            futures.add(executor.submit(() -> {
+                try {
+                    start.await();
+                    writer.run(token);
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdown();
+
+        assertTrue(failures.isEmpty(), () -> "Writers failed: " + failures);
+        return elapsedNanos;
+    }
+
+    private JsonNode readNote(String token) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/notes/{id}", sharedNote.getId())
+                .header("X-Auth-Token", token))
+                .andReturn();
+        assertEquals(200, result.getResponse().getStatus());
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private MvcResult putNote(String token, UpdateNoteRequest request) throws Exception {
+        return mockMvc.perform(put("/api/notes/{id}", sharedNote.getId())
+                .header("X-Auth-Token", token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andReturn();
+    }
+
+    private void logThroughput(String scenario, int applied, int conflicts, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        log.info("{}: {} writers, {} updates applied, {} conflicts in {} ms ({} updates/s)",
+                scenario, WRITERS, applied, conflicts, Math.round(seconds * 1000), Math.round(applied / seconds));
+    }
+
+    private User saveUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("password");
+        return userRepository.save(user);
+    }
+}
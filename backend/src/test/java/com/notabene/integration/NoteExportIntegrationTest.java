@@ -0,0 +1,80 @@
+package com.notabene.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notabene.model.User;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.UserRepository;
+import com.notabene.service.NoteExportService;
+import com.notabene.service.NoteImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Streaming export against the real schema, reading back notes written by the bulk import
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Note Export Integration Tests")
+class NoteExportIntegrationTest {
+
+    @Autowired
+    private NoteImportService noteImportService;
+
+    @Autowired
+    private NoteExportService noteExportService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        noteRepository.deleteAll();
+        userRepository.deleteAll();
+
+        owner = new User();
+        owner.setUsername("importer");
+        owner.setEmail("importer@example.com");
+        owner.setPassword("password");
+        owner = userRepository.save(owner);
+    }
+
+    @Test
+    @DisplayName("Should export imported notes with tags and history in the import format")
+    void shouldExportImportedNotes() throws Exception {
+        // Given
+        String input = "{\"title\":\"Export\",\"content\":\"Corpo\",\"tags\":[\"Import-Export\"]}\n";
+        noteImportService.importNotes(
+            new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), NoteImportService.Format.NDJSON, owner);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        noteExportService.export(owner.getId(), NoteExportService.Format.NDJSON, true, out);
+
+        // Then
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(1, lines.size());
+        JsonNode note = new ObjectMapper().readTree(lines.get(0));
+        assertEquals("Export", note.get("title").asText());
+        assertEquals("Corpo", note.get("content").asText());
+        assertEquals("Import-Export", note.get("tags").get(0).asText());
+        assertEquals(1, note.get("versions").size());
+        assertEquals("importer", note.get("versions").get(0).get("createdBy").asText());
+    }
+}
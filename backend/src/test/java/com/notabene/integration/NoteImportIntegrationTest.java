@@ -0,0 +1,114 @@
+package com.notabene.integration;
+
+import com.notabene.dto.NoteImportReportDTO;
+import com.notabene.entity.ContentHash;
+import com.notabene.entity.Note;
+import com.notabene.model.User;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.NoteVersionRepository;
+import com.notabene.repository.UserRepository;
+import com.notabene.service.NoteImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk import through COPY against the real schema: notes, initial versions, blobs and tags
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Note Import Integration Tests")
+class NoteImportIntegrationTest {
+
+    @Autowired
+    private NoteImportService noteImportService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteVersionRepository noteVersionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        noteRepository.deleteAll();
+        userRepository.deleteAll();
+
+        owner = new User();
+        owner.setUsername("importer");
+        owner.setEmail("importer@example.com");
+        owner.setPassword("password");
+        owner = userRepository.save(owner);
+    }
+
+    @Test
+    @DisplayName("Should copy notes with their initial version, blob and tags")
+    void shouldImportNotesWithVersionsAndTags() throws Exception {
+        // Given
+        String input = """
+            {"title":"Spesa","content":"Latte, \\"pane\\"\\nuova riga","tags":["Import-Casa","import-casa","Import-Lista"]}
+            {"title":"","content":"Senza titolo"}
+            {"title":"Idea","content":"Latte, \\"pane\\"\\nuova riga"}
+            """;
+
+        // When
+        NoteImportReportDTO report = noteImportService.importNotes(
+            new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), NoteImportService.Format.NDJSON, owner);
+
+        // Then
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(2, report.getErrors().get(0).getLine());
+
+        List<Note> notes = noteRepository.findAll();
+        assertEquals(2, notes.size());
+        for (Note note : notes) {
+            assertEquals("Latte, \"pane\"\nuova riga", note.getContent());
+            assertEquals(ContentHash.of(note.getTitle(), note.getContent()), note.getContentHash());
+            assertEquals(owner.getId(), note.getCreatorId());
+            assertTrue(note.getReaders().contains(owner.getId()));
+            assertTrue(note.getWriters().contains(owner.getId()));
+            assertEquals(1L, noteVersionRepository.countByNoteId(note.getId()));
+        }
+
+        Note spesa = notes.stream().filter(note -> note.getTitle().equals("Spesa")).findFirst().orElseThrow();
+        assertEquals(2, jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM note_tag WHERE note_id = ?", Integer.class, spesa.getId()));
+        assertEquals(1, jdbcTemplate.queryForObject(
+            "SELECT ref_count FROM version_blobs WHERE content_hash = ?", Integer.class, spesa.getContentHash()));
+    }
+
+    @Test
+    @DisplayName("Should leave ids that do not collide with notes created afterwards")
+    void shouldNotCollideWithHibernateIds() throws Exception {
+        // Given
+        String input = "title,content\nUno,Primo\nDue,Secondo\n";
+        noteImportService.importNotes(
+            new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), NoteImportService.Format.CSV, owner);
+
+        // When
+        Note created = noteRepository.saveAndFlush(new Note("Tre", "Terzo", owner));
+
+        // Then
+        assertEquals(3, noteRepository.count());
+        assertEquals(1, noteRepository.findAll().stream().filter(note -> note.getId().equals(created.getId())).count());
+    }
+}
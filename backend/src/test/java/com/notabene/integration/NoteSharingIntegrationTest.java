@@ -0,0 +1,172 @@
+package com.notabene.integration;
+
+import com.notabene.entity.Note;
+import com.notabene.entity.UserGroup;
+import com.notabene.model.User;
+import com.notabene.repository.NoteGroupShareRepository;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.UserGroupMemberRepository;
+import com.notabene.repository.UserGroupRepository;
+import com.notabene.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Set-based grant and revoke statements against the real array columns, and access
+ * through group shares resolved by the permission queries
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@DisplayName("Note Sharing Integration Tests")
+class NoteSharingIntegrationTest {
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserGroupRepository userGroupRepository;
+
+    @Autowired
+    private UserGroupMemberRepository userGroupMemberRepository;
+
+    @Autowired
+    private NoteGroupShareRepository noteGroupShareRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User owner;
+    private Note first;
+    private Note second;
+
+    @BeforeEach
+    void setUp() {
+        noteRepository.deleteAll();
+        userRepository.deleteAll();
+
+        owner = userRepository.save(user("owner"));
+        first = noteRepository.save(new Note("Prima", "Uno", owner));
+        second = noteRepository.save(new Note("Seconda", "Due", owner));
+        entityManager.flush();
+    }
+
+    @Test
+    @DisplayName("Should grant writers once and leave notes untouched on retry")
+    void shouldGrantIdempotently() {
+        // Given
+        User bob = userRepository.save(user("bob"));
+        User carol = userRepository.save(user("carol"));
+        Set<Long> noteIds = Set.of(first.getId(), second.getId());
+        Set<Long> userIds = Set.of(bob.getId(), carol.getId());
+
+        // When
+        int updated = noteRepository.grantWriters(noteIds, userIds, owner.getId());
+        int retried = noteRepository.grantWriters(noteIds, userIds, owner.getId());
+        entityManager.clear();
+
+        // Then
+        assertEquals(2, updated);
+        assertEquals(0, retried);
+        Note reloaded = noteRepository.findById(first.getId()).orElseThrow();
+        assertEquals(List.of(owner.getId()), reloaded.getReaders().subList(0, 1));
+        assertTrue(reloaded.getReaders().containsAll(userIds));
+        assertTrue(reloaded.getWriters().containsAll(userIds));
+        assertEquals(3, reloaded.getReaders().size());
+        assertEquals(first.getRevision() + 1, reloaded.getRevision());
+    }
+
+    @Test
+    @DisplayName("Should revoke read and write access but only on the caller's notes")
+    void shouldRevokeOnOwnedNotesOnly() {
+        // Given
+        User bob = userRepository.save(user("bob"));
+        noteRepository.grantWriters(Set.of(first.getId()), Set.of(bob.getId()), owner.getId());
+
+        // When - bob non è il creatore: nessun effetto
+        int notOwned = noteRepository.revokeReaders(Set.of(first.getId()), Set.of(bob.getId()), bob.getId());
+        int revoked = noteRepository.revokeReaders(Set.of(first.getId(), second.getId()), Set.of(bob.getId()), owner.getId());
+        entityManager.clear();
+
+        // Then
+        assertEquals(0, notOwned);
+        assertEquals(1, revoked);
+        Note reloaded = noteRepository.findById(first.getId()).orElseThrow();
+        assertEquals(List.of(owner.getId()), reloaded.getReaders());
+        assertEquals(List.of(owner.getId()), reloaded.getWriters());
+    }
+
+    @Test
+    @DisplayName("Should give group members access without rewriting the note")
+    void shouldResolveAccessThroughGroups() {
+        // Given
+        User bob = userRepository.save(user("bob"));
+        UserGroup team = userGroupRepository.save(new UserGroup(owner.getId(), "Team"));
+        entityManager.flush();
+        noteGroupShareRepository.shareNotes(team.getId(), Set.of(first.getId()), false, owner.getId());
+        noteGroupShareRepository.shareNotes(team.getId(), Set.of(second.getId()), true, owner.getId());
+        assertTrue(noteRepository.findByIdWithReadPermission(first.getId(), bob.getId()).isEmpty());
+
+        // When - una sola riga: bob entra nel gruppo
+        int added = userGroupMemberRepository.addMembers(team.getId(), Set.of(bob.getId()));
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, added);
+        assertTrue(noteRepository.findByIdWithReadPermission(first.getId(), bob.getId()).isPresent());
+        assertTrue(noteRepository.findByIdWithWritePermission(first.getId(), bob.getId()).isEmpty());
+        assertTrue(noteRepository.findByIdWithWritePermission(second.getId(), bob.getId()).isPresent());
+        assertTrue(noteRepository.hasGroupWriteAccess(second.getId(), bob.getId()));
+        assertEquals(2, noteRepository.findSharedWithUser(bob.getId()).size());
+        Note reloaded = noteRepository.findById(first.getId()).orElseThrow();
+        assertEquals(List.of(owner.getId()), reloaded.getReaders());
+        assertEquals(first.getRevision(), reloaded.getRevision());
+        // Ripetere la condivisione con lo stesso ruolo non cambia nulla
+        assertEquals(0, noteGroupShareRepository.shareNotes(team.getId(), Set.of(second.getId()), true, owner.getId()));
+    }
+
+    @Test
+    @DisplayName("Should give the group owner access to notes shared by a member")
+    void shouldGiveOwnerAccessToNotesSharedByMembers() {
+        // Given - bob è membro del gruppo di owner e vi condivide una sua nota
+        User bob = userRepository.save(user("bob"));
+        Note bobs = noteRepository.save(new Note("Di Bob", "Tre", bob));
+        UserGroup team = userGroupRepository.save(new UserGroup(owner.getId(), "Team"));
+        entityManager.flush();
+        userGroupMemberRepository.addMembers(team.getId(), Set.of(bob.getId()));
+
+        // When
+        int shared = noteGroupShareRepository.shareNotes(team.getId(), Set.of(bobs.getId()), true, bob.getId());
+        entityManager.clear();
+
+        // Then - il proprietario non è in user_group_members ma legge e scrive la nota
+        assertEquals(1, shared);
+        assertTrue(noteRepository.findByIdWithReadPermission(bobs.getId(), owner.getId()).isPresent());
+        assertTrue(noteRepository.findByIdWithWritePermission(bobs.getId(), owner.getId()).isPresent());
+        assertTrue(noteRepository.hasGroupWriteAccess(bobs.getId(), owner.getId()));
+        assertEquals(List.of(bobs.getId()),
+            noteRepository.findSharedWithUser(owner.getId()).stream().map(Note::getId).toList());
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("password");
+        return user;
+    }
+}
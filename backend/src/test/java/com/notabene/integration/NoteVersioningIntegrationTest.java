@@ -6,6 +6,7 @@ import com.notabene.model.User;
 import com.notabene.repository.NoteRepository;
 import com.notabene.repository.UserRepository;
 import com.notabene.service.NoteVersioningService;
+import com.notabene.service.VersionRetentionService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -48,6 +49,9 @@ class NoteVersioningIntegrationTest {
     @Autowired
     private NoteVersioningService noteVersioningService;
 
+    @Autowired
+    private VersionRetentionService versionRetentionService;
+
     private Note testNote;
     private User testUser;
     private String authToken;
@@ -185,7 +189,7 @@ class NoteVersioningIntegrationTest {
     }
 
     @Test
-    @DisplayName("Should enforce version limit")
+    @DisplayName("Should enforce version limit with the retention run")
     void shouldEnforceVersionLimit() throws Exception {
         // Given - create more than the maximum allowed versions
         for (int i = 1; i <= 12; i++) {
@@ -193,11 +197,18 @@ class NoteVersioningIntegrationTest {
                 testNote.getId(), "Title " + i, "Content " + i, testUser.getId());
         }
 
-        // When
+        // When - the background job prunes (all versions fall in the same hour, so only the last 10 are kept)
+        var report = versionRetentionService.prune();
         var versions = noteVersioningService.getVersionHistory(testNote.getId());
 
         // Then - should not exceed maximum (10 stored + 1 current = 11 total)
-        assertTrue(versions.size() <= 11);
+        assertEquals(2, report.deletedVersions());
+        assertTrue(report.reclaimedBytes() > 0);
+        assertEquals(11, versions.size());
+
+        // Version numbers keep growing after the pruning
+        noteVersioningService.updateNoteWithVersioning(testNote.getId(), "Title 13", "Content 13", testUser.getId());
+        assertEquals(14, noteVersioningService.getVersionHistory(testNote.getId()).get(0).getVersionNumber());
     }
 
     @Test
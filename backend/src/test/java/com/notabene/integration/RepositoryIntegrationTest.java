@@ -1,5 +1,6 @@
 package com.notabene.integration;
 
+import com.notabene.entity.ContentHash;
 import com.notabene.entity.Folder;
 import com.notabene.entity.FolderNote;
 import com.notabene.entity.Note;
@@ -55,6 +56,9 @@ class RepositoryIntegrationTest {
     @Autowired
     private TagRepository tagRepository;
 
+    @Autowired
+    private VersionBlobRepository versionBlobRepository;
+
     private User testUser1;
     private User testUser2;
     private Note testNote1;
@@ -178,26 +182,26 @@ class RepositoryIntegrationTest {
 
         // Test advanced search with query
         List<Note> queryResults = noteRepository.searchNotesAdvanced(
-            testUser2.getId(), "Java", null, null, null, null, null, null
+            testUser2.getId(), "Java", null, null, null, null, null, null, false
         );
         assertThat(queryResults).hasSize(1);
         assertThat(queryResults.get(0).getTitle()).isEqualTo("Java Tutorial");
 
         // Test advanced search with author
         List<Note> authorResults = noteRepository.searchNotesAdvanced(
-            testUser2.getId(), null, "testuser1", null, null, null, null, null
+            testUser2.getId(), null, "testuser1", null, null, null, null, null, false
         );
         assertThat(authorResults).hasSize(1);
 
         // Test advanced search with time filters
         List<Note> timeResults = noteRepository.searchNotesAdvanced(
-            testUser2.getId(), null, null, oneHourAgo, oneHourLater, null, null, null
+            testUser2.getId(), null, null, oneHourAgo, oneHourLater, null, null, null, false
         );
         assertThat(timeResults).hasSize(2); // Both notes created within this timeframe
 
         // Test advanced search with folder filter
         List<Note> folderResults = noteRepository.searchNotesAdvanced(
-            testUser1.getId(), null, null, null, null, null, null, testFolder.getId()
+            testUser1.getId(), null, null, null, null, null, null, testFolder.getId(), false
         );
         assertThat(folderResults).hasSize(1);
         assertThat(folderResults.get(0).getTitle()).isEqualTo("Java Tutorial");
@@ -309,7 +313,7 @@ class RepositoryIntegrationTest {
         version1.setNoteCreatorId(testUser1.getId());
         version1.setReaders(Arrays.asList(testUser1.getId()));
         version1.setWriters(Arrays.asList(testUser1.getId()));
-        version1 = noteVersionRepository.save(version1);
+        version1 = saveVersion(version1);
 
         NoteVersion version2 = new NoteVersion();
         version2.setNoteId(testNote1.getId());
@@ -320,7 +324,7 @@ class RepositoryIntegrationTest {
         version2.setNoteCreatorId(testUser1.getId());
         version2.setReaders(Arrays.asList(testUser1.getId()));
         version2.setWriters(Arrays.asList(testUser1.getId()));
-        version2 = noteVersionRepository.save(version2);
+        version2 = saveVersion(version2);
 
         // Test basic CRUD operations
         Optional<NoteVersion> foundVersion = noteVersionRepository.findById(version1.getId());
@@ -365,7 +369,7 @@ class RepositoryIntegrationTest {
         complexVersion.setNoteCreatorId(testUser1.getId());
         complexVersion.setReaders(Arrays.asList(testUser1.getId(), testUser2.getId()));
         complexVersion.setWriters(Arrays.asList(testUser1.getId()));
-        noteVersionRepository.save(complexVersion);
+        saveVersion(complexVersion);
 
         // 4. Verify all cross-repository relationships work together
         
@@ -382,7 +386,7 @@ class RepositoryIntegrationTest {
 
         // Test cross-repository search: find note through folder search
         List<Note> folderSearchResults = noteRepository.searchNotesAdvanced(
-            testUser1.getId(), "Integration", null, null, null, null, null, testFolder.getId()
+            testUser1.getId(), "Integration", null, null, null, null, null, testFolder.getId(), false
         );
         assertThat(folderSearchResults).hasSize(1);
         assertThat(folderSearchResults.get(0).getId()).isEqualTo(savedComplexNote.getId());
@@ -461,4 +465,11 @@ class RepositoryIntegrationTest {
                 .isLessThanOrEqualTo(limitedTags.get(i + 1).getName());
         }
     }
+
+    // I corpi delle versioni stanno in version_blobs: il blob va creato prima della versione
+    private NoteVersion saveVersion(NoteVersion version) {
+        versionBlobRepository.upsert(ContentHash.of(version.getTitle(), version.getContent()),
+            version.getTitle(), version.getContent());
+        return noteVersionRepository.save(version);
+    }
 }
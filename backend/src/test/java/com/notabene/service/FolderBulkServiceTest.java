@@ -0,0 +1,163 @@
+package com.notabene.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.LongStream;
+
+import com.notabene.dto.FolderDtos.CopyNotesRequest;
+import com.notabene.dto.FolderDtos.MoveNotesRequest;
+import com.notabene.dto.FolderDtos.NoteCopy;
+import com.notabene.entity.Folder;
+import com.notabene.entity.FolderNote;
+import com.notabene.model.FolderNoteId;
+import com.notabene.repository.FolderClosureRepository;
+import com.notabene.repository.FolderNoteRepository;
+import com.notabene.repository.FolderRepository;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.NoteVersionRepository;
+import com.notabene.repository.VersionBlobRepository;
+import com.notabene.service.support.CurrentUserResolver;
+import com.notabene.service.support.IdAllocator;
+import com.notabene.service.support.NoteAccessChecker;
+
+class FolderBulkServiceTest {
+
+    FolderRepository folderRepo = mock(FolderRepository.class);
+    FolderNoteRepository linkRepo = mock(FolderNoteRepository.class);
+    FolderClosureRepository closureRepo = mock(FolderClosureRepository.class);
+    NoteRepository noteRepo = mock(NoteRepository.class);
+    NoteVersionRepository versionRepo = mock(NoteVersionRepository.class);
+    VersionBlobRepository blobRepo = mock(VersionBlobRepository.class);
+    CurrentUserResolver current = mock(CurrentUserResolver.class);
+    NoteAccessChecker access = mock(NoteAccessChecker.class);
+    IdAllocator ids = mock(IdAllocator.class);
+
+    FolderBulkService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new FolderBulkService(folderRepo, linkRepo, closureRepo, noteRepo, versionRepo, blobRepo, current, access, ids);
+        when(current.currentUserId()).thenReturn(42L);
+        when(ids.allocate(eq("notes_id_seq"), anyInt()))
+                .thenAnswer(inv -> LongStream.range(1000, 1000 + (int) inv.getArgument(1)).boxed().toList());
+        when(ids.allocate(eq("note_versions_id_seq"), anyInt()))
+                .thenAnswer(inv -> LongStream.range(5000, 5000 + (int) inv.getArgument(1)).boxed().toList());
+    }
+
+    @Test
+    void moveNotes_sposta_solo_le_note_della_cartella_di_origine() {
+        when(folderRepo.findOwnedIds(42L, List.of(2L, 1L))).thenReturn(List.of(1L, 2L));
+        when(linkRepo.findNoteIdsIn(1L, Set.of(7L, 8L))).thenReturn(List.of(7L));
+
+        var res = service.moveNotes(2L, new MoveNotesRequest(1L, List.of(7L, 8L)));
+
+        assertThat(res.movedNoteIds()).containsExactly(7L);
+        assertThat(res.skippedNoteIds()).containsExactly(8L);
+        verify(linkRepo).copyLinks(1L, 2L, List.of(7L));
+        verify(linkRepo).removeNotes(1L, List.of(7L));
+    }
+
+    @Test
+    void moveNotes_rifiuta_cartella_di_altri() {
+        when(folderRepo.findOwnedIds(42L, List.of(2L, 1L))).thenReturn(List.of(1L));
+
+        assertThatThrownBy(() -> service.moveNotes(2L, new MoveNotesRequest(1L, List.of(7L))))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Folder not found");
+        verify(linkRepo, never()).copyLinks(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void copyNotes_copia_con_un_insert_per_tabella() {
+        when(folderRepo.existsByIdAndOwnerId(2L, 42L)).thenReturn(true);
+        when(access.readableByUser(Set.of(9L, 8L, 7L), 42L)).thenReturn(new TreeSet<>(List.of(7L, 9L)));
+
+        var res = service.copyNotes(2L, new CopyNotesRequest(List.of(9L, 8L, 7L)));
+
+        // Copie in ordine di id, qualunque sia l'ordine della richiesta
+        assertThat(res.copies()).containsExactly(new NoteCopy(7L, 1000L), new NoteCopy(9L, 1001L));
+        assertThat(res.skippedNoteIds()).containsExactly(8L);
+        verify(noteRepo).copyNotes(List.of(7L, 9L), List.of(1000L, 1001L), 42L);
+        verify(blobRepo).upsertFromNotes(List.of(1000L, 1001L));
+        verify(versionRepo).insertInitialVersions(List.of(1000L, 1001L), List.of(5000L, 5001L));
+        verify(noteRepo).copyTags(List.of(7L, 9L), List.of(1000L, 1001L));
+        verify(linkRepo).addNotes(2L, List.of(1000L, 1001L));
+    }
+
+    @Test
+    void copyNotes_rifiuta_troppe_note() {
+        var ids = LongStream.rangeClosed(1, FolderBulkService.MAX_NOTES + 1).boxed().toList();
+
+        assertThatThrownBy(() -> service.copyNotes(2L, new CopyNotesRequest(ids)))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("At most");
+        verify(noteRepo, never()).copyNotes(anyList(), anyList(), anyLong());
+    }
+
+    @Test
+    void duplicateFolder_crea_la_copia_accanto_all_originale() {
+        var source = new Folder(42L, 3L, "Ideas");
+        source.setId(1L);
+        when(folderRepo.findByIdAndOwnerId(1L, 42L)).thenReturn(Optional.of(source));
+        when(folderRepo.save(any())).thenAnswer(inv -> {
+            Folder f = inv.getArgument(0);
+            f.setId(20L);
+            return f;
+        });
+        when(linkRepo.findAllById_FolderId(1L)).thenReturn(List.of(new FolderNote(new FolderNoteId(1L, 7L))));
+        when(access.readableByUser(List.of(7L), 42L)).thenReturn(Set.of(7L));
+
+        var res = service.duplicateFolder(1L);
+
+        assertThat(res.id()).isEqualTo(20L);
+        assertThat(res.name()).isEqualTo("Ideas (Copia)");
+        assertThat(res.noteCount()).isEqualTo(1);
+        verify(closureRepo).insertSelf(20L);
+        verify(closureRepo).attachSubtree(20L, 3L);
+        verify(linkRepo).addNotes(20L, List.of(1000L));
+    }
+
+    @Test
+    void duplicateFolder_copia_a_blocchi_di_max_note() {
+        var source = new Folder(42L, null, "Archive");
+        source.setId(1L);
+        when(folderRepo.findByIdAndOwnerId(1L, 42L)).thenReturn(Optional.of(source));
+        when(folderRepo.save(any())).thenAnswer(inv -> {
+            Folder f = inv.getArgument(0);
+            f.setId(20L);
+            return f;
+        });
+        var links = LongStream.rangeClosed(1, FolderBulkService.MAX_NOTES + 1)
+                .mapToObj(id -> new FolderNote(new FolderNoteId(1L, id)))
+                .toList();
+        when(linkRepo.findAllById_FolderId(1L)).thenReturn(links);
+        when(access.readableByUser(anyList(), eq(42L)))
+                .thenAnswer(inv -> new LinkedHashSet<Long>(inv.getArgument(0)));
+
+        var res = service.duplicateFolder(1L);
+
+        assertThat(res.noteCount()).isEqualTo(FolderBulkService.MAX_NOTES + 1);
+        verify(noteRepo, times(2)).copyNotes(anyList(), anyList(), eq(42L));
+        verify(ids).allocate("notes_id_seq", FolderBulkService.MAX_NOTES);
+        verify(ids).allocate("notes_id_seq", 1);
+    }
+}
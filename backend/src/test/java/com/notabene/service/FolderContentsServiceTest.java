@@ -0,0 +1,98 @@
+package com.notabene.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import com.notabene.dto.NoteResponse;
+import com.notabene.repository.FolderRepository;
+import com.notabene.service.support.CurrentUserResolver;
+
+class FolderContentsServiceTest {
+
+    NamedParameterJdbcTemplate jdbc = mock(NamedParameterJdbcTemplate.class);
+    FolderRepository folderRepo = mock(FolderRepository.class);
+    CurrentUserResolver current = mock(CurrentUserResolver.class);
+
+    FolderContentsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new FolderContentsService(jdbc, folderRepo, current);
+        when(current.currentUserId()).thenReturn(42L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getContents_legge_una_riga_in_piu_e_restituisce_il_cursore() {
+        when(folderRepo.existsByIdAndOwnerId(10L, 42L)).thenReturn(true);
+        // La query restituisce size+1 righe: esiste un'altra pagina
+        when(jdbc.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(notes(9, 8, 7));
+
+        var page = service.getContents(10L, 10L, 2);
+
+        assertThat(page.notes()).extracting(NoteResponse::getId).containsExactly(9L, 8L);
+        assertThat(page.nextCursor()).isEqualTo(8L);
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbc).query(anyString(), params.capture(), any(RowMapper.class));
+        var values = ((MapSqlParameterSource) params.getValue()).getValues();
+        assertThat(values).containsEntry("folderId", 10L).containsEntry("afterId", 10L)
+                .containsEntry("userId", 42L).containsEntry("limit", 3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getContents_ultima_pagina_senza_cursore() {
+        when(folderRepo.existsByIdAndOwnerId(10L, 42L)).thenReturn(true);
+        when(jdbc.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(notes(3, 2));
+
+        var page = service.getContents(10L, null, null);
+
+        assertThat(page.notes()).hasSize(2);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void getContents_rifiuta_cartella_di_altri() {
+        when(folderRepo.existsByIdAndOwnerId(10L, 42L)).thenReturn(false);
+
+        assertThatThrownBy(() -> service.getContents(10L, null, null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Folder not found");
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void getContents_rifiuta_pagina_troppo_grande() {
+        assertThatThrownBy(() -> service.getContents(10L, null, FolderContentsService.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Page size");
+        verifyNoInteractions(jdbc);
+    }
+
+    private static List<NoteResponse> notes(long... ids) {
+        return LongStream.of(ids).mapToObj(id -> {
+            NoteResponse note = new NoteResponse();
+            note.setId(id);
+            return note;
+        }).toList();
+    }
+}
@@ -5,39 +5,50 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
+import java.util.Optional;
+
 import com.notabene.dto.FolderDtos.CreateFolderRequest;
+import com.notabene.dto.FolderDtos.FolderSummary;
+import com.notabene.dto.FolderDtos.MoveFolderRequest;
 import com.notabene.entity.Folder;
 import com.notabene.model.FolderNoteId;
+import com.notabene.repository.FolderClosureRepository;
 import com.notabene.repository.FolderNoteRepository;
 import com.notabene.repository.FolderRepository;
 import com.notabene.service.support.CurrentUserResolver;
-import com.notabene.service.support.NoteOwnershipChecker;
+import com.notabene.service.support.NoteAccessChecker;
 
 class FolderServiceTest {
 
     FolderRepository folderRepo = mock(FolderRepository.class);
     FolderNoteRepository linkRepo = mock(FolderNoteRepository.class);
+    FolderClosureRepository closureRepo = mock(FolderClosureRepository.class);
     CurrentUserResolver current = mock(CurrentUserResolver.class);
-    NoteOwnershipChecker ownership = mock(NoteOwnershipChecker.class);
+    NoteAccessChecker access = mock(NoteAccessChecker.class);
 
     FolderService service;
 
     @BeforeEach
     void setUp() {
-        service = new FolderService(folderRepo, linkRepo, current, ownership);
+        service = new FolderService(folderRepo, linkRepo, closureRepo, current, access);
         when(current.currentUserId()).thenReturn(42L);
     }
 
     @Test
     void createFolder_crea_cartella_di_utente_corrente() {
         var req = new CreateFolderRequest("Ideas");
-        when(folderRepo.existsByOwnerIdAndName(42L, "Ideas")).thenReturn(false);
+        when(folderRepo.existsByOwnerIdAndParentIdAndName(42L, null, "Ideas")).thenReturn(false);
         var saved = new Folder(42L, "Ideas");
         saved.setId(10L);
         when(folderRepo.save(any())).thenReturn(saved);
@@ -51,6 +62,18 @@ class FolderServiceTest {
         assertThat(cap.getValue().getOwnerId()).isEqualTo(42L);
     }
 
+    @Test
+    void listMyFolders_conta_le_note_con_una_query() {
+        when(folderRepo.findSummariesWithNoteCounts(42L)).thenReturn(List.of(
+                new Object[] {1L, "Ideas", 3L},
+                new Object[] {2L, "Work", 0L}));
+
+        var res = service.listMyFolders();
+
+        assertThat(res).extracting(FolderSummary::noteCount).containsExactly(3L, 0L);
+        verify(folderRepo, never()).findAllByOwnerIdOrderByNameAsc(anyLong());
+    }
+
     @Test
     void createFolder_rifiuta_nome_vuoto() {
         assertThatThrownBy(() -> service.createFolder(new CreateFolderRequest("  ")))
@@ -60,7 +83,7 @@ class FolderServiceTest {
 
     @Test
     void createFolder_rifiuta_nome_duplicato_per_utente() {
-        when(folderRepo.existsByOwnerIdAndName(42L, "Ideas")).thenReturn(true);
+        when(folderRepo.existsByOwnerIdAndParentIdAndName(42L, null, "Ideas")).thenReturn(true);
         assertThatThrownBy(() -> service.createFolder(new CreateFolderRequest("Ideas")))
                 .isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("already exists");
@@ -69,7 +92,7 @@ class FolderServiceTest {
     @Test
     void addNote_rifiuta_se_nota_non_e_mia() {
         when(folderRepo.existsByIdAndOwnerId(99L, 42L)).thenReturn(true);
-        when(ownership.isOwnedByUser(7L, 42L)).thenReturn(false);
+        when(access.isOwnedByUser(7L, 42L)).thenReturn(false);
 
         assertThatThrownBy(() -> service.addNote(99L, 7L))
                 .isInstanceOf(ResponseStatusException.class)
@@ -79,12 +102,84 @@ class FolderServiceTest {
     @Test
     void addNote_ok_se_folder_mio_e_nota_mia() {
         when(folderRepo.existsByIdAndOwnerId(3L, 42L)).thenReturn(true);
-        when(ownership.isOwnedByUser(5L, 42L)).thenReturn(true);
+        when(access.isOwnedByUser(5L, 42L)).thenReturn(true);
         when(linkRepo.existsById(new FolderNoteId(3L, 5L))).thenReturn(false);
 
         service.addNote(3L,5L);
 
         verify(linkRepo).save(any());
     }
-}
 
+    @Test
+    void createFolder_sottocartella_eredita_i_percorsi_del_padre() {
+        when(folderRepo.existsByIdAndOwnerId(3L, 42L)).thenReturn(true);
+        var saved = new Folder(42L, 3L, "Drafts");
+        saved.setId(11L);
+        when(folderRepo.save(any())).thenReturn(saved);
+
+        service.createFolder(new CreateFolderRequest("Drafts", 3L));
+
+        verify(folderRepo).existsByOwnerIdAndParentIdAndName(42L, 3L, "Drafts");
+        verify(folderRepo).lockTreeOf(42L);
+        verify(closureRepo).insertSelf(11L);
+        verify(closureRepo).attachSubtree(11L, 3L);
+    }
+
+    @Test
+    void moveFolder_rifiuta_spostamento_nel_proprio_sottoalbero() {
+        var folder = new Folder(42L, "Projects");
+        folder.setId(3L);
+        when(folderRepo.findByIdAndOwnerId(3L, 42L)).thenReturn(Optional.of(folder));
+        when(folderRepo.existsByIdAndOwnerId(11L, 42L)).thenReturn(true);
+        when(closureRepo.isInSubtree(3L, 11L)).thenReturn(true);
+
+        assertThatThrownBy(() -> service.moveFolder(3L, new MoveFolderRequest(11L)))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("own subtree");
+        verify(closureRepo, never()).detachSubtree(anyLong());
+    }
+
+    @Test
+    void moveFolder_sposta_il_sottoalbero_con_due_statement() {
+        var folder = new Folder(42L, 5L, "Drafts");
+        folder.setId(11L);
+        when(folderRepo.findByIdAndOwnerId(11L, 42L)).thenReturn(Optional.of(folder));
+        when(folderRepo.existsByIdAndOwnerId(3L, 42L)).thenReturn(true);
+
+        service.moveFolder(11L, new MoveFolderRequest(3L));
+
+        assertThat(folder.getParentId()).isEqualTo(3L);
+        verify(closureRepo).detachSubtree(11L);
+        verify(closureRepo).attachSubtree(11L, 3L);
+    }
+
+    @Test
+    void moveFolder_blocca_l_albero_prima_del_controllo_sul_sottoalbero() {
+        var folder = new Folder(42L, 5L, "Drafts");
+        folder.setId(11L);
+        when(folderRepo.findByIdAndOwnerId(11L, 42L)).thenReturn(Optional.of(folder));
+        when(folderRepo.existsByIdAndOwnerId(3L, 42L)).thenReturn(true);
+
+        service.moveFolder(11L, new MoveFolderRequest(3L));
+
+        InOrder order = inOrder(folderRepo, closureRepo);
+        order.verify(folderRepo).lockTreeOf(42L);
+        order.verify(closureRepo).isInSubtree(11L, 3L);
+        order.verify(closureRepo).detachSubtree(11L);
+    }
+
+    @Test
+    void deleteFolder_elimina_tutto_il_sottoalbero() {
+        var folder = new Folder(42L, "Projects");
+        folder.setId(3L);
+        when(folderRepo.findByIdAndOwnerId(3L, 42L)).thenReturn(Optional.of(folder));
+        when(folderRepo.findSubtreeIds(3L)).thenReturn(List.of(3L, 11L, 12L));
+
+        service.deleteFolder(3L);
+
+        verify(linkRepo).deleteAllByFolderIdIn(List.of(3L, 11L, 12L));
+        verify(closureRepo).deleteAllByDescendantIdIn(List.of(3L, 11L, 12L));
+        verify(folderRepo).deleteAllByIdIn(List.of(3L, 11L, 12L));
+        verify(folderRepo).lockTreeOf(42L);
+    }
+}
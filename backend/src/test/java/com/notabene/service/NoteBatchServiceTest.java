@@ -0,0 +1,236 @@
+package com.notabene.service;
+
+import com.notabene.dto.BatchNoteRequest;
+import com.notabene.dto.BatchNoteResponse;
+import com.notabene.dto.NoteResponse;
+import com.notabene.entity.Note;
+import com.notabene.exception.NoteConflictException;
+import com.notabene.model.Tag;
+import com.notabene.model.User;
+import com.notabene.repository.FolderNoteRepository;
+import com.notabene.repository.FolderRepository;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.TagRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Note Batch Service Tests")
+class NoteBatchServiceTest {
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    @Mock
+    private TagRepository tagRepository;
+
+    @Mock
+    private FolderRepository folderRepository;
+
+    @Mock
+    private FolderNoteRepository folderNoteRepository;
+
+    @Mock
+    private AuthenticationService authenticationService;
+
+    @Mock
+    private NoteService noteService;
+
+    @Mock
+    private NoteVersioningService noteVersioningService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TransactionStatus transactionStatus;
+
+    private NoteBatchService batchService;
+
+    private User user;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        batchService = new NoteBatchService(noteRepository, tagRepository, folderRepository, folderNoteRepository,
+            authenticationService, noteService, noteVersioningService, transactionTemplate);
+
+        user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        when(authenticationService.getCurrentUser()).thenReturn(user);
+
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+            invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(transactionStatus));
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(transactionStatus);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        Tag work = new Tag();
+        work.setId(10L);
+        work.setName("work");
+        lenient().when(tagRepository.findAllById(any())).thenReturn(List.of(work));
+        // Nota 1 dell'utente, nota 2 di un altro utente in sola lettura, nota 3 inesistente
+        lenient().when(noteRepository.findPermissions(anyCollection(), eq(1L))).thenReturn(List.of(
+            new Object[] {1L, true, true, true},
+            new Object[] {2L, false, false, false}));
+    }
+
+    @Test
+    @DisplayName("Should check all targets in one query and tag the permitted notes in one statement")
+    void shouldTagPermittedNotesWithOneStatement() {
+        // Given
+        BatchNoteRequest request = request(false, op("addTags", List.of(1L, 2L, 3L), List.of(10L)));
+
+        // When
+        BatchNoteResponse response = batchService.execute(request);
+
+        // Then
+        assertStatuses(response, 200, 403, 404);
+        assertEquals(1, response.getSucceeded());
+        assertEquals(2, response.getFailed());
+        verify(noteRepository, times(1)).findPermissions(eq(Set.of(1L, 2L, 3L)), eq(1L));
+        verify(noteRepository).addTags(Set.of(1L), List.of(10L));
+        verify(noteRepository).touch(Set.of(1L));
+    }
+
+    @Test
+    @DisplayName("Should create notes with one saveAll and delete with set-based statements")
+    void shouldCreateAndDeleteInOneTransaction() {
+        // Given
+        when(noteRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Note> notes = invocation.getArgument(0);
+            notes.get(0).setId(50L);
+            return notes;
+        });
+        when(noteService.convertToNoteResponse(any(Note.class), eq(1L))).thenReturn(new NoteResponse());
+        BatchNoteRequest request = request(false,
+            op("delete", List.of(1L, 2L), null),
+            create("New", "Body", List.of(10L)));
+
+        // When
+        BatchNoteResponse response = batchService.execute(request);
+
+        // Then
+        assertStatuses(response, 200, 403, 201);
+        assertEquals(50L, response.getResults().get(2).getNoteId());
+        assertNotNull(response.getResults().get(2).getNote());
+        verify(noteRepository).deleteAllByIdIn(Set.of(1L));
+        verify(noteRepository).removeAllTags(Set.of(1L));
+        verify(folderNoteRepository).deleteAllByNoteIdIn(Set.of(1L));
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+    }
+
+    @Test
+    @DisplayName("Should fail only the conflicting update when the batch is not atomic")
+    void shouldReportConflictingUpdateAndApplyTheRest() {
+        // Given
+        Note note = new Note();
+        note.setId(1L);
+        note.setTitle("Title");
+        note.setContent("Old");
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
+        when(noteVersioningService.updateNoteWithVersioning(1L, "Title", "New", 1L, 3L))
+            .thenThrow(new NoteConflictException("Note 1 is at revision 4, not 3", "hash", 4L));
+        BatchNoteRequest.Operation update = op("update", List.of(1L), null);
+        update.setContent("New");
+        update.setRevision(3L);
+        BatchNoteRequest request = request(false, update, op("addTags", List.of(1L), List.of(10L)));
+
+        // When
+        BatchNoteResponse response = batchService.execute(request);
+
+        // Then
+        assertStatuses(response, 409, 200);
+        assertFalse(response.isRolledBack());
+        verify(noteRepository).addTags(Set.of(1L), List.of(10L));
+    }
+
+    @Test
+    @DisplayName("Should apply nothing in an atomic batch when one operation is rejected")
+    void shouldApplyNothingWhenAtomicBatchHasRejectedOperation() {
+        // Given
+        BatchNoteRequest request = request(true,
+            op("addTags", List.of(1L), List.of(10L)),
+            op("delete", List.of(2L), null));
+
+        // When
+        BatchNoteResponse response = batchService.execute(request);
+
+        // Then
+        assertStatuses(response, 424, 403);
+        assertTrue(response.isRolledBack());
+        verifyNoInteractions(transactionTemplate);
+        verify(noteRepository, never()).addTags(anyCollection(), anyCollection());
+    }
+
+    @Test
+    @DisplayName("Should roll back an atomic batch when an update fails during execution")
+    void shouldRollBackAtomicBatchOnFailedUpdate() {
+        // Given
+        Note note = new Note();
+        note.setId(1L);
+        note.setTitle("Title");
+        note.setContent("Old");
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
+        when(noteVersioningService.updateNoteWithVersioning(anyLong(), anyString(), anyString(), anyLong(), any()))
+            .thenThrow(new NoteConflictException("conflict", "hash", 4L));
+        BatchNoteRequest.Operation update = op("update", List.of(1L), null);
+        update.setTitle("New title");
+        BatchNoteRequest request = request(true, update, op("addTags", List.of(1L), List.of(10L)));
+
+        // When
+        BatchNoteResponse response = batchService.execute(request);
+
+        // Then
+        assertStatuses(response, 409, 424);
+        assertTrue(response.isRolledBack());
+        verify(transactionStatus).setRollbackOnly();
+        verify(noteRepository, never()).addTags(anyCollection(), anyCollection());
+    }
+
+    // Helper methods
+    private void assertStatuses(BatchNoteResponse response, int... statuses) {
+        assertEquals(statuses.length, response.getResults().size());
+        for (int i = 0; i < statuses.length; i++) {
+            assertEquals(statuses[i], response.getResults().get(i).getStatus(), "result " + i);
+        }
+    }
+
+    private BatchNoteRequest request(boolean atomic, BatchNoteRequest.Operation... operations) {
+        return new BatchNoteRequest(new ArrayList<>(List.of(operations)), atomic);
+    }
+
+    private BatchNoteRequest.Operation op(String type, List<Long> noteIds, List<Long> tagIds) {
+        BatchNoteRequest.Operation op = new BatchNoteRequest.Operation();
+        op.setType(type);
+        op.setNoteIds(noteIds);
+        op.setTagIds(tagIds);
+        return op;
+    }
+
+    private BatchNoteRequest.Operation create(String title, String content, List<Long> tagIds) {
+        BatchNoteRequest.Operation op = op("create", List.of(), tagIds);
+        op.setTitle(title);
+        op.setContent(content);
+        return op;
+    }
+}
@@ -0,0 +1,148 @@
+package com.notabene.service;
+
+import com.notabene.dto.NoteBlameDTO;
+import com.notabene.entity.ContentHash;
+import com.notabene.entity.Note;
+import com.notabene.entity.NoteVersion;
+import com.notabene.repository.NoteVersionRepository;
+import com.notabene.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Note Blame Service Tests")
+class NoteBlameServiceTest {
+
+    @Mock
+    private NoteVersionRepository noteVersionRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private NoteBlameService blameService;
+
+    private Note note;
+
+    @BeforeEach
+    void setUp() {
+        blameService = new NoteBlameService(noteVersionRepository, userRepository, new TextDiffService());
+
+        note = new Note();
+        note.setId(1L);
+        note.setCreatorId(1L);
+        note.setTitle("Title");
+        note.setContent("Hello world!");
+
+        lenient().when(userRepository.findUsernamesByIds(anyList()))
+            .thenReturn(List.of(new Object[] {1L, "alice"}, new Object[] {2L, "bob"}));
+        // La prima versione non ha delta: il suo testo viene letto e confrontato con il testo vuoto
+        lenient().when(noteVersionRepository.findByNoteIdAndVersionNumber(1L, 1))
+            .thenReturn(Optional.of(createVersion(1, "Title", "Hello")));
+    }
+
+    @Test
+    @DisplayName("Should attribute each span to the version that introduced it by chaining stored deltas")
+    void shouldAttributeSpansAcrossVersions() {
+        // Given - alice crea "Hello", bob lo porta a "Hello world" (v1 salvata da bob),
+        // alice aggiunge "!" (v2 salvata da alice)
+        when(noteVersionRepository.findMaxVersionNumber(1L)).thenReturn(2);
+        when(noteVersionRepository.findBlameChain(1L, 0, 2)).thenReturn(List.of(
+            chainRow(1, null, 2L, ContentHash.of("Title", "Hello"), null, null),
+            chainRow(2, 1, 1L, ContentHash.of("Title", "Hello world"), "=5", "=5\t+ world")));
+
+        // When
+        NoteBlameDTO blame = blameService.getBlame(note);
+
+        // Then - "Hello" di alice (v1), " world" di bob (v2), "!" di alice nello stato corrente (v3)
+        assertEquals(3, blame.getVersionNumber());
+        List<NoteBlameDTO.BlameSpan> content = blame.getContent();
+        assertEquals(3, content.size());
+        assertSpan(content.get(0), 0, "Hello", 1, "alice");
+        assertSpan(content.get(1), 5, " world", 2, "bob");
+        assertSpan(content.get(2), 11, "!", 3, "alice");
+        assertEquals(1, blame.getTitle().size());
+        assertSpan(blame.getTitle().get(0), 0, "Title", 1, "alice");
+        verify(noteVersionRepository, never()).findByNoteIdAndVersionNumber(1L, 2);
+    }
+
+    @Test
+    @DisplayName("Should extend the cached blame with new versions only")
+    void shouldExtendCachedBlameIncrementally() {
+        // Given - prima richiesta con due versioni salvate; la modifica che ha aggiunto "!" è di bob
+        when(noteVersionRepository.findMaxVersionNumber(1L)).thenReturn(2, 2, 3);
+        when(noteVersionRepository.findBlameChain(1L, 0, 2)).thenReturn(List.of(
+            chainRow(1, null, 2L, ContentHash.of("Title", "Hello"), null, null),
+            chainRow(2, 1, 2L, ContentHash.of("Title", "Hello world"), "=5", "=5\t+ world")));
+        when(noteVersionRepository.findBlameChain(1L, 2, 3)).thenReturn(List.<Object[]>of(
+            chainRow(3, 2, 1L, ContentHash.of("Title", "Hello world!"), "=5", "=11\t+!")));
+        blameService.getBlame(note);
+
+        // When - stessa versione, poi una nuova versione salvata
+        blameService.getBlame(note);
+        NoteBlameDTO blame = blameService.getBlame(note);
+
+        // Then
+        assertEquals(4, blame.getVersionNumber());
+        assertSpan(blame.getContent().get(2), 11, "!", 3, "bob");
+        verify(noteVersionRepository, times(1)).findBlameChain(1L, 0, 2);
+        verify(noteVersionRepository, times(1)).findBlameChain(1L, 2, 3);
+        verify(noteVersionRepository, times(1)).findByNoteIdAndVersionNumber(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should diff the stored text when a delta does not chain to the previous version")
+    void shouldFallBackToDiffWhenDeltaDoesNotChain() {
+        // Given - la v2 era basata su una versione poi eliminata
+        note.setContent("Hello world");
+        when(noteVersionRepository.findMaxVersionNumber(1L)).thenReturn(3);
+        when(noteVersionRepository.findBlameChain(1L, 0, 3)).thenReturn(List.of(
+            chainRow(1, null, 2L, ContentHash.of("Title", "Hello"), null, null),
+            chainRow(3, 2, 1L, ContentHash.of("Title", "Hello world"), "=5", "=7\t+ld")));
+        when(noteVersionRepository.findByNoteIdAndVersionNumber(1L, 3))
+            .thenReturn(Optional.of(createVersion(3, "Title", "Hello world")));
+
+        // When
+        NoteBlameDTO blame = blameService.getBlame(note);
+
+        // Then
+        assertEquals(4, blame.getVersionNumber());
+        assertEquals(2, blame.getContent().size());
+        assertSpan(blame.getContent().get(0), 0, "Hello", 1, "alice");
+        assertSpan(blame.getContent().get(1), 5, " world", 3, "bob");
+    }
+
+    // Helper methods
+    private void assertSpan(NoteBlameDTO.BlameSpan span, int offset, String text, int versionNumber, String username) {
+        assertEquals(offset, span.getOffset());
+        assertEquals(text.length(), span.getLength());
+        assertEquals(text, span.getText());
+        assertEquals(versionNumber, span.getVersionNumber());
+        assertEquals(username, span.getCreatedByUsername());
+    }
+
+    private Object[] chainRow(int versionNumber, Integer deltaBase, Long createdBy, String contentHash,
+                              String titleDelta, String contentDelta) {
+        // La nota è stata creata da alice (id 1)
+        return new Object[] {versionNumber, deltaBase, createdBy, contentHash, titleDelta, contentDelta, 1L};
+    }
+
+    private NoteVersion createVersion(int versionNumber, String title, String content) {
+        NoteVersion version = new NoteVersion();
+        version.setNoteId(1L);
+        version.setVersionNumber(versionNumber);
+        version.setTitle(title);
+        version.setContent(content);
+        return version;
+    }
+}
@@ -0,0 +1,138 @@
+package com.notabene.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Note Export Service Tests")
+class NoteExportServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private NoteExportService exportService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        exportService = new NoteExportService(jdbcTemplate, transactionTemplate);
+
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        // Due note restituite dal cursore, una riga JSON ciascuna
+        when(resultSet.getString(1)).thenReturn("{\"id\":1,\"title\":\"Prima\"}", "{\"id\":2,\"title\":\"Seconda\"}");
+        doAnswer(invocation -> {
+            invocation.<PreparedStatementCreator>getArgument(0).createPreparedStatement(connection);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(resultSet);
+            handler.processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("Should stream one NDJSON line per note through a forward-only cursor")
+    void shouldStreamNdjsonThroughCursor() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        exportService.export(7L, NoteExportService.Format.NDJSON, false, out);
+
+        // Then
+        assertEquals("{\"id\":1,\"title\":\"Prima\"}\n{\"id\":2,\"title\":\"Seconda\"}\n", out.toString(StandardCharsets.UTF_8));
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(connection).prepareStatement(sql.capture(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+        assertFalse(sql.getValue().contains("'versions'"));
+        verify(statement).setFetchSize(500);
+        verify(statement).setLong(1, 7L);
+        verify(statement).setLong(2, 7L);
+        verify(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    @DisplayName("Should write the NDJSON with history into a ZIP entry")
+    void shouldZipNdjsonWithHistory() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        exportService.export(7L, NoteExportService.Format.ZIP, true, out);
+
+        // Then
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertEquals(NoteExportService.ZIP_ENTRY, entry.getName());
+            String ndjson = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(2, ndjson.lines().count());
+            assertNull(zip.getNextEntry());
+        }
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(connection).prepareStatement(sql.capture(), anyInt(), anyInt());
+        assertTrue(sql.getValue().contains("'versions'"));
+    }
+
+    @Test
+    @DisplayName("Should propagate a write failure from the client connection")
+    void shouldPropagateWriteFailure() throws Exception {
+        // Given - il client chiude la connessione durante l'export
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        when(resultSet.getString(1)).thenReturn("x".repeat(70 * 1024));
+
+        // When & Then
+        IOException error = assertThrows(IOException.class,
+            () -> exportService.export(7L, NoteExportService.Format.NDJSON, false, broken));
+        assertEquals("Broken pipe", error.getMessage());
+    }
+}
@@ -0,0 +1,167 @@
+package com.notabene.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notabene.dto.NoteImportReportDTO;
+import com.notabene.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Note Import Service Tests")
+class NoteImportServiceTest {
+
+    @Mock
+    private NoteImportWriter noteImportWriter;
+
+    private NoteImportService importService;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        importService = new NoteImportService(noteImportWriter, new ObjectMapper());
+
+        owner = new User();
+        owner.setId(1L);
+        owner.setUsername("alice");
+    }
+
+    @Test
+    @DisplayName("Should import valid NDJSON rows and report invalid ones by line")
+    @SuppressWarnings("unchecked")
+    void shouldImportNdjsonAndReportInvalidRows() throws Exception {
+        // Given
+        String input = """
+            {"title":"First","content":"Hello","tags":[" work ","ideas","work"]}
+            {"title":"","content":"No title"}
+
+            not json
+            {"title":"Last","content":"Bye"}
+            """;
+
+        // When
+        NoteImportReportDTO report = importService.importNotes(stream(input), NoteImportService.Format.NDJSON, owner);
+
+        // Then
+        assertEquals(2, report.getImported());
+        assertEquals(2, report.getFailed());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertEquals("Title cannot be blank", report.getErrors().get(0).getMessage());
+        assertEquals(4, report.getErrors().get(1).getLine());
+        assertTrue(report.getErrors().get(1).getMessage().startsWith("Invalid JSON"));
+
+        ArgumentCaptor<List<NoteImportReader.Row>> rows = ArgumentCaptor.forClass(List.class);
+        verify(noteImportWriter).write(rows.capture(), eq(1L));
+        assertEquals(2, rows.getValue().size());
+        assertEquals(List.of("work", "ideas"), rows.getValue().get(0).tags());
+        assertEquals("Bye", rows.getValue().get(1).content());
+    }
+
+    @Test
+    @DisplayName("Should parse quoted CSV fields with separators, quotes and line breaks")
+    @SuppressWarnings("unchecked")
+    void shouldParseQuotedCsv() throws Exception {
+        // Given - colonne in ordine diverso e un campo su due righe
+        String input = "tags,content,title\r\n" +
+            "work;ideas,\"Line one\nline \"\"two\"\", with comma\",Quoted\r\n" +
+            ",Plain,Simple\r\n" +
+            ",\"Never closed,Broken\n";
+
+        // When
+        NoteImportReportDTO report = importService.importNotes(stream(input), NoteImportService.Format.CSV, owner);
+
+        // Then
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(5, report.getErrors().get(0).getLine());
+        assertEquals("Unterminated quoted field", report.getErrors().get(0).getMessage());
+
+        ArgumentCaptor<List<NoteImportReader.Row>> rows = ArgumentCaptor.forClass(List.class);
+        verify(noteImportWriter).write(rows.capture(), eq(1L));
+        NoteImportReader.Row quoted = rows.getValue().get(0);
+        assertEquals(2, quoted.line());
+        assertEquals("Quoted", quoted.title());
+        assertEquals("Line one\nline \"two\", with comma", quoted.content());
+        assertEquals(List.of("work", "ideas"), quoted.tags());
+        assertEquals(4, rows.getValue().get(1).line());
+        assertEquals(List.of(), rows.getValue().get(1).tags());
+    }
+
+    @Test
+    @DisplayName("Should reject CSV input without title and content columns")
+    void shouldRejectCsvWithoutRequiredColumns() {
+        assertThrows(IllegalArgumentException.class,
+            () -> importService.importNotes(stream("name,body\nA,B\n"), NoteImportService.Format.CSV, owner));
+        verifyNoInteractions(noteImportWriter);
+    }
+
+    @Test
+    @DisplayName("Should write in chunks and retry a rejected chunk row by row")
+    @SuppressWarnings("unchecked")
+    void shouldRetryRejectedChunkRowByRow() throws Exception {
+        // Given - blocchi da due righe, il secondo rifiutato per colpa della riga 3
+        ReflectionTestUtils.setField(importService, "chunkSize", 2);
+        String input = """
+            {"title":"A","content":"1"}
+            {"title":"B","content":"2"}
+            {"title":"C","content":"3"}
+            {"title":"D","content":"4"}
+            """;
+        doAnswer(invocation -> {
+            List<NoteImportReader.Row> chunk = invocation.getArgument(0);
+            if (chunk.stream().anyMatch(row -> row.line() == 3)) {
+                throw new DataIntegrityViolationException("chunk", new RuntimeException("duplicate key"));
+            }
+            return null;
+        }).when(noteImportWriter).write(anyList(), eq(1L));
+
+        // When
+        NoteImportReportDTO report = importService.importNotes(stream(input), NoteImportService.Format.NDJSON, owner);
+
+        // Then
+        assertEquals(3, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(3, report.getErrors().get(0).getLine());
+        assertEquals("duplicate key", report.getErrors().get(0).getMessage());
+        verify(noteImportWriter, times(4)).write(anyList(), eq(1L));
+    }
+
+    @Test
+    @DisplayName("Should count errors beyond the reported limit without listing them")
+    void shouldTruncateReportedErrors() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(importService, "maxReportedErrors", 2);
+        String input = "{}\n{}\n{}\n";
+
+        // When
+        NoteImportReportDTO report = importService.importNotes(stream(input), NoteImportService.Format.NDJSON, owner);
+
+        // Then
+        assertEquals(0, report.getImported());
+        assertEquals(3, report.getFailed());
+        assertEquals(2, report.getErrors().size());
+        assertTrue(report.isErrorsTruncated());
+        verifyNoInteractions(noteImportWriter);
+    }
+
+    // Helper methods
+    private InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
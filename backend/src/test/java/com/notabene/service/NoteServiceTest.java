@@ -90,7 +90,7 @@ class NoteServiceTest {
         // Mock current user for all tests (lenient to avoid unnecessary stubbing issues)
         lenient().when(authenticationService.getCurrentUser()).thenReturn(testUser);
 
-        lenient().when(noteVersionRepository.countByNoteId(anyLong())).thenReturn(0L);
+        lenient().when(noteVersionRepository.findMaxVersionNumber(anyLong())).thenReturn(null);
 
         // Evita NPE nel mapping readers/writers (Optional::isPresent su null)
         lenient().when(userRepository.findById(anyLong()))
@@ -177,7 +177,31 @@ class NoteServiceTest {
         verify(authenticationService).getCurrentUser();
         verify(noteRepository).findByUserOrderByCreatedAtDesc(testUser, pageable);
     }
-    
+
+    @Test
+    @DisplayName("Should resolve group write access for shared notes with a single query")
+    void shouldResolveGroupWriteAccessInOneQuery() {
+        Note viaGroup = new Note("Group Note", "Content");
+        viaGroup.setId(2L);
+        viaGroup.setCreatorId(9L);
+        viaGroup.addReader(testUser.getId());
+        Note readOnly = new Note("Read Only", "Content");
+        readOnly.setId(3L);
+        readOnly.setCreatorId(9L);
+        readOnly.addReader(testUser.getId());
+
+        when(noteRepository.findSharedWithUser(testUser.getId())).thenReturn(List.of(viaGroup, readOnly));
+        when(noteRepository.findGroupWritableIds(List.of(2L, 3L), testUser.getId())).thenReturn(List.of(2L));
+
+        List<NoteResponse> result = noteService.getSharedNotes();
+
+        assertEquals(2, result.size());
+        assertTrue(result.get(0).isCanEdit());
+        assertFalse(result.get(1).isCanEdit());
+        verify(noteRepository).findGroupWritableIds(anyCollection(), anyLong());
+        verify(noteRepository, never()).hasGroupWriteAccess(anyLong(), anyLong());
+    }
+
     @Test
     @DisplayName("Should get note by id for current user only")
     void shouldGetNoteByIdSuccessfully() {
@@ -226,10 +250,10 @@ class NoteServiceTest {
         updatedNote.addWriter(testUser.getId());
 
         when(noteVersioningService.updateNoteWithVersioning(
-                1L, "Updated Title", "Updated Content", testUser.getId()))
+                1L, "Updated Title", "Updated Content", testUser.getId(), null))
             .thenReturn(updatedNote);
 
-        when(noteVersionRepository.countByNoteId(1L)).thenReturn(1L);
+        when(noteVersionRepository.findMaxVersionNumber(1L)).thenReturn(1);
         when(userRepository.findById(testUser.getId())).thenReturn(Optional.of(testUser));
 
         NoteResponse result = noteService.updateNote(1L, validUpdateRequest);
@@ -242,9 +266,65 @@ class NoteServiceTest {
         verify(authenticationService).getCurrentUser();
         verify(noteRepository).findByIdWithWritePermission(1L, testUser.getId());
         verify(noteVersioningService).updateNoteWithVersioning(
-                1L, "Updated Title", "Updated Content", testUser.getId());
+                1L, "Updated Title", "Updated Content", testUser.getId(), null);
     }
 
+
+    @Test
+    @DisplayName("Should pass the client revision to the versioning service and return the new one")
+    void shouldUpdateNoteAtClientRevision() {
+        when(authenticationService.getCurrentUser()).thenReturn(testUser);
+        when(noteRepository.findByIdWithWritePermission(1L, testUser.getId()))
+            .thenReturn(Optional.of(sampleNote));
+
+        Note updatedNote = new Note("Updated Title", "Updated Content", testUser);
+        updatedNote.setId(1L);
+        updatedNote.setRevision(8L);
+        when(noteVersioningService.updateNoteWithVersioning(
+                1L, "Updated Title", "Updated Content", testUser.getId(), 7L))
+            .thenReturn(updatedNote);
+
+        UpdateNoteRequest request = new UpdateNoteRequest("Updated Title", "Updated Content");
+        request.setRevision(7L);
+        NoteResponse result = noteService.updateNote(1L, request);
+
+        assertEquals(8L, result.getRevision());
+    }
+    
+    @Test
+    @DisplayName("Should merge the edit with concurrent changes in merge mode")
+    void shouldMergeNoteInMergeMode() {
+        when(authenticationService.getCurrentUser()).thenReturn(testUser);
+        when(noteRepository.findByIdWithWritePermission(1L, testUser.getId()))
+            .thenReturn(Optional.of(sampleNote));
+        
+        Note mergedNote = new Note("Test Title", "Merged Content", testUser);
+        mergedNote.setId(1L);
+        when(noteVersioningService.mergeNoteWithVersioning(1L, "base-hash", null, "Merged Content", testUser.getId()))
+            .thenReturn(mergedNote);
+        
+        UpdateNoteRequest request = new UpdateNoteRequest(null, "Merged Content");
+        request.setMerge(true);
+        request.setBaseHash("base-hash");
+        NoteResponse result = noteService.updateNote(1L, request);
+        
+        assertEquals("Merged Content", result.getContent());
+        verify(noteVersioningService, never()).updateNoteWithVersioning(anyLong(), any(), any(), anyLong(), any());
+    }
+    
+    @Test
+    @DisplayName("Should require the base hash in merge mode")
+    void shouldRequireBaseHashInMergeMode() {
+        when(authenticationService.getCurrentUser()).thenReturn(testUser);
+        when(noteRepository.findByIdWithWritePermission(1L, testUser.getId()))
+            .thenReturn(Optional.of(sampleNote));
+        
+        UpdateNoteRequest request = new UpdateNoteRequest("Title", "Content");
+        request.setMerge(true);
+        
+        assertThrows(IllegalArgumentException.class, () -> noteService.updateNote(1L, request));
+        verify(noteVersioningService, never()).mergeNoteWithVersioning(anyLong(), any(), any(), any(), anyLong());
+    }
     
     @Test
     @DisplayName("Should update note partially for current user")
@@ -254,7 +334,7 @@ class NoteServiceTest {
         when(noteRepository.findByIdWithWritePermission(1L, testUser.getId()))
             .thenReturn(Optional.of(sampleNote));
 
-        when(noteVersionRepository.countByNoteId(1L)).thenReturn(1L);
+        when(noteVersionRepository.findMaxVersionNumber(1L)).thenReturn(1);
         when(userRepository.findById(testUser.getId())).thenReturn(Optional.of(testUser));
 
         UpdateNoteRequest partialUpdate = new UpdateNoteRequest(null, "Updated Content Only");
@@ -272,7 +352,8 @@ class NoteServiceTest {
             eq(1L),
             eq(sampleNote.getTitle()),
             eq("Updated Content Only"),
-            eq(testUser.getId()))
+            eq(testUser.getId()),
+            isNull())
         ).thenReturn(returned);
 
         NoteResponse result = noteService.updateNote(1L, partialUpdate);
@@ -285,7 +366,7 @@ class NoteServiceTest {
         verify(authenticationService).getCurrentUser();
         verify(noteRepository).findByIdWithWritePermission(1L, testUser.getId());
         verify(noteVersioningService).updateNoteWithVersioning(
-            1L, sampleNote.getTitle(), "Updated Content Only", testUser.getId());
+            1L, sampleNote.getTitle(), "Updated Content Only", testUser.getId(), null);
 
         verify(noteRepository, never()).save(any(Note.class));
     }
@@ -299,7 +380,7 @@ class NoteServiceTest {
         when(noteRepository.findByIdWithWritePermission(1L, testUser.getId()))
             .thenReturn(Optional.of(sampleNote));
 
-        lenient().when(noteVersionRepository.countByNoteId(1L)).thenReturn(0L);
+        lenient().when(noteVersionRepository.findMaxVersionNumber(1L)).thenReturn(null);
         lenient().when(userRepository.findById(testUser.getId())).thenReturn(Optional.of(testUser));
 
         UpdateNoteRequest updateWithBlanks = new UpdateNoteRequest("", "   ");
@@ -308,7 +389,8 @@ class NoteServiceTest {
             eq(1L),
             eq(sampleNote.getTitle()),
             eq(sampleNote.getContent()),
-            eq(testUser.getId())
+            eq(testUser.getId()),
+            isNull()
         )).thenReturn(sampleNote);
 
         NoteResponse result = noteService.updateNote(1L, updateWithBlanks);
@@ -746,7 +828,7 @@ class NoteServiceTest {
         when(noteRepository.findByIdWithReadPermission(originalNoteId, testUser.getId()))
                 .thenReturn(Optional.of(originalNote));
         when(noteRepository.save(any(Note.class))).thenReturn(copiedNote);
-        when(noteVersionRepository.countByNoteId(copiedNote.getId())).thenReturn(1L);
+        when(noteVersionRepository.findMaxVersionNumber(copiedNote.getId())).thenReturn(1);
         
         // When
         NoteResponse result = noteService.copyNote(originalNoteId);
@@ -803,7 +885,7 @@ class NoteServiceTest {
                 eq(testUser.getId()),
                 eq("Java"),
                 eq("testuser"),
-                any(), any(), any(), any(), any()
+                any(), any(), any(), any(), any(), anyBoolean()
         )).thenReturn(mockNotes);
 
         // When
@@ -820,7 +902,7 @@ class NoteServiceTest {
                 eq(testUser.getId()),
                 eq("Java"),
                 eq("testuser"),
-                any(), any(), any(), any(), any()
+                any(), any(), any(), any(), any(), anyBoolean()
         );
     }
 
@@ -836,7 +918,7 @@ class NoteServiceTest {
                 eq(testUser.getId()),
                 eq("test"),
                 eq(null),
-                any(), any(), any(), any(), any()
+                any(), any(), any(), any(), any(), anyBoolean()
         )).thenReturn(mockNotes);
 
         // When
@@ -851,7 +933,7 @@ class NoteServiceTest {
                 eq(testUser.getId()),
                 eq("test"),
                 eq(null),
-                any(), any(), any(), any(), any()
+                any(), any(), any(), any(), any(), anyBoolean()
         );
     }
 
@@ -865,7 +947,7 @@ class NoteServiceTest {
         when(noteRepository.searchNotesAdvanced(
                 eq(testUser.getId()),
                 eq("nonexistent"),
-                any(), any(), any(), any(), any(), any()
+                any(), any(), any(), any(), any(), any(), anyBoolean()
         )).thenReturn(new ArrayList<>());
 
         // When
@@ -879,7 +961,7 @@ class NoteServiceTest {
         verify(noteRepository).searchNotesAdvanced(
                 eq(testUser.getId()),
                 eq("nonexistent"),
-                any(), any(), any(), any(), any(), any()
+                any(), any(), any(), any(), any(), any(), anyBoolean()
         );
     }
 
@@ -895,7 +977,7 @@ class NoteServiceTest {
         when(noteRepository.searchNotesAdvanced(
                 eq(testUser.getId()),
                 eq("Java"),
-                any(), any(), any(), any(), any(), eq(folderId)
+                any(), any(), any(), any(), any(), eq(folderId), eq(false)
         )).thenReturn(mockNotes);
 
         // When
@@ -911,7 +993,7 @@ class NoteServiceTest {
         verify(noteRepository).searchNotesAdvanced(
                 eq(testUser.getId()),
                 eq("Java"),
-                any(), any(), any(), any(), any(), eq(folderId)
+                any(), any(), any(), any(), any(), eq(folderId), eq(false)
         );
     }
 
@@ -944,7 +1026,7 @@ class NoteServiceTest {
         when(noteRepository.searchNotesAdvanced(
                 eq(testUser.getId()),
                 eq("nonexistent"),
-                any(), any(), any(), any(), any(), eq(folderId)
+                any(), any(), any(), any(), any(), eq(folderId), eq(false)
         )).thenReturn(new ArrayList<>());
 
         // When
@@ -959,7 +1041,7 @@ class NoteServiceTest {
         verify(noteRepository).searchNotesAdvanced(
                 eq(testUser.getId()),
                 eq("nonexistent"),
-                any(), any(), any(), any(), any(), eq(folderId)
+                any(), any(), any(), any(), any(), eq(folderId), eq(false)
         );
     }
 }
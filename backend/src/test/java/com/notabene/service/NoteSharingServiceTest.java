@@ -0,0 +1,112 @@
+package com.notabene.service;
+
+import com.notabene.dto.BulkShareRequest;
+import com.notabene.dto.BulkShareResponse;
+import com.notabene.model.User;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Note Sharing Service Tests")
+class NoteSharingServiceTest {
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private AuthenticationService authenticationService;
+
+    private NoteSharingService sharingService;
+
+    @BeforeEach
+    void setUp() {
+        sharingService = new NoteSharingService(noteRepository, userRepository, authenticationService);
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        when(authenticationService.getCurrentUser()).thenReturn(user);
+
+        // bob e carol esistono, dave no
+        lenient().when(userRepository.findIdsByUsernames(anyCollection())).thenReturn(List.of(
+            new Object[] {2L, "bob"},
+            new Object[] {3L, "carol"},
+            new Object[] {1L, "alice"}));
+        // Nota 10 e 11 dell'utente, nota 12 di un altro utente, nota 13 inesistente
+        List<Object[]> permissions = List.of(
+            new Object[] {10L, true, true, true},
+            new Object[] {11L, true, true, true},
+            new Object[] {12L, false, true, false});
+        lenient().when(noteRepository.findPermissions(anyCollection(), eq(1L))).thenAnswer(invocation -> {
+            Collection<Long> noteIds = invocation.getArgument(0);
+            return permissions.stream().filter(row -> noteIds.contains(row[0])).toList();
+        });
+    }
+
+    @Test
+    @DisplayName("Should resolve all usernames at once and grant with one statement")
+    void shouldGrantWithOneStatement() {
+        // Given
+        when(noteRepository.grantWriters(anyCollection(), anyCollection(), eq(1L))).thenReturn(2);
+        BulkShareRequest request = new BulkShareRequest(List.of(10L, 11L, 12L, 13L, 10L),
+            List.of("bob", "carol", "dave", "bob"), "writer");
+
+        // When
+        BulkShareResponse response = sharingService.grant(request);
+
+        // Then
+        assertEquals(2, response.getUpdatedNotes());
+        assertEquals(List.of(12L, 13L), response.getSkippedNoteIds());
+        assertEquals(List.of("dave"), response.getUnknownUsernames());
+        verify(userRepository, times(1)).findIdsByUsernames(Set.of("bob", "carol", "dave"));
+        verify(noteRepository, times(1)).findPermissions(Set.of(10L, 11L, 12L, 13L), 1L);
+        verify(noteRepository).grantWriters(Set.of(10L, 11L), Set.of(2L, 3L), 1L);
+        verify(noteRepository, never()).grantReaders(anyCollection(), anyCollection(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should never revoke the creator's own permissions")
+    void shouldNotRevokeCreator() {
+        // Given
+        BulkShareRequest request = new BulkShareRequest(List.of(10L), List.of("alice", "bob"), "reader");
+
+        // When
+        sharingService.revoke(request);
+
+        // Then
+        verify(noteRepository).revokeReaders(Set.of(10L), Set.of(2L), 1L);
+        verify(noteRepository, never()).revokeWriters(anyCollection(), anyCollection(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should skip the update when no known user or owned note remains")
+    void shouldSkipUpdateWithoutTargets() {
+        // Given
+        BulkShareRequest request = new BulkShareRequest(List.of(12L), List.of("bob"), "reader");
+
+        // When
+        BulkShareResponse response = sharingService.grant(request);
+
+        // Then
+        assertEquals(0, response.getUpdatedNotes());
+        assertEquals(List.of(12L), response.getSkippedNoteIds());
+        verify(noteRepository, never()).grantReaders(anyCollection(), anyCollection(), anyLong());
+    }
+}
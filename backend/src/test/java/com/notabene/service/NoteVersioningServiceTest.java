@@ -1,23 +1,38 @@
 package com.notabene.service;
 
+import com.notabene.dto.NoteVersionContentDTO;
+import com.notabene.dto.NoteVersionSummaryDTO;
+import com.notabene.entity.ContentHash;
 import com.notabene.entity.Note;
+import com.notabene.entity.NoteMergeBase;
 import com.notabene.entity.NoteVersion;
+import com.notabene.entity.VersionOutboxEntry;
+import com.notabene.exception.NoteConflictException;
+import com.notabene.exception.NoteMergeConflictException;
+import com.notabene.model.NoteMergeBaseId;
 import com.notabene.model.User;
+import com.notabene.repository.NoteMergeBaseRepository;
 import com.notabene.repository.NoteRepository;
 import com.notabene.repository.NoteVersionRepository;
+import com.notabene.repository.UserRepository;
 import com.notabene.service.memento.NoteVersionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -36,6 +51,18 @@ class NoteVersioningServiceTest {
     @Mock
     private NoteVersionManager versionManager;
     
+    @Mock
+    private UserRepository userRepository;
+    
+    @Mock
+    private VersionWriteBehindService versionWriteBehind;
+    
+    @Mock
+    private NoteMergeBaseRepository mergeBaseRepository;
+    
+    @Spy
+    private TextDiffService textDiffService = new TextDiffService(new SimpleMeterRegistry());
+    
     @InjectMocks
     private NoteVersioningService noteVersioningService;
     
@@ -220,7 +247,490 @@ class NoteVersioningServiceTest {
 
 
 
+    @Test
+    @DisplayName("Should let a writer through a group share update and patch the note")
+    void shouldAllowGroupWriterToUpdateAndPatch() {
+        // Given - l'utente 3 non è tra i writers, scrive tramite un gruppo
+        Long groupWriterId = 3L;
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(any(Note.class))).thenReturn(testNote);
+        when(noteRepository.hasGroupWriteAccess(1L, groupWriterId)).thenReturn(true);
+        
+        // When
+        noteVersioningService.updateNoteWithVersioning(1L, "Group Title", "Original Content", groupWriterId);
+        Note patched = noteVersioningService.patchNoteWithVersioning(1L,
+            ContentHash.of("Group Title", "Original Content"),
+            List.of(), List.of(TextDiffService.TextEdit.insert(16, "!")), groupWriterId);
+        
+        // Then
+        assertEquals("Group Title", patched.getTitle());
+        assertEquals("Original Content!", patched.getContent());
+        verify(noteRepository, times(2)).save(testNote);
+    }
+
+    @Test
+    @DisplayName("Should detect restored state with a content hash lookup")
+    void shouldDetectRestoredStateWithHashLookup() {
+        // Given
+        NoteVersion version1 = createNoteVersion(1L, "Original Title", "Original Content");
+        version1.setVersionNumber(1);
+        NoteVersion version2 = createNoteVersion(2L, "Other Title", "Other Content");
+        version2.setVersionNumber(2);
+        String currentHash = ContentHash.of("Original Title", "Original Content");
+        testNote.setContentHash(currentHash);
+        
+        when(noteVersionRepository.findByNoteIdOrderByVersionNumberDesc(1L)).thenReturn(List.of(version2, version1));
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteVersionRepository.findFirstByNoteIdAndContentHashOrderByVersionNumberDesc(1L, currentHash))
+            .thenReturn(Optional.of(version1));
+        
+        // When
+        List<NoteVersion> result = noteVersioningService.getVersionHistory(1L);
+        
+        // Then
+        assertEquals(3, result.size());
+        assertTrue(result.get(0).getIsRestored());
+        assertEquals(1, result.get(0).getRestoredFromVersion());
+    }
+
+    @Test
+    @DisplayName("Should load requested versions together, including the current one")
+    void shouldLoadRequestedVersionsTogether() {
+        // Given
+        NoteVersion v1 = createNoteVersion(10L, "Title v1", "Content v1");
+        v1.setVersionNumber(1);
+        NoteVersion v2 = createNoteVersion(11L, "Title v2", "Content v2");
+        v2.setVersionNumber(2);
+        when(noteVersionRepository.findByNoteIdAndVersionNumberIn(eq(1L), anyCollection())).thenReturn(List.of(v1, v2));
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteVersionRepository.findFirstByNoteIdOrderByVersionNumberDesc(1L)).thenReturn(Optional.of(v2));
+        
+        // When
+        Map<Integer, NoteVersion> versions = noteVersioningService.getVersions(1L, List.of(1, 2, 3, 7));
+        
+        // Then
+        assertEquals(Set.of(1, 2, 3), versions.keySet());
+        assertEquals(-1L, versions.get(3).getId());
+        assertEquals("Original Content", versions.get(3).getContent());
+        verify(noteVersionRepository, times(1)).findByNoteIdAndVersionNumberIn(eq(1L), anyCollection());
+    }
+
+    @Test
+    @DisplayName("Should list version summaries from the metadata query and mark a restored current state")
+    void shouldListVersionSummariesWithoutBodies() {
+        // Given
+        String restoredHash = ContentHash.of("Original Title", "Original Content");
+        testNote.setContentHash(restoredHash);
+        NoteVersionSummaryDTO v2 = new NoteVersionSummaryDTO(11L, 1L, 2, 1L, "testuser", fixedTime, false, null,
+            ContentHash.of("Other Title", "Other Content"));
+        NoteVersionSummaryDTO v1 = new NoteVersionSummaryDTO(10L, 1L, 1, 1L, "testuser", fixedTime, false, null, restoredHash);
+        when(noteVersionRepository.findSummariesByNoteId(1L)).thenReturn(List.of(v2, v1));
+        
+        // When
+        List<NoteVersionSummaryDTO> result = noteVersioningService.getVersionSummaries(testNote);
+        
+        // Then
+        assertEquals(3, result.size());
+        NoteVersionSummaryDTO current = result.get(0);
+        assertEquals(-1L, current.getId());
+        assertEquals(3, current.getVersionNumber());
+        assertEquals("testuser", current.getCreatedByUsername());
+        assertTrue(current.getIsRestored());
+        assertEquals(1, current.getRestoredFromVersion());
+        verify(noteVersionRepository, never()).findByNoteIdOrderByVersionNumberDesc(anyLong());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("Should look up the creator username when the note has no stored versions")
+    void shouldLookUpCreatorUsernameForFirstVersion() {
+        // Given
+        testNote.setCreatorId(1L);
+        when(noteVersionRepository.findSummariesByNoteId(1L)).thenReturn(List.of());
+        when(userRepository.findUsernamesByIds(List.of(1L))).thenReturn(List.<Object[]>of(new Object[] {1L, "testuser"}));
+        
+        // When
+        List<NoteVersionSummaryDTO> result = noteVersioningService.getVersionSummaries(testNote);
+        
+        // Then
+        assertEquals(1, result.size());
+        assertEquals(1, result.get(0).getVersionNumber());
+        assertEquals("testuser", result.get(0).getCreatedByUsername());
+        assertFalse(result.get(0).getIsRestored());
+    }
+
+    @Test
+    @DisplayName("Should fetch the body of a stored or current version on demand")
+    void shouldFetchVersionContentOnDemand() {
+        // Given
+        when(noteVersionRepository.findContentByNoteIdAndVersionNumber(1L, 2))
+            .thenReturn(Optional.of(new NoteVersionContentDTO(2, "Title v2", "Content v2")));
+        when(noteVersionRepository.findContentByNoteIdAndVersionNumber(eq(1L), intThat(n -> n != 2)))
+            .thenReturn(Optional.empty());
+        when(noteVersionRepository.findMaxVersionNumber(1L)).thenReturn(2);
+        
+        // When / Then
+        assertEquals("Content v2", noteVersioningService.getVersionContent(testNote, 2).orElseThrow().getContent());
+        assertEquals("Original Content", noteVersioningService.getVersionContent(testNote, 3).orElseThrow().getContent());
+        assertTrue(noteVersioningService.getVersionContent(testNote, 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should coalesce rapid edits by the same editor into the pending version")
+    void shouldCoalesceRapidEditsBySameEditor() {
+        // Given - ultima modifica 5 secondi fa, dallo stesso utente
+        LocalDateTime now = LocalDateTime.now();
+        testNote.setUpdatedAt(now.minusSeconds(5));
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(any(Note.class))).thenReturn(testNote);
+        when(noteVersionRepository.findLatestSummary(1L)).thenReturn(Optional.of(latestSummary(1L, now.minusMinutes(1))));
+        
+        // When
+        for (int i = 0; i < 20; i++) {
+            noteVersioningService.updateNoteWithVersioning(1L, "Title", "Draft " + i, testUser.getId());
+        }
+        
+        // Then
+        verify(versionManager, never()).createVersion(any(Note.class), any(Long.class));
+        verify(noteRepository, times(20)).save(testNote);
+        assertEquals("Draft 19", testNote.getContent());
+    }
+
+    @Test
+    @DisplayName("Should create a version when another editor made the previous edit")
+    void shouldNotCoalesceEditsByDifferentEditors() {
+        LocalDateTime now = LocalDateTime.now();
+        testNote.setUpdatedAt(now.minusSeconds(5));
+        testNote.addWriter(2L);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(any(Note.class))).thenReturn(testNote);
+        when(noteVersionRepository.findLatestSummary(1L)).thenReturn(Optional.of(latestSummary(1L, now.minusSeconds(10))));
+        
+        noteVersioningService.updateNoteWithVersioning(1L, "Title", "Edited by someone else", 2L);
+        
+        verify(versionManager).createVersion(testNote, 2L);
+    }
+
+    @Test
+    @DisplayName("Should create a version once the window or the burst cap has elapsed")
+    void shouldCreateVersionAfterWindowOrBurstCap() {
+        LocalDateTime now = LocalDateTime.now();
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(any(Note.class))).thenReturn(testNote);
+        
+        // Pausa più lunga della finestra: nessuna query sull'ultima versione
+        testNote.setUpdatedAt(now.minusMinutes(2));
+        noteVersioningService.updateNoteWithVersioning(1L, "Title", "After a pause", testUser.getId());
+        verify(noteVersionRepository, never()).findLatestSummary(anyLong());
+        
+        // Raffica iniziata più di 5 minuti fa: nuovo checkpoint
+        testNote.setUpdatedAt(now.minusSeconds(5));
+        when(noteVersionRepository.findLatestSummary(1L)).thenReturn(Optional.of(latestSummary(1L, now.minusMinutes(10))));
+        noteVersioningService.updateNoteWithVersioning(1L, "Title", "Long session", testUser.getId());
+        
+        verify(versionManager, times(2)).createVersion(testNote, testUser.getId());
+    }
+
+    @Test
+    @DisplayName("Should apply patch operations and keep their delta for the next version")
+    void shouldApplyPatchAndKeepPendingDelta() {
+        // Given
+        String baseHash = ContentHash.of("Original Title", "Original Content");
+        NoteVersion stored = createNoteVersion(10L, "Original Title", "Original Content");
+        stored.setVersionNumber(4);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(any(Note.class))).thenReturn(testNote);
+        when(versionManager.createVersion(testNote, testUser.getId())).thenReturn(stored);
+        
+        // When
+        Note patched = noteVersioningService.patchNoteWithVersioning(1L, baseHash,
+            List.of(),
+            List.of(TextDiffService.TextEdit.delete(0, 8), TextDiffService.TextEdit.insert(0, "New")),
+            testUser.getId());
+        
+        // Then
+        assertEquals("New Content", patched.getContent());
+        assertEquals("Original Title", patched.getTitle());
+        assertEquals(4, patched.getPendingDeltaBase());
+        assertTrue(textDiffService.deltaProduces("Original Content", patched.getPendingContentDelta(), "New Content"));
+        assertTrue(textDiffService.deltaProduces("Original Title", patched.getPendingTitleDelta(), "Original Title"));
+        verify(textDiffService, never()).calculateDelta(any(), any());
+    }
+    
+    @Test
+    @DisplayName("Should reject a patch based on an outdated revision")
+    void shouldRejectPatchOnBaseMismatch() {
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        
+        NoteConflictException conflict = assertThrows(NoteConflictException.class,
+            () -> noteVersioningService.patchNoteWithVersioning(1L, "stale-hash", List.of(),
+                List.of(TextDiffService.TextEdit.insert(0, "x")), testUser.getId()));
+        
+        assertEquals(ContentHash.of("Original Title", "Original Content"), conflict.getCurrentHash());
+        verify(versionManager, never()).createVersion(any(Note.class), any(Long.class));
+        verify(noteRepository, never()).save(any(Note.class));
+    }
+    
+    @Test
+    @DisplayName("Should extend the pending delta when patches are coalesced")
+    void shouldComposePendingDeltaWhenCoalescing() {
+        // Given - patch precedente dello stesso autore, pochi secondi fa, a partire dalla versione 1
+        LocalDateTime now = LocalDateTime.now();
+        testNote.setContent("Original Content!");
+        testNote.setUpdatedAt(now.minusSeconds(5));
+        testNote.setPendingDeltaBase(1);
+        testNote.setPendingTitleDelta("=14");
+        testNote.setPendingContentDelta("=16\t+!");
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(any(Note.class))).thenReturn(testNote);
+        when(noteVersionRepository.findLatestSummary(1L)).thenReturn(Optional.of(latestSummary(1L, now.minusSeconds(10))));
+        
+        // When
+        noteVersioningService.patchNoteWithVersioning(1L, ContentHash.of("Original Title", "Original Content!"),
+            List.of(), List.of(TextDiffService.TextEdit.insert(17, "!")), testUser.getId());
+        
+        // Then
+        verify(versionManager, never()).createVersion(any(Note.class), any(Long.class));
+        assertEquals("Original Content!!", testNote.getContent());
+        assertEquals(1, testNote.getPendingDeltaBase());
+        assertTrue(textDiffService.deltaProduces("Original Content", testNote.getPendingContentDelta(), "Original Content!!"));
+    }
+    
+    @Test
+    @DisplayName("Should reject patches leaving the note content blank")
+    void shouldRejectPatchLeavingBlankContent() {
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        
+        assertThrows(IllegalArgumentException.class,
+            () -> noteVersioningService.patchNoteWithVersioning(1L, ContentHash.of("Original Title", "Original Content"),
+                List.of(), List.of(TextDiffService.TextEdit.delete(0, 16)), testUser.getId()));
+    }
+    
+    @Test
+    @DisplayName("Should reject an update based on an outdated revision")
+    void shouldRejectUpdateOnOutdatedRevision() {
+        testNote.setRevision(5L);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        
+        NoteConflictException conflict = assertThrows(NoteConflictException.class,
+            () -> noteVersioningService.updateNoteWithVersioning(1L, "Title", "Stale edit", testUser.getId(), 4L));
+        
+        assertEquals(5L, conflict.getCurrentRevision());
+        assertEquals("Original Content", testNote.getContent());
+        verify(versionManager, never()).createVersion(any(Note.class), any(Long.class));
+        verify(noteRepository, never()).save(any(Note.class));
+    }
+    
+    @Test
+    @DisplayName("Should flush updates at the expected revision so the new revision is returned")
+    void shouldFlushUpdateAtExpectedRevision() {
+        testNote.setRevision(5L);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(testNote)).thenReturn(testNote);
+        
+        noteVersioningService.updateNoteWithVersioning(1L, "Title", "Current edit", testUser.getId(), 5L);
+        
+        verify(versionManager).createVersion(testNote, testUser.getId());
+        verify(noteRepository).flush();
+    }
+    
+    @Test
+    @DisplayName("Should reject a restore based on an outdated revision")
+    void shouldRejectRestoreOnOutdatedRevision() {
+        testNote.setRevision(2L);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        
+        NoteConflictException conflict = assertThrows(NoteConflictException.class,
+            () -> noteVersioningService.restoreToVersion(1L, 1, testUser.getId(), 1L));
+        
+        assertEquals(2L, conflict.getCurrentRevision());
+        assertEquals(ContentHash.of("Original Title", "Original Content"), conflict.getCurrentHash());
+        verify(noteVersionRepository, never()).findByNoteIdAndVersionNumber(anyLong(), anyInt());
+    }
+    
+    @Test
+    @DisplayName("Should merge an edit with non-overlapping concurrent changes")
+    void shouldMergeNonOverlappingConcurrentEdit() {
+        // Given - il client ha modificato l'inizio, un altro utente ha aggiunto in fondo
+        String baseHash = ContentHash.of("Original Title", "Original Content");
+        testNote.setContent("Original Content, revised");
+        testNote.setRevision(3L);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(testNote)).thenReturn(testNote);
+        when(noteVersionRepository.findFirstByNoteIdAndContentHashOrderByVersionNumberDesc(1L, baseHash))
+            .thenReturn(Optional.of(createNoteVersion(10L, "Original Title", "Original Content")));
+        
+        // When
+        Note merged = noteVersioningService.mergeNoteWithVersioning(1L, baseHash, null, "Draft Content", testUser.getId());
+        
+        // Then
+        assertEquals("Draft Content, revised", merged.getContent());
+        assertEquals("Original Title", merged.getTitle());
+        verify(versionManager).createVersion(testNote, testUser.getId());
+        verify(noteRepository).flush();
+    }
+    
+    @Test
+    @DisplayName("Should report overlapping concurrent changes without saving")
+    void shouldReportMergeConflictWithoutSaving() {
+        // Given - entrambe le modifiche toccano la stessa parola
+        String baseHash = ContentHash.of("Original Title", "Original Content");
+        testNote.setContent("Original Text");
+        testNote.setRevision(3L);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteVersionRepository.findFirstByNoteIdAndContentHashOrderByVersionNumberDesc(1L, baseHash))
+            .thenReturn(Optional.of(createNoteVersion(10L, "Original Title", "Original Content")));
+        
+        // When
+        NoteMergeConflictException conflict = assertThrows(NoteMergeConflictException.class,
+            () -> noteVersioningService.mergeNoteWithVersioning(1L, baseHash, null, "Original Notes", testUser.getId()));
+        
+        // Then
+        assertEquals(1, conflict.getConflicts());
+        assertEquals(3L, conflict.getCurrentRevision());
+        assertTrue(conflict.getMergedContent().contains("Text"));
+        assertTrue(conflict.getMergedContent().contains("Notes"));
+        assertEquals("Original Text", testNote.getContent());
+        verify(noteRepository, never()).save(any(Note.class));
+    }
+    
+    @Test
+    @DisplayName("Should merge on top of a state dropped by coalesced edits of the same editor")
+    void shouldMergeOnCoalescedBase() {
+        // Given - due modifiche ravvicinate dello stesso utente: lo stato intermedio non diventa una versione
+        LocalDateTime now = LocalDateTime.now();
+        testNote.setUpdatedAt(now.minusSeconds(5));
+        testNote.getWriters().add(2L);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(any(Note.class))).thenReturn(testNote);
+        when(noteVersionRepository.findLatestSummary(1L)).thenReturn(Optional.of(latestSummary(1L, now.minusMinutes(1))));
+        Map<NoteMergeBaseId, NoteMergeBase> dropped = new HashMap<>();
+        when(mergeBaseRepository.remember(eq(1L), anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            NoteMergeBaseId id = new NoteMergeBaseId(1L, invocation.getArgument(1));
+            dropped.put(id, new NoteMergeBase(id, invocation.getArgument(2), invocation.getArgument(3)));
+            return 1;
+        });
+        when(mergeBaseRepository.findById(any(NoteMergeBaseId.class)))
+            .thenAnswer(invocation -> Optional.ofNullable(dropped.get(invocation.getArgument(0))));
+        
+        noteVersioningService.updateNoteWithVersioning(1L, "Original Title", "Draft one", testUser.getId());
+        // Un altro client carica "Draft one"; l'autore continua a scrivere in fondo
+        String clientBase = ContentHash.of("Original Title", "Draft one");
+        noteVersioningService.updateNoteWithVersioning(1L, "Original Title", "Draft one, then more", testUser.getId());
+        when(noteVersionRepository.findFirstByNoteIdAndContentHashOrderByVersionNumberDesc(1L, clientBase))
+            .thenReturn(Optional.empty());
+        
+        // When - il client modifica l'inizio dello stato che aveva caricato
+        Note merged = noteVersioningService.mergeNoteWithVersioning(1L, clientBase, null, "Final one", 2L);
+        
+        // Then
+        assertEquals("Final one, then more", merged.getContent());
+        verify(versionManager, never()).createVersion(any(Note.class), eq(testUser.getId()));
+    }
+    
+    @Test
+    @DisplayName("Should report a conflict when the base revision is no longer stored")
+    void shouldRejectMergeWithUnknownBase() {
+        testNote.setContent("Original Content, revised");
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteVersionRepository.findFirstByNoteIdAndContentHashOrderByVersionNumberDesc(1L, "pruned-hash"))
+            .thenReturn(Optional.empty());
+        
+        NoteConflictException conflict = assertThrows(NoteConflictException.class,
+            () -> noteVersioningService.mergeNoteWithVersioning(1L, "pruned-hash", null, "Draft Content", testUser.getId()));
+        
+        assertFalse(conflict instanceof NoteMergeConflictException);
+        verify(noteRepository, never()).save(any(Note.class));
+    }
+    
+    @Test
+    @DisplayName("Should queue the snapshot instead of writing the version in write-behind mode")
+    void shouldQueueSnapshotInWriteBehindMode() {
+        // Given
+        when(versionWriteBehind.isEnabled()).thenReturn(true);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(testNote)).thenReturn(testNote);
+        
+        // When
+        noteVersioningService.updateNoteWithVersioning(1L, "Original Title", "Edited Content", testUser.getId());
+        
+        // Then
+        verify(versionWriteBehind).enqueue(testNote, testUser.getId());
+        verifyNoInteractions(versionManager);
+        assertEquals("Edited Content", testNote.getContent());
+    }
+    
+    @Test
+    @DisplayName("Should not keep a pending delta for a queued snapshot")
+    void shouldClearPendingDeltaWhenSnapshotIsQueued() {
+        when(versionWriteBehind.isEnabled()).thenReturn(true);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(any(Note.class))).thenReturn(testNote);
+        
+        noteVersioningService.patchNoteWithVersioning(1L, ContentHash.of("Original Title", "Original Content"),
+            List.of(), List.of(TextDiffService.TextEdit.insert(16, "!")), testUser.getId());
+        
+        verify(versionWriteBehind).enqueue(testNote, testUser.getId());
+        assertEquals("Original Content!", testNote.getContent());
+        assertNull(testNote.getPendingDeltaBase());
+        assertNull(testNote.getPendingContentDelta());
+    }
+    
+    @Test
+    @DisplayName("Should not coalesce over another editor's edit whose snapshot is still queued")
+    void shouldNotCoalesceOverQueuedEditOfAnotherEditor() {
+        // Given - bob (1) ha modificato, poi alice (2): la versione di bob è salvata,
+        // lo snapshot creato dalla modifica di alice è ancora in coda
+        LocalDateTime now = LocalDateTime.now();
+        testNote.setUpdatedAt(now.minusSeconds(5));
+        testNote.addWriter(2L);
+        VersionOutboxEntry queued = new VersionOutboxEntry();
+        queued.setNoteId(1L);
+        queued.setTitle("Original Title");
+        queued.setContent("Bob's content");
+        queued.setCreatedBy(2L);
+        queued.setEnqueuedAt(now.minusSeconds(5));
+        when(versionWriteBehind.isEnabled()).thenReturn(true);
+        when(versionWriteBehind.findLatestPending(1L)).thenReturn(Optional.of(queued));
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(any(Note.class))).thenReturn(testNote);
+        
+        // When - bob modifica di nuovo entro la finestra
+        noteVersioningService.updateNoteWithVersioning(1L, "Original Title", "Bob again", testUser.getId());
+        
+        // Then - lo stato di alice diventa una versione invece di essere sovrascritto
+        verify(versionWriteBehind).enqueue(testNote, testUser.getId());
+        verify(noteVersionRepository, never()).findLatestSummary(anyLong());
+        verify(mergeBaseRepository, never()).remember(anyLong(), anyString(), anyString(), anyString());
+    }
+    
+    @Test
+    @DisplayName("Should coalesce into the editor's own queued snapshot")
+    void shouldCoalesceIntoOwnQueuedSnapshot() {
+        LocalDateTime now = LocalDateTime.now();
+        testNote.setUpdatedAt(now.minusSeconds(5));
+        VersionOutboxEntry queued = new VersionOutboxEntry();
+        queued.setNoteId(1L);
+        queued.setTitle("Original Title");
+        queued.setContent("Earlier content");
+        queued.setCreatedBy(testUser.getId());
+        queued.setEnqueuedAt(now.minusSeconds(5));
+        when(versionWriteBehind.isEnabled()).thenReturn(true);
+        when(versionWriteBehind.findLatestPending(1L)).thenReturn(Optional.of(queued));
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.save(any(Note.class))).thenReturn(testNote);
+        
+        noteVersioningService.updateNoteWithVersioning(1L, "Original Title", "Same burst", testUser.getId());
+        
+        verify(versionWriteBehind, never()).enqueue(any(Note.class), anyLong());
+        assertEquals("Same burst", testNote.getContent());
+    }
+    
     // Helper methods
+    private NoteVersionSummaryDTO latestSummary(Long createdBy, LocalDateTime createdAt) {
+        return new NoteVersionSummaryDTO(10L, 1L, 1, createdBy, "testuser", createdAt, false, null, "hash");
+    }
+
     private NoteVersion createNoteVersion(Long versionId, String title, String content) {
         NoteVersion version = new NoteVersion();
         version.setId(versionId);
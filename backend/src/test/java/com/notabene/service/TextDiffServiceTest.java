@@ -1,15 +1,18 @@
 package com.notabene.service;
 
+import com.notabene.dto.CompactTextDiffDTO;
 import com.notabene.dto.TextDiffDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,9 +20,16 @@ import static org.junit.jupiter.api.Assertions.*;
 @DisplayName("Text Diff Service Tests")
 class TextDiffServiceTest {
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
+
     private TextDiffService textDiffService;
 
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        textDiffService = new TextDiffService(meterRegistry);
+    }
+
     @Test
     @DisplayName("Should calculate diff for identical texts")
     void shouldCalculateDiffForIdenticalTexts() {
@@ -242,4 +252,332 @@ class TextDiffServiceTest {
         assertFalse(result.getLeftSegments().isEmpty());
         assertFalse(result.getRightSegments().isEmpty());
     }
+
+    @Test
+    @DisplayName("Should diff whole words in word granularity")
+    void shouldDiffWholeWordsInWordGranularity() {
+        // Given
+        String text1 = "The quick brown fox";
+        String text2 = "The fast brown dog";
+
+        // When
+        TextDiffDTO result = textDiffService.calculateDiff(text1, text2, TextDiffService.Granularity.WORD);
+
+        // Then
+        assertEquals(List.of(
+                new TextDiffDTO.DiffSegment("The ", TextDiffDTO.DiffType.EQUAL),
+                new TextDiffDTO.DiffSegment("quick", TextDiffDTO.DiffType.REMOVED),
+                new TextDiffDTO.DiffSegment(" brown ", TextDiffDTO.DiffType.EQUAL),
+                new TextDiffDTO.DiffSegment("fox", TextDiffDTO.DiffType.REMOVED)),
+                result.getLeftSegments());
+        assertEquals(List.of(
+                new TextDiffDTO.DiffSegment("The ", TextDiffDTO.DiffType.EQUAL),
+                new TextDiffDTO.DiffSegment("quick", TextDiffDTO.DiffType.REMOVED),
+                new TextDiffDTO.DiffSegment("fast", TextDiffDTO.DiffType.ADDED),
+                new TextDiffDTO.DiffSegment(" brown ", TextDiffDTO.DiffType.EQUAL),
+                new TextDiffDTO.DiffSegment("fox", TextDiffDTO.DiffType.REMOVED),
+                new TextDiffDTO.DiffSegment("dog", TextDiffDTO.DiffType.ADDED)),
+                result.getRightSegments());
+    }
+
+    @Test
+    @DisplayName("Should diff whole lines in line granularity")
+    void shouldDiffWholeLinesInLineGranularity() {
+        // Given
+        String text1 = "first\nsecond\nthird";
+        String text2 = "first\nchanged\nthird";
+
+        // When
+        TextDiffDTO result = textDiffService.calculateDiff(text1, text2, TextDiffService.Granularity.LINE);
+
+        // Then
+        assertEquals(List.of(
+                new TextDiffDTO.DiffSegment("first\n", TextDiffDTO.DiffType.EQUAL),
+                new TextDiffDTO.DiffSegment("second\n", TextDiffDTO.DiffType.REMOVED),
+                new TextDiffDTO.DiffSegment("changed\n", TextDiffDTO.DiffType.ADDED),
+                new TextDiffDTO.DiffSegment("third", TextDiffDTO.DiffType.EQUAL)),
+                result.getRightSegments());
+    }
+
+    @Test
+    @DisplayName("Should fold tiny equalities into surrounding edits")
+    void shouldFoldTinyEqualitiesIntoSurroundingEdits() {
+        // Given - only the single "b" would survive a raw char diff
+        String text1 = "abc";
+        String text2 = "xby";
+
+        // When
+        TextDiffDTO result = textDiffService.calculateDiff(text1, text2);
+
+        // Then
+        assertEquals(List.of(
+                new TextDiffDTO.DiffSegment("abc", TextDiffDTO.DiffType.REMOVED)),
+                result.getLeftSegments());
+        assertEquals(List.of(
+                new TextDiffDTO.DiffSegment("abc", TextDiffDTO.DiffType.REMOVED),
+                new TextDiffDTO.DiffSegment("xby", TextDiffDTO.DiffType.ADDED)),
+                result.getRightSegments());
+    }
+
+    @Test
+    @DisplayName("Should rebuild both texts from segments in every granularity")
+    void shouldRebuildBothTextsFromSegments() {
+        String text1 = "Lorem ipsum dolor sit amet,\nconsectetur adipiscing elit.\nSed do eiusmod";
+        String text2 = "Lorem ipsum dolore sit amet!\nconsectetur elit.\nSed do eiusmod tempor";
+
+        for (TextDiffService.Granularity granularity : TextDiffService.Granularity.values()) {
+            TextDiffDTO result = textDiffService.calculateDiff(text1, text2, granularity);
+
+            StringBuilder left = new StringBuilder();
+            result.getLeftSegments().forEach(segment -> left.append(segment.getText()));
+            StringBuilder right = new StringBuilder();
+            result.getRightSegments().stream()
+                    .filter(segment -> segment.getType() != TextDiffDTO.DiffType.REMOVED)
+                    .forEach(segment -> right.append(segment.getText()));
+
+            assertEquals(text1, left.toString(), granularity.name());
+            assertEquals(text2, right.toString(), granularity.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Should parse granularity parameter")
+    void shouldParseGranularityParameter() {
+        assertEquals(TextDiffService.Granularity.CHAR, TextDiffService.Granularity.from(null));
+        assertEquals(TextDiffService.Granularity.WORD, TextDiffService.Granularity.from("word"));
+        assertEquals(TextDiffService.Granularity.LINE, TextDiffService.Granularity.from(" LINE "));
+        assertThrows(IllegalArgumentException.class, () -> TextDiffService.Granularity.from("sentence"));
+    }
+
+    @Test
+    @DisplayName("Should calculate compact offset-based diff")
+    void shouldCalculateCompactOffsetBasedDiff() {
+        // When
+        CompactTextDiffDTO result = textDiffService.calculateCompactDiff(
+                "The quick brown fox", "The fast brown dog", TextDiffService.Granularity.WORD);
+
+        // Then
+        assertEquals("The quick brown fox", result.getLeftText());
+        assertEquals("The fast brown dog", result.getRightText());
+        assertEquals(List.of(
+                new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.EQUAL, 0, 0, 4),
+                new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.REMOVED, 4, 4, 5),
+                new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.ADDED, 9, 4, 4),
+                new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.EQUAL, 9, 8, 7),
+                new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.REMOVED, 16, 15, 3),
+                new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.ADDED, 19, 15, 3)),
+                result.getOps());
+        assertTrue(result.hasChanges());
+    }
+
+    @Test
+    @DisplayName("Should report no changes in compact diff of identical texts")
+    void shouldReportNoChangesInCompactDiffOfIdenticalTexts() {
+        CompactTextDiffDTO result = textDiffService.calculateCompactDiff("same", "same", null);
+
+        assertEquals(List.of(new CompactTextDiffDTO.EditOp(TextDiffDTO.DiffType.EQUAL, 0, 0, 4)), result.getOps());
+        assertFalse(result.hasChanges());
+    }
+
+    @Test
+    @DisplayName("Should replay a stored delta into the same diff as a fresh comparison")
+    void shouldReplayStoredDelta() {
+        // Given
+        String left = "Shopping list:\tmilk, 50% off bread";
+        String right = "Shopping list:\tmilk, eggs, 50% off bread";
+        String delta = textDiffService.calculateDelta(left, right);
+
+        // When
+        Optional<CompactTextDiffDTO> replayed = textDiffService.compactDiffFromDeltas(left, right, List.of(delta));
+
+        // Then
+        assertTrue(replayed.isPresent());
+        assertEquals(textDiffService.calculateCompactDiff(left, right, TextDiffService.Granularity.CHAR).getOps(),
+                replayed.get().getOps());
+    }
+
+    @Test
+    @DisplayName("Should compose consecutive deltas across versions")
+    void shouldComposeConsecutiveDeltas() {
+        // Given
+        String v1 = "The quick brown fox";
+        String v2 = "The quick red fox jumps";
+        String v3 = "A quick red fox jumps high";
+        List<String> deltas = List.of(textDiffService.calculateDelta(v1, v2), textDiffService.calculateDelta(v2, v3));
+
+        // When
+        Optional<CompactTextDiffDTO> composed = textDiffService.compactDiffFromDeltas(v1, v3, deltas);
+
+        // Then
+        assertTrue(composed.isPresent());
+        StringBuilder left = new StringBuilder();
+        StringBuilder right = new StringBuilder();
+        for (CompactTextDiffDTO.EditOp op : composed.get().getOps()) {
+            if (op.getOp() != TextDiffDTO.DiffType.ADDED) {
+                left.append(v1, op.getLeftOffset(), op.getLeftOffset() + op.getLength());
+            }
+            if (op.getOp() != TextDiffDTO.DiffType.REMOVED) {
+                right.append(v3, op.getRightOffset(), op.getRightOffset() + op.getLength());
+            }
+        }
+        assertEquals(v1, left.toString());
+        assertEquals(v3, right.toString());
+    }
+
+    @Test
+    @DisplayName("Should reject deltas that do not match the texts")
+    void shouldRejectMismatchedDeltas() {
+        String delta = textDiffService.calculateDelta("abc", "abd");
+
+        assertTrue(textDiffService.compactDiffFromDeltas("abc", "xyz", List.of(delta)).isEmpty());
+        assertTrue(textDiffService.compactDiffFromDeltas("abcdef", "abd", List.of(delta)).isEmpty());
+        assertTrue(textDiffService.compactDiffFromDeltas("abc", "abd", List.of("?3")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should apply edit operations and return the delta they describe")
+    void shouldApplyEditsAndReturnDelta() {
+        // Given
+        String text = "Buy milk and bread";
+        List<TextDiffService.TextEdit> edits = List.of(
+                TextDiffService.TextEdit.insert(8, ", eggs"),
+                TextDiffService.TextEdit.delete(0, 4),
+                TextDiffService.TextEdit.insert(0, "Get "));
+
+        // When
+        TextDiffService.EditResult result = textDiffService.applyEdits(text, edits);
+
+        // Then
+        assertEquals("Get milk, eggs and bread", result.text());
+        assertTrue(textDiffService.deltaProduces(text, result.delta(), result.text()));
+        assertTrue(textDiffService.compactDiffFromDeltas(text, result.text(), List.of(result.delta())).isPresent());
+    }
+
+    @Test
+    @DisplayName("Should reject edit operations outside the text")
+    void shouldRejectEditsOutsideText() {
+        assertThrows(IllegalArgumentException.class,
+                () -> textDiffService.applyEdits("abc", List.of(TextDiffService.TextEdit.insert(4, "x"))));
+        assertThrows(IllegalArgumentException.class,
+                () -> textDiffService.applyEdits("abc", List.of(TextDiffService.TextEdit.delete(1, 3))));
+        assertThrows(IllegalArgumentException.class,
+                () -> textDiffService.applyEdits("abc", List.of(TextDiffService.TextEdit.insert(0, ""))));
+    }
+
+    @Test
+    @DisplayName("Should compose the deltas of consecutive patches")
+    void shouldComposeDeltasOfConsecutivePatches() {
+        // Given
+        TextDiffService.EditResult first = textDiffService.applyEdits("Draft", List.of(TextDiffService.TextEdit.insert(5, " one")));
+        TextDiffService.EditResult second = textDiffService.applyEdits(first.text(), List.of(TextDiffService.TextEdit.delete(0, 6)));
+
+        // When
+        String composed = textDiffService.composeDeltas(first.delta(), second.delta());
+
+        // Then
+        assertEquals("one", second.text());
+        assertTrue(textDiffService.deltaProduces("Draft", composed, "one"));
+        assertFalse(textDiffService.deltaProduces("Draft!", composed, "one"));
+    }
+
+    @Test
+    @DisplayName("Should merge non-overlapping edits of both sides")
+    void shouldMergeNonOverlappingEdits() {
+        TextDiffService.MergeResult result = textDiffService.merge(
+                "The quick brown fox jumps over the dog",
+                "The slow brown fox jumps over the dog",
+                "The quick brown fox leaps over the lazy dog");
+
+        assertFalse(result.hasConflicts());
+        assertEquals("The slow brown fox leaps over the lazy dog", result.text());
+    }
+
+    @Test
+    @DisplayName("Should apply identical edits of both sides once")
+    void shouldApplyIdenticalEditsOnce() {
+        TextDiffService.MergeResult result = textDiffService.merge(
+                "Buy milk", "Buy milk and eggs", "Buy milk and eggs");
+
+        assertFalse(result.hasConflicts());
+        assertEquals("Buy milk and eggs", result.text());
+    }
+
+    @Test
+    @DisplayName("Should mark only overlapping edits as conflicts")
+    void shouldMarkOverlappingEditsAsConflicts() {
+        TextDiffService.MergeResult result = textDiffService.merge(
+                "Meeting on Monday at noon",
+                "Meeting on Tuesday at noon",
+                "Meeting on Friday at 3pm");
+
+        assertEquals(1, result.conflicts());
+        assertTrue(result.text().startsWith("Meeting on "));
+        assertTrue(result.text().contains(TextDiffService.CONFLICT_START + "Tuesday"));
+        assertTrue(result.text().contains(TextDiffService.CONFLICT_SEPARATOR + "Friday"));
+        assertTrue(result.text().contains("3pm"));
+    }
+
+    @Test
+    @DisplayName("Should treat different insertions at the same point as a conflict")
+    void shouldConflictOnInsertionsAtSamePoint() {
+        TextDiffService.MergeResult sameSpot = textDiffService.merge("a c", "a b c", "a x c");
+        TextDiffService.MergeResult differentSpots = textDiffService.merge("a c", "z a c", "a c x");
+
+        assertEquals(1, sameSpot.conflicts());
+        assertFalse(differentSpots.hasConflicts());
+        assertEquals("z a c x", differentSpots.text());
+    }
+
+    @Test
+    @DisplayName("Should fall back to a single replacement when the edit distance cap is hit")
+    void shouldFallBackWhenEditDistanceCapIsHit() {
+        // Given
+        String left = "Header: abcdefghij :footer";
+        String right = "Header: jihgfedcba :footer";
+
+        // When
+        TextDiffDTO result = textDiffService.calculateDiff(left, right, TextDiffService.Granularity.CHAR,
+                TextDiffService.DiffLimits.of(null, 3));
+
+        // Then
+        assertFalse(result.isExact());
+        assertEquals(List.of(
+                new TextDiffDTO.DiffSegment("Header: ", TextDiffDTO.DiffType.EQUAL),
+                new TextDiffDTO.DiffSegment("jihgfedcba", TextDiffDTO.DiffType.ADDED),
+                new TextDiffDTO.DiffSegment(" :footer", TextDiffDTO.DiffType.EQUAL)),
+                result.getRightSegments().stream()
+                        .filter(segment -> segment.getType() != TextDiffDTO.DiffType.REMOVED)
+                        .toList());
+        assertEquals(1.0, meterRegistry.get(TextDiffService.TRUNCATED_METRIC)
+                .tag("reason", "edit_distance").tag("granularity", "char").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should report exact diffs within the limits")
+    void shouldReportExactDiffWithinLimits() {
+        CompactTextDiffDTO result = textDiffService.calculateCompactDiff("abc", "abd", TextDiffService.Granularity.CHAR,
+                TextDiffService.DiffLimits.of(1000L, 10));
+
+        assertTrue(result.isExact());
+        assertTrue(meterRegistry.find(TextDiffService.TRUNCATED_METRIC).counters().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should not store a delta for a truncated diff")
+    void shouldNotStoreDeltaForTruncatedDiff() {
+        // Given
+        ReflectionTestUtils.setField(textDiffService, "maxEditDistance", 2);
+
+        // When / Then
+        assertNull(textDiffService.calculateDelta("abcdef", "fedcba"));
+        assertNotNull(textDiffService.calculateDelta("abcdef", "abcdxf"));
+    }
+
+    @Test
+    @DisplayName("Should reject non-positive diff limits")
+    void shouldRejectNonPositiveDiffLimits() {
+        assertThrows(IllegalArgumentException.class, () -> TextDiffService.DiffLimits.of(0L, null));
+        assertThrows(IllegalArgumentException.class, () -> TextDiffService.DiffLimits.of(null, -1));
+        assertEquals(TextDiffService.DiffLimits.DEFAULT, TextDiffService.DiffLimits.of(null, null));
+    }
 }
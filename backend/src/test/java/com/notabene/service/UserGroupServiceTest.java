@@ -0,0 +1,115 @@
+package com.notabene.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.notabene.dto.GroupDtos.AddMembersRequest;
+import com.notabene.dto.GroupDtos.CreateGroupRequest;
+import com.notabene.dto.GroupDtos.GroupNotesRequest;
+import com.notabene.entity.UserGroup;
+import com.notabene.repository.NoteGroupShareRepository;
+import com.notabene.repository.NoteRepository;
+import com.notabene.repository.UserGroupMemberRepository;
+import com.notabene.repository.UserGroupRepository;
+import com.notabene.repository.UserRepository;
+import com.notabene.service.support.CurrentUserResolver;
+
+class UserGroupServiceTest {
+
+    UserGroupRepository groupRepo = mock(UserGroupRepository.class);
+    UserGroupMemberRepository memberRepo = mock(UserGroupMemberRepository.class);
+    NoteGroupShareRepository shareRepo = mock(NoteGroupShareRepository.class);
+    NoteRepository noteRepo = mock(NoteRepository.class);
+    UserRepository userRepo = mock(UserRepository.class);
+    CurrentUserResolver current = mock(CurrentUserResolver.class);
+
+    UserGroupService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserGroupService(groupRepo, memberRepo, shareRepo, noteRepo, userRepo, current);
+        when(current.currentUserId()).thenReturn(42L);
+    }
+
+    @Test
+    void createGroup_rifiuta_nome_duplicato_per_utente() {
+        when(groupRepo.existsByOwnerIdAndName(42L, "Team")).thenReturn(true);
+        assertThatThrownBy(() -> service.createGroup(new CreateGroupRequest("Team")))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("already exists");
+    }
+
+    @Test
+    void addMembers_inserisce_tutti_i_membri_con_un_solo_statement() {
+        var group = new UserGroup(42L, "Team");
+        group.setId(7L);
+        when(groupRepo.findByIdAndOwnerId(7L, 42L)).thenReturn(Optional.of(group));
+        when(userRepo.findIdsByUsernames(anyCollection())).thenReturn(List.of(
+                new Object[] {2L, "bob"}, new Object[] {3L, "carol"}));
+        when(memberRepo.addMembers(eq(7L), anyCollection())).thenReturn(2);
+
+        var res = service.addMembers(7L, new AddMembersRequest(List.of("bob", "carol", "dave", "bob")));
+
+        assertThat(res.added()).isEqualTo(2);
+        assertThat(res.unknownUsernames()).containsExactly("dave");
+        verify(memberRepo).addMembers(7L, Set.of(2L, 3L));
+    }
+
+    @Test
+    void addMembers_rifiuta_se_gruppo_non_e_mio() {
+        when(groupRepo.findByIdAndOwnerId(7L, 42L)).thenReturn(Optional.empty());
+        assertThatThrownBy(() -> service.addMembers(7L, new AddMembersRequest(List.of("bob"))))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Group not found");
+        verify(memberRepo, never()).addMembers(anyLong(), anyCollection());
+    }
+
+    @Test
+    void shareNotes_condivide_solo_le_note_create_dall_utente() {
+        when(groupRepo.isOwnerOrMember(7L, 42L)).thenReturn(true);
+        when(noteRepo.findPermissions(anyCollection(), eq(42L))).thenReturn(List.of(
+                new Object[] {10L, true, true, true},
+                new Object[] {11L, false, true, false}));
+        when(shareRepo.shareNotes(eq(7L), anyCollection(), anyBoolean(), eq(42L))).thenReturn(1);
+
+        var res = service.shareNotes(7L, new GroupNotesRequest(List.of(10L, 11L, 12L), true));
+
+        assertThat(res.updatedNotes()).isEqualTo(1);
+        assertThat(res.skippedNoteIds()).containsExactly(11L, 12L);
+        verify(shareRepo).shareNotes(7L, Set.of(10L), true, 42L);
+    }
+
+    @Test
+    void shareNotes_rifiuta_se_non_membro_del_gruppo() {
+        when(groupRepo.isOwnerOrMember(7L, 42L)).thenReturn(false);
+        assertThatThrownBy(() -> service.shareNotes(7L, new GroupNotesRequest(List.of(10L), false)))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Group not found");
+        verify(shareRepo, never()).shareNotes(anyLong(), anyCollection(), anyBoolean(), any());
+    }
+
+    @Test
+    void shareNotes_rifiuta_richiesta_senza_note() {
+        assertThatThrownBy(() -> service.shareNotes(7L, new GroupNotesRequest(Collections.emptyList(), false)))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Note ids required");
+    }
+}
@@ -0,0 +1,171 @@
+package com.notabene.service;
+
+import com.notabene.dto.BatchVersionComparisonDTO;
+import com.notabene.dto.BatchVersionComparisonRequest;
+import com.notabene.dto.CompactVersionComparisonDTO;
+import com.notabene.dto.TextDiffDTO;
+import com.notabene.entity.NoteVersion;
+import com.notabene.repository.NoteVersionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Version Comparison Service Tests")
+class VersionComparisonServiceTest {
+
+    @Mock
+    private NoteVersionRepository noteVersionRepository;
+
+    private final TextDiffService textDiffService = new TextDiffService();
+
+    private VersionComparisonService comparisonService;
+
+    @BeforeEach
+    void setUp() {
+        comparisonService = new VersionComparisonService(noteVersionRepository, textDiffService);
+    }
+
+    @Test
+    @DisplayName("Should use the stored delta for adjacent versions without querying")
+    void shouldUseStoredDeltaForAdjacentVersions() {
+        // Given
+        NoteVersion v1 = createVersion(1L, 1, "Title", "Old content", null);
+        NoteVersion v2 = createVersion(2L, 2, "Title", "New content", v1);
+
+        // When
+        CompactVersionComparisonDTO result = comparisonService.compareCompact(v1, v2, TextDiffService.Granularity.CHAR,
+                TextDiffService.DiffLimits.DEFAULT);
+
+        // Then
+        assertEquals(textDiffService.calculateCompactDiff("Old content", "New content", TextDiffService.Granularity.CHAR).getOps(),
+                result.getContentDiff().getOps());
+        assertFalse(result.getTitleDiff().hasChanges());
+        verifyNoInteractions(noteVersionRepository);
+    }
+
+    @Test
+    @DisplayName("Should compose the delta chain between distant versions")
+    void shouldComposeDeltaChain() {
+        // Given
+        NoteVersion v1 = createVersion(1L, 1, "Title", "The quick brown fox", null);
+        NoteVersion v2 = createVersion(2L, 2, "Title", "The quick red fox", v1);
+        NoteVersion v3 = createVersion(3L, 3, "Title", "The quick red fox jumps", v2);
+        when(noteVersionRepository.findDeltaChain(1L, 1, 3)).thenReturn(List.of(chainRow(v2), chainRow(v3)));
+
+        // When
+        TextDiffDTO content = comparisonService.compare(v1, v3, TextDiffService.Granularity.CHAR,
+                TextDiffService.DiffLimits.DEFAULT).getContentDiff();
+
+        // Then
+        assertEquals("The quick brown fox", join(content.getLeftSegments(), TextDiffDTO.DiffType.ADDED));
+        assertEquals("The quick red fox jumps", join(content.getRightSegments(), TextDiffDTO.DiffType.REMOVED));
+    }
+
+    @Test
+    @DisplayName("Should fall back to a fresh diff when the chain has a gap")
+    void shouldFallBackWhenChainHasGap() {
+        // Given
+        NoteVersion v1 = createVersion(1L, 1, "Title", "alpha", null);
+        NoteVersion v2 = createVersion(2L, 2, "Title", "alpha beta", v1);
+        NoteVersion v3 = createVersion(3L, 3, "Title", "alpha beta gamma", v2);
+        v3.setDeltaBaseVersion(null); // prima versione dopo una pulizia
+        when(noteVersionRepository.findDeltaChain(1L, 1, 3)).thenReturn(List.of(chainRow(v2), chainRow(v3)));
+
+        // When
+        Optional<VersionComparisonService.StoredDeltas> stored =
+                comparisonService.findStoredDeltas(v1, v3, TextDiffService.Granularity.CHAR);
+        CompactVersionComparisonDTO result = comparisonService.compareCompact(v1, v3, TextDiffService.Granularity.CHAR,
+                TextDiffService.DiffLimits.DEFAULT);
+
+        // Then
+        assertTrue(stored.isEmpty());
+        assertEquals(textDiffService.calculateCompactDiff("alpha", "alpha beta gamma", TextDiffService.Granularity.CHAR).getOps(),
+                result.getContentDiff().getOps());
+    }
+
+    @Test
+    @DisplayName("Should not use stored deltas for word granularity or the current version")
+    void shouldIgnoreStoredDeltasWhenNotApplicable() {
+        NoteVersion v1 = createVersion(1L, 1, "Title", "one", null);
+        NoteVersion v2 = createVersion(2L, 2, "Title", "one two", v1);
+        NoteVersion current = createVersion(-1L, 3, "Title", "one two three", null);
+
+        assertTrue(comparisonService.findStoredDeltas(v1, v2, TextDiffService.Granularity.WORD).isEmpty());
+        assertTrue(comparisonService.findStoredDeltas(v2, current, TextDiffService.Granularity.CHAR).isEmpty());
+        assertTrue(comparisonService.findStoredDeltas(v2, v1, TextDiffService.Granularity.CHAR).isEmpty());
+        verify(noteVersionRepository, never()).findDeltaChain(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should compare a batch of pairs keeping their order")
+    void shouldCompareBatchInOrder() {
+        // Given
+        NoteVersion v1 = createVersion(1L, 1, "Title", "one", null);
+        NoteVersion v2 = createVersion(2L, 2, "Title", "one two", v1);
+        NoteVersion v3 = createVersion(3L, 3, "Title", "one two three", v2);
+        List<BatchVersionComparisonRequest.VersionPair> pairs = List.of(
+                new BatchVersionComparisonRequest.VersionPair(2, 3),
+                new BatchVersionComparisonRequest.VersionPair(1, 9),
+                new BatchVersionComparisonRequest.VersionPair(1, 2));
+
+        // When
+        BatchVersionComparisonDTO result = comparisonService.compareBatch(Map.of(1, v1, 2, v2, 3, v3), pairs,
+                TextDiffService.Granularity.WORD, TextDiffService.DiffLimits.DEFAULT);
+
+        // Then
+        assertEquals(3, result.getResults().size());
+        BatchVersionComparisonDTO.PairResult first = result.getResults().get(0);
+        assertEquals(2, first.getOldVersion());
+        assertEquals(3, first.getComparison().getRightVersion().versionNumber());
+        assertTrue(first.getComparison().isHasChanges());
+        assertNull(first.getError());
+        assertNull(result.getResults().get(1).getComparison());
+        assertEquals("Version not found: 9", result.getResults().get(1).getError());
+        assertEquals(1, result.getResults().get(2).getComparison().getLeftVersion().versionNumber());
+    }
+
+    // Helper methods
+    private NoteVersion createVersion(Long id, Integer versionNumber, String title, String content, NoteVersion previous) {
+        NoteVersion version = new NoteVersion();
+        version.setId(id);
+        version.setNoteId(1L);
+        version.setVersionNumber(versionNumber);
+        version.setTitle(title);
+        version.setContent(content);
+        if (previous != null) {
+            version.setDeltaBaseVersion(previous.getVersionNumber());
+            version.setTitleDelta(textDiffService.calculateDelta(previous.getTitle(), title));
+            version.setContentDelta(textDiffService.calculateDelta(previous.getContent(), content));
+        }
+        return version;
+    }
+
+    private Object[] chainRow(NoteVersion version) {
+        return new Object[] {
+            version.getVersionNumber(), version.getDeltaBaseVersion(), version.getTitleDelta(), version.getContentDelta()
+        };
+    }
+
+    private String join(List<TextDiffDTO.DiffSegment> segments, TextDiffDTO.DiffType skip) {
+        List<String> parts = new ArrayList<>();
+        for (TextDiffDTO.DiffSegment segment : segments) {
+            if (segment.getType() != skip) {
+                parts.add(segment.getText());
+            }
+        }
+        return String.join("", parts);
+    }
+}
@@ -0,0 +1,135 @@
+package com.notabene.service;
+
+import com.notabene.dto.RetentionPolicyDTO;
+import com.notabene.dto.VersionRetentionReportDTO;
+import com.notabene.entity.NoteRetentionPolicy;
+import com.notabene.repository.NoteRetentionPolicyRepository;
+import com.notabene.repository.NoteVersionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Version Retention Service Tests")
+class VersionRetentionServiceTest {
+
+    @Mock
+    private NoteVersionRepository noteVersionRepository;
+
+    @Mock
+    private NoteRetentionPolicyRepository noteRetentionPolicyRepository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private VersionRetentionService retentionService;
+
+    @BeforeEach
+    void setUp() {
+        retentionService = new VersionRetentionService(noteVersionRepository, noteRetentionPolicyRepository, meterRegistry);
+        ReflectionTestUtils.setField(retentionService, "batchSize", 2);
+    }
+
+    @Test
+    @DisplayName("Should prune note range after note range until every note is visited and report rows and bytes")
+    void shouldPruneInBatches() {
+        // Given - note 1..7 in due batch, il terzo non trova più note
+        when(noteVersionRepository.pruneBatch(eq(10), eq(24), eq(30), any(LocalDateTime.class), eq(0L), eq(2)))
+            .thenReturn(List.<Object[]>of(new Object[] {2L, 300L, 4L}));
+        when(noteVersionRepository.pruneBatch(eq(10), eq(24), eq(30), any(LocalDateTime.class), eq(4L), eq(2)))
+            .thenReturn(List.<Object[]>of(new Object[] {3L, 250L, 7L}));
+        when(noteVersionRepository.pruneBatch(eq(10), eq(24), eq(30), any(LocalDateTime.class), eq(7L), eq(2)))
+            .thenReturn(List.<Object[]>of(new Object[] {0L, 0L, null}));
+
+        // When
+        VersionRetentionReportDTO report = retentionService.prune();
+
+        // Then
+        assertEquals(5, report.deletedVersions());
+        assertEquals(550, report.reclaimedBytes());
+        assertEquals(3, report.batches());
+        assertEquals(5.0, meterRegistry.counter("notabene.versions.retention.deleted").count());
+        assertEquals(550.0, meterRegistry.counter("notabene.versions.retention.reclaimed.bytes").count());
+    }
+
+    @Test
+    @DisplayName("Should keep walking past note ranges with nothing to prune")
+    void shouldContinuePastEmptyRanges() {
+        // Given - il primo intervallo non ha versioni da eliminare, il secondo sì
+        when(noteVersionRepository.pruneBatch(anyInt(), anyInt(), anyInt(), any(LocalDateTime.class), eq(0L), anyInt()))
+            .thenReturn(List.<Object[]>of(new Object[] {0L, 0L, 9L}));
+        when(noteVersionRepository.pruneBatch(anyInt(), anyInt(), anyInt(), any(LocalDateTime.class), eq(9L), anyInt()))
+            .thenReturn(List.<Object[]>of(new Object[] {4L, 400L, 12L}));
+        when(noteVersionRepository.pruneBatch(anyInt(), anyInt(), anyInt(), any(LocalDateTime.class), eq(12L), anyInt()))
+            .thenReturn(List.<Object[]>of(new Object[] {0L, 0L, null}));
+
+        VersionRetentionReportDTO report = retentionService.prune();
+
+        assertEquals(4, report.deletedVersions());
+        assertEquals(3, report.batches());
+    }
+
+    @Test
+    @DisplayName("Should stop after one empty batch when there are no versions")
+    void shouldStopWhenNothingToPrune() {
+        when(noteVersionRepository.pruneBatch(anyInt(), anyInt(), anyInt(), any(LocalDateTime.class), anyLong(), anyInt()))
+            .thenReturn(List.<Object[]>of(new Object[] {0L, 0L, null}));
+
+        VersionRetentionReportDTO report = retentionService.prune();
+
+        assertEquals(0, report.deletedVersions());
+        assertEquals(1, report.batches());
+        verify(noteVersionRepository, times(1)).pruneBatch(anyInt(), anyInt(), anyInt(), any(LocalDateTime.class), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should skip the scheduled run when disabled")
+    void shouldSkipScheduledRunWhenDisabled() {
+        ReflectionTestUtils.setField(retentionService, "enabled", false);
+
+        retentionService.scheduledPrune();
+
+        verifyNoInteractions(noteVersionRepository);
+    }
+
+    @Test
+    @DisplayName("Should merge per-note overrides with the global defaults")
+    void shouldMergeOverridesWithDefaults() {
+        when(noteRetentionPolicyRepository.findById(1L)).thenReturn(Optional.of(new NoteRetentionPolicy(1L, 3, null, 7)));
+        when(noteRetentionPolicyRepository.findById(2L)).thenReturn(Optional.empty());
+
+        RetentionPolicyDTO custom = retentionService.getPolicy(1L);
+        RetentionPolicyDTO defaults = retentionService.getPolicy(2L);
+
+        assertEquals(new RetentionPolicyDTO(3, 24, 7, true), custom);
+        assertEquals(new RetentionPolicyDTO(10, 24, 30, false), defaults);
+    }
+
+    @Test
+    @DisplayName("Should validate overrides and remove them when all values are null")
+    void shouldValidateAndRemoveOverrides() {
+        assertThrows(IllegalArgumentException.class,
+            () -> retentionService.updatePolicy(1L, new RetentionPolicyDTO(0, null, null, null)));
+        assertThrows(IllegalArgumentException.class,
+            () -> retentionService.updatePolicy(1L, new RetentionPolicyDTO(null, -1, null, null)));
+
+        RetentionPolicyDTO result = retentionService.updatePolicy(1L, new RetentionPolicyDTO());
+
+        assertFalse(result.getCustom());
+        verify(noteRetentionPolicyRepository).deleteById(1L);
+        verify(noteRetentionPolicyRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,155 @@
+package com.notabene.service;
+
+import com.notabene.entity.ContentHash;
+import com.notabene.entity.Note;
+import com.notabene.entity.VersionOutboxEntry;
+import com.notabene.model.User;
+import com.notabene.repository.VersionOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Version Write-Behind Service Tests")
+class VersionWriteBehindServiceTest {
+
+    @Mock
+    private VersionOutboxRepository versionOutboxRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final TextDiffService textDiffService = new TextDiffService();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private VersionWriteBehindService writeBehindService;
+
+    @BeforeEach
+    void setUp() {
+        writeBehindService = new VersionWriteBehindService(versionOutboxRepository, jdbcTemplate, transactionTemplate,
+            textDiffService, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should queue a snapshot of the note's current state")
+    void shouldEnqueueSnapshotOfCurrentState() {
+        // Given
+        User owner = new User();
+        owner.setId(1L);
+        Note note = new Note("Title", "Content", owner);
+        note.setId(7L);
+        note.addReader(2L);
+
+        // When
+        writeBehindService.enqueue(note, 2L);
+
+        // Then
+        ArgumentCaptor<VersionOutboxEntry> entry = ArgumentCaptor.forClass(VersionOutboxEntry.class);
+        verify(versionOutboxRepository).save(entry.capture());
+        assertEquals(7L, entry.getValue().getNoteId());
+        assertEquals("Content", entry.getValue().getContent());
+        assertEquals(2L, entry.getValue().getCreatedBy());
+        assertEquals(1L, entry.getValue().getNoteCreatorId());
+        assertTrue(entry.getValue().getReaders().contains(2L));
+    }
+
+    @Test
+    @DisplayName("Should number snapshots per note in queue order, chaining deltas within the batch")
+    void shouldPlanVersionsInQueueOrder() {
+        // Given - nota 1 ha già la versione 4, nota 2 non ha versioni
+        List<VersionWriteBehindService.OutboxRow> rows = List.of(
+            row(10L, 1L, "Hello world"),
+            row(11L, 2L, "Other"),
+            row(12L, 1L, "Hello world!"));
+        Map<Long, VersionWriteBehindService.LatestVersion> latest =
+            Map.of(1L, new VersionWriteBehindService.LatestVersion(4, "Title", "Hello"));
+
+        // When
+        List<VersionWriteBehindService.PlannedVersion> versions = writeBehindService.plan(rows, latest);
+
+        // Then
+        assertEquals(List.of(5, 1, 6), versions.stream().map(VersionWriteBehindService.PlannedVersion::versionNumber).toList());
+        assertEquals(4, versions.get(0).deltaBaseVersion());
+        assertTrue(textDiffService.deltaProduces("Hello", versions.get(0).contentDelta(), "Hello world"));
+        assertNull(versions.get(1).deltaBaseVersion());
+        assertNull(versions.get(1).contentDelta());
+        assertEquals(5, versions.get(2).deltaBaseVersion());
+        assertTrue(textDiffService.deltaProduces("Hello world", versions.get(2).contentDelta(), "Hello world!"));
+        assertEquals(ContentHash.of("Title", "Hello world!"), versions.get(2).contentHash());
+    }
+
+    @Test
+    @DisplayName("Should drain batch after batch until the outbox is empty")
+    @SuppressWarnings("unchecked")
+    void shouldDrainUntilOutboxIsEmpty() {
+        // Given - un batch pieno, poi uno parziale
+        when(transactionTemplate.execute(any())).thenReturn(500, 3);
+
+        // When
+        int written = writeBehindService.drain();
+
+        // Then
+        assertEquals(503, written);
+        verify(transactionTemplate, times(2)).execute(any());
+        assertEquals(503.0, meterRegistry.counter("notabene.versions.outbox.drained").count());
+    }
+
+    @Test
+    @DisplayName("Should retry a failed batch one snapshot at a time and dead-letter the one that fails")
+    @SuppressWarnings("unchecked")
+    void shouldDeadLetterSnapshotThatFailsAlone() {
+        // Given - il batch fallisce per una riga; da sola la prima passa, la seconda no, poi la coda è vuota
+        DataIntegrityViolationException fkViolation = new DataIntegrityViolationException("fk_note_versions_created_by");
+        when(transactionTemplate.execute(any()))
+            .thenThrow(fkViolation)
+            .thenReturn(1)
+            .thenThrow(fkViolation)
+            .thenReturn(42L)
+            .thenReturn(0);
+
+        // When
+        int written = writeBehindService.drain();
+
+        // Then
+        assertEquals(1, written);
+        verify(transactionTemplate, times(5)).execute(any());
+        assertEquals(1.0, meterRegistry.counter("notabene.versions.outbox.drained").count());
+    }
+
+    @Test
+    @DisplayName("Should report the age of the oldest pending snapshot as lag")
+    void shouldReportLagOfOldestSnapshot() {
+        when(versionOutboxRepository.findOldestEnqueuedAt()).thenReturn(LocalDateTime.now().minusSeconds(30), (LocalDateTime) null);
+
+        assertTrue(writeBehindService.currentLag().toSeconds() >= 30);
+        assertTrue(writeBehindService.currentLag().isZero());
+    }
+
+    // Helper methods
+    private VersionWriteBehindService.OutboxRow row(long id, Long noteId, String content) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return new VersionWriteBehindService.OutboxRow(id, noteId, "Title", content, new Long[] {}, new Long[] {},
+            1L, 1L, now, now, now);
+    }
+}
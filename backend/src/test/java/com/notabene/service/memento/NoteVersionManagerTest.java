@@ -1,9 +1,13 @@
 package com.notabene.service.memento;
 
+import com.notabene.entity.ContentHash;
 import com.notabene.entity.Note;
 import com.notabene.entity.NoteVersion;
 import com.notabene.model.User;
 import com.notabene.repository.NoteVersionRepository;
+import com.notabene.repository.VersionBlobRepository;
+import com.notabene.service.TextDiffService;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,10 +16,16 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -28,6 +38,12 @@ class NoteVersionManagerTest {
     @Mock
     private NoteVersionRepository noteVersionRepository;
     
+    @Mock
+    private VersionBlobRepository versionBlobRepository;
+    
+    @Mock
+    private TextDiffService textDiffService;
+    
     @InjectMocks
     private NoteVersionManager versionManager;
     
@@ -52,8 +68,8 @@ class NoteVersionManagerTest {
     @DisplayName("Should create version with correct version number")
     void shouldCreateVersionWithCorrectVersionNumber() {
         // Given
-        when(noteVersionRepository.countByNoteId(1L)).thenReturn(2L);
-        when(noteVersionRepository.save(any(NoteVersion.class))).thenAnswer(invocation -> {
+        when(noteVersionRepository.findFirstByNoteIdOrderByVersionNumberDesc(1L)).thenReturn(Optional.of(createMockVersion(2L, 2)));
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> {
             NoteVersion version = invocation.getArgument(0);
             version.setId(1L);
             version.setCreatedAt(LocalDateTime.now());
@@ -65,7 +81,7 @@ class NoteVersionManagerTest {
         
         // Then
         assertNotNull(version);
-        assertEquals(3, version.getVersionNumber()); // Should be count + 1
+        assertEquals(3, version.getVersionNumber()); // Should be latest + 1
         assertEquals(1L, version.getNoteId());
         assertEquals("Test Title", version.getTitle());
         assertEquals("Test Content", version.getContent());
@@ -77,57 +93,32 @@ class NoteVersionManagerTest {
     @DisplayName("Should create first version with version number 1")
     void shouldCreateFirstVersionWithVersionNumber1() {
         // Given
-        when(noteVersionRepository.countByNoteId(1L)).thenReturn(0L);
-        when(noteVersionRepository.save(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
         
         // When
         versionManager.createVersion(testNote, testUser.getId());
         
         // Then
         ArgumentCaptor<NoteVersion> versionCaptor = ArgumentCaptor.forClass(NoteVersion.class);
-        verify(noteVersionRepository).save(versionCaptor.capture());
+        verify(noteVersionRepository).saveAndFlush(versionCaptor.capture());
         
         NoteVersion savedVersion = versionCaptor.getValue();
         assertEquals(1, savedVersion.getVersionNumber());
     }
 
     @Test
-    @DisplayName("Should enforce maximum version limit")
-    void shouldEnforceMaximumVersionLimit() {
-        // Given
-        int maxVersions = 10;
-        when(noteVersionRepository.countByNoteId(1L)).thenReturn((long) maxVersions);
-        
-        // Create a list with exactly 10 versions (at the limit)
-        List<NoteVersion> oldVersions = Arrays.asList(
-            createMockVersion(1L, 1),
-            createMockVersion(2L, 2),
-            createMockVersion(3L, 3),
-            createMockVersion(4L, 4),
-            createMockVersion(5L, 5),
-            createMockVersion(6L, 6),
-            createMockVersion(7L, 7),
-            createMockVersion(8L, 8),
-            createMockVersion(9L, 9),
-            createMockVersion(10L, 10)
-        );
-        
-        when(noteVersionRepository.findByNoteIdOrderByVersionNumberAsc(1L))
-            .thenReturn(oldVersions);
-        when(noteVersionRepository.save(any(NoteVersion.class)))
-            .thenAnswer(invocation -> {
-                NoteVersion version = invocation.getArgument(0);
-                version.setId(1L);
-                version.setCreatedAt(LocalDateTime.now());
-                return version;
-            });
+    @DisplayName("Should number after the highest version even when older ones were pruned")
+    void shouldNumberAfterHighestVersionAfterPruning() {
+        // Given - versioni 1-5 eliminate dalla retention: restano 6..15 (10 versioni)
+        when(noteVersionRepository.findFirstByNoteIdOrderByVersionNumberDesc(1L)).thenReturn(Optional.of(createMockVersion(15L, 15)));
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
         
         // When
-        versionManager.createVersion(testNote, testUser.getId());
+        NoteVersion version = versionManager.createVersion(testNote, testUser.getId());
         
         // Then
-        verify(noteVersionRepository).deleteAll(anyList());
-        verify(noteVersionRepository).save(any(NoteVersion.class));
+        assertEquals(16, version.getVersionNumber());
+        verify(noteVersionRepository, never()).countByNoteId(anyLong());
     }
 
     @Test
@@ -141,15 +132,14 @@ class NoteVersionManagerTest {
         testNote.setCreatedAt(fixedTime);
         testNote.setUpdatedAt(fixedTime.plusHours(1));
         
-        when(noteVersionRepository.countByNoteId(1L)).thenReturn(0L);
-        when(noteVersionRepository.save(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
         
         // When
         versionManager.createVersion(testNote, testUser.getId());
         
         // Then
         ArgumentCaptor<NoteVersion> versionCaptor = ArgumentCaptor.forClass(NoteVersion.class);
-        verify(noteVersionRepository).save(versionCaptor.capture());
+        verify(noteVersionRepository).saveAndFlush(versionCaptor.capture());
         
         NoteVersion savedVersion = versionCaptor.getValue();
         assertEquals(Arrays.asList(1L, 2L, 3L), savedVersion.getReaders());
@@ -159,49 +149,26 @@ class NoteVersionManagerTest {
     }
 
     @Test
-    @DisplayName("Should clean up old versions when exceeding limit")
-    void shouldCleanUpOldVersionsWhenExceedingLimit() {
-        // Given - We have reached the maximum (10 versions)
-        when(noteVersionRepository.countByNoteId(1L)).thenReturn(10L);
-        
-        // Create a list with exactly 10 versions (at the limit)
-        List<NoteVersion> existingVersions = Arrays.asList(
-            createMockVersion(1L, 1),
-            createMockVersion(2L, 2),
-            createMockVersion(3L, 3),
-            createMockVersion(4L, 4),
-            createMockVersion(5L, 5),
-            createMockVersion(6L, 6),
-            createMockVersion(7L, 7),
-            createMockVersion(8L, 8),
-            createMockVersion(9L, 9),
-            createMockVersion(10L, 10)
-        );
-        
-        when(noteVersionRepository.findByNoteIdOrderByVersionNumberAsc(1L))
-            .thenReturn(existingVersions);
-        when(noteVersionRepository.save(any(NoteVersion.class)))
-            .thenAnswer(invocation -> {
-                NoteVersion version = invocation.getArgument(0);
-                version.setId(1L);
-                version.setCreatedAt(LocalDateTime.now());
-                return version;
-            });
+    @DisplayName("Should not prune old versions during the edit")
+    void shouldNotPruneOldVersionsDuringEdit() {
+        // Given - molte versioni: la pulizia è compito del job di retention
+        when(noteVersionRepository.findFirstByNoteIdOrderByVersionNumberDesc(1L)).thenReturn(Optional.of(createMockVersion(50L, 50)));
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
         
         // When
         versionManager.createVersion(testNote, testUser.getId());
         
         // Then
-        verify(noteVersionRepository).deleteAll(anyList());
-        verify(noteVersionRepository).save(any(NoteVersion.class));
+        verify(noteVersionRepository, never()).deleteAll(anyList());
+        verify(noteVersionRepository, never()).findByNoteIdOrderByVersionNumberAsc(anyLong());
+        verify(noteVersionRepository).saveAndFlush(any(NoteVersion.class));
     }
 
     @Test
     @DisplayName("Should handle concurrent version creation safely")
     void shouldHandleConcurrentVersionCreationSafely() {
         // Given
-        when(noteVersionRepository.countByNoteId(1L)).thenReturn(1L);
-        when(noteVersionRepository.save(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
         
         // When
         NoteVersion version1 = versionManager.createVersion(testNote, testUser.getId());
@@ -210,7 +177,7 @@ class NoteVersionManagerTest {
         // Then
         assertNotNull(version1);
         assertNotNull(version2);
-        verify(noteVersionRepository, times(2)).save(any(NoteVersion.class));
+        verify(noteVersionRepository, times(2)).saveAndFlush(any(NoteVersion.class));
     }
 
     @Test
@@ -218,8 +185,7 @@ class NoteVersionManagerTest {
     void shouldSetCreationMetadataCorrectly() {
         // Given
         Long editorUserId = 2L;
-        when(noteVersionRepository.countByNoteId(1L)).thenReturn(0L);
-        when(noteVersionRepository.save(any(NoteVersion.class))).thenAnswer(invocation -> {
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> {
             NoteVersion version = invocation.getArgument(0);
             version.setId(1L);
             version.setCreatedAt(LocalDateTime.now());
@@ -249,7 +215,7 @@ class NoteVersionManagerTest {
             versionManager.createVersion(invalidNote, testUser.getId());
         });
         
-        verify(noteVersionRepository, never()).save(any(NoteVersion.class));
+        verify(noteVersionRepository, never()).saveAndFlush(any(NoteVersion.class));
     }
 
     @Test
@@ -260,10 +226,143 @@ class NoteVersionManagerTest {
             versionManager.createVersion(testNote, null);
         });
         
-        verify(noteVersionRepository, never()).save(any(NoteVersion.class));
+        verify(noteVersionRepository, never()).saveAndFlush(any(NoteVersion.class));
     }
 
     // Helper methods
+    @Test
+    @DisplayName("Should store delta from the previous version")
+    void shouldStoreDeltaFromPreviousVersion() {
+        // Given
+        NoteVersion previous = createMockVersion(5L, 2);
+        when(noteVersionRepository.findFirstByNoteIdOrderByVersionNumberDesc(1L)).thenReturn(Optional.of(previous));
+        when(textDiffService.calculateDelta("Version 2", "Test Title")).thenReturn("-9\t+Test Title");
+        when(textDiffService.calculateDelta("Content 2", "Test Content")).thenReturn("-9\t+Test Content");
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        // When
+        NoteVersion version = versionManager.createVersion(testNote, testUser.getId());
+        
+        // Then
+        assertEquals(2, version.getDeltaBaseVersion());
+        assertEquals("-9\t+Test Title", version.getTitleDelta());
+        assertEquals("-9\t+Test Content", version.getContentDelta());
+    }
+
+    @Test
+    @DisplayName("Should reuse the pending delta of patched notes instead of diffing")
+    void shouldReusePendingDeltaOfPatchedNotes() {
+        // Given - la nota è stata modificata con PATCH a partire dalla versione 2
+        NoteVersion previous = createMockVersion(5L, 2);
+        testNote.setPendingDeltaBase(2);
+        testNote.setPendingTitleDelta("-9\t+Test Title");
+        testNote.setPendingContentDelta("-9\t+Test Content");
+        when(noteVersionRepository.findFirstByNoteIdOrderByVersionNumberDesc(1L)).thenReturn(Optional.of(previous));
+        when(textDiffService.deltaProduces("Version 2", "-9\t+Test Title", "Test Title")).thenReturn(true);
+        when(textDiffService.deltaProduces("Content 2", "-9\t+Test Content", "Test Content")).thenReturn(true);
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        // When
+        NoteVersion version = versionManager.createVersion(testNote, testUser.getId());
+        
+        // Then
+        assertEquals(2, version.getDeltaBaseVersion());
+        assertEquals("-9\t+Test Title", version.getTitleDelta());
+        assertEquals("-9\t+Test Content", version.getContentDelta());
+        verify(textDiffService, never()).calculateDelta(any(), any());
+    }
+    
+    @Test
+    @DisplayName("Should diff when the pending delta starts from an older version")
+    void shouldDiffWhenPendingDeltaIsStale() {
+        // Given
+        NoteVersion previous = createMockVersion(5L, 3);
+        testNote.setPendingDeltaBase(2);
+        testNote.setPendingTitleDelta("-9\t+Test Title");
+        testNote.setPendingContentDelta("-9\t+Test Content");
+        when(noteVersionRepository.findFirstByNoteIdOrderByVersionNumberDesc(1L)).thenReturn(Optional.of(previous));
+        when(textDiffService.calculateDelta("Version 3", "Test Title")).thenReturn("-9\t+Test Title");
+        when(textDiffService.calculateDelta("Content 3", "Test Content")).thenReturn("-9\t+Test Content");
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        // When
+        NoteVersion version = versionManager.createVersion(testNote, testUser.getId());
+        
+        // Then
+        assertEquals(3, version.getDeltaBaseVersion());
+        verify(textDiffService, never()).deltaProduces(any(), any(), any());
+    }
+    
+    @Test
+    @DisplayName("Should report a version number taken by a concurrent writer as an optimistic lock failure")
+    void shouldReportConcurrentVersionAsOptimisticLockFailure() {
+        // Given - un'altra transazione ha appena salvato la versione 1
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenThrow(new DataIntegrityViolationException("duplicate key",
+            new ConstraintViolationException("duplicate key", new SQLException(), "uq_note_version")));
+        
+        // When & Then
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+            () -> versionManager.createVersion(testNote, testUser.getId()));
+    }
+    
+    @Test
+    @DisplayName("Should not store delta for the first version")
+    void shouldNotStoreDeltaForFirstVersion() {
+        // Given
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        // When
+        NoteVersion version = versionManager.createVersion(testNote, testUser.getId());
+        
+        // Then
+        assertNull(version.getDeltaBaseVersion());
+        assertNull(version.getContentDelta());
+        verifyNoInteractions(textDiffService);
+    }
+
+    @Test
+    @DisplayName("Should store the version body in a content-addressed blob")
+    void shouldStoreBodyInContentAddressedBlob() {
+        // Given
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        // When
+        NoteVersion version = versionManager.createVersion(testNote, testUser.getId());
+        
+        // Then
+        String hash = ContentHash.of("Test Title", "Test Content");
+        assertEquals(hash, version.getContentHash());
+        verify(versionBlobRepository).upsert(hash, "Test Title", "Test Content");
+    }
+
+    @Test
+    @DisplayName("Should reuse blobs across restore and undo cycles")
+    void shouldReuseBlobsAcrossRestoreCycles() {
+        // Given - una nota modificata e ripristinata più volte tra tre stati
+        String[][] states = {
+            {"Draft", "First draft"}, {"Draft", "Second draft"}, {"Final", "Published text"}
+        };
+        when(noteVersionRepository.saveAndFlush(any(NoteVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Set<String> blobs = new HashSet<>();
+        when(versionBlobRepository.upsert(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            blobs.add(invocation.getArgument(0));
+            return 1;
+        });
+        
+        // When
+        int versions = 30;
+        for (int i = 0; i < versions; i++) {
+            String[] state = states[i % states.length];
+            testNote.setTitle(state[0]);
+            testNote.setContent(state[1]);
+            versionManager.createVersion(testNote, testUser.getId());
+        }
+        
+        // Then - 30 versioni, 3 corpi memorizzati
+        assertEquals(3, blobs.size());
+        verify(versionBlobRepository, times(versions)).upsert(anyString(), anyString(), anyString());
+    }
+
     private NoteVersion createMockVersion(Long id, Integer versionNumber) {
         NoteVersion version = new NoteVersion();
         version.setId(id);
@@ -0,0 +1,86 @@
+package com.notabene.service.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Set;
+
+class JdbcNoteAccessCheckerTest {
+
+    NamedParameterJdbcTemplate jdbc = mock(NamedParameterJdbcTemplate.class);
+
+    JdbcNoteAccessChecker checker = new JdbcNoteAccessChecker(jdbc);
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readableByUser_verifica_solo_le_note_non_ancora_note_nella_richiesta() {
+        when(jdbc.queryForList(anyString(), any(SqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(1L), List.of(3L));
+
+        assertThat(checker.readableByUser(List.of(1L, 2L), 42L)).containsExactly(1L);
+        assertThat(checker.readableByUser(List.of(3L, 1L, 2L), 42L)).containsExactly(1L, 3L);
+
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc, times(2)).queryForList(sql.capture(), params.capture(), eq(Long.class));
+        assertThat(sql.getValue()).contains("n.id IN (:noteIds)");
+        assertThat(((MapSqlParameterSource) params.getValue()).getValue("noteIds")).isEqualTo(Set.of(3L));
+    }
+
+    @Test
+    void readableByUser_restituisce_gli_id_in_ordine() {
+        when(jdbc.queryForList(anyString(), any(SqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(9L, 4L, 7L));
+
+        assertThat(checker.readableByUser(List.of(9L, 7L, 4L), 42L)).containsExactly(4L, 7L, 9L);
+    }
+
+    @Test
+    void isOwnedByUser_usa_exists_e_memorizza_la_risposta() {
+        when(jdbc.queryForObject(anyString(), any(SqlParameterSource.class), eq(Boolean.class))).thenReturn(true);
+
+        assertThat(checker.isOwnedByUser(5L, 42L)).isTrue();
+        assertThat(checker.isOwnedByUser(5L, 42L)).isTrue();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc, times(1)).queryForObject(sql.capture(), any(SqlParameterSource.class), eq(Boolean.class));
+        assertThat(sql.getValue()).startsWith("SELECT EXISTS");
+    }
+
+    @Test
+    void senza_richiesta_non_memorizza() {
+        RequestContextHolder.resetRequestAttributes();
+        when(jdbc.queryForObject(anyString(), any(SqlParameterSource.class), eq(Boolean.class))).thenReturn(false);
+
+        checker.isOwnedByUser(5L, 42L);
+        checker.isOwnedByUser(5L, 42L);
+
+        verify(jdbc, times(2)).queryForObject(anyString(), any(SqlParameterSource.class), eq(Boolean.class));
+    }
+}
@@ -0,0 +1,19 @@
+-- Trigger di init.sql che lo schema create-drop di Hibernate non crea.
+-- Corpi tra apici singoli: lo splitter degli script di Spring non riconosce il dollar quoting.
+
+-- Reference count dei blob, come in init.sql
+CREATE OR REPLACE FUNCTION version_blob_refcount() RETURNS trigger AS '
+BEGIN
+  IF TG_OP = ''INSERT'' THEN
+    UPDATE version_blobs SET ref_count = ref_count + 1 WHERE content_hash = NEW.content_hash;
+    RETURN NEW;
+  END IF;
+  UPDATE version_blobs SET ref_count = ref_count - 1 WHERE content_hash = OLD.content_hash;
+  DELETE FROM version_blobs WHERE content_hash = OLD.content_hash AND ref_count <= 0;
+  RETURN OLD;
+END' LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_note_versions_blob_refcount ON note_versions;
+CREATE TRIGGER trg_note_versions_blob_refcount
+AFTER INSERT OR DELETE ON note_versions
+FOR EACH ROW EXECUTE FUNCTION version_blob_refcount();
@@ -18,6 +18,8 @@ const EditNote: React.FC<EditNoteProps> = ({ note, onNoteUpdated, onCancel }) =>
     content: note.content
   });
   const [tags, setTags] = useState<TagDTO[]>(note.tags ?? []);
+  // Revision the edit starts from: concurrent edits since then are merged server-side
+  const [baseHash, setBaseHash] = useState<string | undefined>(note.contentHash);
   const [openTagModal, setOpenTagModal] = useState(false);
 
   const [isSubmitting, setIsSubmitting] = useState(false);
@@ -27,6 +29,7 @@ const EditNote: React.FC<EditNoteProps> = ({ note, onNoteUpdated, onCancel }) =>
   useEffect(() => {
     setUpdatedNote({ title: note.title, content: note.content });
     setTags(note.tags ?? []);
+    setBaseHash(note.contentHash);
   }, [note]);
 
   const handleSubmit = async (e: FormEvent) => {
@@ -57,10 +60,18 @@ const EditNote: React.FC<EditNoteProps> = ({ note, onNoteUpdated, onCancel }) =>
         title: updatedNote.title,
         content: updatedNote.content,
         tagIds: tags.map(t => t.id), // Send selected tags
+        ...(baseHash ? { merge: true, baseHash } : { revision: note.revision }),
       });
       onNoteUpdated(response.data);
     } catch (err: any) {
-      if (err.response?.data?.message) {
+      if (err.response?.status === 409 && err.response.data?.mergedContent !== undefined) {
+        // Overlapping edits: show the merged text with conflict markers, based on the current revision
+        setUpdatedNote({ title: err.response.data.mergedTitle, content: err.response.data.mergedContent });
+        setBaseHash(err.response.data.currentHash);
+        setError('Un altro utente ha modificato le stesse parti della nota: risolvi i conflitti segnati e salva di nuovo.');
+      } else if (err.response?.status === 409) {
+        setError('La nota è stata modificata da un altro utente nel frattempo. Ricaricala prima di salvare.');
+      } else if (err.response?.data?.message) {
         setError(err.response.data.message);
       } else if (err.response?.data?.errors) {
         setError(err.response.data.errors.join(', '));
@@ -1,6 +1,6 @@
 import React, { useEffect, useState } from 'react';
-import { NoteVersion, Note, EnhancedVersionComparisonDTO } from '../../services/api';
-import { getVersionHistory, getSpecificVersion, restoreToVersion, compareVersionsEnhanced } from '../../services/api';
+import { NoteVersionSummary, NoteVersionContent, Note, EnhancedVersionComparisonDTO } from '../../services/api';
+import { getVersionSummaries, getVersionContent, restoreToVersion, compareVersionsEnhanced } from '../../services/api';
 import { useModal } from '../../hooks/useModal';
 import EnhancedVersionComparison from './EnhancedVersionComparison';
 import './NoteVersions.css';
@@ -21,8 +21,9 @@ const NoteVersions: React.FC<NoteVersionsProps> = ({
   onNoteUpdated
 }) => {
   const { showInfo, showWarningConfirm, showConfirm } = useModal();
-  const [versions, setVersions] = useState<NoteVersion[]>([]);
-  const [selectedVersion, setSelectedVersion] = useState<NoteVersion | null>(null);
+  const [versions, setVersions] = useState<NoteVersionSummary[]>([]);
+  // Il contenuto viene caricato solo quando una versione viene aperta
+  const [selectedVersion, setSelectedVersion] = useState<(NoteVersionSummary & NoteVersionContent) | null>(null);
   const [isLoading, setIsLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [isRestoring, setIsRestoring] = useState(false);
@@ -39,7 +40,7 @@ const NoteVersions: React.FC<NoteVersionsProps> = ({
     try {
       setIsLoading(true);
       setError(null);
-      const versionHistory = await getVersionHistory(noteId);
+      const versionHistory = await getVersionSummaries(noteId);
       setVersions(versionHistory);
     } catch (err) {
       setError('Errore nel caricamento dello storico versioni');
@@ -48,11 +49,11 @@ const NoteVersions: React.FC<NoteVersionsProps> = ({
     }
   };
 
-  const handleVersionSelect = async (version: NoteVersion) => {
+  const handleVersionSelect = async (version: NoteVersionSummary) => {
     try {
       setError(null);
-      const fullVersion = await getSpecificVersion(noteId, version.versionNumber);
-      setSelectedVersion(fullVersion);
+      const versionContent = await getVersionContent(noteId, version.versionNumber);
+      setSelectedVersion({ ...version, ...versionContent });
     } catch (err) {
       setError('Errore nel caricamento della versione');
     }
@@ -74,6 +74,8 @@ export interface Note {
   creatorId?: number;
   currentVersion?: number;  // Current version of the note
   currentVersionPointer?: number; // Which version is currently displayed
+  contentHash?: string; // Revision of title and content, base for patchNote
+  revision?: number; // Optimistic lock revision, sent back with updateNote and restoreToVersion
   readers?: string[];
   writers?: string[];
   isShared?: boolean;
@@ -103,6 +105,71 @@ export interface NoteVersion {
   restoredFromVersion?: number; // From which version it was restored (if applicable)
 }
 
+// Version metadata for the history list (no title, content or permissions)
+export interface NoteVersionSummary {
+  id: number;
+  noteId: number;
+  versionNumber: number;
+  createdBy: number;
+  createdByUsername?: string;
+  createdAt: string;
+  isRestored: boolean;
+  restoredFromVersion?: number;
+}
+
+export interface NoteVersionContent {
+  versionNumber: number;
+  title: string;
+  content: string;
+}
+
+// Run of text introduced by one version (offsets in UTF-16 units, as JS string indices)
+export interface BlameSpan {
+  offset: number;
+  length: number;
+  text: string;
+  versionNumber: number;
+  createdBy?: number;
+  createdByUsername?: string;
+}
+
+export interface NoteBlame {
+  noteId: number;
+  versionNumber: number; // current state, numbered as in the history
+  title: BlameSpan[];
+  content: BlameSpan[];
+}
+
+// Outcome of a bulk import; only the first errors are listed
+export interface NoteImportReport {
+  imported: number;
+  failed: number;
+  errors: { line: number; message: string }[];
+  errorsTruncated: boolean;
+  durationMs: number;
+}
+
+// Batch of note operations; each operation applies to every id in noteIds
+export type BatchOperationType =
+  'create' | 'update' | 'delete' | 'addTags' | 'removeTags' | 'addToFolder' | 'removeFromFolder';
+
+export interface BatchOperation {
+  type: BatchOperationType;
+  noteIds?: number[];
+  title?: string;
+  content?: string;
+  tagIds?: number[];
+  folderId?: number;
+  revision?: number;
+}
+
+export interface BatchNoteResponse {
+  results: { index: number; noteId?: number; status: number; error?: string; note?: Note }[];
+  succeeded: number;
+  failed: number;
+  rolledBack: boolean;
+}
+
 // ✅ ENHANCED COMPARISON TYPES
 export interface DiffSegment {
   text: string;
@@ -114,6 +181,7 @@ export interface TextDiffDTO {
   rightText: string;
   leftSegments: DiffSegment[];
   rightSegments: DiffSegment[];
+  exact: boolean; // false when the diff hit the server limits (middle shown as one replacement)
 }
 
 export interface EnhancedVersionComparisonDTO {
@@ -122,6 +190,32 @@ export interface EnhancedVersionComparisonDTO {
   titleDiff: TextDiffDTO;
   contentDiff: TextDiffDTO;
   hasChanges: boolean;
+  exact: boolean;
+}
+
+// [op, leftOffset, rightOffset, length] - offsets index leftText/rightText
+export type EditOp = ['EQUAL' | 'ADDED' | 'REMOVED', number, number, number];
+
+export interface CompactTextDiffDTO {
+  leftText: string;
+  rightText: string;
+  ops: EditOp[];
+  exact: boolean;
+}
+
+export interface VersionRef {
+  versionNumber: number;
+  createdBy: number;
+  createdAt: string;
+}
+
+export interface CompactVersionComparisonDTO {
+  leftVersion: VersionRef;
+  rightVersion: VersionRef;
+  titleDiff: CompactTextDiffDTO;
+  contentDiff: CompactTextDiffDTO;
+  hasChanges: boolean;
+  exact: boolean;
 }
 
 export interface CreateNoteRequest {
@@ -134,6 +228,23 @@ export interface UpdateNoteRequest {
   title: string;
   content: string;
   tagIds: number[];
+  revision?: number; // rejected with 409 (and currentRevision) if the note has moved on
+  merge?: boolean;   // merge with concurrent edits made since baseHash
+  baseHash?: string; // contentHash the edit started from (merge mode)
+}
+
+// Offsets are string indices, applied in order after the previous ops on the same field
+export interface EditOperation {
+  field?: 'title' | 'content'; // default 'content'
+  type: 'insert' | 'delete';
+  offset: number;
+  text?: string;   // insert
+  length?: number; // delete
+}
+
+export interface PatchNoteRequest {
+  baseHash: string; // contentHash of the note the ops were made on
+  ops: EditOperation[];
 }
 
 export interface NotePermissions {
@@ -142,6 +253,19 @@ export interface NotePermissions {
   creator: string;
 }
 
+// Bulk grant or revoke of one role on many notes for many users
+export interface BulkShareRequest {
+  noteIds: number[];
+  usernames: string[];
+  role: 'reader' | 'writer';
+}
+
+export interface BulkShareResponse {
+  updatedNotes: number;
+  skippedNoteIds: number[];
+  unknownUsernames: string[];
+}
+
 export interface AddPermissionRequest {
   username: string;
 }
@@ -155,6 +279,7 @@ export interface SearchNotesRequest {
   updatedAfter?: string;
   updatedBefore?: string;
   folderId?: number;
+  includeSubfolders?: boolean;
 }
 
 export interface LoginPayload {
@@ -178,8 +303,22 @@ export const notesApi = {
     api.post<Note>('/notes', body),
   updateNote: (id: number, body: UpdateNoteRequest) =>
     api.put<Note>(`/notes/${id}`, body),
+  // Incremental edit: rejected with 409 (and the current hash) if the note changed after baseHash
+  patchNote: (id: number, body: PatchNoteRequest) =>
+    api.patch<Note>(`/notes/${id}`, body),
   deleteNote: (id: number) => api.delete(`/notes/${id}`),
   copyNote: (id: number) => api.post<Note>(`/notes/${id}/copy`),
+  // Bulk import from an NDJSON or CSV file, streamed as the request body
+  importNotes: (file: File, format: 'ndjson' | 'csv') =>
+    api.post<NoteImportReport>('/notes/import', file, {
+      headers: { 'Content-Type': format === 'csv' ? 'text/csv' : 'application/x-ndjson' },
+    }),
+  // Own notes as NDJSON (importable as-is) or zipped, optionally with the version history
+  exportNotes: (format: 'ndjson' | 'zip' = 'ndjson', history = false) =>
+    api.get<Blob>('/notes/export', { params: { format, history }, responseType: 'blob' }),
+  // Several operations in one request; with atomic=true either all are applied or none
+  batch: (operations: BatchOperation[], atomic = false) =>
+    api.post<BatchNoteResponse>('/notes/batch', { operations, atomic }),
   
   // Search notes - simple methods for compatibility
   searchNotes: (query: string) => api.get<Note[]>(`/notes/search?q=${encodeURIComponent(query)}`),
@@ -214,6 +353,13 @@ export const notesApi = {
   removeWriterPermission: (noteId: number, username: string) =>
     api.delete(`/notes/${noteId}/permissions/writers/${username}`),
   
+  // Bulk sharing; repeating a request has no further effect
+  grantBulk: (request: BulkShareRequest) =>
+    api.post<BulkShareResponse>('/notes/permissions/bulk', request),
+  
+  revokeBulk: (request: BulkShareRequest) =>
+    api.delete<BulkShareResponse>('/notes/permissions/bulk', { data: request }),
+  
   // Leave shared note (self-removal)
   leaveSharedNote: (noteId: number) =>
     api.delete(`/notes/${noteId}/leave`),
@@ -245,30 +391,97 @@ export type Folder = {
   name: string;
   createdAt: string;
   notes: { id: number; title: string }[]; // risposta leggera
+  noteCount?: number; // presente nell'elenco delle cartelle
 };
 
 export type CreateFolderRequest = {
   name: string;
+  parentId?: number | null; // assente o null: cartella di primo livello
+};
+
+// Nodo dell'albero delle cartelle con i conteggi delle note
+export type FolderNode = {
+  id: number;
+  name: string;
+  parentId: number | null;
+  noteCount: number;
+  subtreeNoteCount: number;
+};
+
+// Pagina del contenuto di una cartella: nextCursor va passato come after, null a fine elenco
+export type FolderContentsPage = {
+  notes: Note[];
+  nextCursor: number | null;
+};
+
+// Esiti delle operazioni massive tra cartelle
+export type MoveNotesResult = {
+  movedNoteIds: number[];
+  skippedNoteIds: number[];
+};
+
+export type CopyNotesResult = {
+  copies: { sourceId: number; copyId: number }[];
+  skippedNoteIds: number[];
 };
 
 // --- CLIENT FOLDERS ---
 export const foldersApi = {
   createFolder: (req: CreateFolderRequest) => {
-    return api.post('/folders', { name: req.name });
+    return api.post('/folders', { name: req.name, parentId: req.parentId ?? null });
   },
   getFolders: () => api.get<Folder[]>('/folders'),
+  getFolderTree: () => api.get<FolderNode[]>('/folders/tree'),
+  moveFolder: (id: number, parentId: number | null) =>
+    api.post<Folder>(`/folders/${id}/move`, { parentId }),
   getFolder: (id: number) => api.get<Folder>(`/folders/${id}`),
+  getFolderContents: (id: number, after?: number | null, size?: number) =>
+    api.get<FolderContentsPage>(`/folders/${id}/notes`, { params: { after: after ?? undefined, size } }),
   deleteFolder: (id: number) => api.delete<void>(`/folders/${id}`),
   addNoteToFolder: (folderId: number, noteId: number) =>
     api.post<Folder>(`/folders/${folderId}/notes/${noteId}`),
   removeNoteFromFolder: (folderId: number, noteId: number) =>
     api.delete<Folder>(`/folders/${folderId}/notes/${noteId}`),
+  moveNotesToFolder: (folderId: number, fromFolderId: number, noteIds: number[]) =>
+    api.post<MoveNotesResult>(`/folders/${folderId}/notes/move`, { fromFolderId, noteIds }),
+  copyNotesToFolder: (folderId: number, noteIds: number[]) =>
+    api.post<CopyNotesResult>(`/folders/${folderId}/notes/copy`, { noteIds }),
+  duplicateFolder: (id: number) => api.post<Folder>(`/folders/${id}/duplicate`),
   
   // Ricerca avanzata nelle cartelle - nuovo
   searchNotesInFolder: (folderId: number, searchRequest: SearchNotesRequest) =>
     api.post<Note[]>(`/folders/${folderId}/search`, searchRequest),
 };
 
+// Gruppi di utenti come destinatari della condivisione
+export type Group = {
+  id: number;
+  name: string;
+  owned: boolean;
+  memberCount: number;
+};
+
+export type GroupDetail = {
+  id: number;
+  name: string;
+  ownerId: number;
+  members: { id: number; username: string }[];
+};
+
+export const groupsApi = {
+  getGroups: () => api.get<Group[]>('/groups'),
+  getGroup: (id: number) => api.get<GroupDetail>(`/groups/${id}`),
+  createGroup: (name: string) => api.post<Group>('/groups', { name }),
+  deleteGroup: (id: number) => api.delete<void>(`/groups/${id}`),
+  addMembers: (id: number, usernames: string[]) =>
+    api.post<{ added: number; unknownUsernames: string[] }>(`/groups/${id}/members`, { usernames }),
+  removeMember: (id: number, userId: number) => api.delete<void>(`/groups/${id}/members/${userId}`),
+  shareNotes: (id: number, noteIds: number[], write = false) =>
+    api.post<{ updatedNotes: number; skippedNoteIds: number[] }>(`/groups/${id}/notes`, { noteIds, write }),
+  unshareNotes: (id: number, noteIds: number[]) =>
+    api.delete<{ updatedNotes: number; skippedNoteIds: number[] }>(`/groups/${id}/notes`, { data: { noteIds } }),
+};
+
 
 api.interceptors.request.use((config) => {
   const token = getAuthToken();
@@ -311,6 +524,30 @@ export async function getVersionHistory(noteId: number): Promise<NoteVersion[]>
   return response.data;
 }
 
+/**
+ * Get version history metadata only (fast, for the history panel)
+ */
+export async function getVersionSummaries(noteId: number): Promise<NoteVersionSummary[]> {
+  const response = await api.get<NoteVersionSummary[]>(`/notes/${noteId}/versions/summary`);
+  return response.data;
+}
+
+/**
+ * Get the title and content of a single version, on demand
+ */
+export async function getVersionContent(noteId: number, versionNumber: number): Promise<NoteVersionContent> {
+  const response = await api.get<NoteVersionContent>(`/notes/${noteId}/versions/${versionNumber}/content`);
+  return response.data;
+}
+
+/**
+ * Get the note split into spans, each with the version and author that introduced it
+ */
+export async function getNoteBlame(noteId: number): Promise<NoteBlame> {
+  const response = await api.get<NoteBlame>(`/notes/${noteId}/blame`);
+  return response.data;
+}
+
 /**
  * Get a specific version of a note
  */
@@ -322,21 +559,69 @@ export async function getSpecificVersion(noteId: number, versionNumber: number):
 /**
  * Restore a note to a specific version
  */
-export async function restoreToVersion(noteId: number, versionNumber: number): Promise<Note> {
+export async function restoreToVersion(noteId: number, versionNumber: number, revision?: number): Promise<Note> {
   try {
-    const response = await api.post<Note>(`/notes/${noteId}/versions/${versionNumber}/restore`);
+    const response = await api.post<Note>(`/notes/${noteId}/versions/${versionNumber}/restore`, null, {
+      params: revision !== undefined ? { revision } : undefined,
+    });
     return response.data;
   } catch (error) {
     throw error;
   }
 }
 
+export type DiffGranularity = 'char' | 'word' | 'line';
+
+// Optional per-request diff limits (they can only tighten the server defaults)
+export interface DiffLimits {
+  timeoutMs?: number;
+  maxEditDistance?: number;
+}
+
 /**
- * Compare two versions of a note with enhanced character-level diff
+ * Compare two versions of a note with enhanced diff (char, word or line granularity)
  */
-export async function compareVersionsEnhanced(noteId: number, oldVersion: number, newVersion: number): Promise<EnhancedVersionComparisonDTO> {
+export async function compareVersionsEnhanced(noteId: number, oldVersion: number, newVersion: number, granularity: DiffGranularity = 'char', limits: DiffLimits = {}): Promise<EnhancedVersionComparisonDTO> {
   const response = await api.get<EnhancedVersionComparisonDTO>(`/notes/${noteId}/versions/compare`, {
-    params: { oldVersion, newVersion }
+    params: { oldVersion, newVersion, granularity, ...limits }
+  });
+  return response.data;
+}
+
+/**
+ * Compare two versions of a note using the compact offset-based diff format
+ */
+export async function compareVersionsCompact(noteId: number, oldVersion: number, newVersion: number, granularity: DiffGranularity = 'char', limits: DiffLimits = {}): Promise<CompactVersionComparisonDTO> {
+  const response = await api.get<CompactVersionComparisonDTO>(`/notes/${noteId}/versions/compare`, {
+    params: { oldVersion, newVersion, granularity, format: 'compact', ...limits }
+  });
+  return response.data;
+}
+
+export interface VersionPair {
+  oldVersion: number;
+  newVersion: number;
+}
+
+export interface PairComparisonResult {
+  oldVersion: number;
+  newVersion: number;
+  comparison?: CompactVersionComparisonDTO;
+  durationMicros: number;
+  error?: string;
+}
+
+export interface BatchVersionComparisonDTO {
+  results: PairComparisonResult[];
+  totalMillis: number;
+}
+
+/**
+ * Compare several pairs of versions in one request (compact format, results in request order)
+ */
+export async function compareVersionsBatch(noteId: number, pairs: VersionPair[], granularity: DiffGranularity = 'char', limits: DiffLimits = {}): Promise<BatchVersionComparisonDTO> {
+  const response = await api.post<BatchVersionComparisonDTO>(`/notes/${noteId}/versions/compare-batch`, {
+    pairs, granularity, ...limits
   });
   return response.data;
 }